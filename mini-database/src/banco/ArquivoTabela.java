@@ -0,0 +1,672 @@
+package banco;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+import modelo.auxiliar.CompressorBlocos;
+
+/**
+ * Classe que le/escreve a tabela de registros do banco em um arquivo paginado, i.e., um arquivo
+ * em que cada bloco da tabela pode ser lido sozinho. Assim, um banco pode ser aberto lendo so o
+ * diretorio de blocos, e cada bloco so e lido do disco quando um dos seus registros e usado.
+ *
+ * </p>Formato do arquivo:
+ * </p>- Cabecalho: o numero magico {@link #MAGICO}, a versao do formato, o nome do codec e se os
+ * blocos estao comprimidos.
+ * </p>- Blocos: os bytes dos registros de cada bloco da tabela, um depois do outro, comprimidos
+ * com o {@link CompressorBlocos} caso o nivel de compressao tenha sido escolhido.
+ * </p>- Diretorio: a posicao de inicio de cada bloco ({@code long}), o checksum CRC32C de cada
+ * bloco ({@code int}) e o tamanho de cada registro ({@code int}, ou -1 para posicoes vazias).
+ * </p>- Rodape, com tamanho fixo: a posicao do diretorio, a quantidade de posicoes da tabela, a
+ * quantidade de posicoes ocupadas, a soma do tamanho dos registros, o checksum da parte do
+ * diretorio com as posicoes e os checksums dos blocos e o numero magico de novo.
+ *
+ * </p>O checksum de um bloco cobre o tamanho dos seus registros e os seus bytes gravados, e e
+ * verificado sempre que o bloco e lido, antes dele ser descomprimido. O rodape e o diretorio sao
+ * verificados ao abrir o arquivo, entao um arquivo incompleto e recusado na hora. Arquivos nas
+ * versoes 1 (sem checksums) e 2 (sem compressao) tambem sao lidos.
+ *
+ * </p>Um objeto dessa classe e compartilhado pela tabela do banco e pelas suas copias instantaneas.
+ * Quando uma copia e salva, o arquivo novo passa a ser lido no lugar do antigo: os blocos que ainda
+ * nao foram lidos nunca foram alterados, entao eles sao iguais nos dois arquivos.
+ *
+ * </p>Uma copia que dura mais que isso, como a de uma {@link VisaoBanco}, pode ter blocos que o
+ * banco alterou e salvou depois dela, entao ela le os blocos de uma {@link Leitura} fixada com
+ * {@link #fixa()}, que continua lendo o arquivo que estava aberto, mesmo depois de ele ser
+ * substituido.
+ *
+ * @see TabelaSerializada
+ */
+public class ArquivoTabela {
+	/**
+	 * Numero magico que identifica os arquivos de tabela paginados ("MBDT").
+	 */
+	public static final int MAGICO = 0x4D424454;
+
+	/**
+	 * Versao atual do formato do arquivo.
+	 */
+	public static final int VERSAO = 3;
+
+	/**
+	 * Tamanho, em bytes, do rodape do arquivo na versao 1, que nao tem o checksum do diretorio.
+	 */
+	private static final int TAMANHO_RODAPE_V1 = 8 + 4 + 4 + 8 + 4;
+
+	/**
+	 * Tamanho, em bytes, do rodape do arquivo.
+	 */
+	private static final int TAMANHO_RODAPE = TAMANHO_RODAPE_V1 + 4;
+
+	/**
+	 * Nome do arquivo, sem a extensao.
+	 */
+	private final String nomeArquivo;
+
+	/**
+	 * Nivel de compressao dos blocos salvos, ou {@link CompressorBlocos#SEM_COMPRESSAO}.
+	 */
+	private int nivelCompressao;
+
+	/**
+	 * Fecha os arquivos de leituras fixadas que nao sao mais usadas.
+	 */
+	private static final Cleaner LIMPADOR = Cleaner.create();
+
+	/**
+	 * Leitura do arquivo aberto, ou {@code null}, caso ele esteja fechado. Protegida pelo proprio objeto.
+	 */
+	private Leitura leitura;
+
+	/**
+	 * Fonte dos blocos das tabelas abertas desse arquivo, que le sempre do arquivo aberto no momento.
+	 */
+	private final TabelaSerializada.FonteBlocos fonte = new TabelaSerializada.FonteBlocos() {
+		@Override
+		public byte[][] leBloco(int indice) throws IOException {
+			return ArquivoTabela.this.leBloco(indice);
+		}
+
+		@Override
+		public TabelaSerializada.FonteBlocos fixa() throws IOException {
+			return ArquivoTabela.this.fixa();
+		}
+	};
+
+	/**
+	 * Constroi uma instancia da classe, que guardara a tabela no arquivo passado.
+	 *
+	 * @param nomeArquivo nome do arquivo onde a tabela sera guardada, sem a extensao.
+	 */
+	public ArquivoTabela(String nomeArquivo) {
+		this.nomeArquivo = nomeArquivo;
+		this.nivelCompressao = CompressorBlocos.SEM_COMPRESSAO;
+	}
+
+	/**
+	 * Getter do nome do arquivo.
+	 *
+	 * @return o nome do arquivo.
+	 */
+	public String getNomeArquivo() {
+		return this.nomeArquivo + ".bin";
+	}
+
+	/**
+	 * Getter do nivel de compressao.
+	 *
+	 * @return o nivel de compressao dos blocos salvos.
+	 */
+	public int getNivelCompressao() {
+		return this.nivelCompressao;
+	}
+
+	/**
+	 * Setter do nivel de compressao. So afeta os proximos arquivos salvos, ja que o arquivo diz
+	 * se os seus blocos estao comprimidos.
+	 *
+	 * @param nivelCompressao {@link CompressorBlocos#SEM_COMPRESSAO}, ou um nivel entre
+	 * {@link CompressorBlocos#NIVEL_MINIMO} e {@link CompressorBlocos#NIVEL_MAXIMO}.
+	 *
+	 * @throws IllegalArgumentException Caso o nivel seja invalido.
+	 */
+	public void setNivelCompressao(int nivelCompressao) {
+		CompressorBlocos.validaNivel(nivelCompressao);
+		this.nivelCompressao = nivelCompressao;
+	}
+
+	/**
+	 * Verifica se o arquivo existe e esta no formato paginado. Arquivos salvos antes desse
+	 * formato guardam a tabela serializada inteira.
+	 *
+	 * @return {@code true} caso o arquivo exista e comece com o numero magico.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	public boolean ehPaginado() throws IOException {
+		final Path caminho = Paths.get(this.getNomeArquivo());
+
+		if(!Files.exists(caminho)) {
+			return false;
+		}
+
+		try(FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+			final ByteBuffer magico = ByteBuffer.allocate(4);
+			return canal.read(magico, 0) == 4 && magico.getInt(0) == MAGICO;
+		}
+	}
+
+	/**
+	 * Abre o arquivo e cria uma tabela em que nenhum bloco foi lido ainda. So o rodape, o
+	 * cabecalho e a posicao dos blocos sao lidos.
+	 *
+	 * @return a tabela do arquivo.
+	 *
+	 * @throws IOException Caso o arquivo nao exista, nao seja uma tabela paginada ou esteja incompleto.
+	 */
+	public synchronized TabelaSerializada abre() throws IOException {
+		this.fecha();
+
+		final Path caminho = Paths.get(this.getNomeArquivo());
+		final FileChannel novoCanal;
+
+		try {
+			novoCanal = FileChannel.open(caminho, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("Erro ao tentar abrir o arquivo " + this.getNomeArquivo() + ".");
+		}
+
+		try {
+			final long tamanhoArquivo = novoCanal.size();
+
+			if(tamanhoArquivo < 10) {
+				throw new StreamCorruptedException("O arquivo " + this.getNomeArquivo() + " esta incompleto.");
+			}
+
+			final ByteBuffer cabecalho = le(novoCanal, 0, 10);
+			final int versao = cabecalho.getInt(4);
+
+			if(cabecalho.getInt() != MAGICO || versao < 1 || versao > VERSAO) {
+				throw new IOException("O arquivo " + this.getNomeArquivo() + " nao e uma tabela em uma versao suportada.");
+			}
+
+			final int tamanhoRodape = versao == 1 ? TAMANHO_RODAPE_V1 : TAMANHO_RODAPE;
+
+			if(tamanhoArquivo < 10 + tamanhoRodape) {
+				throw new StreamCorruptedException("O arquivo " + this.getNomeArquivo() + " esta incompleto.");
+			}
+
+			final ByteBuffer rodape = le(novoCanal, tamanhoArquivo - tamanhoRodape, tamanhoRodape);
+			final long posicaoDiretorio = rodape.getLong();
+			final int qtdPosicoes = rodape.getInt();
+			final int qtdOcupadas = rodape.getInt();
+			final long qtdBytes = rodape.getLong();
+			final int checksumDiretorio = versao == 1 ? 0 : rodape.getInt();
+
+			if(rodape.getInt() != MAGICO || qtdPosicoes < 0 || posicaoDiretorio < 0 || posicaoDiretorio > tamanhoArquivo
+					|| posicaoDiretorio + (versao == 1 ? 8L : 12L) * qtdBlocos(qtdPosicoes) + 4L * qtdPosicoes
+					+ tamanhoRodape != tamanhoArquivo) {
+				throw new StreamCorruptedException("O arquivo " + this.getNomeArquivo() + " esta incompleto.");
+			}
+
+			cabecalho.position(8);
+			final int tamanhoNome = cabecalho.getShort() & 0xFFFF;
+			final String nomeCodec = StandardCharsets.UTF_8.decode(le(novoCanal, 10, tamanhoNome)).toString();
+			final boolean comprimido = versao > 2 && le(novoCanal, 10 + tamanhoNome, 1).get() != 0;
+
+			final int qtdBlocos = qtdBlocos(qtdPosicoes);
+			final ByteBuffer diretorio = le(novoCanal, posicaoDiretorio, (versao == 1 ? 8 : 12) * qtdBlocos);
+			final long[] posicaoBlocos = new long[qtdBlocos];
+			final int[] checksumBlocos = new int[qtdBlocos];
+
+			if(versao > 1 && checksum(diretorio) != checksumDiretorio) {
+				throw new StreamCorruptedException("O diretorio do arquivo " + this.getNomeArquivo() + " esta corrompido.");
+			}
+
+			for(int i = 0; i < qtdBlocos; i++) {
+				posicaoBlocos[i] = diretorio.getLong();
+			}
+
+			for(int i = 0; versao > 1 && i < qtdBlocos; i++) {
+				checksumBlocos[i] = diretorio.getInt();
+			}
+
+			this.leitura = new Leitura(novoCanal, versao, comprimido, posicaoBlocos, checksumBlocos, posicaoDiretorio, qtdPosicoes);
+
+			return TabelaSerializada.preguicosa(this.fonte, nomeCodec, qtdPosicoes, qtdOcupadas, qtdBytes);
+		} catch (IOException e) {
+			novoCanal.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Le um bloco da tabela do arquivo. Caso o arquivo tenha sido fechado, ele e aberto de novo.
+	 *
+	 * @param indice indice do bloco.
+	 *
+	 * @return os registros do bloco, com {@code null} nas posicoes vazias.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 * @throws StreamCorruptedException Caso o checksum do bloco nao confira.
+	 */
+	synchronized byte[][] leBloco(int indice) throws IOException {
+		if(this.leitura == null) {
+			this.abre();
+		}
+
+		return this.leitura.leBloco(indice);
+	}
+
+	/**
+	 * Fixa a leitura do arquivo aberto agora, abrindo ele caso necessario. A leitura devolvida
+	 * continua lendo esse arquivo mesmo depois de ele ser fechado por {@link #fecha()} ou
+	 * substituido por um arquivo salvo depois, e o arquivo dela so e fechado quando ela nao for
+	 * mais usada.
+	 *
+	 * @return a leitura fixada.
+	 *
+	 * @throws IOException Caso o arquivo precise ser aberto e ocorra algum erro.
+	 */
+	synchronized Leitura fixa() throws IOException {
+		if(this.leitura == null) {
+			this.abre();
+		}
+
+		return this.leitura.fixa();
+	}
+
+	/**
+	 * Verifica o checksum de todos os blocos do arquivo, lendo os blocos em paralelo. Os blocos
+	 * lidos sao descartados, i.e., a tabela continua lendo cada bloco so quando ele e usado.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 * @throws StreamCorruptedException Caso o checksum de algum bloco nao confira.
+	 */
+	public synchronized void verifica() throws IOException {
+		if(this.leitura == null) {
+			this.abre();
+		}
+
+		final Leitura aberta = this.leitura;
+
+		// o canal permite leituras em paralelo, ja que cada leitura passa a sua posicao
+		final OptionalInt corrompido = IntStream.range(0, aberta.posicaoBlocos.length).parallel().filter((int i) -> {
+			try {
+				aberta.leBloco(i);
+				return false;
+			} catch (IOException e) {
+				return true;
+			}
+		}).findFirst();
+
+		if(corrompido.isPresent()) {
+			// le de novo para lancar o erro original
+			aberta.leBloco(corrompido.getAsInt());
+		}
+	}
+
+	/**
+	 * Salva uma tabela no arquivo. A tabela e escrita em um arquivo novo, que so substitui o
+	 * anterior depois de completo. Depois disso, os blocos que ainda nao foram lidos passam a
+	 * ser lidos do arquivo novo.
+	 *
+	 * </p>Os blocos sao lidos da tabela em lotes, e os blocos de cada lote sao comprimidos em
+	 * paralelo antes de serem escritos.
+	 *
+	 * @param tabela tabela que sera salva. Ela nao deve ser alterada enquanto e salva, entao
+	 * normalmente e uma copia instantanea.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	public void salva(TabelaSerializada tabela) throws IOException {
+		final Path novo = Paths.get(this.nomeArquivo + "-new.bin");
+
+		this.escreve(tabela, novo);
+
+		synchronized(this) {
+			// o arquivo antigo so e trocado quando ninguem esta lendo dele
+			this.fecha();
+			Files.move(novo, Paths.get(this.getNomeArquivo()), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Salva uma tabela no arquivo pendente de uma copia do banco, sem trocar o arquivo atual, e
+	 * forca o arquivo para o disco. O arquivo so passa a ser lido depois de
+	 * {@link #publica(long)}, quando todos os arquivos da copia estiverem salvos.
+	 *
+	 * @param tabela tabela que sera salva. Ela nao deve ser alterada enquanto e salva.
+	 * @param geracao geracao da copia.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 *
+	 * @see ManifestoBanco
+	 */
+	void salvaPendente(TabelaSerializada tabela, long geracao) throws IOException {
+		final Path pendente = ManifestoBanco.pendente(this.nomeArquivo, geracao);
+
+		this.escreve(tabela, pendente);
+		ManifestoBanco.forca(pendente);
+	}
+
+	/**
+	 * Troca o arquivo atual pelo arquivo pendente de uma copia, caso ele ainda exista. Depois
+	 * disso, os blocos que ainda nao foram lidos passam a ser lidos do arquivo novo.
+	 *
+	 * @param geracao geracao da copia.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao renomear o arquivo.
+	 */
+	synchronized void publica(long geracao) throws IOException {
+		// o arquivo antigo so e trocado quando ninguem esta lendo dele
+		this.fecha();
+		ManifestoBanco.publica(this.nomeArquivo, geracao);
+	}
+
+	/**
+	 * Escreve uma tabela em um arquivo.
+	 *
+	 * @param tabela tabela que sera salva.
+	 * @param novo arquivo escrito.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	private void escreve(TabelaSerializada tabela, Path novo) throws IOException {
+		final int qtdBlocos = qtdBlocos(tabela.tamanho());
+		final long[] posicaoBlocos = new long[qtdBlocos];
+		final int[] checksumBlocos = new int[qtdBlocos];
+		final byte[] nomeCodec = tabela.getNomeCodec().getBytes(StandardCharsets.UTF_8);
+		final int nivel = this.nivelCompressao;
+		final int tamanhoLote = 4 * Runtime.getRuntime().availableProcessors();
+		long posicao = 0;
+
+		try(DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(novo), 1 << 16))) {
+			saida.writeInt(MAGICO);
+			saida.writeInt(VERSAO);
+			saida.writeShort(nomeCodec.length);
+			saida.write(nomeCodec);
+			saida.writeByte(nivel == CompressorBlocos.SEM_COMPRESSAO ? 0 : 1);
+			posicao += 11 + nomeCodec.length;
+
+			for(int primeiro = 0; primeiro < qtdBlocos; primeiro += tamanhoLote) {
+				final int inicioLote = primeiro;
+				final byte[][][] blocos = new byte[Math.min(tamanhoLote, qtdBlocos - primeiro)][][];
+				final byte[][] gravados = new byte[blocos.length][];
+
+				// a tabela pode ler os blocos do arquivo, entao eles sao pegos em ordem
+				for(int i = 0; i < blocos.length; i++) {
+					blocos[i] = tabela.bloco(inicioLote + i);
+				}
+
+				IntStream.range(0, blocos.length).parallel().forEach((int i) -> {
+					final int qtdRegistros = qtdRegistros(tabela.tamanho(), inicioLote + i);
+					final ByteBuffer tamanhos = ByteBuffer.allocate(4 * qtdRegistros);
+					int tamanhoDados = 0;
+
+					for(int j = 0; j < qtdRegistros; j++) {
+						final byte[] registro = blocos[i][j];
+						tamanhos.putInt(registro == null ? -1 : registro.length);
+						tamanhoDados += registro == null ? 0 : registro.length;
+					}
+
+					final ByteBuffer dados = ByteBuffer.allocate(tamanhoDados);
+
+					for(int j = 0; j < qtdRegistros; j++) {
+						if(blocos[i][j] != null) {
+							dados.put(blocos[i][j]);
+						}
+					}
+
+					gravados[i] = nivel == CompressorBlocos.SEM_COMPRESSAO ? dados.array()
+							: CompressorBlocos.comprime(dados.array(), nivel);
+					checksumBlocos[inicioLote + i] = checksum(tamanhos.flip(), ByteBuffer.wrap(gravados[i]));
+				});
+
+				for(int i = 0; i < blocos.length; i++) {
+					posicaoBlocos[inicioLote + i] = posicao;
+					saida.write(gravados[i]);
+					posicao += gravados[i].length;
+				}
+			}
+
+			final long posicaoDiretorio = posicao;
+			final ByteBuffer diretorio = ByteBuffer.allocate(12 * qtdBlocos);
+
+			for(long posicaoBloco : posicaoBlocos) {
+				diretorio.putLong(posicaoBloco);
+			}
+
+			for(int checksumBloco : checksumBlocos) {
+				diretorio.putInt(checksumBloco);
+			}
+
+			diretorio.flip();
+			final int checksumDiretorio = checksum(diretorio);
+			saida.write(diretorio.array());
+
+			for(int i = 0; i < tabela.tamanho(); i++) {
+				final byte[] registro = tabela.le(i);
+				saida.writeInt(registro == null ? -1 : registro.length);
+			}
+
+			saida.writeLong(posicaoDiretorio);
+			saida.writeInt(tabela.tamanho());
+			saida.writeInt(tabela.getQtdOcupadas());
+			saida.writeLong(tabela.getQtdBytes());
+			saida.writeInt(checksumDiretorio);
+			saida.writeInt(MAGICO);
+		} catch (IOException e) {
+			throw new IOException("Erro ao tentar escrever o arquivo " + novo + ".", e);
+		}
+	}
+
+	/**
+	 * Fecha o arquivo, caso ele esteja aberto. Ele e aberto de novo na proxima leitura de bloco.
+	 * Caso a leitura dele tenha sido fixada, o arquivo continua aberto para ela.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao fechar o arquivo.
+	 */
+	public synchronized void fecha() throws IOException {
+		if(this.leitura != null) {
+			if(!this.leitura.fixada) {
+				this.leitura.canal.close();
+			}
+
+			this.leitura = null;
+		}
+	}
+
+	/**
+	 * Leitura de um arquivo aberto: o canal do arquivo e o diretorio de blocos lido na abertura.
+	 * Ela nao muda depois de criada, e o canal permite leituras em paralelo, entao ela pode ser
+	 * usada por varias threads ao mesmo tempo.
+	 */
+	final class Leitura implements TabelaSerializada.FonteBlocos {
+		private final FileChannel canal;
+		private final int versao;
+		private final boolean comprimido;
+		private final long[] posicaoBlocos;
+		private final int[] checksumBlocos;
+		private final long posicaoDiretorio;
+		private final int qtdPosicoes;
+
+		/**
+		 * Indica se a leitura foi fixada, i.e., se o canal so e fechado quando ela nao for mais
+		 * usada. Protegido pelo {@link ArquivoTabela}.
+		 */
+		private boolean fixada = false;
+
+		private Leitura(FileChannel canal, int versao, boolean comprimido, long[] posicaoBlocos, int[] checksumBlocos,
+				long posicaoDiretorio, int qtdPosicoes) {
+			this.canal = canal;
+			this.versao = versao;
+			this.comprimido = comprimido;
+			this.posicaoBlocos = posicaoBlocos;
+			this.checksumBlocos = checksumBlocos;
+			this.posicaoDiretorio = posicaoDiretorio;
+			this.qtdPosicoes = qtdPosicoes;
+		}
+
+		/**
+		 * Fixa a leitura, registrando o fechamento do canal para quando ela nao for mais usada.
+		 *
+		 * @return a propria leitura.
+		 */
+		@Override
+		public Leitura fixa() {
+			synchronized(ArquivoTabela.this) {
+				if(!this.fixada) {
+					this.fixada = true;
+
+					// a acao de limpeza nao pode guardar a leitura, senao ela nunca deixaria de ser usada
+					final FileChannel canalFixado = this.canal;
+					LIMPADOR.register(this, () -> {
+						try {
+							canalFixado.close();
+						} catch (IOException e) {
+							// ninguem mais le do canal
+						}
+					});
+				}
+			}
+
+			return this;
+		}
+
+		/**
+		 * Le e verifica um bloco do arquivo.
+		 *
+		 * @param indice indice do bloco.
+		 *
+		 * @return os registros do bloco, com {@code null} nas posicoes vazias.
+		 *
+		 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+		 * @throws StreamCorruptedException Caso o checksum do bloco nao confira.
+		 */
+		@Override
+		public byte[][] leBloco(int indice) throws IOException {
+			final int primeiraPosicao = indice * TabelaSerializada.TAMANHO_BLOCO;
+			final int qtdRegistros = qtdRegistros(this.qtdPosicoes, indice);
+			final long inicio = this.posicaoBlocos[indice];
+			final long fim = indice + 1 < this.posicaoBlocos.length ? this.posicaoBlocos[indice + 1] : this.posicaoDiretorio;
+			final long inicioTamanhos = this.posicaoDiretorio + (this.versao == 1 ? 8L : 12L) * this.posicaoBlocos.length;
+
+			if(inicio < 0 || fim < inicio) {
+				throw new StreamCorruptedException("O bloco " + indice + " do arquivo " + getNomeArquivo() + " esta corrompido.");
+			}
+
+			final ByteBuffer tamanhos = le(this.canal, inicioTamanhos + 4L * primeiraPosicao, 4 * qtdRegistros);
+			ByteBuffer dados = le(this.canal, inicio, (int) (fim - inicio));
+
+			if(this.versao > 1 && checksum(tamanhos, dados) != this.checksumBlocos[indice]) {
+				throw new StreamCorruptedException("O bloco " + indice + " do arquivo " + getNomeArquivo() + " esta corrompido.");
+			}
+
+			if(this.comprimido) {
+				int tamanhoOriginal = 0;
+
+				for(int i = 0; i < qtdRegistros; i++) {
+					tamanhoOriginal += Math.max(0, tamanhos.getInt(4 * i));
+				}
+
+				try {
+					dados = ByteBuffer.wrap(CompressorBlocos.descomprime(dados.array(), tamanhoOriginal));
+				} catch (StreamCorruptedException e) {
+					throw new StreamCorruptedException("O bloco " + indice + " do arquivo " + getNomeArquivo()
+							+ " esta corrompido: " + e.getMessage());
+				}
+			}
+
+			final byte[][] bloco = new byte[TabelaSerializada.TAMANHO_BLOCO][];
+
+			for(int i = 0; i < qtdRegistros; i++) {
+				final int tamanho = tamanhos.getInt();
+
+				if(tamanho >= 0) {
+					if(tamanho > dados.remaining()) {
+						throw new StreamCorruptedException("O bloco " + indice + " do arquivo " + getNomeArquivo() + " esta corrompido.");
+					}
+
+					bloco[i] = new byte[tamanho];
+					dados.get(bloco[i]);
+				}
+			}
+
+			return bloco;
+		}
+	}
+
+	/**
+	 * Quantidade de posicoes de um bloco de uma tabela. So o ultimo bloco pode ter menos que
+	 * {@link TabelaSerializada#TAMANHO_BLOCO} posicoes.
+	 */
+	private static int qtdRegistros(int qtdPosicoes, int indiceBloco) {
+		return Math.min(TabelaSerializada.TAMANHO_BLOCO, qtdPosicoes - indiceBloco * TabelaSerializada.TAMANHO_BLOCO);
+	}
+
+	/**
+	 * Quantidade de blocos de uma tabela com a quantidade de posicoes passada.
+	 */
+	static int qtdBlocos(int qtdPosicoes) {
+		return (qtdPosicoes + TabelaSerializada.TAMANHO_BLOCO - 1) / TabelaSerializada.TAMANHO_BLOCO;
+	}
+
+	/**
+	 * Calcula o checksum CRC32C dos bytes restantes dos buffers passados, sem alterar a posicao deles.
+	 *
+	 * @param buffers buffers com os bytes.
+	 *
+	 * @return o checksum.
+	 */
+	private static int checksum(ByteBuffer... buffers) {
+		final CRC32C checksum = new CRC32C();
+
+		for(ByteBuffer buffer : buffers) {
+			checksum.update(buffer.duplicate());
+		}
+
+		return (int) checksum.getValue();
+	}
+
+	/**
+	 * Le uma parte do arquivo.
+	 *
+	 * @param canal canal do arquivo.
+	 * @param posicao posicao do primeiro byte lido.
+	 * @param tamanho quantidade de bytes lidos.
+	 *
+	 * @return buffer com os bytes lidos, pronto para leitura.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura, ou o arquivo acabe antes.
+	 */
+	private static ByteBuffer le(FileChannel canal, long posicao, int tamanho) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+
+		while(buffer.hasRemaining()) {
+			if(canal.read(buffer, posicao + buffer.position()) < 0) {
+				throw new EOFException("O arquivo acabou antes do esperado.");
+			}
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+}
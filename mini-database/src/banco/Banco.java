@@ -0,0 +1,69 @@
+package banco;
+
+import java.io.IOException;
+
+/**
+ * Interface com as operacoes basicas de um banco de dados de registros com chave primaria.
+ * Ela permite trocar a forma como o banco guarda os registros sem mudar quem usa o banco.
+ *
+ * @param <T> tipo do objeto guardado no banco.
+ * @param <K> tipo da chave primaria dos objetos.
+ *
+ * @see MiniBD
+ * @see banco.lsm.BancoLsm
+ */
+public interface Banco<T, K extends Comparable<K>> extends AutoCloseable {
+	/**
+	 * Adiciona um registro no banco. Caso ja exista um registro com a mesma chave primaria,
+	 * nada e feito.
+	 *
+	 * @param registro registro que sera adicionado.
+	 */
+	void adiciona(T registro);
+
+	/**
+	 * Remove um registro do banco.
+	 *
+	 * @param chave chave primaria do registro que sera removido.
+	 *
+	 * @return o registro removido, ou {@code null}, caso ele nao esteja no banco.
+	 */
+	T remove(K chave);
+
+	/**
+	 * Substitui o registro que tem a mesma chave primaria pelo registro passado.
+	 *
+	 * @param registro registro com os dados novos.
+	 *
+	 * @return {@code true} caso o registro tenha sido atualizado, ou {@code false}, caso
+	 * nenhum registro do banco tenha a mesma chave.
+	 */
+	boolean atualiza(T registro);
+
+	/**
+	 * Verifica se existe um registro com a chave passada.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return {@code true} caso exista um registro com essa chave, {@code false} caso contrario.
+	 */
+	boolean contem(K chave);
+
+	/**
+	 * Busca o registro de uma chave.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return registro associado a essa chave, ou {@code null}, caso nenhum registro esteja
+	 * associado a essa chave.
+	 */
+	T busca(K chave);
+
+	/**
+	 * Salva o banco nos arquivos e libera os recursos usados por ele.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	@Override
+	void close() throws IOException;
+}
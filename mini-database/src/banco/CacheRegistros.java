@@ -0,0 +1,197 @@
+package banco;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de registros decodificados, indexado pela posicao do registro na tabela do banco.
+ *
+ * </p>O cache tem um orcamento em bytes e, quando ele e ultrapassado, os registros usados
+ * ha mais tempo sao descartados (politica LRU). O tamanho de cada registro e aproximado pelo
+ * tamanho da sua forma codificada. Como a tabela sempre guarda a versao codificada de todos
+ * os registros, descartar um registro do cache nunca perde informacao.
+ *
+ * </p>Todos os metodos sao sincronizados, entao o cache pode ser usado por varias threads, como
+ * acontece nas buscas de um banco congelado.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ */
+public class CacheRegistros<T> {
+	/**
+	 * Registros guardados no cache, na ordem do menos recente para o mais recente.
+	 */
+	private LinkedHashMap<Integer, Entrada<T>> entradas;
+
+	/**
+	 * Quantidade maxima de bytes que os registros do cache podem ocupar.
+	 */
+	private long capacidadeBytes;
+
+	/**
+	 * Quantidade de bytes ocupada pelos registros do cache.
+	 */
+	private long bytesUsados;
+
+	/**
+	 * Quantidade de buscas que encontraram o registro no cache.
+	 */
+	private long acertos;
+
+	/**
+	 * Quantidade de buscas que nao encontraram o registro no cache.
+	 */
+	private long faltas;
+
+	/**
+	 * Constroi um cache vazio.
+	 *
+	 * @param capacidadeBytes quantidade maxima de bytes que os registros podem ocupar.
+	 */
+	public CacheRegistros(long capacidadeBytes) {
+		// o ultimo parametro faz o LinkedHashMap ordenar as entradas pelo acesso mais recente
+		this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+		this.capacidadeBytes = Math.max(0, capacidadeBytes);
+		this.bytesUsados = 0;
+		this.acertos = 0;
+		this.faltas = 0;
+	}
+
+	/**
+	 * Busca um registro no cache.
+	 *
+	 * @param posicao posicao do registro na tabela.
+	 *
+	 * @return o registro decodificado, ou {@code null}, caso ele nao esteja no cache.
+	 */
+	public synchronized T busca(int posicao) {
+		Entrada<T> entrada = this.entradas.get(posicao);
+
+		if(entrada != null) {
+			this.acertos++;
+			return entrada.registro;
+		} else {
+			this.faltas++;
+			return null;
+		}
+	}
+
+	/**
+	 * Guarda um registro no cache, descartando os registros menos recentes caso o
+	 * orcamento seja ultrapassado. Registros maiores que o orcamento inteiro nao sao guardados.
+	 *
+	 * @param posicao posicao do registro na tabela.
+	 * @param registro registro decodificado.
+	 * @param tamanho tamanho aproximado do registro, em bytes.
+	 */
+	public synchronized void guarda(int posicao, T registro, int tamanho) {
+		this.remove(posicao);
+
+		if(tamanho <= this.capacidadeBytes) {
+			this.entradas.put(posicao, new Entrada<>(registro, tamanho));
+			this.bytesUsados += tamanho;
+			this.descartaExcesso();
+		}
+	}
+
+	/**
+	 * Remove um registro do cache, caso ele esteja nele.
+	 *
+	 * @param posicao posicao do registro na tabela.
+	 */
+	public synchronized void remove(int posicao) {
+		Entrada<T> entrada = this.entradas.remove(posicao);
+
+		if(entrada != null) {
+			this.bytesUsados -= entrada.tamanho;
+		}
+	}
+
+	/**
+	 * Remove todos os registros do cache, sem zerar os contadores.
+	 */
+	public synchronized void limpa() {
+		this.entradas.clear();
+		this.bytesUsados = 0;
+	}
+
+	/**
+	 * Getter do orcamento do cache.
+	 *
+	 * @return quantidade maxima de bytes que os registros podem ocupar.
+	 */
+	public synchronized long getCapacidadeBytes() {
+		return this.capacidadeBytes;
+	}
+
+	/**
+	 * Muda o orcamento do cache, descartando registros caso ele tenha diminuido.
+	 *
+	 * @param capacidadeBytes nova quantidade maxima de bytes.
+	 */
+	public synchronized void setCapacidadeBytes(long capacidadeBytes) {
+		this.capacidadeBytes = Math.max(0, capacidadeBytes);
+		this.descartaExcesso();
+	}
+
+	/**
+	 * Getter da quantidade de bytes usada.
+	 *
+	 * @return quantidade de bytes ocupada pelos registros do cache.
+	 */
+	public synchronized long getBytesUsados() {
+		return this.bytesUsados;
+	}
+
+	/**
+	 * Getter da quantidade de registros no cache.
+	 *
+	 * @return quantidade de registros guardados no cache.
+	 */
+	public synchronized int getQtdRegistros() {
+		return this.entradas.size();
+	}
+
+	/**
+	 * Getter da quantidade de acertos.
+	 *
+	 * @return quantidade de buscas que encontraram o registro no cache.
+	 */
+	public synchronized long getAcertos() {
+		return this.acertos;
+	}
+
+	/**
+	 * Getter da quantidade de faltas.
+	 *
+	 * @return quantidade de buscas que nao encontraram o registro no cache.
+	 */
+	public synchronized long getFaltas() {
+		return this.faltas;
+	}
+
+	/**
+	 * Descarta os registros menos recentes ate que o cache caiba no orcamento.
+	 */
+	private void descartaExcesso() {
+		Iterator<Map.Entry<Integer, Entrada<T>>> it = this.entradas.entrySet().iterator();
+
+		while(this.bytesUsados > this.capacidadeBytes && it.hasNext()) {
+			this.bytesUsados -= it.next().getValue().tamanho;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Registro guardado no cache, junto com o seu tamanho.
+	 */
+	private static class Entrada<T> {
+		private final T registro;
+		private final int tamanho;
+
+		private Entrada(T registro, int tamanho) {
+			this.registro = registro;
+			this.tamanho = tamanho;
+		}
+	}
+}
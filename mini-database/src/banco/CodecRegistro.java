@@ -0,0 +1,70 @@
+package banco;
+
+import java.io.IOException;
+
+/**
+ * Interface que define como os registros do banco sao transformados em bytes e como
+ * esses bytes voltam a ser objetos. O banco guarda os registros na forma codificada e
+ * so decodifica os que sao buscados, entao um codec compacto diminui o espaco ocupado
+ * pela tabela.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ *
+ * @see CodecSerializacaoJava
+ */
+public interface CodecRegistro<T> {
+	/**
+	 * Transforma um registro em bytes.
+	 *
+	 * @param registro registro que sera codificado.
+	 *
+	 * @return os bytes que representam o registro.
+	 *
+	 * @throws IOException Caso ocorra algum erro na codificacao.
+	 */
+	byte[] codifica(T registro) throws IOException;
+
+	/**
+	 * Transforma os bytes gerados por {@link #codifica(Object)} de volta em um registro.
+	 *
+	 * @param bytes bytes que representam o registro.
+	 *
+	 * @return o registro decodificado.
+	 *
+	 * @throws IOException Caso os bytes nao representem um registro valido.
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 */
+	T decodifica(byte[] bytes) throws IOException, ClassNotFoundException;
+
+	/**
+	 * Cria uma copia de um registro que pode ser alterada sem mudar o original. O banco guarda no
+	 * cache uma copia propria de cada registro, e devolve copias dela nas buscas, para que quem
+	 * busca nunca receba o mesmo objeto que outra busca ou que o cache.
+	 *
+	 * </p>A implementacao padrao decodifica os bytes do registro de novo. Codecs de registros que
+	 * podem ser copiados sem passar pelos bytes devem sobrescrever esse metodo e
+	 * {@link #copiaSemDecodificar()}.
+	 *
+	 * @param registro registro que sera copiado.
+	 * @param bytes bytes do registro, gerados por {@link #codifica(Object)}.
+	 *
+	 * @return uma copia do registro.
+	 *
+	 * @throws IOException Caso os bytes nao representem um registro valido.
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 */
+	default T copia(T registro, byte[] bytes) throws IOException, ClassNotFoundException {
+		return this.decodifica(bytes);
+	}
+
+	/**
+	 * Diz se {@link #copia(Object, byte[])} copia o registro sem decodificar os bytes. Caso nao
+	 * copie, guardar o registro no cache nao economiza nada, ja que cada busca teria que
+	 * decodificar de novo para copiar, entao o banco nao usa o cache com esse codec.
+	 *
+	 * @return {@code true} caso a copia seja feita sem decodificar os bytes.
+	 */
+	default boolean copiaSemDecodificar() {
+		return false;
+	}
+}
@@ -0,0 +1,37 @@
+package banco;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Codec padrao do banco, que usa a serializacao do Java para codificar os registros.
+ * Ele funciona com qualquer objeto {@code Serializable}, mas cada registro carrega a
+ * descricao das suas classes, entao ele e menos compacto que um codec especifico.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ */
+public class CodecSerializacaoJava<T extends Serializable> implements CodecRegistro<T> {
+
+	@Override
+	public byte[] codifica(T registro) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try(ObjectOutputStream escritorObjs = new ObjectOutputStream(bytes)) {
+			escritorObjs.writeObject(registro);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T decodifica(byte[] bytes) throws IOException, ClassNotFoundException {
+		try(ObjectInputStream leitorObjs = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (T) leitorObjs.readObject();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package banco;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import modelo.btree.BTree;
+import modelo.indice.Indice;
+
+/**
+ * Classe que monta um {@code MiniBD} novo a partir de registros que chegam em ordem crescente de
+ * chave. Como as chaves ja estao ordenadas, a arvore de indices e construida de uma vez so, de
+ * baixo para cima, quando o banco e criado, ao inves de receber uma insercao por registro.
+ *
+ * </p>Os registros podem ser passados ja codificados, o que permite que a codificacao seja feita
+ * em outras threads, antes de eles chegarem aqui. Nesse caso, eles devem ter sido codificados com o
+ * mesmo codec passado para o construtor.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ * @param <K> o tipo da chave primaria dos objetos.
+ *
+ * @see BTree#constroiOrdenada(int, java.util.List, java.util.List)
+ */
+public class ConstrutorBanco<T extends Serializable, K extends Comparable<K>> {
+	/**
+	 * Chaves adicionadas, em ordem crescente.
+	 */
+	private ArrayList<K> chaves;
+
+	/**
+	 * Posicao de cada chave na tabela.
+	 */
+	private ArrayList<Integer> posicoes;
+
+	/**
+	 * Tabela com os registros codificados, na ordem em que foram adicionados.
+	 */
+	private TabelaSerializada tabela;
+
+	private FuncaoChavePrimaria<T, K> funcaoChavePrimaria;
+	private CodecRegistro<T> codec;
+	private TipoIndice tipoIndice;
+	private String nomeBanco;
+
+	/**
+	 * Constroi um montador de banco vazio.
+	 *
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * @param nomeBanco nome do arquivo onde sera guardado o banco.
+	 */
+	public ConstrutorBanco(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco) {
+		this(funcaoChavePrimaria, codec, TipoIndice.ARVORE_B, nomeBanco);
+	}
+
+	/**
+	 * Constroi um montador de banco vazio, cujo banco guarda as chaves no tipo de indice passado.
+	 *
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * @param tipoIndice estrutura usada como indice das chaves.
+	 * @param nomeBanco nome do arquivo onde sera guardado o banco.
+	 */
+	public ConstrutorBanco(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, TipoIndice tipoIndice,
+			String nomeBanco) {
+		this.chaves = new ArrayList<>();
+		this.posicoes = new ArrayList<>();
+		this.tabela = new TabelaSerializada(codec.getClass().getName());
+		this.funcaoChavePrimaria = funcaoChavePrimaria;
+		this.codec = codec;
+		this.tipoIndice = tipoIndice;
+		this.nomeBanco = nomeBanco;
+	}
+
+	/**
+	 * Adiciona um registro, codificando ele com o codec do banco.
+	 *
+	 * @param registro registro adicionado. Sua chave deve ser maior que a de todos os registros
+	 * adicionados antes.
+	 */
+	public void adiciona(T registro) {
+		try {
+			this.adiciona(this.funcaoChavePrimaria.get(registro), this.codec.codifica(registro));
+		} catch (IOException e) {
+			throw new RuntimeException("Erro ao codificar o registro " + registro + ".", e);
+		}
+	}
+
+	/**
+	 * Adiciona um registro ja codificado.
+	 *
+	 * @param chave chave primaria do registro. Deve ser maior que a de todos os registros
+	 * adicionados antes.
+	 * @param registroCodificado bytes do registro, gerados pelo codec do banco.
+	 */
+	public void adiciona(K chave, byte[] registroCodificado) {
+		if(this.chaves.size() != 0 && this.chaves.get(this.chaves.size() - 1).compareTo(chave) >= 0) {
+			throw new IllegalArgumentException("A chave " + chave + " nao e maior que a ultima chave adicionada!!");
+		}
+
+		this.chaves.add(chave);
+		this.posicoes.add(this.tabela.adiciona(registroCodificado));
+	}
+
+	/**
+	 * Getter da quantidade de registros adicionados.
+	 *
+	 * @return quantidade de registros adicionados ate agora.
+	 */
+	public int getQtdRegistros() {
+		return this.chaves.size();
+	}
+
+	/**
+	 * Cria o banco com todos os registros adicionados. Depois dessa chamada, o montador nao
+	 * deve mais ser usado.
+	 *
+	 * @return o banco montado.
+	 */
+	public MiniBD<T, K> constroi() {
+		final Indice<K> indices = this.tipoIndice.constroi(this.chaves, this.posicoes);
+		final MiniBD<T, K> banco = new MiniBD<>(this.tabela, indices, this.funcaoChavePrimaria, this.codec, this.nomeBanco);
+
+		this.chaves = null;
+		this.posicoes = null;
+		this.tabela = null;
+
+		return banco;
+	}
+}
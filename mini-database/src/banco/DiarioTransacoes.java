@@ -0,0 +1,384 @@
+package banco;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario das alteracoes de um {@link MiniBD}. Cada transacao e escrita no diario como um unico
+ * registro de confirmacao, e o arquivo e forcado para o disco antes que a transacao seja aplicada no
+ * banco. Assim, se o programa parar antes do banco ser salvo, as transacoes confirmadas sao
+ * reaplicadas quando o banco for carregado.
+ *
+ * </p>As alteracoes feitas fora de transacoes tambem sao escritas no diario, cada uma como um
+ * registro, mas sem forcar o arquivo para o disco. Elas ficam juntas em um buffer na memoria, e
+ * chegam ao disco junto com a proxima transacao, quando o buffer enche ou quando o arquivo e
+ * fechado, sempre antes do que foi registrado depois delas. Como o diario e lido na
+ * ordem em que foi escrito, o banco reaplicado e sempre o banco em algum momento, e nunca uma
+ * transacao sem uma alteracao feita antes dela, ou com uma alteracao feita depois dela desfeita.
+ *
+ * </p>O diario e dividido em arquivos numerados ({@code nome-diario-N.bin}). Cada copia instantanea
+ * do banco fecha o arquivo atual e passa a escrever no proximo, e o {@link ManifestoBanco} da copia
+ * guarda o numero do arquivo fechado. Ao carregar o banco, so os arquivos seguintes sao reaplicados,
+ * e quando a copia termina de ser salva, os arquivos ate ela sao apagados. Os numeros nunca voltam
+ * para tras, entao um arquivo novo nunca e confundido com um que ja esta na copia.
+ *
+ * </p>Formato de cada arquivo: o numero magico {@link #MAGICO} e a versao do formato, seguidos dos
+ * registros de confirmacao. Cada registro tem o seu tamanho, a quantidade de alteracoes, cada
+ * alteracao (um {@code byte} que diz se o registro foi apagado, o tamanho dos bytes do registro e
+ * os bytes) e o checksum CRC32C do registro. Um registro incompleto ou com o checksum errado no fim
+ * do ultimo arquivo e de uma transacao que nao chegou a ser confirmada, entao ele e cortado do
+ * arquivo ao carregar o banco. Em qualquer outro lugar, o diario esta corrompido e o carregamento
+ * falha, ja que reaplicar as alteracoes seguintes sem as dele daria um banco que nunca existiu.
+ */
+class DiarioTransacoes {
+	/**
+	 * Numero magico que identifica os arquivos do diario ("MBDJ").
+	 */
+	static final int MAGICO = 0x4D42444A;
+
+	/**
+	 * Versao atual do formato do arquivo.
+	 */
+	static final int VERSAO = 1;
+
+	/**
+	 * Tamanho do buffer das alteracoes que nao precisam ser forcadas para o disco.
+	 */
+	private static final int TAMANHO_BUFFER = 1024 * 1024;
+
+	/**
+	 * Nome do banco, usado como base do nome dos arquivos.
+	 */
+	private final String nomeBanco;
+
+	/**
+	 * Numero do arquivo em que as proximas transacoes serao escritas.
+	 */
+	private long numeroAtual;
+
+	/**
+	 * Canal do arquivo atual, ou {@code null}, caso ele ainda nao tenha sido aberto.
+	 */
+	private FileChannel canal;
+
+	/**
+	 * Indica se o arquivo atual tem alteracoes que ainda nao foram forcadas para o disco.
+	 */
+	private boolean naoForcado = false;
+
+	/**
+	 * Alteracoes registradas sem forcar o arquivo, que ainda nao foram escritas nele.
+	 */
+	private final ByteBuffer pendentes = ByteBuffer.allocate(TAMANHO_BUFFER);
+
+	/**
+	 * Constroi o diario de um banco. Os arquivos existentes nao sao lidos nem apagados, e as
+	 * proximas alteracoes sao escritas em um arquivo novo.
+	 *
+	 * @param nomeBanco nome do banco, sem a extensao.
+	 * @param primeiroNumero menor numero que o arquivo novo pode ter, i.e., o arquivo seguinte ao
+	 * ultimo que ja esta na copia salva do banco, ja que os arquivos ate ele podem ter sido apagados.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao listar os arquivos do diario.
+	 */
+	DiarioTransacoes(String nomeBanco, long primeiroNumero) throws IOException {
+		this.nomeBanco = nomeBanco;
+
+		final TreeMap<Long, Path> arquivos = this.arquivos();
+		this.numeroAtual = Math.max(primeiroNumero, arquivos.isEmpty() ? 0 : arquivos.lastKey() + 1);
+	}
+
+	/**
+	 * Escreve as alteracoes de uma transacao, ou uma alteracao feita fora de transacoes, no diario.
+	 *
+	 * @param registros bytes de cada registro alterado.
+	 * @param apagados diz, para cada registro, se ele foi apagado ou gravado.
+	 * @param forca se o arquivo deve ser forcado para o disco antes de retornar, o que e necessario
+	 * para confirmar uma transacao.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	synchronized void registra(List<byte[]> registros, List<Boolean> apagados, boolean forca) throws IOException {
+		int tamanho = 4;
+		for(byte[] registro : registros) {
+			tamanho += 1 + 4 + registro.length;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(4 + tamanho + 4);
+		buffer.putInt(tamanho).putInt(registros.size());
+
+		for(int i = 0; i < registros.size(); i++) {
+			buffer.put((byte) (apagados.get(i) ? 1 : 0)).putInt(registros.get(i).length).put(registros.get(i));
+		}
+
+		final CRC32C checksum = new CRC32C();
+		checksum.update(buffer.array(), 4, tamanho);
+		buffer.putInt((int) checksum.getValue());
+		buffer.flip();
+
+		if(!forca && buffer.remaining() <= this.pendentes.remaining()) {
+			this.pendentes.put(buffer);
+			return;
+		}
+
+		this.escrevePendentes();
+		this.escreve(buffer);
+
+		if(forca) {
+			this.canal.force(false);
+		}
+		this.naoForcado = !forca;
+	}
+
+	/**
+	 * Escreve as alteracoes do buffer no arquivo atual, abrindo ele caso necessario.
+	 *
+	 * @throws IOException Caso ocorra algum erro na abertura ou na escrita do arquivo.
+	 */
+	private void escrevePendentes() throws IOException {
+		if(this.canal == null) {
+			this.canal = FileChannel.open(this.arquivo(this.numeroAtual), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+			if(this.canal.size() == 0) {
+				this.escreve(ByteBuffer.allocate(8).putInt(MAGICO).putInt(VERSAO).flip());
+			}
+		}
+
+		if(this.pendentes.position() > 0) {
+			this.pendentes.flip();
+			this.escreve(this.pendentes);
+			this.pendentes.clear();
+			this.naoForcado = true;
+		}
+	}
+
+	/**
+	 * Fecha o arquivo atual e passa a escrever as proximas alteracoes no arquivo seguinte.
+	 *
+	 * @return o numero do arquivo fechado.
+	 */
+	synchronized long rotaciona() {
+		this.fecha();
+
+		return this.numeroAtual++;
+	}
+
+	/**
+	 * Apaga os arquivos do diario ate o numero passado, inclusive.
+	 *
+	 * @param numero numero do ultimo arquivo apagado.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao apagar os arquivos.
+	 */
+	void descartaAte(long numero) throws IOException {
+		for(Path arquivo : this.arquivos().headMap(numero, true).values()) {
+			Files.deleteIfExists(arquivo);
+		}
+	}
+
+	/**
+	 * Apaga todos os arquivos do diario, para um banco novo que usa o mesmo nome de um antigo.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao apagar os arquivos.
+	 */
+	synchronized void apagaTodos() throws IOException {
+		this.fecha();
+		this.descartaAte(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Le as alteracoes dos arquivos do diario depois de um numero e passa elas para o consumidor,
+	 * na ordem em que foram escritas. As alteracoes de uma transacao so sao passadas depois que
+	 * o registro inteiro dela foi verificado. A leitura para no primeiro registro invalido: caso
+	 * ele esteja no fim do ultimo arquivo, ele e cortado, para que o arquivo continue valido quando
+	 * outros arquivos forem escritos depois dele, e caso contrario o diario esta corrompido.
+	 *
+	 * @param depoisDe numero do ultimo arquivo que ja esta na copia salva do banco, ou -1 para ler
+	 * todos os arquivos.
+	 * @param consumidor funcao chamada para cada alteracao, com {@code true} caso o registro tenha
+	 * sido apagado e os bytes do registro.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos, ou um arquivo nao seja
+	 * um diario.
+	 * @throws StreamCorruptedException Caso um registro invalido nao esteja no fim do ultimo arquivo.
+	 */
+	void reaplica(long depoisDe, BiConsumer<Boolean, byte[]> consumidor) throws IOException {
+		final TreeMap<Long, Path> arquivos = this.arquivos();
+
+		for(Map.Entry<Long, Path> entrada : arquivos.tailMap(depoisDe, false).entrySet()) {
+			final Path arquivo = entrada.getValue();
+			final boolean ultimo = entrada.getKey().equals(arquivos.lastKey());
+			final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+
+			if(bytes.remaining() < 8) {
+				// o arquivo foi criado, mas o cabecalho nao chegou a ser escrito inteiro
+				if(bytes.hasRemaining()) {
+					corrompido(arquivo, 0, ultimo);
+				}
+				continue;
+			}
+
+			if(bytes.getInt() != MAGICO || bytes.getInt() != VERSAO) {
+				throw new IOException("O arquivo " + arquivo + " nao e um diario em uma versao suportada.");
+			}
+
+			while(bytes.hasRemaining()) {
+				final int inicio = bytes.position();
+				final int tamanho = bytes.remaining() < 4 ? -1 : bytes.getInt();
+
+				if(tamanho < 4 || bytes.remaining() < tamanho + 4L) {
+					corrompido(arquivo, inicio, ultimo);
+					return;
+				}
+
+				final CRC32C checksum = new CRC32C();
+				checksum.update(bytes.array(), bytes.position(), tamanho);
+
+				if((int) checksum.getValue() != bytes.getInt(bytes.position() + tamanho)) {
+					corrompido(arquivo, inicio, ultimo);
+					return;
+				}
+
+				final int qtdAlteracoes = bytes.getInt();
+				final boolean[] apagados = new boolean[qtdAlteracoes];
+				final byte[][] registros = new byte[qtdAlteracoes][];
+
+				for(int i = 0; i < qtdAlteracoes; i++) {
+					apagados[i] = bytes.get() != 0;
+					registros[i] = new byte[bytes.getInt()];
+					bytes.get(registros[i]);
+				}
+
+				bytes.getInt();
+
+				for(int i = 0; i < qtdAlteracoes; i++) {
+					consumidor.accept(apagados[i], registros[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Trata um registro invalido encontrado ao reaplicar o diario. No fim do ultimo arquivo, ele e
+	 * de uma escrita interrompida, e o arquivo e cortado antes dele.
+	 *
+	 * @param arquivo arquivo com o registro.
+	 * @param posicao posicao do registro no arquivo.
+	 * @param ultimo se o arquivo e o ultimo do diario.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao cortar o arquivo.
+	 * @throws StreamCorruptedException Caso o arquivo nao seja o ultimo.
+	 */
+	private static void corrompido(Path arquivo, long posicao, boolean ultimo) throws IOException {
+		if(!ultimo) {
+			throw new StreamCorruptedException("O registro na posicao " + posicao + " do arquivo " + arquivo
+					+ " esta corrompido, mas o diario continua depois dele.");
+		}
+
+		try(FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+			canal.truncate(posicao);
+			canal.force(true);
+		}
+	}
+
+	/**
+	 * Fecha o arquivo atual, caso ele esteja aberto. As alteracoes que ainda nao foram forcadas
+	 * para o disco sao escritas e forcadas antes, para que um arquivo so seja lido depois do
+	 * anterior inteiro.
+	 */
+	synchronized void fecha() {
+		try {
+			if(this.pendentes.position() > 0) {
+				this.escrevePendentes();
+			}
+
+			if(this.canal != null) {
+				if(this.naoForcado) {
+					this.canal.force(false);
+				}
+				this.canal.close();
+			}
+		} catch (IOException e) {
+			// as transacoes ja foram forcadas para o disco quando foram confirmadas, e as outras
+			// alteracoes nunca tiveram essa garantia
+			this.pendentes.clear();
+
+			try {
+				if(this.canal != null) {
+					this.canal.close();
+				}
+			} catch (IOException e2) {
+				// o canal ja esta sendo descartado
+			}
+		}
+
+		this.canal = null;
+		this.naoForcado = false;
+	}
+
+	/**
+	 * Escreve todo o conteudo do buffer no arquivo atual.
+	 *
+	 * @param buffer bytes escritos.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita.
+	 */
+	private void escreve(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			this.canal.write(buffer);
+		}
+	}
+
+	/**
+	 * Caminho de um dos arquivos do diario.
+	 *
+	 * @param numero numero do arquivo.
+	 *
+	 * @return o caminho do arquivo.
+	 */
+	private Path arquivo(long numero) {
+		return Paths.get(this.nomeBanco + "-diario-" + numero + ".bin");
+	}
+
+	/**
+	 * Lista os arquivos do diario que existem.
+	 *
+	 * @return os arquivos, pelo seu numero.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao listar a pasta.
+	 */
+	private TreeMap<Long, Path> arquivos() throws IOException {
+		final Path base = this.arquivo(0);
+		final Path pasta = base.toAbsolutePath().getParent();
+		final String nomeBase = base.getFileName().toString();
+		final String prefixo = nomeBase.substring(0, nomeBase.length() - "0.bin".length());
+		final TreeMap<Long, Path> arquivos = new TreeMap<>();
+
+		try(DirectoryStream<Path> conteudo = Files.newDirectoryStream(pasta, prefixo + "*.bin")) {
+			for(Path arquivo : conteudo) {
+				final String nome = arquivo.getFileName().toString();
+
+				try {
+					arquivos.put(Long.parseLong(nome.substring(prefixo.length(), nome.length() - 4)), arquivo);
+				} catch (NumberFormatException e) {
+					// outro arquivo com um nome parecido
+				}
+			}
+		}
+
+		return arquivos;
+	}
+}
@@ -0,0 +1,298 @@
+package banco;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Classe que exporta o conteudo de um {@code MiniBD} para um arquivo, percorrendo a arvore
+ * de indices em ordem de chave. Os registros sao escritos assim que sao lidos, entao a memoria
+ * usada nao depende do tamanho do banco.
+ *
+ * </p>Cada exportacao le uma {@link VisaoBanco}, entao o banco pode continuar sendo alterado por
+ * outras threads durante uma exportacao longa, e o arquivo tem o banco como ele estava no comeco
+ * da exportacao.
+ *
+ * </p>Existem dois tipos de exportacao:
+ * </p>- Texto: cada registro e decodificado e transformado em linhas por um {@link FormatadorRegistro},
+ * o que permite gerar CSV, JSON por linha, ou qualquer outro formato texto.
+ * </p>- Binario: os bytes codificados dos registros sao copiados para o arquivo sem serem decodificados.
+ * Eles sao escritos direto dos arrays da tabela com escritas agrupadas em um {@code FileChannel}, sem
+ * serem copiados para um buffer de saida do programa. Um arquivo binario pode ser lido de volta com
+ * {@link #restaura(Path, MiniBD)} em um banco que use o mesmo codec.
+ *
+ * </p>Formato binario: um {@code int} com o numero magico {@link #MAGICO}, seguido de um registro por
+ * vez, cada um precedido pelo seu tamanho em um {@code int}. O fim do arquivo e marcado por um tamanho
+ * igual a -1.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ * @param <K> o tipo da chave primaria dos objetos.
+ */
+public class ExportadorBanco<T extends Serializable, K extends Comparable<K>> {
+	/**
+	 * Numero magico que identifica os arquivos binarios exportados ("MBDX").
+	 */
+	public static final int MAGICO = 0x4D424458;
+
+	/**
+	 * Quantidade maxima de buffers juntados em uma unica escrita agrupada.
+	 */
+	private static final int MAX_BUFFERS_ESCRITA = 1024;
+
+	/**
+	 * Banco que sera exportado, ou {@code null}, caso o exportador tenha recebido uma visao.
+	 */
+	private MiniBD<T, K> banco;
+
+	/**
+	 * Visao que sera exportada, ou {@code null}, caso cada exportacao abra uma visao nova do banco.
+	 */
+	private VisaoBanco<T, K> visao;
+
+	/**
+	 * Constroi um exportador para o banco passado. Cada exportacao abre uma visao nova do banco.
+	 *
+	 * @param banco banco que sera exportado.
+	 */
+	public ExportadorBanco(MiniBD<T, K> banco) {
+		this.banco = banco;
+	}
+
+	/**
+	 * Constroi um exportador para uma visao ja aberta de um banco.
+	 *
+	 * @param visao visao que sera exportada.
+	 */
+	public ExportadorBanco(VisaoBanco<T, K> visao) {
+		this.visao = visao;
+	}
+
+	/**
+	 * Exporta os registros do banco para um arquivo texto, em ordem de chave. Caso o arquivo ja
+	 * exista, ele e sobrescrito.
+	 *
+	 * @param destino arquivo onde os registros serao escritos.
+	 * @param formatador funcao que transforma cada registro em linhas de texto.
+	 *
+	 * @return quantidade de registros exportados.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	public long exportaTexto(Path destino, FormatadorRegistro<T> formatador) throws IOException {
+		final long[] qtdRegistros = {0};
+		final VisaoBanco<T, K> visao = this.visao();
+
+		try(BufferedWriter escritor = Files.newBufferedWriter(destino, StandardCharsets.UTF_8)) {
+			visao.percorreCodificados((chave, bytes) -> {
+				final String linhas = formatador.formata(visao.decodifica(bytes));
+
+				if(linhas != null) {
+					try {
+						escritor.write(linhas);
+						escritor.newLine();
+					} catch (IOException e) {
+						// o percurso da arvore nao aceita excecoes verificadas
+						throw new UncheckedIOException(e);
+					}
+
+					qtdRegistros[0]++;
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		return qtdRegistros[0];
+	}
+
+	/**
+	 * Exporta os bytes codificados dos registros para um arquivo binario, em ordem de chave.
+	 * Caso o arquivo ja exista, ele e sobrescrito.
+	 *
+	 * @param destino arquivo onde os registros serao escritos.
+	 *
+	 * @return quantidade de registros exportados.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	public long exportaBinario(Path destino) throws IOException {
+		try(FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			final EscritorAgrupado escritor = new EscritorAgrupado(canal);
+			final long[] qtdRegistros = {0};
+
+			escritor.adicionaInt(MAGICO);
+
+			try {
+				this.visao().percorreCodificados((chave, bytes) -> {
+					try {
+						escritor.adicionaInt(bytes.length);
+						escritor.adiciona(ByteBuffer.wrap(bytes));
+					} catch (IOException e) {
+						// o percurso da arvore nao aceita excecoes verificadas
+						throw new UncheckedIOException(e);
+					}
+
+					qtdRegistros[0]++;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			escritor.adicionaInt(-1);
+			escritor.descarrega();
+
+			return qtdRegistros[0];
+		}
+	}
+
+	/**
+	 * Pega a visao que sera exportada.
+	 *
+	 * @return a visao passada para o construtor, ou uma visao nova do banco.
+	 */
+	private VisaoBanco<T, K> visao() {
+		return this.visao != null ? this.visao : this.banco.abreVisao();
+	}
+
+	/**
+	 * Adiciona em um banco os registros de um arquivo gerado por {@link #exportaBinario(Path)}.
+	 * Registros cuja chave ja esta no banco sao ignorados.
+	 *
+	 * @param <T> o tipo do objeto guardado no banco.
+	 * @param <K> o tipo da chave primaria dos objetos.
+	 *
+	 * @param origem arquivo binario exportado.
+	 * @param banco banco onde os registros serao adicionados. Ele deve usar o mesmo codec do
+	 * banco exportado.
+	 *
+	 * @return quantidade de registros lidos do arquivo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura, ou o arquivo nao seja uma exportacao
+	 * binaria completa.
+	 * @throws StreamCorruptedException Caso o tamanho de um registro seja negativo ou maior que o
+	 * resto do arquivo.
+	 */
+	public static <T extends Serializable, K extends Comparable<K>> long restaura(Path origem, MiniBD<T, K> banco) throws IOException {
+		try(DataInputStream leitor = new DataInputStream(Files.newInputStream(origem))) {
+			if(leitor.readInt() != MAGICO) {
+				throw new IOException("O arquivo " + origem + " nao e uma exportacao binaria do banco.");
+			}
+
+			long qtdRegistros = 0;
+			long restantes = Files.size(origem) - 8;
+			int tamanho = leitor.readInt();
+
+			while(tamanho != -1) {
+				// o tamanho e validado antes de alocar o registro, ja que um arquivo corrompido
+				// poderia pedir um array negativo ou de varios gigabytes
+				if(tamanho < 0 || tamanho > restantes) {
+					throw new StreamCorruptedException("O registro " + qtdRegistros + " do arquivo " + origem
+							+ " tem tamanho " + tamanho + ", mas restam " + Math.max(0, restantes) + " bytes.");
+				}
+
+				final byte[] bytes = new byte[tamanho];
+				leitor.readFully(bytes);
+				restantes -= tamanho + 4;
+
+				banco.adiciona(banco.decodifica(bytes));
+				qtdRegistros++;
+
+				tamanho = leitor.readInt();
+			}
+
+			return qtdRegistros;
+		} catch (EOFException e) {
+			throw new IOException("O arquivo " + origem + " esta incompleto.", e);
+		}
+	}
+
+	/**
+	 * Junta varios buffers e escreve todos eles no canal com uma unica escrita agrupada, o que
+	 * evita uma chamada de sistema por registro sem copiar os bytes dos registros.
+	 */
+	private static class EscritorAgrupado {
+		private final FileChannel canal;
+		private final ByteBuffer[] buffers;
+		private int qtdBuffers;
+
+		/**
+		 * Buffer onde os tamanhos dos registros sao escritos. Ele e trocado por um novo
+		 * quando enche, ja que os buffers pendentes apontam para ele.
+		 */
+		private ByteBuffer ints;
+
+		private EscritorAgrupado(FileChannel canal) {
+			this.canal = canal;
+			this.buffers = new ByteBuffer[MAX_BUFFERS_ESCRITA];
+			this.qtdBuffers = 0;
+			this.ints = ByteBuffer.allocate(4 * MAX_BUFFERS_ESCRITA);
+		}
+
+		/**
+		 * Adiciona um {@code int} na escrita pendente.
+		 *
+		 * @param valor valor escrito.
+		 *
+		 * @throws IOException Caso ocorra algum erro na escrita.
+		 */
+		private void adicionaInt(int valor) throws IOException {
+			if(this.ints.remaining() < 4) {
+				this.ints = ByteBuffer.allocate(4 * MAX_BUFFERS_ESCRITA);
+			}
+
+			final ByteBuffer fatia = this.ints.slice();
+			fatia.putInt(valor).flip();
+			this.ints.position(this.ints.position() + 4);
+
+			this.adiciona(fatia);
+		}
+
+		/**
+		 * Adiciona um buffer na escrita pendente, escrevendo tudo caso o limite de
+		 * buffers seja atingido.
+		 *
+		 * @param buffer buffer que sera escrito.
+		 *
+		 * @throws IOException Caso ocorra algum erro na escrita.
+		 */
+		private void adiciona(ByteBuffer buffer) throws IOException {
+			this.buffers[this.qtdBuffers++] = buffer;
+
+			if(this.qtdBuffers == this.buffers.length) {
+				this.descarrega();
+			}
+		}
+
+		/**
+		 * Escreve todos os buffers pendentes no canal.
+		 *
+		 * @throws IOException Caso ocorra algum erro na escrita.
+		 */
+		private void descarrega() throws IOException {
+			int primeiro = 0;
+
+			// uma escrita agrupada pode escrever so parte dos buffers
+			while(primeiro < this.qtdBuffers) {
+				this.canal.write(this.buffers, primeiro, this.qtdBuffers - primeiro);
+
+				while(primeiro < this.qtdBuffers && !this.buffers[primeiro].hasRemaining()) {
+					this.buffers[primeiro++] = null;
+				}
+			}
+
+			this.qtdBuffers = 0;
+			this.ints = ByteBuffer.allocate(4 * MAX_BUFFERS_ESCRITA);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package banco;
+
+/**
+ * Essa interface nos permite passar para o exportador do banco um lambda que
+ * transforma um registro em texto.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ *
+ * @see ExportadorBanco
+ */
+@FunctionalInterface
+public interface FormatadorRegistro<T> {
+	/**
+	 * Transforma um registro em texto.
+	 *
+	 * @param registro registro que sera formatado.
+	 *
+	 * @return as linhas que representam o registro, separadas por {@code '\n'} e sem uma
+	 * quebra de linha no final, ou {@code null}, caso o registro nao deva ser exportado.
+	 */
+	String formata(T registro);
+}
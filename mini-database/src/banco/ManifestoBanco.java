@@ -0,0 +1,247 @@
+package banco;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Manifesto de um {@link MiniBD}, que diz qual copia instantanea esta nos arquivos do banco. Cada
+ * copia salva recebe um numero de geracao, e os seus arquivos (tabela, indices, posicoes vazias e
+ * filtro de Bloom) sao escritos primeiro como arquivos pendentes ({@code nome-gN.bin}), sem tocar
+ * nos arquivos atuais. So depois que todos foram forcados para o disco o manifesto da geracao nova
+ * e escrito, e ele e o que torna a copia valida: o manifesto e trocado de uma vez so, pela
+ * renomeacao de um arquivo completo. Depois disso, os arquivos pendentes sao renomeados para os
+ * nomes normais.
+ *
+ * </p>Se o programa parar antes do manifesto ser trocado, os arquivos pendentes sao ignorados e a
+ * geracao anterior continua valida. Se parar depois, mas antes de todas as renomeacoes, o banco
+ * termina as renomeacoes quando for carregado. Assim, os arquivos carregados sao sempre todos da
+ * mesma geracao.
+ *
+ * </p>O manifesto tambem guarda o numero do ultimo arquivo do {@link DiarioTransacoes} cujas
+ * alteracoes estao na copia, e o carregamento so reaplica os arquivos seguintes do diario.
+ *
+ * </p>Formato do arquivo ({@code nome-manifesto.bin}): o numero magico {@link #MAGICO}, a versao do
+ * formato, a geracao, o ultimo arquivo do diario, se a copia tem um filtro de Bloom e o checksum
+ * CRC32C de tudo isso. Bancos salvos antes do manifesto existir nao tem esse arquivo, e sao
+ * carregados como antes, reaplicando o diario inteiro.
+ */
+class ManifestoBanco {
+	/**
+	 * Numero magico que identifica o arquivo do manifesto ("MBDM").
+	 */
+	static final int MAGICO = 0x4D42444D;
+
+	/**
+	 * Versao atual do formato do arquivo.
+	 */
+	static final int VERSAO = 1;
+
+	/**
+	 * Tamanho, em bytes, do arquivo do manifesto.
+	 */
+	private static final int TAMANHO = 4 + 4 + 8 + 8 + 1 + 4;
+
+	/**
+	 * Caminho do arquivo do manifesto.
+	 */
+	private final Path arquivo;
+
+	/**
+	 * Geracao da copia salva nos arquivos, ou 0, caso nenhuma copia tenha manifesto.
+	 */
+	private long geracao = 0;
+
+	/**
+	 * Numero do ultimo arquivo do diario cujas alteracoes estao na copia, ou -1.
+	 */
+	private long ultimoDiario = -1;
+
+	/**
+	 * Indica se a copia tem um arquivo de filtro de Bloom.
+	 */
+	private boolean temFiltroBloom = false;
+
+	/**
+	 * Constroi o manifesto de um banco, sem ler o arquivo dele.
+	 *
+	 * @param nomeBanco nome do banco, sem a extensao.
+	 */
+	ManifestoBanco(String nomeBanco) {
+		this.arquivo = Paths.get(nomeBanco + "-manifesto.bin");
+	}
+
+	/**
+	 * Le o arquivo do manifesto, caso ele exista. Caso contrario, o manifesto continua vazio.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo, ou ele esteja corrompido.
+	 */
+	void carrega() throws IOException {
+		if(!Files.exists(this.arquivo)) {
+			return;
+		}
+
+		final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(this.arquivo));
+
+		if(bytes.remaining() != TAMANHO || bytes.getInt() != MAGICO) {
+			throw new StreamCorruptedException("O arquivo " + this.arquivo + " nao e um manifesto.");
+		}
+
+		final int versao = bytes.getInt();
+
+		if(versao > VERSAO) {
+			throw new IOException("O arquivo " + this.arquivo + " esta na versao " + versao + ", mas so ate a versao "
+					+ VERSAO + " e suportada.");
+		}
+
+		final CRC32C checksum = new CRC32C();
+		checksum.update(bytes.array(), 0, TAMANHO - 4);
+
+		if((int) checksum.getValue() != bytes.getInt(TAMANHO - 4)) {
+			throw new StreamCorruptedException("O checksum do manifesto " + this.arquivo + " nao confere.");
+		}
+
+		this.geracao = bytes.getLong();
+		this.ultimoDiario = bytes.getLong();
+		this.temFiltroBloom = bytes.get() != 0;
+	}
+
+	/**
+	 * Verifica se o banco tem um manifesto, i.e., se foi salvo depois que o manifesto passou a existir.
+	 *
+	 * @return {@code true} caso o arquivo do manifesto exista.
+	 */
+	boolean existe() {
+		return this.geracao > 0;
+	}
+
+	/**
+	 * Getter da geracao.
+	 *
+	 * @return a geracao da copia salva nos arquivos, ou 0, caso o banco nao tenha manifesto.
+	 */
+	long getGeracao() {
+		return this.geracao;
+	}
+
+	/**
+	 * Getter do ultimo arquivo do diario.
+	 *
+	 * @return o numero do ultimo arquivo do diario cujas alteracoes estao na copia, ou -1.
+	 */
+	long getUltimoDiario() {
+		return this.ultimoDiario;
+	}
+
+	/**
+	 * Diz se a copia salva tem um filtro de Bloom.
+	 *
+	 * @return {@code true} caso o arquivo do filtro faca parte da copia.
+	 */
+	boolean temFiltroBloom() {
+		return this.temFiltroBloom;
+	}
+
+	/**
+	 * Troca o manifesto pelo de uma copia nova, cujos arquivos pendentes ja foram forcados para o
+	 * disco. O manifesto novo e escrito em um arquivo separado e so depois substitui o anterior.
+	 *
+	 * @param geracao geracao da copia nova.
+	 * @param ultimoDiario numero do ultimo arquivo do diario cujas alteracoes estao na copia.
+	 * @param temFiltroBloom se a copia tem um filtro de Bloom.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	synchronized void salva(long geracao, long ultimoDiario, boolean temFiltroBloom) throws IOException {
+		final ByteBuffer bytes = ByteBuffer.allocate(TAMANHO);
+		bytes.putInt(MAGICO).putInt(VERSAO).putLong(geracao).putLong(ultimoDiario).put((byte) (temFiltroBloom ? 1 : 0));
+
+		final CRC32C checksum = new CRC32C();
+		checksum.update(bytes.array(), 0, TAMANHO - 4);
+		bytes.putInt((int) checksum.getValue());
+		bytes.flip();
+
+		final Path novo = this.arquivo.resolveSibling(this.arquivo.getFileName().toString().replace(".bin", "-new.bin"));
+
+		try(FileChannel canal = FileChannel.open(novo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(bytes.hasRemaining()) {
+				canal.write(bytes);
+			}
+			canal.force(false);
+		}
+
+		substitui(novo, this.arquivo);
+
+		this.geracao = geracao;
+		this.ultimoDiario = ultimoDiario;
+		this.temFiltroBloom = temFiltroBloom;
+	}
+
+	/**
+	 * Caminho do arquivo pendente de uma geracao.
+	 *
+	 * @param nomeArquivo nome do arquivo, sem a extensao.
+	 * @param geracao geracao da copia.
+	 *
+	 * @return o caminho do arquivo pendente.
+	 */
+	static Path pendente(String nomeArquivo, long geracao) {
+		return Paths.get(nomeArquivo + "-g" + geracao + ".bin");
+	}
+
+	/**
+	 * Renomeia o arquivo pendente de uma geracao para o nome normal, caso ele exista. Como cada
+	 * arquivo pendente so some quando e renomeado, chamar de novo depois de uma parada no meio nao
+	 * muda nada.
+	 *
+	 * @param nomeArquivo nome do arquivo, sem a extensao.
+	 * @param geracao geracao da copia.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao renomear o arquivo.
+	 */
+	static void publica(String nomeArquivo, long geracao) throws IOException {
+		final Path pendente = pendente(nomeArquivo, geracao);
+
+		if(Files.exists(pendente)) {
+			substitui(pendente, Paths.get(nomeArquivo + ".bin"));
+		}
+	}
+
+	/**
+	 * Forca um arquivo para o disco.
+	 *
+	 * @param arquivo caminho do arquivo.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao abrir ou forcar o arquivo.
+	 */
+	static void forca(Path arquivo) throws IOException {
+		try(FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+			canal.force(true);
+		}
+	}
+
+	/**
+	 * Substitui um arquivo por outro de uma vez so, quando o sistema de arquivos permite.
+	 *
+	 * @param origem arquivo novo.
+	 * @param destino arquivo substituido.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao renomear o arquivo.
+	 */
+	private static void substitui(Path origem, Path destino) throws IOException {
+		try {
+			Files.move(origem, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(origem, destino, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
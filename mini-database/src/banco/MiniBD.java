@@ -1,13 +1,32 @@
 package banco;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
+import modelo.auxiliar.CompressorBlocos;
 import modelo.auxiliar.GuardadorObjeto;
-import modelo.btree.BTree;
+import modelo.filtro.FiltroBloom;
+import modelo.indice.Indice;
+import modelo.indice.IndiceCongelado;
+import modelo.indice.IndicePrimitivo;
 
 /**
  * Classe que representa um banco de dados simplificado, capaz de armazenar um grupo de objetos
@@ -25,6 +44,16 @@ import modelo.btree.BTree;
  * de performance, ja que se reordenassemos o array a cada remocao, precisariamos reordenar a arvore de
  * indices tambem.
  * 
+ * </p>Os registros ficam guardados na tabela na forma codificada, usando um {@link CodecRegistro},
+ * o que deixa a tabela bem mais compacta que uma lista de objetos. Os registros buscados com mais
+ * frequencia ficam decodificados em um {@link CacheRegistros} com um orcamento de bytes configuravel,
+ * assim as buscas por eles nao precisam decodificar o registro de novo. O cache so e usado quando o
+ * codec copia os registros sem decodificar (ver {@link CodecRegistro#copiaSemDecodificar()}).
+ * 
+ * </p>As alteracoes do banco sao sincronizadas, mas as buscas nao, entao um banco que e alterado
+ * por uma thread deve ser lido pelas outras por meio de uma {@link VisaoBanco}, que ve o banco como
+ * ele estava quando ela foi aberta, ou depois de ser congelado com {@link #congela()}.
+ * 
  *
  * @param <T> O tipo do objeto guardado. Precisa implementar a interface {@code Serializable} para que ele
  * possa ser salvo num arquivo.
@@ -35,7 +64,29 @@ import modelo.btree.BTree;
  * @see java.io.Serializable
  * @see java.lang.Comparable
  */
-public class MiniBD<T extends Serializable, K extends Comparable<K>> implements AutoCloseable{
+public class MiniBD<T extends Serializable, K extends Comparable<K>> implements Banco<T, K>{
+	/**
+	 * Orcamento padrao, em bytes, do cache de registros decodificados.
+	 */
+	public static final long ORCAMENTO_CACHE_PADRAO = 16 * 1024 * 1024;
+	
+	/**
+	 * Grau maximo da arvore de indices. O valor 20 mantem um equilibrio entre a altura da arvore
+	 * e a quantidade de chaves armazenada em um node da arvore.
+	 */
+	static final int GRAU_INDICES = 20;
+	
+	/**
+	 * Threads que salvam as copias instantaneas dos bancos. Elas sao daemon, entao nao impedem
+	 * o programa de terminar: quem precisa que os arquivos estejam salvos deve esperar o
+	 * {@code CompletableFuture} da copia, como {@link #close()} faz.
+	 */
+	private static final ExecutorService EXECUTOR_ARQUIVOS = Executors.newCachedThreadPool((Runnable tarefa) -> {
+		Thread thread = new Thread(tarefa, "MiniBD-arquivos");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
 	/**
 	 * Lista de indices vazios na tabela
 	 */
@@ -46,28 +97,82 @@ public class MiniBD<T extends Serializable, K extends Comparable<K>> implements
 	private GuardadorObjeto<ArrayList<Integer>> guardadorPosicoesVazias;
 	
 	/**
-	 *  Tabela de registros do banco
+	 *  Tabela de registros do banco, na forma codificada
+	 */
+	private TabelaSerializada tabela;
+	/**
+	 *  Objeto que toma conta de ler/escrever a tabela acima em um arquivo paginado
+	 */
+	private ArquivoTabela arquivoTabela;
+	/**
+	 *  Codec que transforma os registros em bytes e vice-versa
 	 */
-	private ArrayList<T> tabela;
+	private CodecRegistro<T> codec;
 	/**
-	 *  Objeto que toma conta de ler/escrever o array acima em um arquivo 
+	 *  Cache com os registros decodificados buscados mais recentemente. Os objetos do cache sao
+	 *  copias proprias do banco, que nunca sao entregues para fora dele
 	 */
-	private GuardadorObjeto<ArrayList<T>> guardadorTabela;
+	private CacheRegistros<T> cache;
 	
 	/**
-	 *  Arvore que guarda o arquivo de indices
+	 *  Indice com a posicao de cada chave na tabela. Por padrao, uma arvore B
 	 */
-	private BTree<K> indices;
+	private Indice<K> indices;
 	/**
 	 *  Objeto que toma conta de ler/escrever o array acima em um arquivo
 	 */
-	private GuardadorObjeto<BTree<K>> guardadorIndices;
+	private GuardadorObjeto<Indice<K>> guardadorIndices;
+	
+	/**
+	 *  Filtro de Bloom com as chaves do banco. Quando ele existe, buscas por chaves que nao estao
+	 *  no banco sao, na grande maioria das vezes, respondidas sem percorrer a arvore de indices.
+	 *  Ele e opcional, i.e., pode ser {@code null}.
+	 */
+	private FiltroBloom<K> filtroBloom;
+	/**
+	 *  Objeto que toma conta de ler/escrever o filtro acima em um arquivo
+	 */
+	private GuardadorObjeto<FiltroBloom<K>> guardadorFiltroBloom;
 	
 	/**
 	 *  Funcao que diz qual a chave primaria dos objetos guardados
 	 */
 	private FuncaoChavePrimaria<T, K> funcaoChavePrimaria;
 	
+	/**
+	 *  Salvamento da ultima copia instantanea do banco. Cada copia so comeca a ser salva depois
+	 *  que a anterior termina, ja que todas usam os mesmos arquivos
+	 */
+	private CompletableFuture<Void> ultimaCopia = CompletableFuture.completedFuture(null);
+	/**
+	 *  Indica se o banco pode ter sido alterado desde a ultima copia instantanea
+	 */
+	private boolean alteradoDesdeCopia = true;
+	/**
+	 *  Indica se o banco foi congelado, i.e., se ele so pode ser lido
+	 */
+	private boolean congelado = false;
+	/**
+	 *  Diario das alteracoes feitas desde a ultima copia instantanea salva
+	 */
+	private DiarioTransacoes diario;
+	/**
+	 *  Manifesto que diz qual copia instantanea esta nos arquivos do banco
+	 */
+	private ManifestoBanco manifesto;
+	/**
+	 *  Geracao da ultima copia instantanea criada, salva ou nao
+	 */
+	private long ultimaGeracao;
+	/**
+	 * Versao do banco, que aumenta a cada alteracao ou transacao aplicada.
+	 */
+	private long versao = 0;
+	/**
+	 * Ouvintes avisados das alteracoes do banco, como os publicadores de replicacao.
+	 */
+	private final CopyOnWriteArrayList<OuvinteAlteracoes> ouvintes = new CopyOnWriteArrayList<>();
+	
 	/**
 	 * Construtor padrao. Ele e {@code private} pois so e usado dentro da propria classe
 	 */
@@ -88,7 +193,44 @@ public class MiniBD<T extends Serializable, K extends Comparable<K>> implements
 	}
 	
 	/**
-	 * Construtor de um banco de dados a partir de uma tabela de dados ja existente.
+	 * Constroi um banco de dados vazio que codifica os registros com o codec passado. Caso
+	 * a String {@code nomeBanco} se refira a um arquivo que ja esta sendo usado, esse sera
+	 * reescrevido.
+	 * 
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * 
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * 
+	 * @param nomeBanco nome do arquivo onde sera guardado o banco. os arquivos auxiliares usarao esse
+	 * nome como base.
+	 */
+	public MiniBD(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco) {
+		this(null, funcaoChavePrimaria, codec, nomeBanco);
+	}
+	
+	/**
+	 * Constroi um banco de dados vazio que codifica os registros com o codec passado e guarda
+	 * as chaves no tipo de indice passado. Caso a String {@code nomeBanco} se refira a um
+	 * arquivo que ja esta sendo usado, esse sera reescrevido.
+	 * 
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * 
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * 
+	 * @param tipoIndice estrutura usada como indice das chaves.
+	 * 
+	 * @param nomeBanco nome do arquivo onde sera guardado o banco. os arquivos auxiliares usarao esse
+	 * nome como base.
+	 */
+	public MiniBD(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, TipoIndice tipoIndice, String nomeBanco) {
+		this(null, funcaoChavePrimaria, codec, tipoIndice, nomeBanco);
+	}
+	
+	/**
+	 * Construtor de um banco de dados a partir de uma tabela de dados ja existente. Os registros
+	 * sao codificados com a serializacao do Java.
 	 * 
 	 * 
 	 * @param tabela a tabela de dados que sera guardada no banco.
@@ -97,35 +239,189 @@ public class MiniBD<T extends Serializable, K extends Comparable<K>> implements
 	 * 
 	 * @param nome do arquivo onde sera guardado o banco. os arquivos auxiliares usarao esse
 	 * nome como base. 
+	 * 
+	 * @see CodecSerializacaoJava
 	 */
 	public MiniBD(List<T> tabela, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, String nomeBanco) {
+		this(tabela, funcaoChavePrimaria, new CodecSerializacaoJava<T>(), nomeBanco);
+	}
+	
+	/**
+	 * Construtor de um banco de dados a partir de uma tabela de dados ja existente.
+	 * 
+	 * 
+	 * @param tabela a tabela de dados que sera guardada no banco.
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * 
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * 
+	 * @param nome do arquivo onde sera guardado o banco. os arquivos auxiliares usarao esse
+	 * nome como base. 
+	 */
+	public MiniBD(List<T> tabela, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco) {
+		this(tabela, funcaoChavePrimaria, codec, TipoIndice.ARVORE_B, nomeBanco);
+	}
+	
+	/**
+	 * Construtor de um banco de dados a partir de uma tabela de dados ja existente, com as
+	 * chaves guardadas no tipo de indice passado.
+	 * 
+	 * 
+	 * @param tabela a tabela de dados que sera guardada no banco.
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * 
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * 
+	 * @param tipoIndice estrutura usada como indice das chaves.
+	 * 
+	 * @param nome do arquivo onde sera guardado o banco. os arquivos auxiliares usarao esse
+	 * nome como base. 
+	 */
+	public MiniBD(List<T> tabela, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, 
+			TipoIndice tipoIndice, String nomeBanco) {
+		this.inicializa(funcaoChavePrimaria, codec, nomeBanco);
+		
+		// criando a tabela com base na tabela passada, ja com os registros codificados
+		this.tabela = new TabelaSerializada(codec.getClass().getName());
+		
+		if(tabela != null) {
+			for(T registro : tabela) {
+				this.tabela.adiciona(this.codifica(registro));
+			}
+			
+			// adicionando as chaves no arquivo de indices
+			this.indices = constroiIndices(tabela, funcaoChavePrimaria, tipoIndice);
+		} else {
+			this.indices = tipoIndice.cria();
+		}
+	}
+	
+	/**
+	 * Constroi um banco de dados a partir de uma tabela ja codificada e do indice dela. Usado pelo {@link ConstrutorBanco}, que monta essas componentes de uma vez so.
+	 * 
+	 * 
+	 * @param tabela tabela com os registros codificados pelo {@code codec}.
+	 * 
+	 * @param indices indice com a posicao de cada chave na tabela.
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * 
+	 * @param codec codec com que os registros da tabela foram codificados.
+	 * 
+	 * @param nomeBanco nome do arquivo onde sera guardado o banco. os arquivos auxiliares usarao esse
+	 * nome como base. 
+	 */
+	MiniBD(TabelaSerializada tabela, Indice<K> indices, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, 
+			CodecRegistro<T> codec, String nomeBanco) {
+		this.inicializa(funcaoChavePrimaria, codec, nomeBanco);
+		
+		this.tabela = tabela;
+		this.indices = indices;
+	}
+	
+	/**
+	 * Inicializa as componentes comuns a todos os bancos novos, i.e., que nao foram carregados
+	 * de arquivos.
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * 
+	 * @param codec codec usado para guardar os registros na tabela.
+	 * 
+	 * @param nomeBanco nome do arquivo onde sera guardado o banco.
+	 */
+	private void inicializa(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco) {
 		// impede que o banco nao tenha uma chave primaria
 		if(funcaoChavePrimaria == null) {
 			throw new NullPointerException("O objeto guardado deve ter uma chave primaria!!");
 		}
 		
-		// criando a tabela com base na tabela passada
-		this.tabela = tabela == null ? new ArrayList<>() : new ArrayList<>(tabela);
-		// cria a arvore do arquivo de indices. o grau maximo e 20 para manter um equilibrio entre
-		// a altura da arvore e a quantidade de chaves armazenada em um node da arvore.
-		this.indices = new BTree<>(20);
+		// impede que o banco nao saiba guardar os registros
+		if(codec == null) {
+			throw new NullPointerException("O banco precisa de um codec para guardar os registros!!");
+		}
+		
+		this.codec = codec;
+		this.cache = new CacheRegistros<>(ORCAMENTO_CACHE_PADRAO);
 		this.posicoesVazias = new ArrayList<>();
 		this.funcaoChavePrimaria = funcaoChavePrimaria;
 		
 		// criando os objetos que salvam as componentes do banco nos arquivos adequados
-		this.guardadorTabela = new GuardadorObjeto<ArrayList<T>>(nomeBanco);
-		this.guardadorIndices = new GuardadorObjeto<BTree<K>>(nomeBanco + "-indices");
+		this.arquivoTabela = new ArquivoTabela(nomeBanco);
+		this.guardadorIndices = new GuardadorObjeto<Indice<K>>(nomeBanco + "-indices");
 		this.guardadorPosicoesVazias = new GuardadorObjeto<ArrayList<Integer>>(nomeBanco + "-posicoes-vazias");
+		this.guardadorFiltroBloom = new GuardadorObjeto<FiltroBloom<K>>(nomeBanco + "-indices-bloom");
+		
+		// um banco novo nao tem alteracoes, entao diarios que sobraram de um banco antigo com o
+		// mesmo nome sao apagados. As geracoes e os diarios continuam a numeracao do banco antigo,
+		// para que um arquivo novo nunca seja confundido com um dele
+		this.manifesto = new ManifestoBanco(nomeBanco);
+		
+		try {
+			this.manifesto.carrega();
+		} catch (IOException e) {
+			// o manifesto do banco antigo nao importa para o banco novo
+		}
+		
+		this.ultimaGeracao = this.manifesto.getGeracao();
+		
+		try {
+			this.diario = new DiarioTransacoes(nomeBanco, this.manifesto.getUltimoDiario() + 1);
+			this.diario.apagaTodos();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Monta o indice de uma tabela de uma vez so: as posicoes sao ordenadas pela chave do
+	 * registro e, no caso da arvore B, a arvore e construida de baixo para cima, sem uma insercao
+	 * por registro. Caso uma chave se repita, so a primeira posicao dela e guardada, como
+	 * aconteceria inserindo as chaves em ordem.
+	 * 
+	 * @param tabela registros do banco.
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos registros.
+	 * 
+	 * @param tipoIndice estrutura usada como indice das chaves.
+	 * 
+	 * @return indice com a posicao de cada chave na tabela.
+	 */
+	private static <T, K extends Comparable<K>> Indice<K> constroiIndices(List<T> tabela, FuncaoChavePrimaria<T, K> funcaoChavePrimaria,
+			TipoIndice tipoIndice) {
+		final ArrayList<K> chavesTabela = new ArrayList<>(tabela.size());
+		final Integer[] ordem = new Integer[tabela.size()];
+		
+		for(int i = 0; i < tabela.size(); i++) {
+			chavesTabela.add(funcaoChavePrimaria.get(tabela.get(i)));
+			ordem[i] = i;
+		}
+		
+		// a ordenacao e estavel, entao entre chaves iguais a menor posicao vem primeiro
+		Arrays.parallelSort(ordem, (a, b) -> chavesTabela.get(a).compareTo(chavesTabela.get(b)));
 		
-		// adicionando as chaves no arquivo de indices
-		for(int i = 0; i < this.tabela.size(); i++) {
-			K chave = funcaoChavePrimaria.get(this.tabela.get(i));
-			this.indices.insere(chave, i);
+		ArrayList<K> chaves = new ArrayList<>(ordem.length);
+		ArrayList<Integer> posicoes = new ArrayList<>(ordem.length);
+		
+		for(Integer posicao : ordem) {
+			final K chave = chavesTabela.get(posicao);
+			
+			if(chaves.size() == 0 || chaves.get(chaves.size() - 1).compareTo(chave) != 0) {
+				chaves.add(chave);
+				posicoes.add(posicao);
+			}
 		}
+		
+		return tipoIndice.constroi(chaves, posicoes);
 	}
 	
 	/**
-	 * Cria um banco de dados com base nos arquivos passados.
+	 * Cria um banco de dados com base nos arquivos passados, usando a serializacao do Java
+	 * como codec dos registros. Caso exista um filtro de Bloom salvo
+	 * junto com o arquivo de indices (no arquivo {@code arquivoIndices + "-bloom"}), ele tambem e
+	 * carregado. Se o filtro salvo nao for da mesma copia que os indices carregados, de acordo com
+	 * o {@link ManifestoBanco}, ele e reconstruido a partir da arvore.
 	 * 
 	 * 
 	 * @param <T> tipo do objeto guardado no banco.
@@ -154,107 +450,1143 @@ public class MiniBD<T extends Serializable, K extends Comparable<K>> implements
 	public static<T extends Serializable, K extends Comparable<K>> MiniBD<T, K> carregaBanco(String arquivoTabela, 
 			String arquivoIndices, String arquivoPosicoesVazias, FuncaoChavePrimaria<T, K> funcaoChavePrimaria) 
 			throws ClassNotFoundException, IOException {
+		return carregaBanco(arquivoTabela, arquivoIndices, arquivoPosicoesVazias, funcaoChavePrimaria, new CodecSerializacaoJava<T>());
+	}
+	
+	/**
+	 * Cria um banco de dados com base nos arquivos passados, usando o codec passado para
+	 * decodificar os registros. Ele deve ser o mesmo codec usado quando o banco foi salvo.
+	 * 
+	 * </p>Arquivos de tabela salvos antes da tabela codificada existir, i.e., que guardam uma lista
+	 * com os objetos, tambem sao aceitos. Nesse caso os registros sao codificados ao carregar.
+	 * 
+	 * </p>Os arquivos carregados sao os da copia confirmada pelo {@link ManifestoBanco}, e so os
+	 * arquivos do diario escritos depois dela sao reaplicados. Bancos sem manifesto reaplicam o
+	 * diario inteiro.
+	 * 
+	 * 
+	 * @param <T> tipo do objeto guardado no banco.
+	 * 
+	 * @param <K> tipo da chave primaria dos objetos.
+	 * 
+	 * @param arquivoTabela nome do arquivo onde se encontra a tabela de dados.
+	 * 
+	 * @param arquivoIndices nome do arquivo onde se encontra a arvore de indices.
+	 * 
+	 * @param arquivoPosicoesVazias nome do arquivo onde se encontra o array de posicoes 
+	 * vazias da tabela.
+	 * 
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos objetos armazenados.
+	 * 
+	 * @param codec codec com que os registros da tabela foram codificados.
+	 * 
+	 * 
+	 * @return um objeto do tipo MiniBD, com componentes criadas a partir dos arquivos passados
+	 * 
+	 * 
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos, ou caso a tabela tenha
+	 * sido salva com outro codec.
+	 * 
+	 * @see java.lang.ClassNotFoundException
+	 * @see java.io.IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static<T extends Serializable, K extends Comparable<K>> MiniBD<T, K> carregaBanco(String arquivoTabela, 
+			String arquivoIndices, String arquivoPosicoesVazias, FuncaoChavePrimaria<T, K> funcaoChavePrimaria,
+			CodecRegistro<T> codec) throws ClassNotFoundException, IOException {
 		MiniBD<T, K> banco = new MiniBD<>();
 		
+		banco.codec = codec;
+		banco.cache = new CacheRegistros<>(ORCAMENTO_CACHE_PADRAO);
+		
+		// a copia valida e a do manifesto: os arquivos dela que ainda nao foram renomeados sao
+		// renomeados agora, e os de uma copia seguinte, que nao chegou a ser confirmada, sao apagados
+		banco.manifesto = new ManifestoBanco(arquivoTabela);
+		banco.manifesto.carrega();
+		banco.ultimaGeracao = banco.manifesto.getGeracao();
+		
+		for(String arquivo : List.of(arquivoTabela, arquivoIndices, arquivoPosicoesVazias, arquivoIndices + "-bloom")) {
+			ManifestoBanco.publica(arquivo, banco.ultimaGeracao);
+			Files.deleteIfExists(ManifestoBanco.pendente(arquivo, banco.ultimaGeracao + 1));
+		}
+		
 		// criando os objetos que leem os arquivos
-		banco.guardadorTabela = new GuardadorObjeto<ArrayList<T>>(arquivoTabela);
-		banco.guardadorIndices = new GuardadorObjeto<BTree<K>>(arquivoIndices);
+		banco.arquivoTabela = new ArquivoTabela(arquivoTabela);
+		banco.guardadorIndices = new GuardadorObjeto<Indice<K>>(arquivoIndices);
 		banco.guardadorPosicoesVazias = new GuardadorObjeto<ArrayList<Integer>>(arquivoPosicoesVazias);
+		banco.guardadorFiltroBloom = new GuardadorObjeto<FiltroBloom<K>>(arquivoIndices + "-bloom");
 		
 		// lendo os arquivos
 		banco.posicoesVazias = banco.guardadorPosicoesVazias.carregaObjeto();
-		banco.tabela = banco.guardadorTabela.carregaObjeto();
-		banco.indices = banco.guardadorIndices.carregaObjeto();
+		banco.indices = carregaIndices(banco.guardadorIndices);
 		banco.funcaoChavePrimaria = funcaoChavePrimaria;
 		
+		// no arquivo paginado so o diretorio de blocos e lido agora, e cada bloco e lido na
+		// primeira vez que um dos seus registros for buscado
+		Serializable tabelaLida = banco.arquivoTabela.ehPaginado() ? banco.arquivoTabela.abre()
+				// a tabela e lida sem o tipo do guardador, ja que ela pode estar em um formato antigo
+				: new GuardadorObjeto<Serializable>(arquivoTabela).carregaObjeto();
+		
+		if(tabelaLida instanceof TabelaSerializada) {
+			banco.tabela = (TabelaSerializada) tabelaLida;
+			
+			// registros codificados com outro codec nao podem ser lidos
+			if(!banco.tabela.getNomeCodec().equals(codec.getClass().getName())) {
+				banco.arquivoTabela.fecha();
+				throw new IOException("A tabela " + banco.arquivoTabela.getNomeArquivo() + " foi salva com o codec " 
+						+ banco.tabela.getNomeCodec() + ".");
+			}
+		} else {
+			// formato antigo: uma lista com os objetos, incluindo os null das posicoes vazias
+			banco.tabela = new TabelaSerializada(codec.getClass().getName());
+			
+			for(T registro : (List<T>) tabelaLida) {
+				banco.tabela.adiciona(registro == null ? null : banco.codifica(registro));
+			}
+		}
+		
+		// o filtro de Bloom e opcional, entao a falta do arquivo dele nao e um erro. Um arquivo que
+		// nao faz parte da copia do manifesto sobrou de uma copia anterior, e e ignorado
+		try {
+			banco.filtroBloom = !banco.manifesto.existe() || banco.manifesto.temFiltroBloom()
+					? banco.guardadorFiltroBloom.carregaObjeto() : null;
+		} catch (FileNotFoundException e) {
+			banco.filtroBloom = null;
+		}
+		
+		// um filtro que nao foi salvo com a copia do manifesto (por exemplo, de um banco salvo antes
+		// do manifesto existir) pode nao conter todas as chaves dos indices, e uma busca que ele
+		// recusasse nao chegaria a arvore, entao ele e reconstruido a partir dela
+		if(banco.filtroBloom != null && (!banco.manifesto.existe() 
+				|| banco.filtroBloom.getGeracaoSalva() != banco.manifesto.getGeracao() || banco.filtroBloom.saturado())) {
+			banco.reconstroiFiltroBloom(banco.filtroBloom.getTaxaFalsosPositivos());
+		}
+		
+		// so as alteracoes feitas depois da copia salva sao reaplicadas, ja que as anteriores estao
+		// nela e podem ter sido seguidas de alteracoes que elas desfariam
+		banco.diario = new DiarioTransacoes(arquivoTabela, banco.manifesto.getUltimoDiario() + 1);
+		banco.diario.reaplica(banco.manifesto.getUltimoDiario(), (apagado, bytes) -> {
+			final T registro = banco.decodifica(bytes);
+			banco.reaplica(funcaoChavePrimaria.get(registro), apagado ? null : registro, bytes);
+		});
+		
 		return banco;
 	}
 	
 	/**
-	 * Getter da tabela de dados.
+	 * Getter da tabela de dados. Como a tabela guarda os registros codificados, todos
+	 * eles sao decodificados para montar a lista retornada.
 	 * 
-	 * @return a tabela de dados.
+	 * @return a tabela de dados, com {@code null} nas posicoes vazias.
 	 */
 	public List<T> getTabela() {
-		return Collections.unmodifiableList(this.tabela);
+		ArrayList<T> registros = new ArrayList<>(this.tabela.tamanho());
+		
+		for(int i = 0; i < this.tabela.tamanho(); i++) {
+			registros.add(this.registroEm(i));
+		}
+		
+		return Collections.unmodifiableList(registros);
 	}
-
-	@Override
-	public void close() throws IOException {
-		this.guardadorIndices.salvaObjeto(this.indices);
-		this.guardadorTabela.salvaObjeto(this.tabela);
-		this.guardadorPosicoesVazias.salvaObjeto(this.posicoesVazias);
+	
+	/**
+	 * Getter da quantidade de registros.
+	 * 
+	 * @return quantidade de registros no banco.
+	 */
+	public synchronized int getQtdRegistros() {
+		return this.qtdRegistros();
 	}
 	
 	/**
-	 * Adiciona um registro no banco.
+	 * Getter do codec do banco.
 	 * 
-	 * @param registro registro que sera adicionado.
+	 * @return o codec usado para codificar os registros.
 	 */
-	public void adiciona(T registro) {
-		// pega a chave primaria do registro
-		K chave = this.funcaoChavePrimaria.get(registro);
-		
-		// so adiciona chaves que nao estejam no banco.
-		if(this.indices.busca(chave) == -1) {
-			if(this.posicoesVazias.size() != 0) {
-				// caso existam posicoes vazias no meio da tebela, adicione la
-				int posicao = this.posicoesVazias.remove(0);
-				this.tabela.set(posicao, registro);
-				this.indices.insere(chave, posicao);
-			} else {
-				// caso contrario, adicione no final
-				int posicao = this.tabela.size();
-				this.tabela.add(registro);
-				this.indices.insere(chave, posicao);
-			}
-		}
+	public CodecRegistro<T> getCodec() {
+		return this.codec;
 	}
 	
 	/**
-	 * Remove um registro do banco.
+	 * Muda o orcamento do cache de registros decodificados.
 	 * 
-	 * @param chave chave primaria do registro que sera removido.
+	 * @param bytes quantidade maxima de bytes que os registros do cache podem ocupar. O
+	 * tamanho de um registro e aproximado pelo tamanho da sua forma codificada.
+	 */
+	public void setOrcamentoCache(long bytes) {
+		this.cache.setCapacidadeBytes(bytes);
+	}
+	
+	/**
+	 * Getter da quantidade de acertos do cache.
 	 * 
-	 * @return o registro removido, ou {@code null}, caso ele nao esteja
-	 * no banco.
+	 * @return quantidade de buscas que encontraram o registro ja decodificado.
 	 */
-	public T remove(K chave) {
-		// procura a posicao do registro
-		int posicao = this.indices.busca(chave);
-		
-		if(posicao != -1) {
-			// caso ele esteja na arvore, remove e retorna ele
-			T registro = this.tabela.get(posicao);
-			
-			// removendo da tabela, do arquivo de indices, e colocando
-			// a posicao no array de posicoes vazias
-			this.tabela.set(posicao, null);
-			this.indices.remove(chave);
-			this.posicoesVazias.add(posicao);
-			
-			return registro;
-		} else {
-			// caso ele nao esteja na arvore, retorne null
-			return null;
-		}
+	public long getAcertosCache() {
+		return this.cache.getAcertos();
 	}
 	
 	/**
-	 * Busca uma chave na arvore.
+	 * Getter da quantidade de faltas do cache.
 	 * 
-	 * @param chave chave buscada.
+	 * @return quantidade de buscas que precisaram decodificar o registro.
+	 */
+	public long getFaltasCache() {
+		return this.cache.getFaltas();
+	}
+	
+	/**
+	 * Getter da quantidade de bytes ocupada pela tabela codificada.
 	 * 
-	 * @return registro associado a essa chave, ou null, caso
-	 * nenhum registro esteja associado a essa chave.
+	 * @return soma do tamanho de todos os registros codificados.
 	 */
-	public T busca(K chave) {
-		int posicao = this.indices.busca(chave);
+	public long getBytesTabela() {
+		return this.tabela.getQtdBytes();
+	}
+	
+	/**
+	 * Muda o nivel de compressao dos arquivos do banco. Os arquivos sao reescritos com o novo
+	 * nivel no proximo salvamento. Arquivos salvos com qualquer nivel podem ser carregados, ja
+	 * que cada arquivo diz se os seus blocos estao comprimidos.
+	 * 
+	 * @param nivel {@link CompressorBlocos#SEM_COMPRESSAO}, ou um nivel entre
+	 * {@link CompressorBlocos#NIVEL_MINIMO} e {@link CompressorBlocos#NIVEL_MAXIMO}.
+	 * 
+	 * @throws IllegalArgumentException Caso o nivel seja invalido.
+	 */
+	public void setNivelCompressao(int nivel) {
+		this.verificaAlteravel();
 		
-		if(posicao != -1) {		
-			return this.tabela.get(posicao);
+		this.arquivoTabela.setNivelCompressao(nivel);
+		this.guardadorIndices.setNivelCompressao(nivel);
+		this.guardadorPosicoesVazias.setNivelCompressao(nivel);
+		this.guardadorFiltroBloom.setNivelCompressao(nivel);
+		this.alteradoDesdeCopia = true;
+	}
+
+	/**
+	 * Salva o banco nos arquivos sem bloquear quem chamou. Uma copia instantanea da tabela, da
+	 * arvore de indices, das posicoes vazias e do filtro de Bloom e criada na hora, e os arquivos
+	 * sao escritos em paralelo, em segundo plano. A tabela e a arvore sao copiadas de forma
+	 * preguicosa, i.e., so as partes alteradas depois da copia sao duplicadas, entao o banco pode
+	 * continuar sendo alterado enquanto os arquivos sao escritos sem que isso afete o que e salvo.
+	 * 
+	 * </p>Os arquivos sao escritos como arquivos pendentes da geracao da copia, e so passam a valer
+	 * todos juntos, quando o {@link ManifestoBanco} da geracao e salvo. Caso o programa pare antes
+	 * disso, o banco e carregado da copia anterior, mais o diario.
+	 * 
+	 * </p>Caso uma copia anterior ainda esteja sendo salva, essa so comeca a ser salva depois. Caso
+	 * o banco nao tenha sido alterado desde a copia anterior, nenhuma copia nova e criada.
+	 * 
+	 * @return um futuro que termina quando todos os arquivos tiverem sido escritos. Caso algum erro
+	 * ocorra, ele termina com uma {@code UncheckedIOException} com o erro original.
+	 */
+	public synchronized CompletableFuture<Void> salvaCopiaInstantanea() {
+		if(!this.alteradoDesdeCopia) {
+			return this.ultimaCopia;
+		}
+		
+		final long geracao = ++this.ultimaGeracao;
+		final Indice<K> copiaIndices = this.indices.copiaInstantanea();
+		// as alteracoes feitas ate aqui estao na copia, entao o diario delas nao e reaplicado
+		// depois que a copia for confirmada, e pode ser apagado
+		final long ultimoDiario = this.diario.rotaciona();
+		final TabelaSerializada copiaTabela = this.tabela.copiaInstantanea();
+		final ArrayList<Integer> copiaPosicoesVazias = new ArrayList<>(this.posicoesVazias);
+		final FiltroBloom<K> copiaFiltro;
+		
+		if(this.filtroBloom != null) {
+			// o filtro e salvo junto com a geracao da copia, para que seja possivel verificar se
+			// ele corresponde aos indices salvos
+			copiaFiltro = this.filtroBloom.copia();
+			copiaFiltro.setGeracaoSalva(geracao);
 		} else {
-			return null;
+			copiaFiltro = null;
+		}
+		
+		// o resultado da copia anterior nao importa, so o fim dela
+		this.ultimaCopia = this.ultimaCopia.handle((resultado, erro) -> null)
+				.thenCompose((Object anterior) -> CompletableFuture.allOf(
+						salvaIndicesEmSegundoPlano(this.guardadorIndices, copiaIndices, geracao),
+						CompletableFuture.runAsync(() -> {
+							try {
+								this.arquivoTabela.salvaPendente(copiaTabela, geracao);
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						}, EXECUTOR_ARQUIVOS),
+						salvaEmSegundoPlano(this.guardadorPosicoesVazias, copiaPosicoesVazias, geracao),
+						salvaEmSegundoPlano(this.guardadorFiltroBloom, copiaFiltro, geracao)))
+				// todos os arquivos da copia estao no disco, entao ela e confirmada pelo manifesto
+				.thenRunAsync(() -> {
+					try {
+						this.manifesto.salva(geracao, ultimoDiario, copiaFiltro != null);
+						
+						this.arquivoTabela.publica(geracao);
+						ManifestoBanco.publica(semExtensao(this.guardadorIndices.getNomeArquivo()), geracao);
+						ManifestoBanco.publica(semExtensao(this.guardadorPosicoesVazias.getNomeArquivo()), geracao);
+						
+						if(copiaFiltro != null) {
+							ManifestoBanco.publica(semExtensao(this.guardadorFiltroBloom.getNomeArquivo()), geracao);
+						} else {
+							this.guardadorFiltroBloom.apagaArquivo();
+						}
+						
+						this.diario.descartaAte(ultimoDiario);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, EXECUTOR_ARQUIVOS)
+				.whenComplete((resultado, erro) -> {
+					// os arquivos de uma copia que falhou nunca vao valer
+					if(erro != null && this.manifesto.getGeracao() < geracao) {
+						for(String nome : List.of(this.guardadorIndices.getNomeArquivo(), this.guardadorPosicoesVazias.getNomeArquivo(),
+								this.guardadorFiltroBloom.getNomeArquivo(), this.arquivoTabela.getNomeArquivo())) {
+							ManifestoBanco.pendente(semExtensao(nome), geracao).toFile().delete();
+						}
+					}
+				});
+		this.alteradoDesdeCopia = false;
+		
+		return this.ultimaCopia;
+	}
+	
+	/**
+	 * Tira a extensao do nome de um arquivo do banco.
+	 * 
+	 * @param nome nome do arquivo, terminado em {@code .bin}.
+	 * 
+	 * @return o nome do arquivo sem o {@code .bin}.
+	 */
+	private static String semExtensao(String nome) {
+		return nome.substring(0, nome.length() - ".bin".length());
+	}
+	
+	/**
+	 * Salva o banco nos arquivos e espera que eles sejam escritos. Caso o banco nao tenha sido
+	 * alterado desde a ultima copia instantanea, so espera que ela termine de ser salva. Depois
+	 * disso, o arquivo da tabela e fechado, e so e aberto de novo caso um bloco que ainda nao foi
+	 * lido seja usado.
+	 * 
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 * 
+	 * @see #salvaCopiaInstantanea()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			this.salvaCopiaInstantanea().join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			
+			throw e;
+		} finally {
+			this.arquivoTabela.fecha();
+			this.diario.fecha();
+		}
+	}
+	
+	/**
+	 * Salva o indice no arquivo pendente de uma copia, em uma das threads de arquivos. Um
+	 * {@link IndicePrimitivo} e escrito como vetores crus, e os outros indices sao salvos pelo
+	 * proprio guardador.
+	 * 
+	 * @param guardador guardador do arquivo de indices.
+	 * @param indices indice que sera salvo. Ele nao deve ser alterado enquanto e salvo.
+	 * @param geracao geracao da copia.
+	 * 
+	 * @return futuro que termina quando o indice tiver sido salvo.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <K extends Comparable<K>> CompletableFuture<Void> salvaIndicesEmSegundoPlano(
+			GuardadorObjeto<Indice<K>> guardador, Indice<K> indices, long geracao) {
+		if(!(indices instanceof IndicePrimitivo)) {
+			return salvaEmSegundoPlano(guardador, indices, geracao);
+		}
+		
+		return CompletableFuture.runAsync(() -> {
+			try {
+				// o indice primitivo ja forca o arquivo para o disco
+				((IndicePrimitivo<K>) indices).salva(ManifestoBanco.pendente(semExtensao(guardador.getNomeArquivo()), geracao));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, EXECUTOR_ARQUIVOS);
+	}
+	
+	/**
+	 * Carrega o indice do arquivo do guardador, que pode ter sido salvo pela serializacao do Java
+	 * ou, no caso de um {@link IndicePrimitivo}, como vetores crus.
+	 * 
+	 * @param guardador guardador do arquivo de indices.
+	 * 
+	 * @return o indice carregado.
+	 * 
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 * @throws ClassNotFoundException Caso a classe do indice salvo nao seja encontrada.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <K extends Comparable<K>> Indice<K> carregaIndices(GuardadorObjeto<Indice<K>> guardador) 
+			throws IOException, ClassNotFoundException {
+		final Path arquivo = Paths.get(guardador.getNomeArquivo());
+		
+		if(IndicePrimitivo.ehIndicePrimitivo(arquivo)) {
+			return (Indice<K>) IndicePrimitivo.carrega(arquivo);
+		}
+		
+		return guardador.carregaObjeto();
+	}
+	
+	/**
+	 * Salva um objeto no arquivo pendente de uma copia, em uma das threads de arquivos.
+	 * 
+	 * @param guardador objeto que salva no arquivo adequado.
+	 * @param objeto objeto que sera salvo, ou {@code null}, caso a copia nao tenha esse arquivo.
+	 * Ele nao deve ser alterado enquanto e salvo.
+	 * @param geracao geracao da copia.
+	 * 
+	 * @return futuro que termina quando o objeto tiver sido salvo.
+	 */
+	private static <O extends Serializable> CompletableFuture<Void> salvaEmSegundoPlano(GuardadorObjeto<O> guardador, O objeto,
+			long geracao) {
+		if(objeto == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		return CompletableFuture.runAsync(() -> {
+			try {
+				guardador.salvaObjetoEm(objeto, ManifestoBanco.pendente(semExtensao(guardador.getNomeArquivo()), geracao).toFile());
+			} catch (IOException e) {
+				// o Runnable nao aceita excecoes verificadas
+				throw new UncheckedIOException(e);
+			}
+		}, EXECUTOR_ARQUIVOS);
+	}
+	
+	/**
+	 * Abre uma visao do banco como ele esta agora. A visao guarda copias instantaneas do indice e
+	 * da tabela, que so duplicam as partes alteradas depois da copia, entao abrir uma visao nao
+	 * copia o banco inteiro e as alteracoes seguintes nao esperam quem esta lendo a visao. Os
+	 * blocos da tabela que ainda nao foram lidos do arquivo tambem nao sao lidos agora: a visao le
+	 * eles sob demanda do arquivo aberto no momento em que ela foi aberta, que continua legivel
+	 * para ela mesmo depois de ser substituido por uma copia salva mais nova.
+	 * 
+	 * </p>Como as alteracoes do banco sao sincronizadas com a abertura das visoes, uma visao nunca
+	 * contem uma alteracao pela metade.
+	 * 
+	 * @return a visao do banco.
+	 * 
+	 * @throws UncheckedIOException Caso o arquivo da tabela precise ser aberto e ocorra algum erro.
+	 * 
+	 * @see VisaoBanco
+	 */
+	public synchronized VisaoBanco<T, K> abreVisao() {
+		final TabelaSerializada copiaTabela;
+		
+		try {
+			copiaTabela = this.tabela.copiaSoLeitura();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao tentar abrir o arquivo da tabela para a visao.", e);
+		}
+		
+		return new VisaoBanco<>(this.indices.copiaInstantanea(), copiaTabela, this.codec, this.qtdRegistros(), this.versao);
+	}
+	
+	/**
+	 * Abre uma visao do banco e passa a avisar o ouvinte de todas as alteracoes feitas depois dela,
+	 * com os registros codificados como na tabela. A visao e a assinatura sao feitas juntas, entao
+	 * a visao seguida das alteracoes avisadas sempre forma o banco inteiro, sem perder nem repetir
+	 * nenhuma alteracao.
+	 * 
+	 * </p>O ouvinte e chamado pela thread que altera o banco, antes de a alteracao terminar e com o
+	 * banco travado, entao ele deve ser rapido, por exemplo guardando as alteracoes em uma fila.
+	 * 
+	 * @param ouvinte ouvinte avisado das alteracoes.
+	 * 
+	 * @return a visao do banco no momento da assinatura.
+	 * 
+	 * @see #cancelaAssinatura(OuvinteAlteracoes)
+	 */
+	public synchronized VisaoBanco<T, K> assinaAlteracoes(OuvinteAlteracoes ouvinte) {
+		final VisaoBanco<T, K> visao = this.abreVisao();
+		
+		this.ouvintes.add(ouvinte);
+		
+		return visao;
+	}
+	
+	/**
+	 * Para de avisar um ouvinte das alteracoes do banco. Pode ser chamado pelo proprio ouvinte,
+	 * durante um aviso.
+	 * 
+	 * @param ouvinte ouvinte que nao sera mais avisado.
+	 */
+	public void cancelaAssinatura(OuvinteAlteracoes ouvinte) {
+		this.ouvintes.remove(ouvinte);
+	}
+	
+	/**
+	 * Getter da versao do banco.
+	 * 
+	 * @return a quantidade de alteracoes e transacoes aplicadas desde que o banco foi criado ou
+	 * carregado.
+	 */
+	public synchronized long getVersao() {
+		return this.versao;
+	}
+	
+	/**
+	 * Conta uma alteracao do banco e avisa os ouvintes dela.
+	 * 
+	 * @param registros registros alterados, codificados. Os registros apagados vao com os bytes
+	 * que tinham.
+	 * @param apagados indica quais registros foram apagados.
+	 */
+	private void avisaAlteracoes(List<byte[]> registros, List<Boolean> apagados) {
+		this.versao++;
+		
+		for(OuvinteAlteracoes ouvinte : this.ouvintes) {
+			ouvinte.alterado(this.versao, registros, apagados);
+		}
+	}
+	
+	/**
+	 * Congela o banco, deixando ele so para leitura. As alteracoes pendentes sao salvas, todos os
+	 * blocos da tabela que ainda nao foram lidos sao lidos do arquivo, e o indice e trocado por um
+	 * {@link IndiceCongelado}, em que as buscas passam por bem menos linhas de cache do que na arvore
+	 * B. Depois disso, as operacoes que alteram o banco lancam uma {@code IllegalStateException}.
+	 * 
+	 * </p>Um banco congelado pode ser buscado por varias threads ao mesmo tempo: o indice, a tabela
+	 * e o filtro de Bloom nao sao mais alterados, e o cache de registros e sincronizado. Os arquivos
+	 * continuam com o indice original, entao um banco carregado deles pode ser alterado de novo.
+	 * Caso o banco ja esteja congelado, nada e feito.
+	 */
+	public synchronized void congela() {
+		if(this.congelado) {
+			return;
+		}
+		
+		// a copia e criada antes de trocar o indice, entao o indice salvo e o original
+		this.salvaCopiaInstantanea();
+		this.tabela.carregaBlocos();
+		this.indices = IndiceCongelado.de(this.indices);
+		this.congelado = true;
+	}
+	
+	/**
+	 * Verifica se o banco foi congelado.
+	 * 
+	 * @return {@code true} caso o banco so possa ser lido, {@code false} caso contrario.
+	 * 
+	 * @see #congela()
+	 */
+	public boolean ehCongelado() {
+		return this.congelado;
+	}
+	
+	/**
+	 * Impede que um banco congelado seja alterado.
+	 * 
+	 * @throws IllegalStateException Caso o banco esteja congelado.
+	 */
+	private void verificaAlteravel() {
+		if(this.congelado) {
+			throw new IllegalStateException("O banco esta congelado e nao pode ser alterado!!");
+		}
+	}
+	
+	/**
+	 * Habilita o filtro de Bloom sobre as chaves do banco. Com ele, buscas por chaves que nao estao
+	 * no banco sao respondidas sem percorrer a arvore de indices, exceto pelos falsos positivos.
+	 * Caso o filtro ja esteja habilitado, nada e feito.
+	 * 
+	 * @param taxaFalsosPositivos taxa de falsos positivos desejada, no intervalo (0, 1).
+	 */
+	public void habilitaFiltroBloom(double taxaFalsosPositivos) {
+		this.verificaAlteravel();
+		
+		if(this.filtroBloom == null) {
+			this.reconstroiFiltroBloom(taxaFalsosPositivos);
+		}
+	}
+	
+	/**
+	 * Desabilita o filtro de Bloom. Ao fechar o banco, o arquivo do filtro e apagado.
+	 */
+	public void desabilitaFiltroBloom() {
+		this.verificaAlteravel();
+		
+		this.filtroBloom = null;
+		this.alteradoDesdeCopia = true;
+	}
+	
+	/**
+	 * Verifica se o banco esta usando um filtro de Bloom.
+	 * 
+	 * @return {@code true} caso o filtro esteja habilitado, {@code false} caso contrario.
+	 */
+	public boolean temFiltroBloom() {
+		return this.filtroBloom != null;
+	}
+	
+	/**
+	 * Cria um novo filtro de Bloom com todas as chaves da arvore de indices. O filtro e
+	 * dimensionado para o dobro da quantidade atual de registros, para que ele nao precise
+	 * ser reconstruido logo apos algumas insercoes.
+	 * 
+	 * @param taxaFalsosPositivos taxa de falsos positivos do novo filtro.
+	 */
+	private void reconstroiFiltroBloom(double taxaFalsosPositivos) {
+		final FiltroBloom<K> novoFiltro = new FiltroBloom<>(Math.max(1024, 2 * this.qtdRegistros()), taxaFalsosPositivos);
+		
+		this.indices.percorre((chave, posicao) -> novoFiltro.adiciona(chave));
+		this.filtroBloom = novoFiltro;
+		this.alteradoDesdeCopia = true;
+	}
+	
+	/**
+	 * Quantidade de registros guardados no banco, i.e., o tamanho da tabela sem contar
+	 * as posicoes vazias.
+	 * 
+	 * @return quantidade de registros no banco.
+	 */
+	private int qtdRegistros() {
+		return this.tabela.tamanho() - this.posicoesVazias.size();
+	}
+	
+	/**
+	 * Procura a posicao de uma chave na tabela. Caso o filtro de Bloom esteja habilitado e
+	 * diga que a chave nao esta no banco, a arvore nao e consultada.
+	 * 
+	 * @param chave chave buscada.
+	 * 
+	 * @return a posicao do registro na tabela, ou -1, caso a chave nao esteja no banco.
+	 */
+	private int posicaoDe(K chave) {
+		if(this.filtroBloom != null && !this.filtroBloom.podeConter(chave)) {
+			return -1;
+		}
+		
+		return this.indices.busca(chave);
+	}
+	
+	/**
+	 * Adiciona um registro no banco.
+	 * 
+	 * @param registro registro que sera adicionado.
+	 */
+	@Override
+	public synchronized void adiciona(T registro) {
+		this.verificaAlteravel();
+		
+		// pega a chave primaria do registro
+		K chave = this.funcaoChavePrimaria.get(registro);
+		
+		// so adiciona chaves que nao estejam no banco.
+		if(this.posicaoDe(chave) == -1) {
+			final byte[] bytes = this.codifica(registro);
+			
+			this.registraNoDiario(List.of(bytes), List.of(false));
+			this.insereCodificado(chave, registro, bytes);
+			this.avisaAlteracoes(List.of(bytes), List.of(false));
+		}
+	}
+	
+	/**
+	 * Insere um registro ja codificado cuja chave nao esta no banco.
+	 * 
+	 * @param chave chave primaria do registro.
+	 * @param registro registro inserido.
+	 * @param bytes bytes do registro, gerados pelo codec do banco.
+	 */
+	private void insereCodificado(K chave, T registro, byte[] bytes) {
+		final int posicao;
+		
+		if(this.posicoesVazias.size() != 0) {
+			// caso existam posicoes vazias no meio da tebela, adicione la
+			posicao = this.posicoesVazias.remove(0);
+			this.tabela.grava(posicao, bytes);
+			this.indices.insere(chave, posicao);
+		} else {
+			// caso contrario, adicione no final
+			posicao = this.tabela.adiciona(bytes);
+			this.indices.insere(chave, posicao);
+		}
+		
+		// um registro recem adicionado provavelmente sera buscado logo, entao uma copia dele ja
+		// vai para o cache
+		this.guardaNoCache(posicao, registro, bytes);
+		this.alteradoDesdeCopia = true;
+		
+		// mantem o filtro atualizado, reconstruindo ele caso tenha passado da capacidade
+		if(this.filtroBloom != null) {
+			this.filtroBloom.adiciona(chave);
+			
+			if(this.filtroBloom.saturado()) {
+				this.reconstroiFiltroBloom(this.filtroBloom.getTaxaFalsosPositivos());
+			}
+		}
+	}
+	
+	/**
+	 * Remove um registro do banco.
+	 * 
+	 * @param chave chave primaria do registro que sera removido.
+	 * 
+	 * @return o registro removido, ou {@code null}, caso ele nao esteja
+	 * no banco.
+	 */
+	@Override
+	public synchronized T remove(K chave) {
+		this.verificaAlteravel();
+		
+		// procura a posicao do registro
+		int posicao = this.posicaoDe(chave);
+		
+		if(posicao != -1) {
+			// caso ele esteja na arvore, remove e retorna ele
+			T registro = this.registroEm(posicao);
+			// o registro apagado e avisado com os bytes que ele tinha, de onde a chave e tirada
+			final byte[] bytes = this.tabela.le(posicao);
+			this.registraNoDiario(List.of(bytes), List.of(true));
+			this.removeEm(chave, posicao);
+			this.avisaAlteracoes(List.of(bytes), List.of(true));
+			
+			return registro;
+		} else {
+			// caso ele nao esteja na arvore, retorne null
+			return null;
+		}
+	}
+	
+	/**
+	 * Atualiza um registro que ja esta no banco, i.e., substitui o registro que tem a mesma
+	 * chave primaria pelo registro passado.
+	 * 
+	 * </p>Cada busca devolve uma copia do registro, entao alteracoes feitas em um objeto
+	 * devolvido por {@link #busca(Comparable)} so ficam no banco depois que ele e passado
+	 * para essa funcao, e nunca aparecem em outras buscas antes disso. Da mesma forma, o objeto
+	 * passado pode continuar sendo alterado depois, sem mudar o banco.
+	 * 
+	 * @param registro registro com os dados novos.
+	 * 
+	 * @return {@code true} caso o registro tenha sido atualizado, ou {@code false}, caso
+	 * nenhum registro do banco tenha a mesma chave.
+	 */
+	@Override
+	public synchronized boolean atualiza(T registro) {
+		this.verificaAlteravel();
+		
+		int posicao = this.posicaoDe(this.funcaoChavePrimaria.get(registro));
+		
+		if(posicao != -1) {
+			final byte[] bytes = this.codifica(registro);
+			
+			this.registraNoDiario(List.of(bytes), List.of(false));
+			this.gravaEm(posicao, registro, bytes);
+			this.avisaAlteracoes(List.of(bytes), List.of(false));
+			
+			return true;
+		} else {
+			return false;
+		}
+	}
+	
+	/**
+	 * Escreve uma alteracao feita fora de uma transacao no diario, sem forcar o arquivo para o
+	 * disco. Assim, uma copia carregada junto com o diario nunca volta para um estado anterior ao
+	 * de alteracoes que ja estavam nela, mesmo que elas tenham sido feitas fora de transacoes.
+	 * 
+	 * @param registros registros alterados, codificados.
+	 * @param apagados indica quais registros foram apagados.
+	 * 
+	 * @throws UncheckedIOException Caso ocorra algum erro na escrita do diario. Nesse caso, a
+	 * alteracao nao e feita.
+	 */
+	private void registraNoDiario(List<byte[]> registros, List<Boolean> apagados) {
+		try {
+			this.diario.registra(registros, apagados, false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Atualiza um registro que ja esta no banco a partir dos bytes ja codificados, sem decodificar
+	 * o registro. Quem conhece o formato do codec pode alterar so uma parte dos bytes buscados com
+	 * {@link #buscaCodificado(Comparable)}, ao inves de decodificar e codificar o registro inteiro.
+	 * A copia do registro no cache e descartada.
+	 * 
+	 * @param chave chave primaria do registro, que deve ser a mesma que esta nos bytes.
+	 * @param bytes bytes do registro novo, gerados pelo codec do banco. Eles passam a ser
+	 * guardados na tabela, entao nao devem ser alterados depois.
+	 * 
+	 * @return {@code true} caso o registro tenha sido atualizado, ou {@code false}, caso
+	 * nenhum registro do banco tenha essa chave.
+	 */
+	public synchronized boolean atualizaCodificado(K chave, byte[] bytes) {
+		this.verificaAlteravel();
+		
+		final int posicao = this.posicaoDe(chave);
+		
+		if(posicao == -1) {
+			return false;
+		}
+		
+		this.registraNoDiario(List.of(bytes), List.of(false));
+		this.tabela.grava(posicao, bytes);
+		this.cache.remove(posicao);
+		this.alteradoDesdeCopia = true;
+		this.avisaAlteracoes(List.of(bytes), List.of(false));
+		
+		return true;
+	}
+	
+	/**
+	 * Remove o registro de uma chave que esta no banco.
+	 * 
+	 * @param chave chave primaria do registro.
+	 * @param posicao posicao do registro na tabela.
+	 */
+	private void removeEm(K chave, int posicao) {
+		// removendo da tabela, do cache, do arquivo de indices, e colocando
+		// a posicao no array de posicoes vazias
+		this.tabela.grava(posicao, null);
+		this.cache.remove(posicao);
+		this.indices.remove(chave);
+		this.posicoesVazias.add(posicao);
+		this.alteradoDesdeCopia = true;
+	}
+	
+	/**
+	 * Substitui um registro ja codificado em uma posicao ocupada da tabela.
+	 * 
+	 * @param posicao posicao do registro na tabela.
+	 * @param registro registro novo.
+	 * @param bytes bytes do registro, gerados pelo codec do banco.
+	 */
+	private void gravaEm(int posicao, T registro, byte[] bytes) {
+		this.tabela.grava(posicao, bytes);
+		this.guardaNoCache(posicao, registro, bytes);
+		this.alteradoDesdeCopia = true;
+	}
+	
+	/**
+	 * Inicia uma transacao no banco. As alteracoes feitas nela so sao aplicadas no banco quando
+	 * ela e confirmada, todas de uma vez.
+	 * 
+	 * @return a transacao iniciada.
+	 * 
+	 * @throws IllegalStateException Caso o banco esteja congelado.
+	 * 
+	 * @see Transacao
+	 */
+	public Transacao<T, K> iniciaTransacao() {
+		this.verificaAlteravel();
+		
+		return new Transacao<>(this, this.funcaoChavePrimaria);
+	}
+	
+	/**
+	 * Aplica as alteracoes de uma transacao confirmada. Primeiro o resultado de cada chave e
+	 * calculado e codificado, sem alterar nada, depois a transacao e escrita no diario, e so entao
+	 * as alteracoes sao aplicadas, percorrendo as chaves em ordem crescente.
+	 * 
+	 * </p>As posicoes buscadas no calculo dos resultados sao usadas de novo na aplicacao, entao o
+	 * indice e percorrido uma vez por chave para buscar, e depois so e alterado nas chaves inseridas
+	 * ou removidas. Atualizacoes so trocam os bytes na tabela.
+	 * 
+	 * @param alteracoes alteracoes de cada chave, na ordem em que foram feitas.
+	 * 
+	 * @throws IOException Caso ocorra algum erro na escrita do diario. Nesse caso, o banco nao muda.
+	 */
+	synchronized void aplica(SortedMap<K, List<Transacao.Alteracao<T>>> alteracoes) throws IOException {
+		this.verificaAlteravel();
+		
+		final ArrayList<K> chaves = new ArrayList<>(alteracoes.size());
+		final ArrayList<Integer> posicoes = new ArrayList<>(alteracoes.size());
+		final ArrayList<Transacao.Alteracao<T>> resultados = new ArrayList<>(alteracoes.size());
+		final ArrayList<byte[]> registros = new ArrayList<>(alteracoes.size());
+		final ArrayList<Boolean> apagados = new ArrayList<>(alteracoes.size());
+		
+		for(Map.Entry<K, List<Transacao.Alteracao<T>>> daChave : alteracoes.entrySet()) {
+			final int posicao = this.posicaoDe(daChave.getKey());
+			final Transacao.Alteracao<T> resultado = Transacao.resultado(posicao != -1, daChave.getValue());
+			
+			if(resultado != null) {
+				final boolean apagado = resultado.tipo == Transacao.Tipo.REMOVE;
+				
+				chaves.add(daChave.getKey());
+				posicoes.add(posicao);
+				resultados.add(resultado);
+				// o registro apagado vai para o diario com os bytes que ele tinha, de onde a chave e tirada
+				registros.add(apagado ? this.tabela.le(posicao) : this.codifica(resultado.registro));
+				apagados.add(apagado);
+			}
+		}
+		
+		if(chaves.isEmpty()) {
+			return;
+		}
+		
+		this.diario.registra(registros, apagados, true);
+		
+		// cada chave aparece uma vez so, entao as posicoes nao mudam enquanto as outras chaves sao aplicadas
+		for(int i = 0; i < chaves.size(); i++) {
+			final int posicao = posicoes.get(i);
+			
+			if(apagados.get(i)) {
+				this.removeEm(chaves.get(i), posicao);
+			} else if(posicao == -1) {
+				this.insereCodificado(chaves.get(i), resultados.get(i).registro, registros.get(i));
+			} else {
+				this.gravaEm(posicao, resultados.get(i).registro, registros.get(i));
+			}
+		}
+		
+		this.avisaAlteracoes(registros, apagados);
+	}
+	
+	/**
+	 * Aplica alteracoes ja codificadas vindas de outro banco, como as avisadas para um
+	 * {@link OuvinteAlteracoes}, todas de uma vez. Usado pela {@link ReplicaLeitura}. As alteracoes
+	 * nao sao escritas no diario, ja que o banco de onde elas vieram ja escreveu.
+	 * 
+	 * @param registros registros alterados, codificados com o codec do banco.
+	 * @param apagados indica quais registros foram apagados.
+	 */
+	synchronized void aplicaCodificadas(List<byte[]> registros, List<Boolean> apagados) {
+		this.verificaAlteravel();
+		
+		for(int i = 0; i < registros.size(); i++) {
+			final T registro = this.decodifica(registros.get(i));
+			this.reaplica(this.funcaoChavePrimaria.get(registro), apagados.get(i) ? null : registro, registros.get(i));
+		}
+		
+		this.avisaAlteracoes(registros, apagados);
+	}
+	
+	/**
+	 * Aplica o resultado final de uma chave, vindo de uma transacao ou do diario.
+	 * 
+	 * @param chave chave primaria do registro.
+	 * @param registro registro final, ou {@code null}, caso ele tenha sido apagado.
+	 * @param bytes bytes do registro final.
+	 */
+	private void reaplica(K chave, T registro, byte[] bytes) {
+		final int posicao = this.posicaoDe(chave);
+		
+		if(registro == null) {
+			if(posicao != -1) {
+				this.removeEm(chave, posicao);
+			}
+		} else if(posicao == -1) {
+			this.insereCodificado(chave, registro, bytes);
+		} else {
+			this.gravaEm(posicao, registro, bytes);
+		}
+	}
+	
+	/**
+	 * Busca uma copia de um registro, decodificada a partir da tabela sem passar pelo cache.
+	 * 
+	 * @param chave chave buscada.
+	 * 
+	 * @return uma copia do registro, ou {@code null}, caso a chave nao esteja no banco.
+	 */
+	synchronized T buscaCopia(K chave) {
+		final int posicao = this.posicaoDe(chave);
+		
+		return posicao == -1 ? null : this.decodifica(this.tabela.le(posicao));
+	}
+	
+	/**
+	 * Busca os bytes de um registro, como o codec do banco escreveu, sem decodificar o registro
+	 * e sem passar pelo cache. Quem conhece o formato do codec pode ler so a parte do registro
+	 * que precisa, ao inves de decodificar o registro inteiro.
+	 * 
+	 * </p>O vetor devolvido e o mesmo que esta guardado na tabela, entao ele nao deve ser alterado.
+	 * 
+	 * @param chave chave buscada.
+	 * 
+	 * @return os bytes do registro, ou {@code null}, caso a chave nao esteja no banco.
+	 * 
+	 * @see #getCodec()
+	 */
+	public synchronized byte[] buscaCodificado(K chave) {
+		final int posicao = this.posicaoDe(chave);
+		
+		return posicao == -1 ? null : this.tabela.le(posicao);
+	}
+	
+	/**
+	 * Verifica se existe um registro com a chave passada, sem decodificar o registro.
+	 * 
+	 * @param chave chave buscada.
+	 * 
+	 * @return {@code true} caso exista um registro com essa chave, {@code false} caso contrario.
+	 */
+	@Override
+	public boolean contem(K chave) {
+		return this.posicaoDe(chave) != -1;
+	}
+	
+	/**
+	 * Diz se o indice do banco e ordenado, i.e., se as chaves podem ser percorridas em ordem
+	 * com {@link #buscaTeto(Comparable)}.
+	 * 
+	 * @return {@code true} caso o indice seja ordenado, {@code false} caso contrario.
+	 */
+	public synchronized boolean temIndiceOrdenado() {
+		return this.indices.ehOrdenado();
+	}
+	
+	/**
+	 * Busca a menor chave do banco que e maior ou igual a chave passada. Com essa busca, quem
+	 * percorre as chaves em ordem pode pular intervalos inteiros de chaves que nao interessam,
+	 * descendo o indice uma vez para cada salto.
+	 * 
+	 * @param chave chave de onde a busca comeca.
+	 * 
+	 * @return a menor chave maior ou igual a chave passada, ou {@code null}, caso ela nao exista.
+	 * 
+	 * @throws UnsupportedOperationException Caso o indice do banco nao seja ordenado.
+	 * 
+	 * @see #temIndiceOrdenado()
+	 */
+	public synchronized K buscaTeto(K chave) {
+		return this.indices.teto(chave);
+	}
+	
+	/**
+	 * Busca as chaves do banco que passam por um filtro, testando todas as chaves.
+	 * 
+	 * @param filtro filtro das chaves.
+	 * 
+	 * @return as chaves que passaram pelo filtro, em ordem crescente caso o indice seja ordenado.
+	 */
+	public synchronized List<K> buscaChaves(Predicate<K> filtro) {
+		final ArrayList<K> chaves = new ArrayList<>();
+		
+		this.indices.percorre((chave, posicao) -> {
+			if(filtro.test(chave)) {
+				chaves.add(chave);
+			}
+		});
+		
+		return chaves;
+	}
+	
+	/**
+	 * Busca uma chave na arvore.
+	 * 
+	 * @param chave chave buscada.
+	 * 
+	 * @return registro associado a essa chave, ou null, caso
+	 * nenhum registro esteja associado a essa chave.
+	 */
+	@Override
+	public T busca(K chave) {
+		int posicao = this.posicaoDe(chave);
+		
+		if(posicao != -1) {		
+			return this.registroEm(posicao);
+		} else {
+			return null;
+		}
+	}
+	
+	/**
+	 * Pega o registro guardado em uma posicao da tabela, copiando o registro do cache caso
+	 * ele exista, ou decodificando o registro e guardando ele no cache, caso contrario. O
+	 * objeto do cache nunca e devolvido, entao quem busca pode alterar o registro devolvido
+	 * sem mudar o que as outras buscas recebem. Caso o codec nao copie sem decodificar, o
+	 * cache nao e usado e o registro e so decodificado.
+	 * 
+	 * @param posicao posicao do registro na tabela.
+	 * 
+	 * @return uma copia do registro, ou {@code null}, caso a posicao esteja vazia.
+	 */
+	private T registroEm(int posicao) {
+		final byte[] bytes = this.tabela.le(posicao);
+		
+		if(bytes == null) {
+			return null;
+		}
+		
+		if(!this.codec.copiaSemDecodificar()) {
+			return this.decodifica(bytes);
+		}
+		
+		T registro = this.cache.busca(posicao);
+		
+		if(registro == null) {
+			registro = this.decodifica(bytes);
+			this.cache.guarda(posicao, registro, bytes.length);
+		}
+		
+		return this.copia(registro, bytes);
+	}
+	
+	/**
+	 * Codifica um registro com o codec do banco.
+	 * 
+	 * @param registro registro que sera codificado.
+	 * 
+	 * @return os bytes do registro.
+	 */
+	private byte[] codifica(T registro) {
+		try {
+			return this.codec.codifica(registro);
+		} catch (IOException e) {
+			throw new RuntimeException("Erro ao codificar o registro " + registro + ".", e);
+		}
+	}
+	
+	/**
+	 * Guarda uma copia de um registro no cache, caso o codec copie sem decodificar.
+	 * 
+	 * @param posicao posicao do registro na tabela.
+	 * @param registro registro guardado.
+	 * @param bytes bytes do registro.
+	 */
+	private void guardaNoCache(int posicao, T registro, byte[] bytes) {
+		if(this.codec.copiaSemDecodificar()) {
+			this.cache.guarda(posicao, this.copia(registro, bytes), bytes.length);
+		}
+	}
+	
+	/**
+	 * Copia um registro com o codec do banco.
+	 * 
+	 * @param registro registro que sera copiado.
+	 * @param bytes bytes do registro.
+	 * 
+	 * @return a copia do registro.
+	 */
+	private T copia(T registro, byte[] bytes) {
+		try {
+			return this.codec.copia(registro, bytes);
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Erro ao copiar um registro da tabela " + this.arquivoTabela.getNomeArquivo() + ".", e);
+		}
+	}
+	
+	/**
+	 * Decodifica um registro com o codec do banco.
+	 * 
+	 * @param bytes bytes do registro.
+	 * 
+	 * @return o registro decodificado.
+	 */
+	T decodifica(byte[] bytes) {
+		try {
+			return this.codec.decodifica(bytes);
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Erro ao decodificar um registro da tabela " + this.arquivoTabela.getNomeArquivo() + ".", e);
 		}
 	}
 }
@@ -0,0 +1,493 @@
+package banco;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+import modelo.auxiliar.GuardadorObjeto;
+
+/**
+ * Banco dividido em varias particoes, cada uma um {@link MiniBD} com os seus proprios arquivos.
+ * Cada registro fica na particao dada pelo hash da sua chave primaria, entao as operacoes de uma
+ * chave so usam a particao dela, e as operacoes de particoes diferentes nao esperam umas as outras.
+ *
+ * </p>As operacoes com muitas chaves (buscas e insercoes em lote, busca de chaves, copias
+ * instantaneas, congelamento, carga e fechamento) sao divididas entre as particoes e executadas em
+ * paralelo, uma thread por particao, ate a quantidade de processadores. Cada particao e usada por
+ * uma thread so em cada operacao.
+ *
+ * </p>As particoes de um banco chamado {@code nome} sao salvas como bancos chamados
+ * {@code nome-0}, {@code nome-1}, etc., e a quantidade de particoes e salva em
+ * {@code nome-particoes}. O hash da chave deve ser o mesmo em todas as execucoes do programa,
+ * como o de {@code String} e o de {@code Integer}, para que os registros sejam encontrados nas
+ * mesmas particoes depois que o banco e carregado.
+ *
+ * </p>Assim como no {@link MiniBD}, as alteracoes de cada particao sao sincronizadas, mas as buscas
+ * nao, entao as buscas feitas enquanto outra thread altera o banco devem usar as visoes das
+ * particoes.
+ *
+ * @param <T> o tipo do objeto guardado.
+ * @param <K> o tipo da chave primaria dos objetos.
+ *
+ * @see MiniBD
+ */
+public class MiniBDParticionado<T extends Serializable, K extends Comparable<K>> implements Banco<T, K> {
+	private final List<MiniBD<T, K>> particoes;
+	private final FuncaoChavePrimaria<T, K> funcaoChavePrimaria;
+	private final ExecutorService executor;
+
+	/**
+	 * Constroi um banco particionado vazio.
+	 *
+	 * @param qtdParticoes quantidade de particoes.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * @param codec codec usado para guardar os registros nas tabelas.
+	 * @param tipoIndice estrutura usada como indice das chaves de cada particao.
+	 * @param nomeBanco nome base dos arquivos do banco.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita da quantidade de particoes.
+	 */
+	public MiniBDParticionado(int qtdParticoes, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec,
+			TipoIndice tipoIndice, String nomeBanco) throws IOException {
+		this(null, qtdParticoes, funcaoChavePrimaria, codec, tipoIndice, nomeBanco);
+	}
+
+	/**
+	 * Constroi um banco particionado com os registros passados. Os registros sao separados pelas
+	 * particoes, e cada particao e montada, com os seus registros codificados e o seu indice
+	 * construido de uma vez so, em paralelo com as outras.
+	 *
+	 * @param registros registros do banco, ou {@code null}, para um banco vazio.
+	 * @param qtdParticoes quantidade de particoes.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * @param codec codec usado para guardar os registros nas tabelas.
+	 * @param tipoIndice estrutura usada como indice das chaves de cada particao.
+	 * @param nomeBanco nome base dos arquivos do banco.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita da quantidade de particoes.
+	 * @throws IllegalArgumentException Caso a quantidade de particoes nao seja positiva.
+	 */
+	public MiniBDParticionado(List<T> registros, int qtdParticoes, FuncaoChavePrimaria<T, K> funcaoChavePrimaria,
+			CodecRegistro<T> codec, TipoIndice tipoIndice, String nomeBanco) throws IOException {
+		if(qtdParticoes < 1) {
+			throw new IllegalArgumentException("O banco deve ter pelo menos uma particao!!");
+		}
+
+		this.funcaoChavePrimaria = funcaoChavePrimaria;
+		this.executor = criaExecutor(qtdParticoes);
+		final AtomicReferenceArray<MiniBD<T, K>> abertas = new AtomicReferenceArray<>(qtdParticoes);
+
+		try {
+			final List<List<T>> separados = new ArrayList<>();
+			for(int i = 0; i < qtdParticoes; i++) {
+				separados.add(registros == null ? null : new ArrayList<>());
+			}
+
+			if(registros != null) {
+				for(T registro : registros) {
+					separados.get(particao(funcaoChavePrimaria.get(registro), qtdParticoes)).add(registro);
+				}
+			}
+
+			new GuardadorObjeto<Integer>(nomeBanco + "-particoes").salvaObjeto(qtdParticoes);
+
+			this.particoes = this.emParalelo(qtdParticoes, (int i) -> {
+				abertas.set(i, new MiniBD<>(separados.get(i), funcaoChavePrimaria, codec, tipoIndice, nomeBanco + "-" + i));
+				return abertas.get(i);
+			});
+		} catch (IOException e) {
+			throw desfazAbertura(this.executor, abertas, e);
+		} catch (RuntimeException e) {
+			throw desfazAbertura(this.executor, abertas, e);
+		}
+	}
+
+	/**
+	 * Constroi um banco com particoes ja abertas.
+	 *
+	 * @param particoes particoes do banco.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * @param executor threads das operacoes em paralelo.
+	 */
+	private MiniBDParticionado(List<MiniBD<T, K>> particoes, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, ExecutorService executor) {
+		this.particoes = particoes;
+		this.funcaoChavePrimaria = funcaoChavePrimaria;
+		this.executor = executor;
+	}
+
+	/**
+	 * Carrega um banco particionado dos seus arquivos, carregando as particoes em paralelo.
+	 *
+	 * @param <T> tipo do objeto guardado no banco.
+	 * @param <K> tipo da chave primaria dos objetos.
+	 *
+	 * @param nomeBanco nome base dos arquivos do banco.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos objetos armazenados.
+	 * @param codec codec com que os registros foram codificados.
+	 *
+	 * @return o banco carregado.
+	 *
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos.
+	 */
+	public static <T extends Serializable, K extends Comparable<K>> MiniBDParticionado<T, K> carrega(String nomeBanco,
+			FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec) throws ClassNotFoundException, IOException {
+		final int qtdParticoes = new GuardadorObjeto<Integer>(nomeBanco + "-particoes").carregaObjeto();
+		final ExecutorService executor = criaExecutor(qtdParticoes);
+		final MiniBDParticionado<T, K> carregador = new MiniBDParticionado<>(null, funcaoChavePrimaria, executor);
+		final AtomicReferenceArray<MiniBD<T, K>> abertas = new AtomicReferenceArray<>(qtdParticoes);
+
+		try {
+			final List<MiniBD<T, K>> particoes = carregador.emParalelo(qtdParticoes, (int i) -> {
+				final String nome = nomeBanco + "-" + i;
+
+				try {
+					abertas.set(i, MiniBD.carregaBanco(nome, nome + "-indices", nome + "-posicoes-vazias", funcaoChavePrimaria, codec));
+					return abertas.get(i);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				} catch (ClassNotFoundException e) {
+					throw new RuntimeException(e);
+				}
+			});
+
+			return new MiniBDParticionado<>(particoes, funcaoChavePrimaria, executor);
+		} catch (UncheckedIOException e) {
+			throw desfazAbertura(executor, abertas, e.getCause());
+		} catch (RuntimeException e) {
+			if(e.getCause() instanceof ClassNotFoundException) {
+				throw desfazAbertura(executor, abertas, (ClassNotFoundException) e.getCause());
+			}
+			throw desfazAbertura(executor, abertas, e);
+		}
+	}
+
+	/**
+	 * Desfaz a abertura de um banco que falhou: para as threads das operacoes em paralelo e fecha
+	 * as particoes que ja tinham sido abertas, para que elas nao fiquem abertas sem nenhum banco
+	 * que as feche. Os erros ao fechar as particoes sao adicionados como suprimidos no erro da abertura.
+	 *
+	 * @param <E> tipo do erro da abertura.
+	 *
+	 * @param executor threads das operacoes em paralelo.
+	 * @param abertas particoes abertas ate o erro, com {@code null} nas que nao foram abertas.
+	 * @param erro erro que interrompeu a abertura.
+	 *
+	 * @return o erro da abertura, para ser lancado.
+	 */
+	private static <E extends Exception> E desfazAbertura(ExecutorService executor, AtomicReferenceArray<? extends MiniBD<?, ?>> abertas, E erro) {
+		executor.shutdownNow();
+
+		for(int i = 0; i < abertas.length(); i++) {
+			final MiniBD<?, ?> particao = abertas.get(i);
+
+			if(particao != null) {
+				try {
+					particao.close();
+				} catch (IOException | RuntimeException e) {
+					erro.addSuppressed(e);
+				}
+			}
+		}
+
+		return erro;
+	}
+
+	/**
+	 * Cria as threads das operacoes em paralelo: uma por particao, ate a quantidade de
+	 * processadores. Elas sao daemon, entao nao impedem que o programa termine.
+	 *
+	 * @param qtdParticoes quantidade de particoes do banco.
+	 *
+	 * @return o executor das operacoes em paralelo.
+	 */
+	private static ExecutorService criaExecutor(int qtdParticoes) {
+		return Executors.newFixedThreadPool(Math.min(qtdParticoes, Runtime.getRuntime().availableProcessors()), (Runnable tarefa) -> {
+			Thread thread = new Thread(tarefa, "MiniBDParticionado");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Calcula a particao de uma chave.
+	 *
+	 * @param chave chave do registro.
+	 * @param qtdParticoes quantidade de particoes do banco.
+	 *
+	 * @return o numero da particao da chave.
+	 */
+	private static int particao(Object chave, int qtdParticoes) {
+		return Math.floorMod(chave.hashCode(), qtdParticoes);
+	}
+
+	/**
+	 * Getter da quantidade de particoes.
+	 *
+	 * @return a quantidade de particoes do banco.
+	 */
+	public int getQtdParticoes() {
+		return this.particoes.size();
+	}
+
+	/**
+	 * Getter de uma particao.
+	 *
+	 * @param i numero da particao.
+	 *
+	 * @return a particao.
+	 */
+	public MiniBD<T, K> getParticao(int i) {
+		return this.particoes.get(i);
+	}
+
+	/**
+	 * Busca a particao onde uma chave fica.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return a particao da chave.
+	 */
+	public MiniBD<T, K> particaoDe(K chave) {
+		return this.particoes.get(particao(chave, this.particoes.size()));
+	}
+
+	/**
+	 * Getter da quantidade de registros.
+	 *
+	 * @return a soma da quantidade de registros das particoes.
+	 */
+	public int getQtdRegistros() {
+		int qtd = 0;
+
+		for(MiniBD<T, K> particao : this.particoes) {
+			qtd += particao.getQtdRegistros();
+		}
+
+		return qtd;
+	}
+
+	@Override
+	public void adiciona(T registro) {
+		this.particaoDe(this.funcaoChavePrimaria.get(registro)).adiciona(registro);
+	}
+
+	@Override
+	public T remove(K chave) {
+		return this.particaoDe(chave).remove(chave);
+	}
+
+	@Override
+	public boolean atualiza(T registro) {
+		return this.particaoDe(this.funcaoChavePrimaria.get(registro)).atualiza(registro);
+	}
+
+	@Override
+	public boolean contem(K chave) {
+		return this.particaoDe(chave).contem(chave);
+	}
+
+	@Override
+	public T busca(K chave) {
+		return this.particaoDe(chave).busca(chave);
+	}
+
+	/**
+	 * Busca varias chaves, buscando as chaves de cada particao em paralelo com as outras.
+	 *
+	 * @param chaves chaves buscadas.
+	 *
+	 * @return os registros das chaves, na ordem das chaves, com {@code null} no lugar das chaves
+	 * que nao estao no banco.
+	 */
+	public List<T> buscaVarias(List<K> chaves) {
+		final List<List<Integer>> indices = this.separaPorParticao(chaves.size(), (int i) -> chaves.get(i));
+		final ArrayList<T> registros = new ArrayList<>(chaves.size());
+
+		for(int i = 0; i < chaves.size(); i++) {
+			registros.add(null);
+		}
+
+		// cada particao escreve so nas posicoes das suas chaves
+		this.emParalelo(this.particoes.size(), (int p) -> {
+			for(int i : indices.get(p)) {
+				registros.set(i, this.particoes.get(p).busca(chaves.get(i)));
+			}
+			return null;
+		});
+
+		return registros;
+	}
+
+	/**
+	 * Adiciona varios registros, adicionando os registros de cada particao em paralelo com as
+	 * outras. Registros cuja chave ja esta no banco nao sao adicionados.
+	 *
+	 * @param registros registros adicionados.
+	 */
+	public void adicionaVarios(Collection<T> registros) {
+		final List<T> lista = new ArrayList<>(registros);
+		final List<List<Integer>> indices = this.separaPorParticao(lista.size(), (int i) -> this.funcaoChavePrimaria.get(lista.get(i)));
+
+		this.emParalelo(this.particoes.size(), (int p) -> {
+			for(int i : indices.get(p)) {
+				this.particoes.get(p).adiciona(lista.get(i));
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Busca as chaves do banco que passam por um filtro, testando as chaves de cada particao em
+	 * paralelo com as outras.
+	 *
+	 * @param filtro filtro das chaves. Ele e chamado por varias threads ao mesmo tempo.
+	 *
+	 * @return as chaves que passaram pelo filtro, em ordem crescente.
+	 */
+	public List<K> buscaChaves(Predicate<K> filtro) {
+		final ArrayList<K> chaves = new ArrayList<>();
+
+		for(List<K> daParticao : this.emParalelo(this.particoes.size(), (int p) -> this.particoes.get(p).buscaChaves(filtro))) {
+			chaves.addAll(daParticao);
+		}
+
+		chaves.sort(null);
+		return chaves;
+	}
+
+	/**
+	 * Salva uma copia instantanea de todas as particoes. As copias sao criadas em paralelo, e
+	 * cada particao escreve os seus arquivos em segundo plano, como em
+	 * {@link MiniBD#salvaCopiaInstantanea()}.
+	 *
+	 * @return um futuro que termina quando os arquivos de todas as particoes tiverem sido escritos.
+	 */
+	public CompletableFuture<Void> salvaCopiaInstantanea() {
+		final List<CompletableFuture<Void>> copias = this.emParalelo(this.particoes.size(),
+				(int p) -> this.particoes.get(p).salvaCopiaInstantanea());
+
+		return CompletableFuture.allOf(copias.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Congela todas as particoes em paralelo, trocando o indice de cada uma por um indice so para
+	 * leitura.
+	 *
+	 * @see MiniBD#congela()
+	 */
+	public void congela() {
+		this.emParalelo(this.particoes.size(), (int p) -> {
+			this.particoes.get(p).congela();
+			return null;
+		});
+	}
+
+	/**
+	 * Salva e fecha todas as particoes em paralelo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos de alguma particao.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			this.emParalelo(this.particoes.size(), (int p) -> {
+				try {
+					this.particoes.get(p).close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			this.executor.shutdown();
+		}
+	}
+
+	/**
+	 * Separa as posicoes de uma lista de chaves pelas particoes das chaves.
+	 *
+	 * @param qtd quantidade de chaves.
+	 * @param chave funcao que pega a chave de cada posicao.
+	 *
+	 * @return as posicoes das chaves de cada particao, em ordem crescente.
+	 */
+	private List<List<Integer>> separaPorParticao(int qtd, Tarefa<K> chave) {
+		final List<List<Integer>> indices = new ArrayList<>();
+
+		for(int p = 0; p < this.particoes.size(); p++) {
+			indices.add(new ArrayList<>());
+		}
+
+		for(int i = 0; i < qtd; i++) {
+			indices.get(particao(chave.executa(i), this.particoes.size())).add(i);
+		}
+
+		return indices;
+	}
+
+	/**
+	 * Executa uma tarefa para cada particao, em paralelo, e espera todas terminarem.
+	 *
+	 * @param qtd quantidade de particoes.
+	 * @param tarefa tarefa executada com o numero de cada particao.
+	 *
+	 * @return o resultado da tarefa de cada particao, na ordem das particoes.
+	 *
+	 * @throws RuntimeException O primeiro erro de uma das tarefas, caso alguma tenha falhado.
+	 */
+	private <R> List<R> emParalelo(int qtd, Tarefa<R> tarefa) {
+		final List<Future<R>> futuros = new ArrayList<>(qtd);
+
+		for(int i = 0; i < qtd; i++) {
+			final int particao = i;
+			futuros.add(this.executor.submit(() -> tarefa.executa(particao)));
+		}
+
+		final List<R> resultados = new ArrayList<>(qtd);
+		RuntimeException erro = null;
+
+		// todas as tarefas terminam antes do erro ser lancado, para que nenhuma continue rodando
+		for(Future<R> futuro : futuros) {
+			try {
+				resultados.add(futuro.get());
+			} catch (ExecutionException e) {
+				if(erro == null) {
+					erro = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+							: new RuntimeException(e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("A operacao nas particoes foi interrompida.", e);
+			}
+		}
+
+		if(erro != null) {
+			throw erro;
+		}
+
+		return resultados;
+	}
+
+	/**
+	 * Tarefa executada para um numero, como o numero de uma particao.
+	 *
+	 * @param <R> tipo do resultado da tarefa.
+	 */
+	@FunctionalInterface
+	private interface Tarefa<R> {
+		R executa(int i);
+	}
+}
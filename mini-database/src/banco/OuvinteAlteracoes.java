@@ -0,0 +1,24 @@
+package banco;
+
+import java.util.List;
+
+/**
+ * Essa interface permite que alguem seja avisado das alteracoes de um {@link MiniBD}, na ordem
+ * em que elas sao aplicadas, como o {@link PublicadorReplicacao}, que manda as alteracoes para
+ * as replicas do banco.
+ *
+ * @see MiniBD#assinaAlteracoes(OuvinteAlteracoes)
+ */
+@FunctionalInterface
+public interface OuvinteAlteracoes {
+	/**
+	 * Avisa uma alteracao do banco. Uma transacao e avisada de uma vez so, com todos os registros
+	 * que ela alterou. As listas nao devem ser alteradas.
+	 *
+	 * @param versao versao do banco depois da alteracao.
+	 * @param registros registros alterados, codificados como na tabela. Os registros apagados vao
+	 * com os bytes que tinham, de onde a chave pode ser tirada.
+	 * @param apagados indica quais registros foram apagados.
+	 */
+	void alterado(long versao, List<byte[]> registros, List<Boolean> apagados);
+}
@@ -0,0 +1,286 @@
+package banco;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publica as alteracoes de um {@link MiniBD} para replicas so de leitura, que podem estar em
+ * outros processos da mesma maquina. As replicas se conectam a uma porta do endereco local, e
+ * cada uma recebe uma copia do banco inteiro, seguida de todas as alteracoes feitas depois da
+ * copia, na ordem em que foram aplicadas.
+ *
+ * </p>Cada alteracao vai como no diario do banco: os registros codificados, com os bytes antigos
+ * dos registros apagados, e uma transacao vai inteira em uma mensagem so. Assim, a replica aplica
+ * cada transacao de uma vez, sem decodificar nada alem das chaves. Cada mensagem leva a versao do
+ * banco depois da alteracao e o instante em que ela foi aplicada no primario, de onde a replica
+ * calcula o seu atraso. Quando o banco fica um tempo sem alteracoes, o publicador manda um
+ * batimento so com a versao atual, para que a replica saiba que ainda esta conectada e em dia.
+ *
+ * </p>Formato do fluxo: o numero magico {@link #MAGICO} e a versao do formato, a versao do banco na
+ * copia, a quantidade de registros da copia e cada registro (o tamanho e os bytes), seguidos das
+ * mensagens. Cada mensagem tem a versao do banco, o instante em microssegundos, a quantidade de
+ * alteracoes e cada alteracao (um {@code byte} que diz se o registro foi apagado, o tamanho e os
+ * bytes do registro). Os batimentos sao mensagens sem alteracoes.
+ *
+ * </p>As alteracoes de cada replica esperam em uma fila ate serem enviadas, entao uma replica lenta
+ * nao atrasa o banco. Caso a fila de uma replica passe de {@link #LIMITE_FILA} bytes, a replica e
+ * desconectada, e precisa se conectar de novo para receber uma copia nova.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ * @param <K> o tipo da chave primaria dos objetos.
+ *
+ * @see ReplicaLeitura
+ */
+public class PublicadorReplicacao<T extends Serializable, K extends Comparable<K>> implements Closeable {
+	/**
+	 * Numero magico que identifica o fluxo de replicacao ("MBDR").
+	 */
+	static final int MAGICO = 0x4D424452;
+
+	/**
+	 * Versao atual do formato do fluxo.
+	 */
+	static final int VERSAO = 1;
+
+	/**
+	 * Tempo, em milissegundos, sem alteracoes depois do qual um batimento e enviado.
+	 */
+	public static final long INTERVALO_BATIMENTO = 200;
+
+	/**
+	 * Maior quantidade de bytes esperando para serem enviados para uma replica.
+	 */
+	public static final long LIMITE_FILA = 64 * 1024 * 1024;
+
+	private final MiniBD<T, K> banco;
+	private final ServerSocket servidor;
+	private final Set<Seguidor> seguidores = ConcurrentHashMap.newKeySet();
+	private final Thread aceitador;
+
+	/**
+	 * Abre o publicador em uma porta do endereco local e comeca a aceitar replicas.
+	 *
+	 * @param banco banco publicado.
+	 * @param porta porta do publicador, ou {@code 0} para usar qualquer porta livre.
+	 *
+	 * @throws IOException Caso a porta nao possa ser aberta.
+	 */
+	public PublicadorReplicacao(MiniBD<T, K> banco, int porta) throws IOException {
+		this.banco = banco;
+		this.servidor = new ServerSocket(porta, 64, InetAddress.getLoopbackAddress());
+
+		this.aceitador = new Thread(this::aceita, "PublicadorReplicacao-aceitador");
+		this.aceitador.setDaemon(true);
+		this.aceitador.start();
+	}
+
+	/**
+	 * Getter da porta do publicador.
+	 *
+	 * @return a porta em que as replicas se conectam.
+	 */
+	public int getPorta() {
+		return this.servidor.getLocalPort();
+	}
+
+	/**
+	 * Getter da quantidade de replicas conectadas.
+	 *
+	 * @return a quantidade de replicas recebendo as alteracoes agora.
+	 */
+	public int getQtdReplicas() {
+		return this.seguidores.size();
+	}
+
+	/**
+	 * Para de aceitar replicas e desconecta as replicas conectadas. O banco nao e fechado.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao fechar a porta do publicador.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.servidor.close();
+
+		for(Seguidor seguidor : this.seguidores) {
+			seguidor.desconecta();
+		}
+	}
+
+	/**
+	 * Aceita replicas ate o publicador ser fechado, entregando cada uma para uma thread.
+	 */
+	private void aceita() {
+		while(!this.servidor.isClosed()) {
+			try {
+				final Socket conexao = this.servidor.accept();
+				final Seguidor seguidor = new Seguidor(conexao);
+
+				this.seguidores.add(seguidor);
+
+				// a copia e a assinatura sao feitas juntas, entao nenhuma alteracao fica de fora
+				final VisaoBanco<T, K> copia = this.banco.assinaAlteracoes(seguidor);
+				final Thread thread = new Thread(() -> seguidor.envia(copia), "PublicadorReplicacao-replica");
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				// o publicador foi fechado
+			}
+		}
+	}
+
+	/**
+	 * Codifica uma mensagem do fluxo de replicacao.
+	 *
+	 * @param versao versao do banco depois da alteracao.
+	 * @param instante instante da alteracao, em microssegundos.
+	 * @param registros registros alterados, codificados.
+	 * @param apagados indica quais registros foram apagados.
+	 *
+	 * @return os bytes da mensagem.
+	 */
+	private static byte[] codificaMensagem(long versao, long instante, List<byte[]> registros, List<Boolean> apagados) {
+		int tamanho = 8 + 8 + 4;
+		for(byte[] registro : registros) {
+			tamanho += 1 + 4 + registro.length;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+		buffer.putLong(versao).putLong(instante).putInt(registros.size());
+
+		for(int i = 0; i < registros.size(); i++) {
+			buffer.put((byte) (apagados.get(i) ? 1 : 0)).putInt(registros.get(i).length).put(registros.get(i));
+		}
+
+		return buffer.array();
+	}
+
+	/**
+	 * Instante atual, usado para medir o atraso das replicas. Como o primario e as replicas estao
+	 * na mesma maquina, os relogios deles sao o mesmo.
+	 *
+	 * @return microssegundos desde 1970-01-01T00:00:00Z.
+	 */
+	static long instanteAtual() {
+		return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+	}
+
+	/**
+	 * Replica conectada, que guarda as alteracoes avisadas pelo banco em uma fila e envia elas por
+	 * uma thread propria.
+	 */
+	private class Seguidor implements OuvinteAlteracoes {
+		private final Socket conexao;
+		private final LinkedBlockingQueue<byte[]> fila = new LinkedBlockingQueue<>();
+		private final AtomicLong bytesNaFila = new AtomicLong();
+		private volatile boolean desconectado = false;
+
+		private Seguidor(Socket conexao) {
+			this.conexao = conexao;
+		}
+
+		/**
+		 * Guarda uma alteracao na fila. Chamado com o banco travado, entao so codifica a mensagem.
+		 */
+		@Override
+		public void alterado(long versao, List<byte[]> registros, List<Boolean> apagados) {
+			if(this.desconectado) {
+				return;
+			}
+
+			final byte[] mensagem = codificaMensagem(versao, instanteAtual(), registros, apagados);
+
+			if(this.bytesNaFila.addAndGet(mensagem.length) > LIMITE_FILA) {
+				// a replica nao esta acompanhando o banco, entao ela precisa de uma copia nova
+				this.desconecta();
+			} else {
+				this.fila.add(mensagem);
+			}
+		}
+
+		/**
+		 * Envia a copia do banco e depois as alteracoes da fila, ate a replica ser desconectada.
+		 *
+		 * @param copia visao do banco no momento da assinatura.
+		 */
+		private void envia(VisaoBanco<T, K> copia) {
+			try(this.conexao) {
+				this.conexao.setTcpNoDelay(true);
+
+				final DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(this.conexao.getOutputStream(), 64 * 1024));
+				saida.writeInt(MAGICO);
+				saida.writeInt(VERSAO);
+				saida.writeLong(copia.getVersao());
+				saida.writeInt(copia.getQtdRegistros());
+
+				try {
+					copia.percorreCodificados((chave, bytes) -> {
+						try {
+							saida.writeInt(bytes.length);
+							saida.write(bytes);
+						} catch (IOException e) {
+							// o BiConsumer nao aceita excecoes verificadas
+							throw new UncheckedIOException(e);
+						}
+					});
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				saida.flush();
+
+				while(!this.desconectado) {
+					final byte[] mensagem = this.fila.poll(INTERVALO_BATIMENTO, TimeUnit.MILLISECONDS);
+
+					if(mensagem == null) {
+						saida.write(codificaMensagem(banco.getVersao(), instanteAtual(), List.of(), List.of()));
+					} else {
+						this.bytesNaFila.addAndGet(-mensagem.length);
+						saida.write(mensagem);
+					}
+
+					// as mensagens que ja estao na fila vao juntas
+					if(this.fila.isEmpty()) {
+						saida.flush();
+					}
+				}
+			} catch (IOException e) {
+				// a replica fechou a conexao, ou foi desconectada
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				this.desconecta();
+			}
+		}
+
+		/**
+		 * Para de receber as alteracoes do banco e fecha a conexao.
+		 */
+		private void desconecta() {
+			this.desconectado = true;
+			banco.cancelaAssinatura(this);
+			this.fila.clear();
+			seguidores.remove(this);
+
+			try {
+				this.conexao.close();
+			} catch (IOException e) {
+				// a conexao ja estava fechada
+			}
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package banco;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * Replica so de leitura de um {@link MiniBD} publicado por um {@link PublicadorReplicacao},
+ * normalmente em outro processo da mesma maquina. A replica recebe uma copia do banco quando se
+ * conecta e depois aplica as alteracoes do primario em uma thread propria, na mesma ordem, sem
+ * esperar que elas sejam buscadas. Assim, as buscas podem ser divididas entre varios processos.
+ *
+ * </p>As buscas leem uma {@link VisaoBanco}, que e trocada por uma visao nova quando a replica
+ * aplica todas as alteracoes ja recebidas, entao elas nao esperam as alteracoes e nunca veem uma
+ * transacao pela metade. Como as alteracoes chegam depois de aplicadas no primario, uma busca na
+ * replica pode nao ver as alteracoes mais recentes. O atraso pode ser medido em versoes do banco
+ * ({@link #getAtraso()}) ou em tempo ({@link #getAtrasoMicros()}), e quem precisa ver uma alteracao
+ * pode esperar a versao dela com {@link #aguardaVersao(long, long)}.
+ *
+ * </p>Caso a conexao com o primario caia, a replica continua respondendo as buscas com a ultima
+ * versao aplicada, e {@link #estaConectada()} passa a devolver {@code false}. Para voltar a
+ * acompanhar o primario, basta abrir uma replica nova, que recebe uma copia nova.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ * @param <K> o tipo da chave primaria dos objetos.
+ */
+public class ReplicaLeitura<T extends Serializable, K extends Comparable<K>> implements Closeable {
+	private final Socket conexao;
+	private final DataInputStream entrada;
+	private final MiniBD<T, K> banco;
+	private final Thread aplicador;
+
+	private volatile VisaoBanco<T, K> visao;
+	private volatile long versaoAplicada;
+	private volatile long versaoPrimario;
+	private volatile long atrasoMicros = 0;
+	private volatile long atrasoMaximoMicros = 0;
+	private volatile boolean conectada = true;
+
+	/**
+	 * Conecta a replica ao publicador do primario, recebe a copia do banco e comeca a aplicar as
+	 * alteracoes. O construtor so retorna depois que a copia inteira foi recebida.
+	 *
+	 * @param portaPrimario porta do {@link PublicadorReplicacao} no endereco local.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria de um objeto armazenado no banco.
+	 * @param codec codec com que o primario guarda os registros.
+	 * @param nomeBanco nome do banco local da replica. Ele nao e salvo, mas os diarios com esse
+	 * nome sao apagados.
+	 *
+	 * @throws IOException Caso a conexao falhe, ou o primario nao mande um fluxo de replicacao.
+	 */
+	public ReplicaLeitura(int portaPrimario, FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco)
+			throws IOException {
+		this.conexao = new Socket(InetAddress.getLoopbackAddress(), portaPrimario);
+
+		try {
+			this.conexao.setTcpNoDelay(true);
+			this.entrada = new DataInputStream(new BufferedInputStream(this.conexao.getInputStream(), 64 * 1024));
+
+			if(this.entrada.readInt() != PublicadorReplicacao.MAGICO || this.entrada.readInt() != PublicadorReplicacao.VERSAO) {
+				throw new IOException("O primario nao mandou um fluxo de replicacao valido!!");
+			}
+
+			// a copia chega em ordem crescente de chave, entao o banco e montado de uma vez so
+			final long versaoCopia = this.entrada.readLong();
+			final int qtdRegistros = this.entrada.readInt();
+			final ConstrutorBanco<T, K> construtor = new ConstrutorBanco<>(funcaoChavePrimaria, codec, nomeBanco);
+
+			for(int i = 0; i < qtdRegistros; i++) {
+				final byte[] bytes = this.entrada.readNBytes(this.entrada.readInt());
+				construtor.adiciona(funcaoChavePrimaria.get(decodifica(codec, bytes)), bytes);
+			}
+
+			this.banco = construtor.constroi();
+			this.visao = this.banco.abreVisao();
+			this.versaoAplicada = versaoCopia;
+			this.versaoPrimario = versaoCopia;
+		} catch (IOException | RuntimeException e) {
+			this.conexao.close();
+			throw e;
+		}
+
+		this.aplicador = new Thread(this::aplica, "ReplicaLeitura-aplicador");
+		this.aplicador.setDaemon(true);
+		this.aplicador.start();
+	}
+
+	/**
+	 * Getter da visao atual da replica. A visao nao muda, entao uma sequencia de buscas na mesma
+	 * visao ve sempre a mesma versao do banco.
+	 *
+	 * @return a visao com todas as alteracoes aplicadas ate agora.
+	 */
+	public VisaoBanco<T, K> getVisao() {
+		return this.visao;
+	}
+
+	/**
+	 * Busca o registro de uma chave na versao aplicada ate agora.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return uma copia do registro, ou {@code null}, caso a chave nao esteja na replica.
+	 */
+	public T busca(K chave) {
+		return this.visao.busca(chave);
+	}
+
+	/**
+	 * Verifica se uma chave esta na versao aplicada ate agora.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return {@code true} caso a chave esteja na replica, {@code false} caso contrario.
+	 */
+	public boolean contem(K chave) {
+		return this.visao.contem(chave);
+	}
+
+	/**
+	 * Getter da quantidade de registros.
+	 *
+	 * @return a quantidade de registros na versao aplicada ate agora.
+	 */
+	public int getQtdRegistros() {
+		return this.visao.getQtdRegistros();
+	}
+
+	/**
+	 * Getter da versao aplicada.
+	 *
+	 * @return a versao do primario vista pelas buscas da replica.
+	 */
+	public long getVersaoAplicada() {
+		return this.versaoAplicada;
+	}
+
+	/**
+	 * Getter da versao do primario.
+	 *
+	 * @return a versao mais recente do primario de que a replica sabe, pelas alteracoes ou pelos
+	 * batimentos recebidos.
+	 */
+	public long getVersaoPrimario() {
+		return this.versaoPrimario;
+	}
+
+	/**
+	 * Getter do atraso em versoes.
+	 *
+	 * @return quantas alteracoes do primario a replica sabe que existem, mas ainda nao aplicou.
+	 */
+	public long getAtraso() {
+		return Math.max(0, this.versaoPrimario - this.versaoAplicada);
+	}
+
+	/**
+	 * Getter do atraso em tempo.
+	 *
+	 * @return o tempo, em microssegundos, entre a ultima alteracao aplicada ter sido feita no
+	 * primario e ela ter ficado visivel na replica.
+	 */
+	public long getAtrasoMicros() {
+		return this.atrasoMicros;
+	}
+
+	/**
+	 * Getter do maior atraso em tempo.
+	 *
+	 * @return o maior atraso, em microssegundos, de uma alteracao desde que a replica foi aberta.
+	 */
+	public long getAtrasoMaximoMicros() {
+		return this.atrasoMaximoMicros;
+	}
+
+	/**
+	 * Verifica se a replica ainda recebe as alteracoes do primario.
+	 *
+	 * @return {@code true} caso a conexao com o primario esteja aberta, {@code false} caso contrario.
+	 */
+	public boolean estaConectada() {
+		return this.conectada;
+	}
+
+	/**
+	 * Espera a replica aplicar uma versao do primario, por exemplo a versao de uma alteracao que
+	 * acabou de ser feita, para que as buscas seguintes vejam essa alteracao.
+	 *
+	 * @param versao versao esperada, como devolvida por {@link MiniBD#getVersao()}.
+	 * @param limiteMillis tempo maximo de espera, em milissegundos.
+	 *
+	 * @return {@code true} caso a versao tenha sido aplicada, {@code false} caso o tempo tenha
+	 * acabado ou a replica tenha sido desconectada antes.
+	 *
+	 * @throws InterruptedException Caso a thread seja interrompida enquanto espera.
+	 */
+	public synchronized boolean aguardaVersao(long versao, long limiteMillis) throws InterruptedException {
+		final long fim = System.currentTimeMillis() + limiteMillis;
+
+		while(this.versaoAplicada < versao && this.conectada) {
+			final long restante = fim - System.currentTimeMillis();
+
+			if(restante <= 0) {
+				return false;
+			}
+			this.wait(restante);
+		}
+
+		return this.versaoAplicada >= versao;
+	}
+
+	/**
+	 * Desconecta a replica do primario. As buscas continuam respondendo a ultima versao aplicada.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao fechar a conexao.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.conexao.close();
+	}
+
+	/**
+	 * Aplica as alteracoes recebidas ate a conexao com o primario cair. A visao so e trocada quando
+	 * nao ha mais alteracoes ja recebidas, entao uma sequencia de alteracoes gera uma visao so.
+	 */
+	private void aplica() {
+		long instantePendente = -1;
+		long versaoPendente = -1;
+
+		try {
+			while(true) {
+				final long versao = this.entrada.readLong();
+				final long instante = this.entrada.readLong();
+				final int qtd = this.entrada.readInt();
+
+				if(qtd > 0) {
+					final ArrayList<byte[]> registros = new ArrayList<>(qtd);
+					final ArrayList<Boolean> apagados = new ArrayList<>(qtd);
+
+					for(int i = 0; i < qtd; i++) {
+						apagados.add(this.entrada.readByte() != 0);
+						registros.add(this.entrada.readNBytes(this.entrada.readInt()));
+					}
+
+					this.banco.aplicaCodificadas(registros, apagados);
+
+					// o atraso e medido pela alteracao mais antiga que ainda nao esta visivel
+					instantePendente = instantePendente == -1 ? instante : instantePendente;
+					versaoPendente = versao;
+				}
+				this.versaoPrimario = Math.max(this.versaoPrimario, versao);
+
+				if(instantePendente != -1 && this.entrada.available() == 0) {
+					this.publica(versaoPendente, PublicadorReplicacao.instanteAtual() - instantePendente);
+					instantePendente = -1;
+				}
+			}
+		} catch (IOException e) {
+			// o primario fechou a conexao, ou a replica foi fechada
+		} finally {
+			this.conectada = false;
+
+			synchronized(this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Troca a visao das buscas por uma visao com as alteracoes aplicadas e acorda quem espera uma
+	 * versao.
+	 *
+	 * @param versao versao do primario aplicada na visao nova.
+	 * @param atraso atraso da alteracao mais antiga da visao nova, em microssegundos.
+	 */
+	private void publica(long versao, long atraso) {
+		this.visao = this.banco.abreVisao();
+		this.versaoAplicada = versao;
+		this.atrasoMicros = atraso;
+		this.atrasoMaximoMicros = Math.max(this.atrasoMaximoMicros, atraso);
+
+		synchronized(this) {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Decodifica um registro da copia, para tirar a chave dele.
+	 *
+	 * @param codec codec do banco.
+	 * @param bytes bytes do registro.
+	 *
+	 * @return o registro decodificado.
+	 *
+	 * @throws IOException Caso os bytes nao sejam de um registro do codec.
+	 */
+	private static <T> T decodifica(CodecRegistro<T> codec, byte[] bytes) throws IOException {
+		try {
+			return codec.decodifica(bytes);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("O registro recebido do primario nao e do tipo do banco!!", e);
+		}
+	}
+}
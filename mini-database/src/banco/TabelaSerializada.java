@@ -0,0 +1,450 @@
+package banco;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Classe que guarda a tabela de registros do banco na forma codificada, i.e., cada
+ * posicao da tabela guarda os bytes gerados pelo {@link CodecRegistro} do banco, ou
+ * {@code null}, caso a posicao esteja vazia.
+ *
+ * </p>Um registro codificado ocupa bem menos memoria que o objeto equivalente, ja que nao
+ * tem cabecalhos de objetos nem referencias, entao a tabela inteira pode ficar na memoria
+ * enquanto so os registros mais buscados ficam decodificados no {@link CacheRegistros}.
+ *
+ * </p>As posicoes ficam divididas em blocos de {@link #TAMANHO_BLOCO} posicoes. Uma copia
+ * instantanea da tabela compartilha os blocos com ela, e um bloco compartilhado so e copiado
+ * quando uma das suas posicoes e alterada, entao a copia custa O(n/TAMANHO_BLOCO) e nao muda
+ * mais depois de criada.
+ *
+ * </p>Uma tabela aberta de um {@link ArquivoTabela} comeca sem nenhum bloco na memoria, e cada
+ * bloco so e lido do arquivo na primeira vez em que uma das suas posicoes e usada.
+ */
+public class TabelaSerializada implements Serializable {
+	private static final long serialVersionUID = -1848305623719458221L;
+
+	/**
+	 * Quantidade de posicoes de cada bloco da tabela.
+	 */
+	static final int TAMANHO_BLOCO = 1024;
+
+	/**
+	 * Campos gravados no arquivo. Os registros sao gravados como uma lista unica, que e o
+	 * formato da tabela antes dela ser dividida em blocos.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("registros", ArrayList.class),
+		new ObjectStreamField("qtdBytes", long.class),
+		new ObjectStreamField("nomeCodec", String.class)
+	};
+
+	/**
+	 * Blocos com os registros codificados. Posicoes vazias guardam {@code null}, e blocos que
+	 * ainda nao foram lidos do arquivo sao {@code null}.
+	 */
+	private transient ArrayList<byte[][]> blocos;
+
+	/**
+	 * Geracao em que cada bloco foi criado. So os blocos da geracao atual podem ser alterados.
+	 */
+	private transient int[] geracaoBlocos;
+
+	/**
+	 * Geracao atual da tabela. Ela aumenta a cada copia instantanea.
+	 */
+	private transient int geracao;
+
+	/**
+	 * Quantidade de posicoes da tabela.
+	 */
+	private transient int tamanho;
+
+	/**
+	 * Quantidade de posicoes ocupadas da tabela.
+	 */
+	private transient int qtdOcupadas;
+
+	/**
+	 * Soma do tamanho de todos os registros codificados.
+	 */
+	private transient long qtdBytes;
+
+	/**
+	 * Nome da classe do codec usado para codificar os registros. Serve para verificar, ao
+	 * carregar a tabela, se ela esta sendo lida com o mesmo codec com que foi escrita.
+	 */
+	private transient String nomeCodec;
+
+	/**
+	 * Arquivo de onde os blocos que ainda nao estao na memoria sao lidos, ou {@code null}, caso
+	 * todos os blocos estejam na memoria.
+	 */
+	private transient FonteBlocos arquivo;
+
+	/**
+	 * Blocos de uma copia so de leitura, criada por {@link #copiaSoLeitura()}, ou {@code null}
+	 * nas outras tabelas. Os blocos lidos do arquivo sao guardados aqui, e nunca na lista de
+	 * blocos, que continua igual a da tabela copiada.
+	 */
+	private transient AtomicReferenceArray<byte[][]> blocosSoLeitura;
+
+	/**
+	 * Origem dos blocos que ainda nao foram lidos de um {@link ArquivoTabela}.
+	 */
+	interface FonteBlocos {
+		/**
+		 * Le um bloco da tabela.
+		 *
+		 * @param indice indice do bloco.
+		 *
+		 * @return os registros do bloco, com {@code null} nas posicoes vazias.
+		 *
+		 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+		 */
+		byte[][] leBloco(int indice) throws IOException;
+
+		/**
+		 * Fixa o arquivo lido agora, para uma copia que deve continuar lendo os blocos dele mesmo
+		 * depois que ele for substituido.
+		 *
+		 * @return uma fonte que sempre le desse arquivo.
+		 *
+		 * @throws IOException Caso o arquivo precise ser aberto e ocorra algum erro.
+		 */
+		FonteBlocos fixa() throws IOException;
+	}
+
+	/**
+	 * Constroi uma tabela vazia.
+	 *
+	 * @param nomeCodec nome da classe do codec usado para codificar os registros.
+	 */
+	public TabelaSerializada(String nomeCodec) {
+		this.blocos = new ArrayList<>();
+		this.geracaoBlocos = new int[16];
+		this.geracao = 0;
+		this.tamanho = 0;
+		this.qtdOcupadas = 0;
+		this.qtdBytes = 0;
+		this.nomeCodec = nomeCodec;
+		this.arquivo = null;
+		this.blocosSoLeitura = null;
+	}
+
+	/**
+	 * Cria uma tabela em que nenhum bloco foi lido do arquivo ainda.
+	 *
+	 * @param arquivo arquivo de onde os blocos serao lidos.
+	 * @param nomeCodec nome da classe do codec usado para codificar os registros.
+	 * @param tamanho quantidade de posicoes da tabela.
+	 * @param qtdOcupadas quantidade de posicoes ocupadas da tabela.
+	 * @param qtdBytes soma do tamanho de todos os registros codificados.
+	 *
+	 * @return a tabela.
+	 */
+	static TabelaSerializada preguicosa(FonteBlocos arquivo, String nomeCodec, int tamanho, int qtdOcupadas, long qtdBytes) {
+		final TabelaSerializada tabela = new TabelaSerializada(nomeCodec);
+		final int qtdBlocos = ArquivoTabela.qtdBlocos(tamanho);
+
+		tabela.blocos = new ArrayList<>(qtdBlocos);
+		for(int i = 0; i < qtdBlocos; i++) {
+			tabela.blocos.add(null);
+		}
+
+		tabela.geracaoBlocos = new int[Math.max(16, qtdBlocos)];
+		tabela.tamanho = tamanho;
+		tabela.qtdOcupadas = qtdOcupadas;
+		tabela.qtdBytes = qtdBytes;
+		tabela.arquivo = arquivo;
+
+		return tabela;
+	}
+
+	/**
+	 * Getter do nome do codec da tabela.
+	 *
+	 * @return nome da classe do codec usado para codificar os registros.
+	 */
+	public String getNomeCodec() {
+		return this.nomeCodec;
+	}
+
+	/**
+	 * Quantidade de posicoes da tabela, incluindo as vazias.
+	 *
+	 * @return tamanho da tabela.
+	 */
+	public int tamanho() {
+		return this.tamanho;
+	}
+
+	/**
+	 * Getter da quantidade de posicoes ocupadas.
+	 *
+	 * @return quantidade de posicoes da tabela que nao estao vazias.
+	 */
+	public int getQtdOcupadas() {
+		return this.qtdOcupadas;
+	}
+
+	/**
+	 * Getter da quantidade de bytes ocupada pelos registros.
+	 *
+	 * @return soma do tamanho de todos os registros codificados.
+	 */
+	public long getQtdBytes() {
+		return this.qtdBytes;
+	}
+
+	/**
+	 * Le os bytes de um registro.
+	 *
+	 * @param posicao posicao do registro na tabela.
+	 *
+	 * @return os bytes do registro, ou {@code null}, caso a posicao esteja vazia.
+	 */
+	public byte[] le(int posicao) {
+		if(posicao < 0 || posicao >= this.tamanho) {
+			throw new IndexOutOfBoundsException("Posicao " + posicao + " fora da tabela de tamanho " + this.tamanho + ".");
+		}
+
+		return this.bloco(posicao / TAMANHO_BLOCO)[posicao % TAMANHO_BLOCO];
+	}
+
+	/**
+	 * Substitui os bytes guardados em uma posicao da tabela.
+	 *
+	 * @param posicao posicao que sera alterada.
+	 * @param bytes novos bytes da posicao, ou {@code null}, para esvaziar a posicao.
+	 */
+	public void grava(int posicao, byte[] bytes) {
+		final byte[] anterior = this.le(posicao);
+		this.blocoParaEscrita(posicao / TAMANHO_BLOCO)[posicao % TAMANHO_BLOCO] = bytes;
+
+		this.qtdBytes -= anterior == null ? 0 : anterior.length;
+		this.qtdBytes += bytes == null ? 0 : bytes.length;
+		this.qtdOcupadas += (bytes == null ? 0 : 1) - (anterior == null ? 0 : 1);
+	}
+
+	/**
+	 * Adiciona um registro no final da tabela.
+	 *
+	 * @param bytes bytes do registro.
+	 *
+	 * @return posicao onde o registro foi adicionado.
+	 */
+	public int adiciona(byte[] bytes) {
+		final int posicao = this.tamanho;
+
+		if(posicao % TAMANHO_BLOCO == 0) {
+			this.novoBloco();
+		}
+
+		this.blocoParaEscrita(posicao / TAMANHO_BLOCO)[posicao % TAMANHO_BLOCO] = bytes;
+		this.tamanho++;
+		this.qtdOcupadas += bytes == null ? 0 : 1;
+		this.qtdBytes += bytes == null ? 0 : bytes.length;
+
+		return posicao;
+	}
+
+	/**
+	 * Cria uma copia instantanea da tabela, que compartilha os blocos com ela. Depois da copia,
+	 * a tabela passa para uma nova geracao, e cada bloco compartilhado e copiado na primeira vez
+	 * em que uma das suas posicoes e alterada. Assim, a copia nao muda e pode ser lida (por exemplo,
+	 * salva em um arquivo) em outra thread enquanto a tabela e alterada.
+	 *
+	 * </p>A copia nao deve ser alterada.
+	 *
+	 * @return a copia instantanea da tabela.
+	 */
+	public TabelaSerializada copiaInstantanea() {
+		final TabelaSerializada copia = new TabelaSerializada(this.nomeCodec);
+
+		copia.blocos = new ArrayList<>(this.blocos);
+		copia.geracaoBlocos = this.geracaoBlocos.clone();
+		copia.geracao = this.geracao;
+		copia.tamanho = this.tamanho;
+		copia.qtdOcupadas = this.qtdOcupadas;
+		copia.qtdBytes = this.qtdBytes;
+		copia.arquivo = this.arquivo;
+
+		this.geracao++;
+
+		return copia;
+	}
+
+	/**
+	 * Cria uma copia instantanea da tabela que pode ser lida por varias threads ao mesmo tempo e
+	 * por quanto tempo for preciso. Os blocos que ainda nao foram lidos nao sao lidos agora: a
+	 * copia le eles do arquivo aberto no momento da copia, fixado com {@link FonteBlocos#fixa()},
+	 * ja que o banco pode alterar e salvar esses blocos depois. Os blocos lidos pela copia nao
+	 * entram na tabela copiada.
+	 *
+	 * </p>A copia nao deve ser alterada.
+	 *
+	 * @return a copia so de leitura da tabela.
+	 *
+	 * @throws IOException Caso o arquivo precise ser aberto e ocorra algum erro.
+	 */
+	TabelaSerializada copiaSoLeitura() throws IOException {
+		final TabelaSerializada copia = this.copiaInstantanea();
+
+		if(copia.arquivo != null) {
+			copia.arquivo = copia.arquivo.fixa();
+			copia.blocosSoLeitura = new AtomicReferenceArray<>(copia.blocos.toArray(new byte[0][][]));
+		}
+
+		return copia;
+	}
+
+	/**
+	 * Adiciona um bloco vazio, da geracao atual, no final da tabela.
+	 */
+	private void novoBloco() {
+		if(this.blocos.size() == this.geracaoBlocos.length) {
+			this.geracaoBlocos = Arrays.copyOf(this.geracaoBlocos, 2 * this.geracaoBlocos.length);
+		}
+
+		this.geracaoBlocos[this.blocos.size()] = this.geracao;
+		this.blocos.add(new byte[TAMANHO_BLOCO][]);
+	}
+
+	/**
+	 * Pega um bloco para leitura, lendo ele do arquivo caso ainda nao esteja na memoria.
+	 *
+	 * @param indice indice do bloco.
+	 *
+	 * @return o bloco.
+	 *
+	 * @throws UncheckedIOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	byte[][] bloco(int indice) {
+		if(this.blocosSoLeitura != null) {
+			return this.blocoSoLeitura(indice);
+		}
+		
+		byte[][] bloco = this.blocos.get(indice);
+
+		if(bloco == null) {
+			try {
+				bloco = this.arquivo.leBloco(indice);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Erro ao tentar ler o bloco " + indice + " da tabela.", e);
+			}
+
+			// o bloco foi lido agora, entao nenhuma copia compartilha ele
+			this.blocos.set(indice, bloco);
+			this.geracaoBlocos[indice] = this.geracao;
+		}
+
+		return bloco;
+	}
+
+	/**
+	 * Pega um bloco de uma copia so de leitura, lendo ele do arquivo fixado caso ainda nao tenha
+	 * sido lido. Duas threads podem ler o mesmo bloco ao mesmo tempo, mas so o primeiro bloco lido
+	 * e guardado.
+	 *
+	 * @param indice indice do bloco.
+	 *
+	 * @return o bloco.
+	 *
+	 * @throws UncheckedIOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	private byte[][] blocoSoLeitura(int indice) {
+		final byte[][] bloco = this.blocosSoLeitura.get(indice);
+
+		if(bloco != null) {
+			return bloco;
+		}
+
+		try {
+			this.blocosSoLeitura.compareAndSet(indice, null, this.arquivo.leBloco(indice));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao tentar ler o bloco " + indice + " da tabela.", e);
+		}
+
+		return this.blocosSoLeitura.get(indice);
+	}
+
+	/**
+	 * Le do arquivo todos os blocos que ainda nao foram lidos. Depois disso, ler a tabela nao
+	 * altera mais nada nela, entao ela pode ser lida por varias threads ao mesmo tempo enquanto
+	 * nao for alterada.
+	 */
+	void carregaBlocos() {
+		for(int i = 0; i < this.blocos.size(); i++) {
+			this.bloco(i);
+		}
+	}
+
+	/**
+	 * Pega um bloco que pode ser alterado, copiando ele caso seja de uma geracao anterior.
+	 *
+	 * @param indice indice do bloco.
+	 *
+	 * @return o bloco da geracao atual.
+	 */
+	private byte[][] blocoParaEscrita(int indice) {
+		byte[][] bloco = this.bloco(indice);
+
+		if(this.geracaoBlocos[indice] != this.geracao) {
+			// os arrays de bytes nunca sao alterados, entao basta copiar as referencias
+			bloco = bloco.clone();
+			this.blocos.set(indice, bloco);
+			this.geracaoBlocos[indice] = this.geracao;
+		}
+
+		return bloco;
+	}
+
+	/**
+	 * Grava a tabela no formato de lista unica.
+	 */
+	private void writeObject(ObjectOutputStream saida) throws IOException {
+		final ArrayList<byte[]> registros = new ArrayList<>(this.tamanho);
+
+		for(int i = 0; i < this.tamanho; i++) {
+			registros.add(this.le(i));
+		}
+
+		final ObjectOutputStream.PutField campos = saida.putFields();
+		campos.put("registros", registros);
+		campos.put("qtdBytes", this.qtdBytes);
+		campos.put("nomeCodec", this.nomeCodec);
+		saida.writeFields();
+	}
+
+	/**
+	 * Le a tabela do formato de lista unica, dividindo ela em blocos.
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream entrada) throws IOException, ClassNotFoundException {
+		final ObjectInputStream.GetField campos = entrada.readFields();
+		final ArrayList<byte[]> registros = (ArrayList<byte[]>) campos.get("registros", null);
+
+		this.blocos = new ArrayList<>();
+		this.geracaoBlocos = new int[16];
+		this.geracao = 0;
+		this.tamanho = 0;
+		this.qtdOcupadas = 0;
+		this.qtdBytes = 0;
+		this.nomeCodec = (String) campos.get("nomeCodec", null);
+		this.arquivo = null;
+		this.blocosSoLeitura = null;
+
+		if(registros != null) {
+			for(byte[] bytes : registros) {
+				this.adiciona(bytes);
+			}
+		}
+	}
+}
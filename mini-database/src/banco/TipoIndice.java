@@ -0,0 +1,113 @@
+package banco;
+
+import java.util.List;
+
+import modelo.btree.BTree;
+import modelo.indice.Indice;
+import modelo.indice.IndiceHash;
+import modelo.indice.IndicePrimitivo;
+import modelo.indice.IndiceSkipList;
+
+/**
+ * Estruturas que um {@link MiniBD} pode usar como indice das chaves primarias. O tipo e escolhido
+ * quando o banco e criado, e um banco carregado de um arquivo continua com o tipo com que foi salvo.
+ *
+ * </p>Os tipos {@link #INTEIRO} e {@link #LONGO} so podem ser usados em bancos cuja chave primaria
+ * seja, respectivamente, {@code Integer} ou {@code Long}.
+ *
+ * @see Indice
+ */
+public enum TipoIndice {
+	/**
+	 * Arvore B, ordenada, com copias instantaneas que so duplicam os nodes alterados. E o tipo
+	 * padrao.
+	 */
+	ARVORE_B {
+		@Override
+		<K extends Comparable<K>> Indice<K> cria() {
+			return new BTree<>(MiniBD.GRAU_INDICES);
+		}
+
+		@Override
+		<K extends Comparable<K>> Indice<K> constroi(List<K> chaves, List<Integer> posicoes) {
+			return BTree.constroiOrdenada(MiniBD.GRAU_INDICES, chaves, posicoes);
+		}
+	},
+
+	/**
+	 * Tabela hash, sem ordem, para bancos que so fazem buscas pontuais.
+	 */
+	HASH {
+		@Override
+		<K extends Comparable<K>> Indice<K> cria() {
+			return new IndiceHash<>();
+		}
+	},
+
+	/**
+	 * Skip list concorrente, ordenada, para indices lidos por varias threads ao mesmo tempo.
+	 */
+	SKIP_LIST {
+		@Override
+		<K extends Comparable<K>> Indice<K> cria() {
+			return new IndiceSkipList<>();
+		}
+	},
+
+	/**
+	 * Tabela hash sobre vetores primitivos, sem ordem, para bancos com chaves {@code Integer}.
+	 * O indice e salvo como vetores crus, sem a serializacao do Java.
+	 */
+	INTEIRO {
+		@Override
+		@SuppressWarnings("unchecked")
+		<K extends Comparable<K>> Indice<K> cria() {
+			return (Indice<K>) IndicePrimitivo.inteiro();
+		}
+	},
+
+	/**
+	 * Tabela hash sobre vetores primitivos, sem ordem, para bancos com chaves {@code Long}.
+	 * O indice e salvo como vetores crus, sem a serializacao do Java.
+	 */
+	LONGO {
+		@Override
+		@SuppressWarnings("unchecked")
+		<K extends Comparable<K>> Indice<K> cria() {
+			return (Indice<K>) IndicePrimitivo.longo();
+		}
+	};
+
+	/**
+	 * Cria um indice vazio desse tipo.
+	 *
+	 * @param <K> tipo da chave guardada no indice.
+	 *
+	 * @return o indice criado.
+	 */
+	abstract <K extends Comparable<K>> Indice<K> cria();
+
+	/**
+	 * Cria um indice desse tipo com os pares (chave, posicao) passados.
+	 *
+	 * @param <K> tipo da chave guardada no indice.
+	 *
+	 * @param chaves chaves em ordem estritamente crescente.
+	 * @param posicoes posicao de cada chave, na mesma ordem das chaves.
+	 *
+	 * @return o indice criado.
+	 */
+	<K extends Comparable<K>> Indice<K> constroi(List<K> chaves, List<Integer> posicoes) {
+		if(chaves.size() != posicoes.size()) {
+			throw new IllegalArgumentException("Cada chave precisa de exatamente uma posicao!!");
+		}
+
+		final Indice<K> indice = this.cria();
+
+		for(int i = 0; i < chaves.size(); i++) {
+			indice.insere(chaves.get(i), posicoes.get(i));
+		}
+
+		return indice;
+	}
+}
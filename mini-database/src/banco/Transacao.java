@@ -0,0 +1,286 @@
+package banco;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Transacao de um {@link MiniBD}, criada por {@link MiniBD#iniciaTransacao()}. As alteracoes feitas
+ * na transacao ficam guardadas nela, e nada muda no banco ate que ela seja confirmada com
+ * {@link #confirma()}. Na confirmacao, todas as alteracoes sao escritas no diario do banco em um
+ * unico registro, forcado para o disco, e so depois aplicadas no banco, em ordem de chave. Assim, ou
+ * todas as alteracoes entram no banco, ou nenhuma entra, mesmo que o programa pare no meio.
+ *
+ * </p>As buscas feitas na transacao ja veem as alteracoes dela. Os registros devolvidos sao copias,
+ * decodificadas a partir da tabela, entao altera-los nao muda o banco ate que eles sejam passados
+ * para {@link #atualiza(Serializable)} e a transacao seja confirmada.
+ *
+ * </p>As operacoes sao guardadas e reavaliadas na confirmacao, com o estado do banco naquele momento,
+ * do mesmo jeito que seriam se fossem feitas direto no banco. Fechar uma transacao que nao foi
+ * confirmada desfaz as suas alteracoes, entao ela pode ser usada em um try-with-resources.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ * @param <K> o tipo da chave primaria dos objetos.
+ */
+public class Transacao<T extends Serializable, K extends Comparable<K>> implements Banco<T, K> {
+	/**
+	 * Tipos de alteracao guardados na transacao. {@code GRAVA} so aparece no resultado de uma chave.
+	 */
+	enum Tipo {
+		ADICIONA, REMOVE, ATUALIZA, GRAVA
+	}
+
+	/**
+	 * Uma alteracao de um registro.
+	 */
+	static final class Alteracao<T> {
+		final Tipo tipo;
+		final T registro;
+
+		Alteracao(Tipo tipo, T registro) {
+			this.tipo = tipo;
+			this.registro = registro;
+		}
+	}
+
+	/**
+	 * Banco da transacao.
+	 */
+	private final MiniBD<T, K> banco;
+
+	/**
+	 * Funcao que pega a chave primaria dos registros.
+	 */
+	private final FuncaoChavePrimaria<T, K> funcaoChavePrimaria;
+
+	/**
+	 * Alteracoes de cada chave, na ordem em que foram feitas, ou {@code null}, caso a transacao
+	 * ja tenha terminado.
+	 */
+	private TreeMap<K, List<Alteracao<T>>> alteracoes;
+
+	/**
+	 * Constroi uma transacao vazia. Usado pelo {@link MiniBD}.
+	 *
+	 * @param banco banco da transacao.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos registros.
+	 */
+	Transacao(MiniBD<T, K> banco, FuncaoChavePrimaria<T, K> funcaoChavePrimaria) {
+		this.banco = banco;
+		this.funcaoChavePrimaria = funcaoChavePrimaria;
+		this.alteracoes = new TreeMap<>();
+	}
+
+	/**
+	 * Adiciona um registro na transacao. Caso ja exista um registro com a mesma chave primaria
+	 * quando a transacao for confirmada, nada e feito.
+	 *
+	 * @param registro registro que sera adicionado.
+	 */
+	@Override
+	public void adiciona(T registro) {
+		this.guarda(this.funcaoChavePrimaria.get(registro), new Alteracao<>(Tipo.ADICIONA, registro));
+	}
+
+	/**
+	 * Remove um registro na transacao.
+	 *
+	 * @param chave chave primaria do registro que sera removido.
+	 *
+	 * @return o registro removido, como visto pela transacao agora, ou {@code null}, caso ele
+	 * nao esteja no banco.
+	 */
+	@Override
+	public T remove(K chave) {
+		final T anterior = this.busca(chave);
+
+		this.guarda(chave, new Alteracao<>(Tipo.REMOVE, null));
+
+		return anterior;
+	}
+
+	/**
+	 * Substitui, na transacao, o registro que tem a mesma chave primaria pelo registro passado.
+	 *
+	 * @param registro registro com os dados novos.
+	 *
+	 * @return {@code true} caso a transacao veja agora um registro com a mesma chave, ou
+	 * {@code false} caso contrario.
+	 */
+	@Override
+	public boolean atualiza(T registro) {
+		final K chave = this.funcaoChavePrimaria.get(registro);
+		final boolean existe = this.contem(chave);
+
+		this.guarda(chave, new Alteracao<>(Tipo.ATUALIZA, registro));
+
+		return existe;
+	}
+
+	@Override
+	public boolean contem(K chave) {
+		this.verificaAtiva();
+
+		final List<Alteracao<T>> daChave = this.alteracoes.get(chave);
+
+		if(daChave == null) {
+			return this.banco.contem(chave);
+		}
+
+		final Alteracao<T> resultado = resultado(this.banco.contem(chave), daChave);
+
+		return resultado == null ? this.banco.contem(chave) : resultado.tipo == Tipo.GRAVA;
+	}
+
+	/**
+	 * Busca o registro de uma chave, como visto pela transacao.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return uma copia do registro associado a essa chave, ou o registro passado para a
+	 * transacao, caso ela tenha alterado a chave, ou {@code null}, caso nenhum registro esteja
+	 * associado a essa chave.
+	 */
+	@Override
+	public T busca(K chave) {
+		this.verificaAtiva();
+
+		final T doBanco = this.banco.buscaCopia(chave);
+		final List<Alteracao<T>> daChave = this.alteracoes.get(chave);
+
+		if(daChave == null) {
+			return doBanco;
+		}
+
+		final Alteracao<T> resultado = resultado(doBanco != null, daChave);
+
+		if(resultado == null) {
+			return doBanco;
+		}
+
+		return resultado.tipo == Tipo.GRAVA ? resultado.registro : null;
+	}
+
+	/**
+	 * Getter da quantidade de chaves alteradas.
+	 *
+	 * @return quantidade de chaves com alguma alteracao na transacao.
+	 */
+	public int getQtdChavesAlteradas() {
+		this.verificaAtiva();
+
+		return this.alteracoes.size();
+	}
+
+	/**
+	 * Confirma a transacao, aplicando todas as suas alteracoes no banco de uma vez. Depois disso,
+	 * a transacao termina e nao pode mais ser usada.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do diario. Nesse caso, nada e alterado
+	 * no banco, e a transacao termina desfeita.
+	 * @throws IllegalStateException Caso a transacao ja tenha terminado.
+	 */
+	public void confirma() throws IOException {
+		this.verificaAtiva();
+
+		final TreeMap<K, List<Alteracao<T>>> confirmadas = this.alteracoes;
+		this.alteracoes = null;
+
+		if(!confirmadas.isEmpty()) {
+			this.banco.aplica(confirmadas);
+		}
+	}
+
+	/**
+	 * Desfaz a transacao, descartando todas as suas alteracoes. Depois disso, a transacao termina
+	 * e nao pode mais ser usada.
+	 *
+	 * @throws IllegalStateException Caso a transacao ja tenha terminado.
+	 */
+	public void desfaz() {
+		this.verificaAtiva();
+
+		this.alteracoes = null;
+	}
+
+	/**
+	 * Verifica se a transacao ainda nao terminou.
+	 *
+	 * @return {@code true} caso a transacao nao tenha sido confirmada nem desfeita.
+	 */
+	public boolean ehAtiva() {
+		return this.alteracoes != null;
+	}
+
+	/**
+	 * Desfaz a transacao, caso ela nao tenha sido confirmada.
+	 */
+	@Override
+	public void close() {
+		if(this.ehAtiva()) {
+			this.desfaz();
+		}
+	}
+
+	/**
+	 * Calcula o efeito das alteracoes de uma chave sobre o estado dela no banco, seguindo as mesmas
+	 * regras das operacoes do banco: adicionar uma chave que existe e atualizar ou remover uma
+	 * chave que nao existe nao fazem nada.
+	 *
+	 * @param <T> o tipo do objeto guardado no banco.
+	 *
+	 * @param existe {@code true} caso a chave exista no banco.
+	 * @param alteracoes alteracoes da chave, na ordem em que foram feitas.
+	 *
+	 * @return {@code null}, caso a chave nao mude, uma alteracao {@code GRAVA} com o registro
+	 * final, ou uma alteracao {@code REMOVE}.
+	 */
+	static <T> Alteracao<T> resultado(boolean existe, List<Alteracao<T>> alteracoes) {
+		final boolean existia = existe;
+		T registro = null;
+		boolean alterada = false;
+
+		for(Alteracao<T> alteracao : alteracoes) {
+			if(alteracao.tipo == Tipo.ADICIONA && !existe || alteracao.tipo == Tipo.ATUALIZA && existe) {
+				registro = alteracao.registro;
+				existe = true;
+				alterada = true;
+			} else if(alteracao.tipo == Tipo.REMOVE && existe) {
+				registro = null;
+				existe = false;
+				alterada = true;
+			}
+		}
+
+		if(!alterada || !existe && !existia) {
+			return null;
+		}
+
+		return existe ? new Alteracao<>(Tipo.GRAVA, registro) : new Alteracao<>(Tipo.REMOVE, null);
+	}
+
+	/**
+	 * Guarda uma alteracao de uma chave.
+	 *
+	 * @param chave chave alterada.
+	 * @param alteracao alteracao feita.
+	 */
+	private void guarda(K chave, Alteracao<T> alteracao) {
+		this.verificaAtiva();
+
+		this.alteracoes.computeIfAbsent(chave, (K k) -> new ArrayList<>()).add(alteracao);
+	}
+
+	/**
+	 * Impede que uma transacao que ja terminou seja usada.
+	 *
+	 * @throws IllegalStateException Caso a transacao tenha terminado.
+	 */
+	private void verificaAtiva() {
+		if(this.alteracoes == null) {
+			throw new IllegalStateException("A transacao ja foi confirmada ou desfeita!!");
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package banco;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import modelo.indice.Indice;
+
+/**
+ * Visao consistente de um {@link MiniBD} no momento em que ela foi aberta, criada por
+ * {@link MiniBD#abreVisao()}. A visao guarda copias instantaneas do indice e da tabela do banco:
+ * as alteracoes feitas no banco depois disso criam versoes novas dos nodes do indice e dos blocos da
+ * tabela que elas alteram, e as versoes vistas pela visao nunca mudam. Assim, uma visao pode ser lida
+ * em outra thread enquanto o banco e alterado, sem travar quem altera o banco e sem ver alteracoes
+ * pela metade. Os blocos da tabela que o banco ainda nao tinha lido do arquivo sao lidos sob demanda
+ * do arquivo aberto no momento da visao, mesmo que o banco ja tenha salvo outro por cima dele.
+ *
+ * </p>Os registros devolvidos sao decodificados a partir dos bytes da versao vista, entao eles nao
+ * sao os mesmos objetos guardados no cache do banco, e alterar um deles nao afeta o banco nem a visao.
+ * A visao nao muda depois de aberta, entao ela pode ser lida por varias threads ao mesmo tempo. Para
+ * ver as alteracoes mais recentes, basta abrir uma visao nova.
+ *
+ * @param <T> o tipo do objeto guardado no banco.
+ * @param <K> o tipo da chave primaria dos objetos.
+ */
+public class VisaoBanco<T extends Serializable, K extends Comparable<K>> {
+	/**
+	 * Copia instantanea do indice do banco.
+	 */
+	private final Indice<K> indices;
+
+	/**
+	 * Copia so de leitura da tabela do banco, que le os blocos ainda nao lidos do arquivo fixado
+	 * quando a visao foi aberta.
+	 */
+	private final TabelaSerializada tabela;
+
+	/**
+	 * Codec com que os registros da tabela foram codificados.
+	 */
+	private final CodecRegistro<T> codec;
+
+	/**
+	 * Quantidade de registros no banco quando a visao foi aberta.
+	 */
+	private final int qtdRegistros;
+
+	/**
+	 * Versao do banco quando a visao foi aberta.
+	 */
+	private final long versao;
+
+	/**
+	 * Constroi uma visao com as copias passadas. Usado pelo {@link MiniBD}, que cria as copias.
+	 *
+	 * @param indices copia instantanea do indice.
+	 * @param tabela copia instantanea da tabela.
+	 * @param codec codec dos registros.
+	 * @param qtdRegistros quantidade de registros no banco.
+	 * @param versao versao do banco.
+	 */
+	VisaoBanco(Indice<K> indices, TabelaSerializada tabela, CodecRegistro<T> codec, int qtdRegistros, long versao) {
+		this.indices = indices;
+		this.tabela = tabela;
+		this.codec = codec;
+		this.qtdRegistros = qtdRegistros;
+		this.versao = versao;
+	}
+
+	/**
+	 * Getter da quantidade de registros.
+	 *
+	 * @return quantidade de registros no banco quando a visao foi aberta.
+	 */
+	public int getQtdRegistros() {
+		return this.qtdRegistros;
+	}
+
+	/**
+	 * Getter da versao do banco vista. Caso ela seja menor que {@link MiniBD#getVersao()}, o
+	 * banco foi alterado depois que a visao foi aberta.
+	 *
+	 * @return versao do banco quando a visao foi aberta.
+	 */
+	public long getVersao() {
+		return this.versao;
+	}
+
+	/**
+	 * Getter do codec dos registros.
+	 *
+	 * @return o codec com que os registros da visao foram codificados.
+	 */
+	public CodecRegistro<T> getCodec() {
+		return this.codec;
+	}
+
+	/**
+	 * Verifica se existia um registro com a chave passada quando a visao foi aberta.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return {@code true} caso exista um registro com essa chave, {@code false} caso contrario.
+	 */
+	public boolean contem(K chave) {
+		return this.indices.busca(chave) != -1;
+	}
+
+	/**
+	 * Busca o registro de uma chave na versao vista.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return uma copia do registro associado a essa chave, ou {@code null}, caso nenhum registro
+	 * estivesse associado a essa chave.
+	 */
+	public T busca(K chave) {
+		final int posicao = this.indices.busca(chave);
+
+		return posicao == -1 ? null : this.decodifica(this.tabela.le(posicao));
+	}
+
+	/**
+	 * Busca os bytes de um registro na versao vista, sem decodificar o registro. Os bytes da
+	 * versao vista nunca mudam, mas o vetor devolvido e o mesmo guardado na tabela, entao ele nao
+	 * deve ser alterado.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return os bytes do registro, ou {@code null}, caso nenhum registro estivesse associado a
+	 * essa chave.
+	 *
+	 * @see MiniBD#buscaCodificado(Comparable)
+	 */
+	public byte[] buscaCodificado(K chave) {
+		final int posicao = this.indices.busca(chave);
+
+		return posicao == -1 ? null : this.tabela.le(posicao);
+	}
+
+	/**
+	 * Diz se o indice da visao e ordenado, i.e., se as chaves podem ser percorridas em ordem
+	 * com {@link #buscaTeto(Comparable)}.
+	 *
+	 * @return {@code true} caso o indice seja ordenado, {@code false} caso contrario.
+	 */
+	public boolean temIndiceOrdenado() {
+		return this.indices.ehOrdenado();
+	}
+
+	/**
+	 * Busca a menor chave da visao que e maior ou igual a chave passada.
+	 *
+	 * @param chave chave de onde a busca comeca.
+	 *
+	 * @return a menor chave maior ou igual a chave passada, ou {@code null}, caso ela nao exista.
+	 *
+	 * @throws UnsupportedOperationException Caso o indice da visao nao seja ordenado.
+	 *
+	 * @see MiniBD#buscaTeto(Comparable)
+	 */
+	public K buscaTeto(K chave) {
+		return this.indices.teto(chave);
+	}
+
+	/**
+	 * Percorre as chaves da visao, sem ler os registros, em ordem crescente caso o indice seja
+	 * ordenado.
+	 *
+	 * @param consumidor funcao chamada com cada chave.
+	 */
+	public void percorreChaves(Consumer<K> consumidor) {
+		this.indices.percorre((chave, posicao) -> consumidor.accept(chave));
+	}
+
+	/**
+	 * Percorre os registros da visao em ordem crescente de chave.
+	 *
+	 * @param consumidor funcao chamada com a chave e uma copia de cada registro.
+	 */
+	public void percorre(BiConsumer<K, T> consumidor) {
+		this.percorreCodificados((chave, bytes) -> consumidor.accept(chave, this.decodifica(bytes)));
+	}
+
+	/**
+	 * Percorre os registros da visao em ordem crescente de chave, passando para o consumidor
+	 * os bytes codificados de cada registro, sem decodificar os registros.
+	 *
+	 * </p>Caso o indice nao seja ordenado, as chaves sao ordenadas antes de os registros serem lidos.
+	 *
+	 * @param consumidor funcao chamada com a chave e os bytes de cada registro.
+	 */
+	void percorreCodificados(BiConsumer<K, byte[]> consumidor) {
+		if(this.indices.ehOrdenado()) {
+			this.indices.percorre((chave, posicao) -> consumidor.accept(chave, this.tabela.le(posicao)));
+		} else {
+			final ArrayList<K> chaves = new ArrayList<>(this.qtdRegistros);
+
+			this.indices.percorre((chave, posicao) -> chaves.add(chave));
+			chaves.sort(null);
+
+			for(K chave : chaves) {
+				consumidor.accept(chave, this.tabela.le(this.indices.busca(chave)));
+			}
+		}
+	}
+
+	/**
+	 * Decodifica um registro com o codec do banco.
+	 *
+	 * @param bytes bytes do registro.
+	 *
+	 * @return o registro decodificado.
+	 */
+	T decodifica(byte[] bytes) {
+		try {
+			return this.codec.decodifica(bytes);
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Erro ao decodificar um registro da tabela.", e);
+		}
+	}
+}
@@ -0,0 +1,865 @@
+package banco.lsm;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import banco.Banco;
+import banco.CodecRegistro;
+import banco.CodecSerializacaoJava;
+import banco.FuncaoChavePrimaria;
+import modelo.auxiliar.GuardadorObjeto;
+
+/**
+ * Banco de dados organizado como uma arvore LSM (log-structured merge), feito para cargas com
+ * muitas escritas. Ele tem as mesmas operacoes do {@link banco.MiniBD}, mas nenhuma escrita altera
+ * um arquivo que ja existe.
+ *
+ * </p>As escritas vao para a memtable, um {@code TreeMap} ordenado pela chave. Quando ela passa de
+ * {@link #LIMITE_MEMTABLE_PADRAO} bytes, ela e congelada e uma thread em segundo plano grava as suas
+ * entradas, em ordem, em um {@link SegmentoLsm} novo, com indice esparso e filtro de Bloom. Uma
+ * remocao grava uma lapide, que esconde as entradas da chave nos segmentos mais antigos.
+ *
+ * </p>Uma busca olha a memtable, as memtables congeladas que ainda nao foram gravadas e os segmentos,
+ * do mais novo para o mais antigo, e para na primeira entrada da chave. Para que a quantidade de
+ * segmentos nao cresca sem limite, a mesma thread junta, em segundo plano, cada grupo de
+ * {@link #FATOR_COMPACTACAO} segmentos seguidos de tamanho parecido em um so. As lapides so sao
+ * descartadas quando o segmento mais antigo entra na juncao, ja que so entao nao ha mais nada para
+ * elas esconderem.
+ *
+ * </p>A lista de segmentos e salva em um arquivo a cada mudanca, sempre depois dos segmentos novos
+ * serem escritos e forcados para o disco e antes dos antigos serem apagados, e ela e trocada de uma
+ * vez so, pela renomeacao de um arquivo completo. Cada escrita tambem vai para um {@link DiarioLsm}
+ * antes de entrar na memtable, e as escritas que nao chegaram a um segmento sao refeitas pelo
+ * diario quando o banco e carregado.
+ *
+ * @param <T> O tipo do objeto guardado.
+ *
+ * @param <K> O tipo da chave primaria dos objetos. Ela precisa ser {@code Serializable} e ter um
+ * {@code hashCode()} que nao muda entre execucoes, por causa dos filtros de Bloom.
+ *
+ * @see SegmentoLsm
+ */
+public class BancoLsm<T extends Serializable, K extends Comparable<K>> implements Banco<T, K> {
+	/**
+	 * Tamanho padrao, em bytes, a partir do qual a memtable e congelada e gravada em um segmento.
+	 */
+	public static final long LIMITE_MEMTABLE_PADRAO = 4 * 1024 * 1024;
+
+	/**
+	 * Quantidade de segmentos de tamanho parecido que sao juntados em um so.
+	 */
+	public static final int FATOR_COMPACTACAO = 4;
+
+	/**
+	 * Quantidade maxima de memtables congeladas esperando para serem gravadas. Quando ela e
+	 * atingida, as escritas esperam a gravacao, para que a memoria usada nao cresca sem limite.
+	 */
+	private static final int MAX_MEMTABLES_CONGELADAS = 2;
+
+	/**
+	 * Estimativa de quantos bytes cada entrada ocupa na memtable, alem dos bytes do registro.
+	 */
+	private static final int BYTES_POR_ENTRADA = 64;
+
+	/**
+	 * Nome do banco, usado no nome dos arquivos.
+	 */
+	private final String nomeBanco;
+
+	/**
+	 *  Funcao que diz qual a chave primaria dos objetos guardados
+	 */
+	private final FuncaoChavePrimaria<T, K> funcaoChavePrimaria;
+
+	/**
+	 *  Codec que transforma os registros em bytes e vice-versa
+	 */
+	private final CodecRegistro<T> codec;
+
+	/**
+	 * Objeto que toma conta de ler/escrever a lista de segmentos, do mais novo para o mais antigo.
+	 */
+	private final GuardadorObjeto<ArrayList<Long>> guardadorSegmentos;
+
+	/**
+	 * Diario das escritas das memtables que ainda nao foram gravadas em segmentos.
+	 */
+	private final DiarioLsm diario;
+
+	/**
+	 * Thread que grava as memtables congeladas e junta os segmentos, uma tarefa por vez.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Trava que impede que um segmento seja fechado enquanto alguma busca le dele.
+	 */
+	private final ReentrantReadWriteLock travaSegmentos = new ReentrantReadWriteLock();
+
+	/**
+	 * Memtable atual. So e usada pela thread que usa o banco.
+	 */
+	private TreeMap<K, byte[]> memtable;
+
+	/**
+	 * Estimativa da quantidade de bytes ocupada pela memtable atual.
+	 */
+	private long bytesMemtable;
+
+	/**
+	 * Tamanho a partir do qual a memtable e congelada.
+	 */
+	private long limiteMemtable;
+
+	/**
+	 * Memtables congeladas e segmentos. O objeto nunca e alterado, so trocado por outro.
+	 */
+	private volatile Estado<K> estado;
+
+	/**
+	 * Identificador do proximo segmento. So e usado pela thread em segundo plano.
+	 */
+	private long proximoId;
+
+	/**
+	 * Ultima tarefa mandada para a thread em segundo plano. Caso uma tarefa falhe, as seguintes
+	 * nao sao feitas, e o erro aparece quando o banco e fechado.
+	 */
+	private CompletableFuture<Void> ultimaTarefa;
+
+	/**
+	 * Indica se o banco ja foi fechado.
+	 */
+	private boolean fechado;
+
+	/**
+	 * Cria um banco vazio, que guarda os registros usando serializacao Java. Caso ja exista um
+	 * banco com esse nome, os segmentos e o diario dele sao apagados.
+	 *
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos objetos armazenados.
+	 * @param nomeBanco nome do banco, usado no nome dos arquivos.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	public BancoLsm(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, String nomeBanco) throws IOException {
+		this(funcaoChavePrimaria, new CodecSerializacaoJava<T>(), nomeBanco);
+	}
+
+	/**
+	 * Cria um banco vazio. Caso ja exista um banco com esse nome, os segmentos e o diario dele sao
+	 * apagados.
+	 *
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos objetos armazenados.
+	 * @param codec codec usado para transformar os registros em bytes.
+	 * @param nomeBanco nome do banco, usado no nome dos arquivos.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	public BancoLsm(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco) throws IOException {
+		this(funcaoChavePrimaria, codec, nomeBanco, new Estado<>(Collections.emptyList(), Collections.emptyList()), 0);
+
+		ArrayList<Long> anteriores;
+		try {
+			anteriores = this.guardadorSegmentos.carregaObjeto();
+		} catch (FileNotFoundException | ClassNotFoundException e) {
+			anteriores = new ArrayList<>();
+		}
+
+		// a lista vazia e salva antes, para que um banco carregado nunca aponte para segmentos apagados
+		this.salvaSegmentos(new ArrayList<>());
+		this.diario.descartaAte(Long.MAX_VALUE);
+
+		for(long id : anteriores) {
+			try {
+				SegmentoLsm.<K>abre(nomeBanco, id).apaga();
+			} catch (IOException | ClassNotFoundException e) {
+				// segmentos incompletos nao precisam ser apagados um por um
+			}
+		}
+	}
+
+	private BancoLsm(FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec, String nomeBanco,
+			Estado<K> estado, long proximoId) throws IOException {
+		// impede que o banco nao tenha uma chave primaria
+		if(funcaoChavePrimaria == null) {
+			throw new NullPointerException("O objeto guardado deve ter uma chave primaria!!");
+		}
+
+		// impede que o banco nao saiba guardar os registros
+		if(codec == null) {
+			throw new NullPointerException("O banco precisa de um codec para guardar os registros!!");
+		}
+
+		this.nomeBanco = nomeBanco;
+		this.funcaoChavePrimaria = funcaoChavePrimaria;
+		this.codec = codec;
+		this.guardadorSegmentos = new GuardadorObjeto<ArrayList<Long>>(nomeBanco + "-segmentos");
+		this.diario = new DiarioLsm(nomeBanco);
+		this.executor = Executors.newSingleThreadExecutor((Runnable tarefa) -> {
+			Thread thread = new Thread(tarefa, "BancoLsm-" + nomeBanco);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.memtable = new TreeMap<>();
+		this.bytesMemtable = 0;
+		this.limiteMemtable = LIMITE_MEMTABLE_PADRAO;
+		this.estado = estado;
+		this.proximoId = proximoId;
+		this.ultimaTarefa = CompletableFuture.completedFuture(null);
+		this.fechado = false;
+	}
+
+	/**
+	 * Abre um banco salvo nos arquivos com o nome passado. As escritas do diario que nao chegaram a
+	 * ser gravadas em um segmento sao refeitas, e a memtable com elas e congelada logo depois.
+	 *
+	 * @param <T> tipo do objeto guardado no banco.
+	 *
+	 * @param <K> tipo da chave primaria dos objetos.
+	 *
+	 * @param nomeBanco nome do banco.
+	 * @param funcaoChavePrimaria funcao que pega a chave primaria dos objetos armazenados.
+	 * @param codec codec com que os registros foram codificados.
+	 *
+	 * @return o banco.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos.
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 */
+	public static <T extends Serializable, K extends Comparable<K>> BancoLsm<T, K> carregaBanco(String nomeBanco,
+			FuncaoChavePrimaria<T, K> funcaoChavePrimaria, CodecRegistro<T> codec) throws IOException, ClassNotFoundException {
+		final ArrayList<Long> ids = new GuardadorObjeto<ArrayList<Long>>(nomeBanco + "-segmentos").carregaObjeto();
+		final ArrayList<SegmentoLsm<K>> segmentos = new ArrayList<>(ids.size());
+		long proximoId = 0;
+
+		try {
+			for(long id : ids) {
+				segmentos.add(SegmentoLsm.abre(nomeBanco, id));
+				proximoId = Math.max(proximoId, id + 1);
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			for(SegmentoLsm<K> segmento : segmentos) {
+				segmento.fecha();
+			}
+
+			throw e;
+		}
+
+		final BancoLsm<T, K> banco;
+
+		try {
+			banco = new BancoLsm<>(funcaoChavePrimaria, codec, nomeBanco,
+					new Estado<>(Collections.emptyList(), Collections.unmodifiableList(segmentos)), proximoId);
+
+			// as escritas refeitas nao voltam para o diario, ja que continuam nos arquivos antigos
+			// ate a memtable ser gravada
+			banco.diario.reaplica((apagado, bytes) -> {
+				final K chave = funcaoChavePrimaria.get(banco.decodifica(bytes));
+				banco.poeNaMemtable(chave, apagado ? SegmentoLsm.LAPIDE : bytes);
+			});
+		} catch (IOException | RuntimeException e) {
+			for(SegmentoLsm<K> segmento : segmentos) {
+				segmento.fecha();
+			}
+
+			throw e;
+		}
+
+		// congelar passa o diario para um arquivo depois de todos os antigos, que sao apagados
+		// quando a memtable for gravada
+		if(!banco.memtable.isEmpty()) {
+			banco.congela();
+		}
+
+		return banco;
+	}
+
+	/**
+	 * Muda o tamanho a partir do qual a memtable e congelada e gravada em um segmento. O tamanho
+	 * tambem define o tamanho dos segmentos que sao juntados.
+	 *
+	 * @param bytes tamanho maximo estimado da memtable.
+	 *
+	 * @throws IllegalArgumentException Caso o tamanho nao seja positivo.
+	 */
+	public void setLimiteMemtable(long bytes) {
+		if(bytes <= 0) {
+			throw new IllegalArgumentException("O limite da memtable deve ser positivo!!");
+		}
+
+		this.limiteMemtable = bytes;
+	}
+
+	/**
+	 * Getter da quantidade de segmentos gravados.
+	 *
+	 * @return quantidade de segmentos do banco.
+	 */
+	public int getQtdSegmentos() {
+		return this.estado.segmentos.size();
+	}
+
+	@Override
+	public void adiciona(T registro) {
+		final K chave = this.funcaoChavePrimaria.get(registro);
+
+		// so adiciona chaves que nao estejam no banco. Os filtros de Bloom dos segmentos fazem
+		// com que essa verificacao quase nunca leia o disco para chaves novas
+		if(this.le(chave) == null) {
+			this.grava(chave, this.codifica(registro), false);
+		}
+	}
+
+	@Override
+	public T remove(K chave) {
+		final byte[] bytes = this.le(chave);
+
+		if(bytes != null) {
+			// o diario guarda os bytes do registro removido, de onde a chave e tirada ao reaplicar
+			this.grava(chave, bytes, true);
+			return this.decodifica(bytes);
+		} else {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean atualiza(T registro) {
+		final K chave = this.funcaoChavePrimaria.get(registro);
+
+		if(this.le(chave) != null) {
+			this.grava(chave, this.codifica(registro), false);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean contem(K chave) {
+		return this.le(chave) != null;
+	}
+
+	@Override
+	public T busca(K chave) {
+		final byte[] bytes = this.le(chave);
+
+		return bytes == null ? null : this.decodifica(bytes);
+	}
+
+	/**
+	 * Forca o diario para o disco, para que as escritas feitas ate agora nao se percam nem se o
+	 * sistema parar. Sem isso, as escritas so sao forcadas quando a memtable e congelada ou quando o
+	 * banco e fechado, e so sobrevivem a uma parada do programa.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao forcar o arquivo.
+	 */
+	public void sincroniza() throws IOException {
+		this.verificaAberto();
+		this.diario.forca();
+	}
+
+	/**
+	 * Grava a memtable em um segmento e junta todos os segmentos em um so, descartando as lapides
+	 * e as versoes antigas dos registros. Espera a juncao terminar.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	public void compacta() throws IOException {
+		this.verificaAberto();
+
+		if(!this.memtable.isEmpty()) {
+			this.congela();
+		}
+
+		this.agenda(() -> {
+			final List<SegmentoLsm<K>> segmentos = this.estado.segmentos;
+
+			if(segmentos.size() > 1) {
+				this.junta(segmentos.size());
+			}
+		});
+		this.espera();
+	}
+
+	/**
+	 * Grava a memtable em um segmento, espera que as tarefas em segundo plano terminem e fecha os
+	 * arquivos. Depois disso, o banco nao pode mais ser usado.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos, inclusive em uma tarefa
+	 * anterior em segundo plano.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.fechado) {
+			return;
+		}
+
+		try {
+			if(!this.memtable.isEmpty()) {
+				this.congela();
+			}
+
+			this.espera();
+		} finally {
+			this.fechado = true;
+			this.executor.shutdown();
+			this.diario.fecha();
+
+			for(SegmentoLsm<K> segmento : this.estado.segmentos) {
+				segmento.fecha();
+			}
+		}
+	}
+
+	/**
+	 * Le os bytes guardados para uma chave.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return os bytes do registro, ou {@code null}, caso a chave nao esteja no banco.
+	 */
+	private byte[] le(K chave) {
+		this.verificaAberto();
+
+		byte[] bytes = this.memtable.get(chave);
+
+		if(bytes == null) {
+			this.travaSegmentos.readLock().lock();
+
+			try {
+				final Estado<K> atual = this.estado;
+
+				for(int i = 0; bytes == null && i < atual.congeladas.size(); i++) {
+					bytes = atual.congeladas.get(i).get(chave);
+				}
+
+				for(int i = 0; bytes == null && i < atual.segmentos.size(); i++) {
+					bytes = atual.segmentos.get(i).busca(chave);
+				}
+			} finally {
+				this.travaSegmentos.readLock().unlock();
+			}
+		}
+
+		return bytes == SegmentoLsm.LAPIDE ? null : bytes;
+	}
+
+	/**
+	 * Escreve uma escrita no diario e grava a entrada dela na memtable, congelando a memtable caso
+	 * tenha passado do limite.
+	 *
+	 * @param chave chave da entrada.
+	 * @param registro bytes do registro gravado, ou do registro removido.
+	 * @param apagado se o registro foi removido, caso em que a entrada e uma lapide.
+	 */
+	private void grava(K chave, byte[] registro, boolean apagado) {
+		try {
+			this.diario.registra(apagado, registro);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao escrever no diario do banco " + this.nomeBanco + ".", e);
+		}
+
+		this.poeNaMemtable(chave, apagado ? SegmentoLsm.LAPIDE : registro);
+
+		if(this.bytesMemtable >= this.limiteMemtable) {
+			this.congela();
+		}
+	}
+
+	/**
+	 * Poe uma entrada na memtable.
+	 *
+	 * @param chave chave da entrada.
+	 * @param bytes bytes do registro, ou {@link SegmentoLsm#LAPIDE}.
+	 */
+	private void poeNaMemtable(K chave, byte[] bytes) {
+		final byte[] anterior = this.memtable.put(chave, bytes);
+
+		this.bytesMemtable += bytes.length + (anterior == null ? BYTES_POR_ENTRADA : -anterior.length);
+	}
+
+	/**
+	 * Congela a memtable atual e agenda a gravacao dela em um segmento. Caso muitas memtables
+	 * estejam esperando para serem gravadas, espera as gravacoes anteriores.
+	 */
+	private void congela() {
+		final TreeMap<K, byte[]> congelada = this.memtable;
+		final long ultimoDiario;
+
+		try {
+			ultimoDiario = this.diario.rotaciona();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao fechar o diario do banco " + this.nomeBanco + ".", e);
+		}
+
+		synchronized(this) {
+			final ArrayList<TreeMap<K, byte[]>> congeladas = new ArrayList<>(this.estado.congeladas);
+			congeladas.add(0, congelada);
+			this.estado = new Estado<>(Collections.unmodifiableList(congeladas), this.estado.segmentos);
+		}
+
+		this.memtable = new TreeMap<>();
+		this.bytesMemtable = 0;
+
+		this.agenda(() -> this.descarrega(congelada, ultimoDiario));
+
+		if(this.estado.congeladas.size() > MAX_MEMTABLES_CONGELADAS) {
+			try {
+				this.ultimaTarefa.join();
+			} catch (CompletionException e) {
+				// o erro aparece quando o banco e fechado
+			}
+		}
+	}
+
+	/**
+	 * Grava uma memtable congelada em um segmento novo e junta os segmentos, caso necessario.
+	 * Roda na thread em segundo plano.
+	 *
+	 * @param congelada memtable congelada.
+	 * @param ultimoDiario numero do ultimo arquivo do diario com escritas da memtable. Os arquivos
+	 * ate ele sao apagados depois que o segmento entra na lista salva.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	private void descarrega(TreeMap<K, byte[]> congelada, long ultimoDiario) throws IOException {
+		final SegmentoLsm<K> segmento = SegmentoLsm.escreve(this.nomeBanco, this.proximoId++,
+				congelada.entrySet().iterator(), congelada.size());
+
+		synchronized(this) {
+			final ArrayList<TreeMap<K, byte[]>> congeladas = new ArrayList<>(this.estado.congeladas);
+			final ArrayList<SegmentoLsm<K>> segmentos = new ArrayList<>(this.estado.segmentos);
+
+			// a memtable so sai da lista quando o segmento ja pode ser lido
+			congeladas.removeIf((TreeMap<K, byte[]> m) -> m == congelada);
+			segmentos.add(0, segmento);
+			this.estado = new Estado<>(Collections.unmodifiableList(congeladas), Collections.unmodifiableList(segmentos));
+		}
+
+		this.salvaSegmentos();
+
+		// as memtables sao gravadas na ordem em que foram congeladas, entao nenhum arquivo ate esse
+		// tem escritas que ainda nao estao em um segmento
+		this.diario.descartaAte(ultimoDiario);
+
+		// junta os grupos de segmentos mais novos com o mesmo nivel, ate nao sobrar nenhum grupo grande
+		while(true) {
+			final List<SegmentoLsm<K>> segmentos = this.estado.segmentos;
+			final int nivel = this.nivel(segmentos.get(0));
+			int qtd = 1;
+
+			while(qtd < segmentos.size() && this.nivel(segmentos.get(qtd)) == nivel) {
+				qtd++;
+			}
+
+			if(qtd < FATOR_COMPACTACAO) {
+				return;
+			}
+
+			this.junta(qtd);
+		}
+	}
+
+	/**
+	 * Junta os segmentos mais novos em um so. Roda na thread em segundo plano.
+	 *
+	 * @param qtd quantidade de segmentos juntados, a partir do mais novo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	private void junta(int qtd) throws IOException {
+		final List<SegmentoLsm<K>> segmentos = this.estado.segmentos;
+		final List<SegmentoLsm<K>> grupo = segmentos.subList(0, qtd);
+		final ArrayList<Iterator<Map.Entry<K, byte[]>>> iteradores = new ArrayList<>(qtd);
+		int qtdMaxima = 0;
+
+		for(SegmentoLsm<K> segmento : grupo) {
+			iteradores.add(segmento.iterador());
+			qtdMaxima += segmento.getQtdEntradas();
+		}
+
+		// as lapides so podem ser descartadas se nao houver segmentos mais antigos
+		final SegmentoLsm<K> juntado = SegmentoLsm.escreve(this.nomeBanco, this.proximoId++,
+				new Juncao<>(iteradores, qtd == segmentos.size()), qtdMaxima);
+
+		this.travaSegmentos.writeLock().lock();
+
+		try {
+			synchronized(this) {
+				final ArrayList<SegmentoLsm<K>> novos = new ArrayList<>(this.estado.segmentos.subList(qtd, this.estado.segmentos.size()));
+
+				if(juntado.getQtdEntradas() > 0) {
+					novos.add(0, juntado);
+				}
+
+				this.estado = new Estado<>(this.estado.congeladas, Collections.unmodifiableList(novos));
+			}
+		} finally {
+			this.travaSegmentos.writeLock().unlock();
+		}
+
+		this.salvaSegmentos();
+
+		for(SegmentoLsm<K> segmento : grupo) {
+			segmento.apaga();
+		}
+
+		if(juntado.getQtdEntradas() == 0) {
+			juntado.apaga();
+		}
+	}
+
+	/**
+	 * Nivel de um segmento, i.e., quantas vezes ele e {@link #FATOR_COMPACTACAO} vezes maior que
+	 * uma memtable cheia.
+	 */
+	private int nivel(SegmentoLsm<K> segmento) {
+		long tamanho = segmento.getQtdBytes() / this.limiteMemtable;
+		int nivel = 0;
+
+		while(tamanho >= FATOR_COMPACTACAO) {
+			tamanho /= FATOR_COMPACTACAO;
+			nivel++;
+		}
+
+		return nivel;
+	}
+
+	/**
+	 * Salva a lista de segmentos, do mais novo para o mais antigo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	private void salvaSegmentos() throws IOException {
+		final ArrayList<Long> ids = new ArrayList<>();
+
+		for(SegmentoLsm<K> segmento : this.estado.segmentos) {
+			ids.add(segmento.getId());
+		}
+
+		this.salvaSegmentos(ids);
+	}
+
+	/**
+	 * Salva uma lista de segmentos. Ela e escrita e forcada em um arquivo separado, que depois
+	 * substitui o anterior de uma vez so, entao o arquivo sempre tem uma lista inteira.
+	 *
+	 * @param ids identificadores dos segmentos, do mais novo para o mais antigo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	private void salvaSegmentos(ArrayList<Long> ids) throws IOException {
+		final Path arquivo = Paths.get(this.guardadorSegmentos.getNomeArquivo());
+		final Path novo = Paths.get(this.nomeBanco + "-segmentos-new.bin");
+
+		this.guardadorSegmentos.salvaObjetoEm(ids, novo.toFile());
+
+		try {
+			Files.move(novo, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(novo, arquivo, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Agenda uma tarefa na thread em segundo plano, depois das tarefas anteriores.
+	 *
+	 * @param tarefa tarefa agendada.
+	 */
+	private void agenda(TarefaArquivos tarefa) {
+		this.ultimaTarefa = this.ultimaTarefa.thenRunAsync(() -> {
+			try {
+				tarefa.executa();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, this.executor);
+	}
+
+	/**
+	 * Espera todas as tarefas em segundo plano terminarem.
+	 *
+	 * @throws IOException Caso alguma tarefa tenha falhado ao escrever os arquivos.
+	 */
+	private void espera() throws IOException {
+		try {
+			this.ultimaTarefa.join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Impede que um banco fechado seja usado.
+	 */
+	private void verificaAberto() {
+		if(this.fechado) {
+			throw new IllegalStateException("O banco " + this.nomeBanco + " ja foi fechado!!");
+		}
+	}
+
+	/**
+	 * Codifica um registro com o codec do banco.
+	 *
+	 * @param registro registro que sera codificado.
+	 *
+	 * @return os bytes do registro.
+	 */
+	private byte[] codifica(T registro) {
+		try {
+			return this.codec.codifica(registro);
+		} catch (IOException e) {
+			throw new RuntimeException("Erro ao codificar o registro " + registro + ".", e);
+		}
+	}
+
+	/**
+	 * Decodifica um registro com o codec do banco.
+	 *
+	 * @param bytes bytes do registro.
+	 *
+	 * @return o registro decodificado.
+	 */
+	private T decodifica(byte[] bytes) {
+		try {
+			return this.codec.decodifica(bytes);
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Erro ao decodificar um registro do banco " + this.nomeBanco + ".", e);
+		}
+	}
+
+	/**
+	 * Tarefa feita na thread em segundo plano, que pode falhar ao escrever os arquivos.
+	 */
+	@FunctionalInterface
+	private interface TarefaArquivos {
+		void executa() throws IOException;
+	}
+
+	/**
+	 * Memtables congeladas, da mais nova para a mais antiga, e segmentos, do mais novo para o
+	 * mais antigo.
+	 */
+	private static final class Estado<K extends Comparable<K>> {
+		private final List<TreeMap<K, byte[]>> congeladas;
+		private final List<SegmentoLsm<K>> segmentos;
+
+		private Estado(List<TreeMap<K, byte[]>> congeladas, List<SegmentoLsm<K>> segmentos) {
+			this.congeladas = congeladas;
+			this.segmentos = segmentos;
+		}
+	}
+
+	/**
+	 * Iterador que junta as entradas de varios segmentos em ordem de chave. Quando uma chave
+	 * aparece em mais de um segmento, so a entrada do segmento mais novo e mantida.
+	 */
+	private static final class Juncao<K extends Comparable<K>> implements Iterator<Map.Entry<K, byte[]>> {
+		private final PriorityQueue<Cursor<K>> fila;
+		private final boolean descartaLapides;
+		private Map.Entry<K, byte[]> proxima;
+
+		private Juncao(List<Iterator<Map.Entry<K, byte[]>>> iteradores, boolean descartaLapides) {
+			// na mesma chave, o segmento mais novo (menor idade) vem primeiro
+			this.fila = new PriorityQueue<>(Comparator.comparing((Cursor<K> c) -> c.atual.getKey())
+					.thenComparingInt((Cursor<K> c) -> c.idade));
+			this.descartaLapides = descartaLapides;
+
+			for(int i = 0; i < iteradores.size(); i++) {
+				if(iteradores.get(i).hasNext()) {
+					this.fila.add(new Cursor<>(iteradores.get(i), i));
+				}
+			}
+
+			this.avanca();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.proxima != null;
+		}
+
+		@Override
+		public Map.Entry<K, byte[]> next() {
+			if(this.proxima == null) {
+				throw new NoSuchElementException();
+			}
+
+			final Map.Entry<K, byte[]> entrada = this.proxima;
+			this.avanca();
+
+			return entrada;
+		}
+
+		private void avanca() {
+			this.proxima = null;
+
+			while(this.proxima == null && !this.fila.isEmpty()) {
+				final Map.Entry<K, byte[]> entrada = this.proximaDaFila();
+
+				// as versoes mais antigas da mesma chave sao descartadas
+				while(!this.fila.isEmpty() && this.fila.peek().atual.getKey().compareTo(entrada.getKey()) == 0) {
+					this.proximaDaFila();
+				}
+
+				if(!this.descartaLapides || entrada.getValue() != SegmentoLsm.LAPIDE) {
+					this.proxima = entrada;
+				}
+			}
+		}
+
+		private Map.Entry<K, byte[]> proximaDaFila() {
+			final Cursor<K> cursor = this.fila.poll();
+			final Map.Entry<K, byte[]> entrada = cursor.atual;
+
+			if(cursor.iterador.hasNext()) {
+				cursor.atual = cursor.iterador.next();
+				this.fila.add(cursor);
+			}
+
+			return entrada;
+		}
+	}
+
+	/**
+	 * Posicao da juncao em um dos segmentos.
+	 */
+	private static final class Cursor<K> {
+		private final Iterator<Map.Entry<K, byte[]>> iterador;
+		private final int idade;
+		private Map.Entry<K, byte[]> atual;
+
+		private Cursor(Iterator<Map.Entry<K, byte[]>> iterador, int idade) {
+			this.iterador = iterador;
+			this.idade = idade;
+			this.atual = iterador.next();
+		}
+	}
+}
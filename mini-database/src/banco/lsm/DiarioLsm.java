@@ -0,0 +1,296 @@
+package banco.lsm;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario (write-ahead log) das memtables de um {@link BancoLsm}, no mesmo modelo do diario do
+ * {@link banco.MiniBD}. Cada escrita do banco e escrita no diario antes de entrar na memtable, com
+ * os bytes do registro e se ele foi apagado, entao as entradas da memtable que ainda nao foram
+ * gravadas em um segmento podem ser refeitas quando o banco for carregado.
+ *
+ * </p>Cada escrita e passada para o sistema operacional antes de retornar, entao ela nao se perde
+ * se o programa parar. Ela so e forcada para o disco quando a memtable e congelada, quando o banco
+ * e fechado ou quando {@link BancoLsm#sincroniza()} e chamado.
+ *
+ * </p>O diario e dividido em arquivos numerados ({@code nome-diario-N.bin}), um para cada memtable.
+ * Quando uma memtable e congelada, o banco passa a escrever no arquivo seguinte, e o arquivo dela so
+ * e apagado depois que o segmento com as suas entradas foi forcado para o disco e entrou na lista
+ * de segmentos.
+ *
+ * </p>Formato de cada arquivo: o numero magico {@link #MAGICO} e a versao do formato, seguidos das
+ * escritas. Cada escrita tem o seu tamanho, um {@code byte} que diz se o registro foi apagado, os
+ * bytes do registro e o checksum CRC32C deles. Uma escrita incompleta ou com o checksum errado no
+ * fim do ultimo arquivo foi interrompida, entao ela e cortada do arquivo. Em qualquer outro lugar, o
+ * diario esta corrompido e o carregamento falha.
+ */
+class DiarioLsm {
+	/**
+	 * Numero magico que identifica os arquivos do diario ("MBDL").
+	 */
+	static final int MAGICO = 0x4D42444C;
+
+	/**
+	 * Versao atual do formato do arquivo.
+	 */
+	static final int VERSAO = 1;
+
+	/**
+	 * Nome do banco, usado como base do nome dos arquivos.
+	 */
+	private final String nomeBanco;
+
+	/**
+	 * Numero do arquivo em que as proximas escritas serao feitas.
+	 */
+	private long numeroAtual;
+
+	/**
+	 * Canal do arquivo atual, ou {@code null}, caso ele ainda nao tenha sido aberto.
+	 */
+	private FileChannel canal;
+
+	/**
+	 * Constroi o diario de um banco. Os arquivos existentes nao sao lidos nem apagados, e as
+	 * proximas escritas sao feitas em um arquivo novo.
+	 *
+	 * @param nomeBanco nome do banco.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao listar os arquivos do diario.
+	 */
+	DiarioLsm(String nomeBanco) throws IOException {
+		this.nomeBanco = nomeBanco;
+
+		final TreeMap<Long, Path> arquivos = this.arquivos();
+		this.numeroAtual = arquivos.isEmpty() ? 0 : arquivos.lastKey() + 1;
+	}
+
+	/**
+	 * Escreve uma escrita do banco no arquivo atual, abrindo ele caso necessario.
+	 *
+	 * @param apagado se o registro foi apagado.
+	 * @param registro bytes do registro.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	synchronized void registra(boolean apagado, byte[] registro) throws IOException {
+		final int tamanho = 1 + registro.length;
+		final ByteBuffer buffer = ByteBuffer.allocate(4 + tamanho + 4);
+		buffer.putInt(tamanho).put((byte) (apagado ? 1 : 0)).put(registro);
+
+		final CRC32C checksum = new CRC32C();
+		checksum.update(buffer.array(), 4, tamanho);
+		buffer.putInt((int) checksum.getValue());
+		buffer.flip();
+
+		if(this.canal == null) {
+			this.canal = FileChannel.open(this.arquivo(this.numeroAtual), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+			if(this.canal.size() == 0) {
+				this.escreve(ByteBuffer.allocate(8).putInt(MAGICO).putInt(VERSAO).flip());
+			}
+		}
+
+		this.escreve(buffer);
+	}
+
+	/**
+	 * Forca o arquivo atual para o disco, caso ele esteja aberto.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao forcar o arquivo.
+	 */
+	synchronized void forca() throws IOException {
+		if(this.canal != null) {
+			this.canal.force(false);
+		}
+	}
+
+	/**
+	 * Forca e fecha o arquivo atual e passa a escrever no arquivo seguinte.
+	 *
+	 * @return o numero do arquivo fechado.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao forcar ou fechar o arquivo.
+	 */
+	synchronized long rotaciona() throws IOException {
+		this.fecha();
+
+		return this.numeroAtual++;
+	}
+
+	/**
+	 * Forca e fecha o arquivo atual, caso ele esteja aberto.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao forcar ou fechar o arquivo.
+	 */
+	synchronized void fecha() throws IOException {
+		if(this.canal != null) {
+			try {
+				this.canal.force(false);
+			} finally {
+				this.canal.close();
+				this.canal = null;
+			}
+		}
+	}
+
+	/**
+	 * Apaga os arquivos do diario ate o numero passado, inclusive.
+	 *
+	 * @param numero numero do ultimo arquivo apagado.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao apagar os arquivos.
+	 */
+	void descartaAte(long numero) throws IOException {
+		for(Path arquivo : this.arquivos().headMap(numero, true).values()) {
+			Files.deleteIfExists(arquivo);
+		}
+	}
+
+	/**
+	 * Le as escritas de todos os arquivos do diario e passa elas para o consumidor, na ordem em que
+	 * foram feitas. A leitura para na primeira escrita invalida: caso ela esteja no fim do ultimo
+	 * arquivo, ela e cortada, e caso contrario o diario esta corrompido.
+	 *
+	 * @param consumidor funcao chamada para cada escrita, com {@code true} caso o registro tenha
+	 * sido apagado e os bytes do registro.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos, ou um arquivo nao seja
+	 * um diario.
+	 * @throws StreamCorruptedException Caso uma escrita invalida nao esteja no fim do ultimo arquivo.
+	 */
+	void reaplica(BiConsumer<Boolean, byte[]> consumidor) throws IOException {
+		final TreeMap<Long, Path> arquivos = this.arquivos();
+
+		for(Map.Entry<Long, Path> entrada : arquivos.entrySet()) {
+			final Path arquivo = entrada.getValue();
+			final boolean ultimo = entrada.getKey().equals(arquivos.lastKey());
+			final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+
+			if(bytes.remaining() < 8) {
+				// o arquivo foi criado, mas o cabecalho nao chegou a ser escrito inteiro
+				if(bytes.hasRemaining()) {
+					corrompido(arquivo, 0, ultimo);
+				}
+				continue;
+			}
+
+			if(bytes.getInt() != MAGICO || bytes.getInt() != VERSAO) {
+				throw new IOException("O arquivo " + arquivo + " nao e um diario em uma versao suportada.");
+			}
+
+			while(bytes.hasRemaining()) {
+				final int inicio = bytes.position();
+				final int tamanho = bytes.remaining() < 4 ? -1 : bytes.getInt();
+
+				if(tamanho < 1 || bytes.remaining() < tamanho + 4L) {
+					corrompido(arquivo, inicio, ultimo);
+					return;
+				}
+
+				final CRC32C checksum = new CRC32C();
+				checksum.update(bytes.array(), bytes.position(), tamanho);
+
+				if((int) checksum.getValue() != bytes.getInt(bytes.position() + tamanho)) {
+					corrompido(arquivo, inicio, ultimo);
+					return;
+				}
+
+				final boolean apagado = bytes.get() != 0;
+				final byte[] registro = new byte[tamanho - 1];
+				bytes.get(registro);
+				bytes.getInt();
+
+				consumidor.accept(apagado, registro);
+			}
+		}
+	}
+
+	/**
+	 * Trata uma escrita invalida encontrada ao reaplicar o diario. No fim do ultimo arquivo, ela foi
+	 * interrompida, e o arquivo e cortado antes dela.
+	 *
+	 * @param arquivo arquivo com a escrita.
+	 * @param posicao posicao da escrita no arquivo.
+	 * @param ultimo se o arquivo e o ultimo do diario.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao cortar o arquivo.
+	 * @throws StreamCorruptedException Caso o arquivo nao seja o ultimo.
+	 */
+	private static void corrompido(Path arquivo, long posicao, boolean ultimo) throws IOException {
+		if(!ultimo) {
+			throw new StreamCorruptedException("A escrita na posicao " + posicao + " do arquivo " + arquivo
+					+ " esta corrompida, mas o diario continua depois dela.");
+		}
+
+		try(FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+			canal.truncate(posicao);
+			canal.force(true);
+		}
+	}
+
+	/**
+	 * Escreve todo o conteudo do buffer no arquivo atual.
+	 *
+	 * @param buffer bytes escritos.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita.
+	 */
+	private void escreve(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			this.canal.write(buffer);
+		}
+	}
+
+	/**
+	 * Caminho de um dos arquivos do diario.
+	 *
+	 * @param numero numero do arquivo.
+	 *
+	 * @return o caminho do arquivo.
+	 */
+	private Path arquivo(long numero) {
+		return Paths.get(this.nomeBanco + "-diario-" + numero + ".bin");
+	}
+
+	/**
+	 * Lista os arquivos do diario que existem.
+	 *
+	 * @return os arquivos, pelo seu numero.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao listar a pasta.
+	 */
+	private TreeMap<Long, Path> arquivos() throws IOException {
+		final Path base = this.arquivo(0);
+		final Path pasta = base.toAbsolutePath().getParent();
+		final String nomeBase = base.getFileName().toString();
+		final String prefixo = nomeBase.substring(0, nomeBase.length() - "0.bin".length());
+		final TreeMap<Long, Path> arquivos = new TreeMap<>();
+
+		try(DirectoryStream<Path> conteudo = Files.newDirectoryStream(pasta, prefixo + "*.bin")) {
+			for(Path arquivo : conteudo) {
+				final String nome = arquivo.getFileName().toString();
+
+				try {
+					arquivos.put(Long.parseLong(nome.substring(prefixo.length(), nome.length() - 4)), arquivo);
+				} catch (NumberFormatException e) {
+					// outro arquivo com um nome parecido
+				}
+			}
+		}
+
+		return arquivos;
+	}
+}
@@ -0,0 +1,416 @@
+package banco.lsm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+import modelo.auxiliar.GuardadorObjeto;
+import modelo.filtro.FiltroBloom;
+
+/**
+ * Classe que representa um segmento do {@link BancoLsm}, i.e., um arquivo imutavel com entradas
+ * ordenadas pela chave. Cada entrada e um registro codificado ou uma lapide, que marca que a chave
+ * foi removida depois de ter sido gravada em um segmento mais antigo.
+ *
+ * </p>As entradas ficam em blocos de {@link #ENTRADAS_POR_BLOCO} entradas. Um arquivo separado
+ * guarda o indice esparso do segmento, com a primeira chave, a posicao e o checksum CRC32C de cada
+ * bloco, e um {@link FiltroBloom} com as chaves do segmento. Assim, buscar uma chave que nao esta no
+ * segmento quase nunca le o disco, e buscar uma que esta le um unico bloco.
+ *
+ * @param <K> tipo da chave primaria dos registros.
+ */
+class SegmentoLsm<K extends Comparable<K>> {
+	/**
+	 * Quantidade de entradas de cada bloco do segmento. So o ultimo bloco pode ser menor.
+	 */
+	static final int ENTRADAS_POR_BLOCO = 128;
+
+	/**
+	 * Taxa de falsos positivos do filtro de Bloom de cada segmento.
+	 */
+	static final double TAXA_FALSOS_POSITIVOS = 0.01;
+
+	/**
+	 * Valor que representa uma lapide. Ele e comparado pela referencia, entao um registro
+	 * codificado como um array vazio nao e confundido com uma lapide.
+	 */
+	static final byte[] LAPIDE = new byte[0];
+
+	/**
+	 * Identificador do segmento, usado no nome dos arquivos.
+	 */
+	private final long id;
+
+	/**
+	 * Nome dos arquivos do segmento, sem a extensao.
+	 */
+	private final String nomeArquivo;
+
+	/**
+	 * Indice esparso e filtro de Bloom do segmento.
+	 */
+	private final IndiceSegmento<K> indice;
+
+	/**
+	 * Canal do arquivo de dados. Leituras com posicao podem ser feitas em paralelo.
+	 */
+	private final FileChannel canal;
+
+	private SegmentoLsm(long id, String nomeArquivo, IndiceSegmento<K> indice, FileChannel canal) {
+		this.id = id;
+		this.nomeArquivo = nomeArquivo;
+		this.indice = indice;
+		this.canal = canal;
+	}
+
+	/**
+	 * Nome dos arquivos de um segmento, sem a extensao.
+	 *
+	 * @param nomeBanco nome do banco.
+	 * @param id identificador do segmento.
+	 *
+	 * @return o nome dos arquivos.
+	 */
+	static String nomeArquivo(String nomeBanco, long id) {
+		return nomeBanco + "-segmento-" + id;
+	}
+
+	/**
+	 * Escreve um segmento com as entradas passadas. Os dois arquivos sao forcados para o disco
+	 * antes de retornar, entao o segmento pode entrar na lista de segmentos salva logo depois.
+	 *
+	 * @param <K> tipo da chave primaria dos registros.
+	 *
+	 * @param nomeBanco nome do banco.
+	 * @param id identificador do segmento.
+	 * @param entradas entradas em ordem estritamente crescente de chave. Lapides sao representadas
+	 * por {@link #LAPIDE}.
+	 * @param qtdMaxima quantidade maxima de entradas, usada para dimensionar o filtro de Bloom.
+	 *
+	 * @return o segmento escrito, aberto para leitura.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	static <K extends Comparable<K>> SegmentoLsm<K> escreve(String nomeBanco, long id,
+			Iterator<Map.Entry<K, byte[]>> entradas, int qtdMaxima) throws IOException {
+		final String nomeArquivo = nomeArquivo(nomeBanco, id);
+		final IndiceSegmento<K> indice = new IndiceSegmento<>(qtdMaxima);
+		final ArrayList<Long> posicoes = new ArrayList<>();
+		final ArrayList<Integer> checksums = new ArrayList<>();
+		final Object[] chaves = new Object[ENTRADAS_POR_BLOCO];
+		final byte[][] registros = new byte[ENTRADAS_POR_BLOCO][];
+		long posicao = 0;
+
+		final FileOutputStream arquivoSaida = new FileOutputStream(nomeArquivo + ".bin");
+
+		try(BufferedOutputStream saida = new BufferedOutputStream(arquivoSaida, 1 << 16)) {
+			while(entradas.hasNext()) {
+				int qtd = 0;
+
+				while(qtd < ENTRADAS_POR_BLOCO && entradas.hasNext()) {
+					final Map.Entry<K, byte[]> entrada = entradas.next();
+					chaves[qtd] = entrada.getKey();
+					registros[qtd] = entrada.getValue();
+					indice.filtro.adiciona(entrada.getKey());
+					qtd++;
+				}
+
+				final byte[] bloco = codificaBloco(chaves, registros, qtd);
+				final CRC32C checksum = new CRC32C();
+				checksum.update(bloco);
+
+				@SuppressWarnings("unchecked")
+				final K primeira = (K) chaves[0];
+				indice.primeirasChaves.add(primeira);
+				posicoes.add(posicao);
+				checksums.add((int) checksum.getValue());
+				indice.qtdEntradas += qtd;
+
+				saida.write(bloco);
+				posicao += bloco.length;
+			}
+
+			saida.flush();
+			arquivoSaida.getFD().sync();
+		}
+
+		indice.posicaoBlocos = new long[posicoes.size() + 1];
+		indice.checksumBlocos = new int[checksums.size()];
+
+		for(int i = 0; i < posicoes.size(); i++) {
+			indice.posicaoBlocos[i] = posicoes.get(i);
+			indice.checksumBlocos[i] = checksums.get(i);
+		}
+
+		indice.posicaoBlocos[posicoes.size()] = posicao;
+
+		// o indice e gravado depois dos dados, entao um indice salvo sempre tem os seus dados
+		new GuardadorObjeto<IndiceSegmento<K>>(nomeArquivo + "-indice").salvaObjetoEm(indice, new File(nomeArquivo + "-indice.bin"));
+
+		return new SegmentoLsm<>(id, nomeArquivo, indice, FileChannel.open(Paths.get(nomeArquivo + ".bin"), StandardOpenOption.READ));
+	}
+
+	/**
+	 * Abre um segmento ja escrito.
+	 *
+	 * @param <K> tipo da chave primaria dos registros.
+	 *
+	 * @param nomeBanco nome do banco.
+	 * @param id identificador do segmento.
+	 *
+	 * @return o segmento, aberto para leitura.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos.
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 */
+	static <K extends Comparable<K>> SegmentoLsm<K> abre(String nomeBanco, long id) throws IOException, ClassNotFoundException {
+		final String nomeArquivo = nomeArquivo(nomeBanco, id);
+		final IndiceSegmento<K> indice = new GuardadorObjeto<IndiceSegmento<K>>(nomeArquivo + "-indice").carregaObjeto();
+		final FileChannel canal = FileChannel.open(Paths.get(nomeArquivo + ".bin"), StandardOpenOption.READ);
+
+		if(canal.size() != indice.posicaoBlocos[indice.posicaoBlocos.length - 1]) {
+			canal.close();
+			throw new StreamCorruptedException("O arquivo " + nomeArquivo + ".bin tem um tamanho diferente do esperado.");
+		}
+
+		return new SegmentoLsm<>(id, nomeArquivo, indice, canal);
+	}
+
+	/**
+	 * Getter do identificador do segmento.
+	 *
+	 * @return o identificador.
+	 */
+	long getId() {
+		return this.id;
+	}
+
+	/**
+	 * Getter da quantidade de entradas do segmento, incluindo as lapides.
+	 *
+	 * @return a quantidade de entradas.
+	 */
+	int getQtdEntradas() {
+		return this.indice.qtdEntradas;
+	}
+
+	/**
+	 * Getter do tamanho do arquivo de dados.
+	 *
+	 * @return quantidade de bytes dos blocos do segmento.
+	 */
+	long getQtdBytes() {
+		return this.indice.posicaoBlocos[this.indice.posicaoBlocos.length - 1];
+	}
+
+	/**
+	 * Busca a entrada de uma chave no segmento.
+	 *
+	 * @param chave chave buscada.
+	 *
+	 * @return os bytes do registro, {@link #LAPIDE}, caso a chave tenha sido removida, ou
+	 * {@code null}, caso o segmento nao tenha nenhuma entrada com a chave.
+	 *
+	 * @throws UncheckedIOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	byte[] busca(K chave) {
+		if(!this.indice.filtro.podeConter(chave)) {
+			return null;
+		}
+
+		// o bloco da chave e o ultimo que comeca com uma chave menor ou igual a ela
+		int bloco = Collections.binarySearch(this.indice.primeirasChaves, chave);
+		bloco = bloco >= 0 ? bloco : -bloco - 2;
+
+		if(bloco < 0) {
+			return null;
+		}
+
+		final Bloco<K> lido = this.leBloco(bloco);
+		final int posicao = Arrays.binarySearch(lido.chaves, chave);
+
+		return posicao >= 0 ? lido.registros[posicao] : null;
+	}
+
+	/**
+	 * Percorre as entradas do segmento em ordem crescente de chave, lendo um bloco por vez.
+	 *
+	 * @return iterador sobre as entradas do segmento.
+	 */
+	Iterator<Map.Entry<K, byte[]>> iterador() {
+		return new Iterator<Map.Entry<K, byte[]>>() {
+			private int proximoBloco = 0;
+			private Bloco<K> atual = null;
+			private int posicao = 0;
+
+			@Override
+			public boolean hasNext() {
+				while(this.atual == null || this.posicao == this.atual.chaves.length) {
+					if(this.proximoBloco == indice.primeirasChaves.size()) {
+						return false;
+					}
+
+					this.atual = leBloco(this.proximoBloco++);
+					this.posicao = 0;
+				}
+
+				return true;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Map.Entry<K, byte[]> next() {
+				if(!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				final int i = this.posicao++;
+				return new AbstractMap.SimpleImmutableEntry<>((K) this.atual.chaves[i], this.atual.registros[i]);
+			}
+		};
+	}
+
+	/**
+	 * Fecha o arquivo do segmento.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao fechar o arquivo.
+	 */
+	void fecha() throws IOException {
+		this.canal.close();
+	}
+
+	/**
+	 * Fecha e apaga os arquivos do segmento.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao apagar os arquivos.
+	 */
+	void apaga() throws IOException {
+		this.fecha();
+		Files.deleteIfExists(Paths.get(this.nomeArquivo + ".bin"));
+		new GuardadorObjeto<IndiceSegmento<K>>(this.nomeArquivo + "-indice").apagaArquivo();
+	}
+
+	/**
+	 * Le e verifica um bloco do arquivo.
+	 *
+	 * @param indiceBloco indice do bloco.
+	 *
+	 * @return as entradas do bloco.
+	 *
+	 * @throws UncheckedIOException Caso ocorra algum erro na leitura do arquivo, ou o bloco esteja
+	 * corrompido.
+	 */
+	private Bloco<K> leBloco(int indiceBloco) {
+		final long inicio = this.indice.posicaoBlocos[indiceBloco];
+		final ByteBuffer bytes = ByteBuffer.allocate((int) (this.indice.posicaoBlocos[indiceBloco + 1] - inicio));
+
+		try {
+			while(bytes.hasRemaining()) {
+				if(this.canal.read(bytes, inicio + bytes.position()) < 0) {
+					throw new StreamCorruptedException("O arquivo " + this.nomeArquivo + ".bin acabou antes do esperado.");
+				}
+			}
+
+			final CRC32C checksum = new CRC32C();
+			checksum.update(bytes.array());
+
+			if((int) checksum.getValue() != this.indice.checksumBlocos[indiceBloco]) {
+				throw new StreamCorruptedException("O bloco " + indiceBloco + " do arquivo " + this.nomeArquivo + ".bin esta corrompido.");
+			}
+
+			try(ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.array()))) {
+				final int qtd = entrada.readInt();
+				final Bloco<K> bloco = new Bloco<>();
+				bloco.chaves = (Object[]) entrada.readObject();
+				bloco.registros = new byte[qtd][];
+
+				for(int i = 0; i < qtd; i++) {
+					final int tamanho = entrada.readInt();
+
+					if(tamanho < 0) {
+						bloco.registros[i] = LAPIDE;
+					} else {
+						bloco.registros[i] = new byte[tamanho];
+						entrada.readFully(bloco.registros[i]);
+					}
+				}
+
+				return bloco;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("Algum dos modulos do programa esta ausente. Erro " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Codifica um bloco: a quantidade de entradas, o array de chaves serializado e, para cada
+	 * entrada, o tamanho do registro (ou -1 para lapides) seguido pelos bytes dele.
+	 */
+	private static byte[] codificaBloco(Object[] chaves, byte[][] registros, int qtd) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try(ObjectOutputStream saida = new ObjectOutputStream(bytes)) {
+			saida.writeInt(qtd);
+			saida.writeObject(Arrays.copyOf(chaves, qtd));
+
+			for(int i = 0; i < qtd; i++) {
+				if(registros[i] == LAPIDE) {
+					saida.writeInt(-1);
+				} else {
+					saida.writeInt(registros[i].length);
+					saida.write(registros[i]);
+				}
+			}
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Entradas de um bloco lido do arquivo.
+	 */
+	private static class Bloco<K> {
+		private Object[] chaves;
+		private byte[][] registros;
+	}
+
+	/**
+	 * Indice esparso de um segmento, salvo em um arquivo separado do arquivo de dados.
+	 */
+	private static class IndiceSegmento<K> implements Serializable {
+		private static final long serialVersionUID = 5247719832036120514L;
+
+		private final ArrayList<K> primeirasChaves = new ArrayList<>();
+		private final FiltroBloom<K> filtro;
+		private long[] posicaoBlocos;
+		private int[] checksumBlocos;
+		private int qtdEntradas;
+
+		private IndiceSegmento(int qtdMaxima) {
+			this.filtro = new FiltroBloom<>(Math.max(1024, qtdMaxima), TAXA_FALSOS_POSITIVOS);
+		}
+	}
+}
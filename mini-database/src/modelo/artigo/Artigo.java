@@ -60,6 +60,33 @@ public class Artigo implements Serializable {
 		return titulo;
 	}
 	
+	/**
+	 * Getter dos autores do artigo.
+	 * 
+	 * @return uma lista nao modificavel dos autores do artigo.
+	 */
+	public List<String> getAutores() {
+		return Collections.unmodifiableList(this.autores);
+	}
+	
+	/**
+	 * Getter da data de publicacao do artigo.
+	 * 
+	 * @return data de publicacao do artigo, ou {@code null}, caso ela nao seja conhecida.
+	 */
+	public LocalDate getDataPublicacao() {
+		return dataPublicacao;
+	}
+	
+	/**
+	 * Getter do link do artigo.
+	 * 
+	 * @return link para encontrar o artigo online, ou {@code null}, caso ele nao seja conhecido.
+	 */
+	public String getLink() {
+		return link;
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder res = new StringBuilder();
@@ -79,4 +106,10 @@ public class Artigo implements Serializable {
 			return this.titulo.equals(((Artigo) obj).titulo);
 		}
 	}
+	
+	@Override
+	public int hashCode() {
+		// precisa ser consistente com o equals, que so compara os titulos
+		return this.titulo == null ? 0 : this.titulo.hashCode();
+	}
 }
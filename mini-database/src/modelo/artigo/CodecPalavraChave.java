@@ -0,0 +1,277 @@
+package modelo.artigo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import banco.CodecRegistro;
+
+/**
+ * Codec especifico para objetos {@code PalavraChave}. Ele escreve so os campos da palavra
+ * e dos seus artigos, sem as descricoes de classe da serializacao do Java, entao cada registro
+ * ocupa bem menos bytes.
+ *
+ * </p>Formato: a palavra, a quantidade de artigos e, para cada artigo, o titulo, a lista de
+ * autores, a lista de palavras chave, a data de publicacao (em dias desde 1970-01-01) e o link.
+ * Campos que podem ser {@code null} sao precedidos por um {@code boolean} que diz se eles existem.
+ *
+ * @see banco.CodecRegistro
+ */
+public class CodecPalavraChave implements CodecRegistro<PalavraChave> {
+
+	@Override
+	public byte[] codifica(PalavraChave registro) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream escritor = new DataOutputStream(bytes);
+
+		escritor.writeUTF(registro.getPalavra());
+		escritor.writeInt(registro.getArtigos().size());
+
+		for(Artigo a : registro.getArtigos()) {
+			escreveArtigo(escritor, a);
+		}
+
+		escritor.flush();
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public PalavraChave decodifica(byte[] bytes) throws IOException {
+		DataInputStream leitor = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		final String palavra = leitor.readUTF();
+		final int qtdArtigos = leitor.readInt();
+		final ArrayList<Artigo> artigos = new ArrayList<>(qtdArtigos);
+
+		for(int i = 0; i < qtdArtigos; i++) {
+			artigos.add(leArtigo(leitor));
+		}
+
+		return new PalavraChave(palavra, artigos);
+	}
+
+	/**
+	 * Copia a palavra chave sem decodificar os bytes. Os artigos nao mudam depois de criados,
+	 * entao so a lista deles e copiada.
+	 */
+	@Override
+	public PalavraChave copia(PalavraChave registro, byte[] bytes) {
+		return new PalavraChave(registro.getPalavra(), registro.getArtigos());
+	}
+
+	@Override
+	public boolean copiaSemDecodificar() {
+		return true;
+	}
+
+	/**
+	 * Le so a palavra de um registro codificado, sem ler os artigos.
+	 *
+	 * @param bytes bytes do registro, gerados por {@link #codifica(PalavraChave)}.
+	 *
+	 * @return a palavra do registro.
+	 *
+	 * @throws IOException Caso os bytes nao comecem com uma palavra.
+	 */
+	public static String lePalavra(byte[] bytes) throws IOException {
+		return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+	}
+
+	/**
+	 * Tira de um mapa os artigos que ja estao em um registro codificado, lendo so os titulos dos
+	 * artigos do registro, sem montar os artigos. Dois artigos sao iguais quando tem o mesmo
+	 * titulo, como em {@link Artigo#equals(Object)}.
+	 *
+	 * @param bytes bytes do registro, gerados por {@link #codifica(PalavraChave)}.
+	 * @param porTitulo artigos, pelo titulo. Os que ja estao no registro sao tirados do mapa.
+	 *
+	 * @throws IOException Caso os bytes nao representem uma palavra chave valida.
+	 */
+	public static void tiraPresentes(byte[] bytes, Map<String, Artigo> porTitulo) throws IOException {
+		DataInputStream leitor = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		leitor.readUTF();
+		final int qtdArtigos = leitor.readInt();
+
+		for(int i = 0; i < qtdArtigos && !porTitulo.isEmpty(); i++) {
+			porTitulo.remove(pulaArtigo(leitor));
+		}
+	}
+
+	/**
+	 * Acrescenta artigos no fim de um registro codificado, sem ler os artigos que ja estao nele.
+	 * So a quantidade de artigos do registro e trocada, e os artigos novos sao escritos depois dos
+	 * bytes antigos.
+	 *
+	 * @param bytes bytes do registro, gerados por {@link #codifica(PalavraChave)}. Eles nao sao
+	 * alterados.
+	 * @param artigos artigos acrescentados, que devem ter a palavra do registro e nao estar nele.
+	 *
+	 * @return os bytes do registro com os artigos acrescentados.
+	 *
+	 * @throws IOException Caso os bytes nao representem uma palavra chave valida.
+	 */
+	public static byte[] acrescentaArtigos(byte[] bytes, Collection<Artigo> artigos) throws IOException {
+		// a quantidade de artigos vem logo depois da palavra, que tem o tamanho nos 2 primeiros bytes
+		final int posicaoQtd = 2 + new DataInputStream(new ByteArrayInputStream(bytes)).readUnsignedShort();
+		final ByteArrayOutputStream novos = new ByteArrayOutputStream(bytes.length + 128 * artigos.size());
+		DataOutputStream escritor = new DataOutputStream(novos);
+
+		escritor.write(bytes);
+		for(Artigo a : artigos) {
+			escreveArtigo(escritor, a);
+		}
+		escritor.flush();
+
+		final ByteBuffer resultado = ByteBuffer.wrap(novos.toByteArray());
+		resultado.putInt(posicaoQtd, resultado.getInt(posicaoQtd) + artigos.size());
+
+		return resultado.array();
+	}
+
+	/**
+	 * Escreve os campos de um artigo, no formato descrito na classe.
+	 *
+	 * @param escritor stream onde o artigo sera escrito.
+	 * @param artigo artigo escrito.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita.
+	 */
+	public static void escreveArtigo(DataOutputStream escritor, Artigo artigo) throws IOException {
+		escreveTexto(escritor, artigo.getTitulo());
+		escreveLista(escritor, artigo.getAutores());
+		escreveLista(escritor, artigo.getPalavrasChave());
+
+		escritor.writeBoolean(artigo.getDataPublicacao() != null);
+		if(artigo.getDataPublicacao() != null) {
+			escritor.writeLong(artigo.getDataPublicacao().toEpochDay());
+		}
+
+		escreveTexto(escritor, artigo.getLink());
+	}
+
+	/**
+	 * Le um artigo escrito por {@link #escreveArtigo(DataOutputStream, Artigo)}.
+	 *
+	 * @param leitor stream de onde o artigo sera lido.
+	 *
+	 * @return o artigo lido.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura.
+	 */
+	public static Artigo leArtigo(DataInputStream leitor) throws IOException {
+		final String titulo = leTexto(leitor);
+		final List<String> autores = leLista(leitor);
+		final List<String> palavrasChave = leLista(leitor);
+		final LocalDate data = leitor.readBoolean() ? LocalDate.ofEpochDay(leitor.readLong()) : null;
+		final String link = leTexto(leitor);
+
+		return new Artigo(titulo, autores, palavrasChave, data, link);
+	}
+
+	/**
+	 * Pula um artigo escrito por {@link #escreveArtigo(DataOutputStream, Artigo)}, lendo so o
+	 * titulo e os tamanhos dos outros campos, sem montar o artigo.
+	 *
+	 * @param leitor stream de onde o artigo sera pulado.
+	 *
+	 * @return o titulo do artigo pulado.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura.
+	 */
+	public static String pulaArtigo(DataInputStream leitor) throws IOException {
+		final String titulo = leTexto(leitor);
+
+		// autores e palavras chave
+		for(int lista = 0; lista < 2; lista++) {
+			final int tamanho = leitor.readInt();
+
+			for(int i = 0; i < tamanho; i++) {
+				leitor.skipNBytes(leitor.readUnsignedShort());
+			}
+		}
+
+		if(leitor.readBoolean()) {
+			leitor.skipNBytes(Long.BYTES);
+		}
+
+		if(leitor.readBoolean()) {
+			leitor.skipNBytes(leitor.readUnsignedShort());
+		}
+
+		return titulo;
+	}
+
+	/**
+	 * Escreve uma String que pode ser {@code null}.
+	 *
+	 * @param escritor stream onde o texto sera escrito.
+	 * @param texto texto escrito.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita.
+	 */
+	private static void escreveTexto(DataOutputStream escritor, String texto) throws IOException {
+		escritor.writeBoolean(texto != null);
+
+		if(texto != null) {
+			escritor.writeUTF(texto);
+		}
+	}
+
+	/**
+	 * Le uma String escrita por {@link #escreveTexto(DataOutputStream, String)}.
+	 *
+	 * @param leitor stream de onde o texto sera lido.
+	 *
+	 * @return o texto lido, que pode ser {@code null}.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura.
+	 */
+	private static String leTexto(DataInputStream leitor) throws IOException {
+		return leitor.readBoolean() ? leitor.readUTF() : null;
+	}
+
+	/**
+	 * Escreve uma lista de Strings, precedida pelo seu tamanho.
+	 *
+	 * @param escritor stream onde a lista sera escrita.
+	 * @param lista lista escrita.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita.
+	 */
+	private static void escreveLista(DataOutputStream escritor, List<String> lista) throws IOException {
+		escritor.writeInt(lista.size());
+
+		for(String item : lista) {
+			escritor.writeUTF(item);
+		}
+	}
+
+	/**
+	 * Le uma lista escrita por {@link #escreveLista(DataOutputStream, List)}.
+	 *
+	 * @param leitor stream de onde a lista sera lida.
+	 *
+	 * @return a lista lida.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura.
+	 */
+	private static List<String> leLista(DataInputStream leitor) throws IOException {
+		final int tamanho = leitor.readInt();
+		final ArrayList<String> lista = new ArrayList<>(tamanho);
+
+		for(int i = 0; i < tamanho; i++) {
+			lista.add(leitor.readUTF());
+		}
+
+		return lista;
+	}
+}
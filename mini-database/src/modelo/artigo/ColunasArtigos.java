@@ -0,0 +1,669 @@
+package modelo.artigo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import banco.MiniBD;
+import banco.VisaoBanco;
+
+/**
+ * Projecao em colunas dos artigos de um banco de palavras chave, para perguntas sobre o acervo
+ * inteiro, como quantos artigos foram publicados em cada ano, quais autores tem mais artigos ou
+ * quantos artigos tem cada palavra chave. No banco, essas perguntas precisam decodificar todas as
+ * palavras e percorrer os objetos de todos os artigos. Aqui, cada campo fica em um vetor de tipos
+ * primitivos, e as agregacoes sao lacos sobre esses vetores.
+ *
+ * </p>Cada artigo aparece uma vez so, mesmo que esteja em varias palavras, e e identificado pela
+ * sua posicao, de 0 ate {@link #getQtdArtigos()}. As colunas sao:
+ * <ul>
+ * <li>a data de publicacao, em dias desde 1970-01-01, ou {@link #SEM_DATA};</li>
+ * <li>os titulos, em UTF-8, todos em um vetor de bytes, com a posicao onde cada um comeca;</li>
+ * <li>os autores e as palavras chave, trocados por numeros de um dicionario, todos em um vetor,
+ * com a posicao onde comecam os de cada artigo.</li>
+ * </ul>
+ *
+ * </p>As agregacoes dividem os artigos em partes de {@link #TAMANHO_PARTE} artigos, que sao contadas
+ * em paralelo, cada uma no seu proprio vetor de contagens, e os vetores sao somados no final.
+ *
+ * </p>As colunas sao uma copia do banco no momento em que foram montadas, e nao mudam depois. Como
+ * elas nao mudam, podem ser lidas por varias threads ao mesmo tempo.
+ */
+public class ColunasArtigos {
+	/**
+	 * Dia guardado na coluna de datas para os artigos sem data de publicacao.
+	 */
+	public static final int SEM_DATA = Integer.MIN_VALUE;
+
+	/**
+	 * Quantidade de artigos de cada parte das agregacoes. Com menos artigos do que isso, a agregacao
+	 * e feita em uma thread so.
+	 */
+	public static final int TAMANHO_PARTE = 1 << 16;
+
+	private final int qtdArtigos;
+
+	/**
+	 * Data de publicacao de cada artigo, em dias desde 1970-01-01.
+	 */
+	private final int[] dias;
+	private final int diaMinimo;
+	private final int diaMaximo;
+
+	/**
+	 * Titulos de todos os artigos em UTF-8. O titulo do artigo {@code i} vai de
+	 * {@code iniciosTitulos[i]} ate {@code iniciosTitulos[i + 1]}.
+	 */
+	private final byte[] titulos;
+	private final int[] iniciosTitulos;
+
+	/**
+	 * Numeros dos autores de todos os artigos. Os do artigo {@code i} vao de
+	 * {@code iniciosAutores[i]} ate {@code iniciosAutores[i + 1]}.
+	 */
+	private final int[] idsAutores;
+	private final int[] iniciosAutores;
+	private final Dicionario autores;
+
+	/**
+	 * Numeros das palavras chave de todos os artigos, como nos autores.
+	 */
+	private final int[] idsPalavras;
+	private final int[] iniciosPalavras;
+	private final Dicionario palavras;
+
+	/**
+	 * Constroi as colunas a partir de um montador.
+	 *
+	 * @param construtor montador com todos os artigos adicionados.
+	 */
+	private ColunasArtigos(Construtor construtor) {
+		this.qtdArtigos = construtor.qtdArtigos;
+		this.dias = Arrays.copyOf(construtor.dias, construtor.qtdArtigos);
+		this.titulos = Arrays.copyOf(construtor.titulos, construtor.tamanhoTitulos);
+		this.iniciosTitulos = Arrays.copyOf(construtor.iniciosTitulos, construtor.qtdArtigos + 1);
+		this.idsAutores = Arrays.copyOf(construtor.idsAutores, construtor.qtdAutores);
+		this.iniciosAutores = Arrays.copyOf(construtor.iniciosAutores, construtor.qtdArtigos + 1);
+		this.autores = construtor.autores;
+		this.idsPalavras = Arrays.copyOf(construtor.idsPalavras, construtor.qtdPalavras);
+		this.iniciosPalavras = Arrays.copyOf(construtor.iniciosPalavras, construtor.qtdArtigos + 1);
+		this.palavras = construtor.palavras;
+
+		int minimo = Integer.MAX_VALUE;
+		int maximo = SEM_DATA;
+		for(int dia : this.dias) {
+			if(dia != SEM_DATA) {
+				minimo = Math.min(minimo, dia);
+				maximo = Math.max(maximo, dia);
+			}
+		}
+		this.diaMinimo = minimo;
+		this.diaMaximo = maximo;
+	}
+
+	/**
+	 * Monta as colunas com os artigos de todas as palavras de um banco, em uma visao aberta agora.
+	 *
+	 * @param banco banco de palavras chave.
+	 *
+	 * @return as colunas dos artigos do banco.
+	 */
+	public static ColunasArtigos de(MiniBD<PalavraChave, String> banco) {
+		return de(banco.abreVisao());
+	}
+
+	/**
+	 * Monta as colunas com os artigos de todas as palavras de uma visao de um banco.
+	 *
+	 * @param visao visao de um banco de palavras chave.
+	 *
+	 * @return as colunas dos artigos da visao.
+	 */
+	public static ColunasArtigos de(VisaoBanco<PalavraChave, String> visao) {
+		final Construtor construtor = new Construtor();
+
+		visao.percorre((String palavra, PalavraChave pc) -> {
+			for(Artigo artigo : pc.getArtigos()) {
+				construtor.adiciona(artigo);
+			}
+		});
+
+		return new ColunasArtigos(construtor);
+	}
+
+	/**
+	 * Monta as colunas com os artigos passados.
+	 *
+	 * @param artigos artigos das colunas. Artigos com o mesmo titulo so entram uma vez.
+	 *
+	 * @return as colunas dos artigos.
+	 */
+	public static ColunasArtigos de(Iterable<Artigo> artigos) {
+		final Construtor construtor = new Construtor();
+
+		for(Artigo artigo : artigos) {
+			construtor.adiciona(artigo);
+		}
+
+		return new ColunasArtigos(construtor);
+	}
+
+	/**
+	 * Getter da quantidade de artigos.
+	 *
+	 * @return quantidade de artigos distintos nas colunas.
+	 */
+	public int getQtdArtigos() {
+		return this.qtdArtigos;
+	}
+
+	/**
+	 * Getter da quantidade de autores.
+	 *
+	 * @return quantidade de autores distintos, i.e., o tamanho do dicionario de autores.
+	 */
+	public int getQtdAutores() {
+		return this.autores.nomes.size();
+	}
+
+	/**
+	 * Getter da quantidade de palavras chave.
+	 *
+	 * @return quantidade de palavras chave distintas, i.e., o tamanho do dicionario de palavras.
+	 */
+	public int getQtdPalavras() {
+		return this.palavras.nomes.size();
+	}
+
+	/**
+	 * Getter do titulo de um artigo.
+	 *
+	 * @param artigo posicao do artigo.
+	 *
+	 * @return o titulo do artigo.
+	 */
+	public String getTitulo(int artigo) {
+		final int inicio = this.iniciosTitulos[artigo];
+
+		return new String(this.titulos, inicio, this.iniciosTitulos[artigo + 1] - inicio, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Getter da data de publicacao de um artigo.
+	 *
+	 * @param artigo posicao do artigo.
+	 *
+	 * @return a data de publicacao, ou {@code null}, caso o artigo nao tenha data.
+	 */
+	public LocalDate getData(int artigo) {
+		return this.dias[artigo] == SEM_DATA ? null : LocalDate.ofEpochDay(this.dias[artigo]);
+	}
+
+	/**
+	 * Getter dos autores de um artigo.
+	 *
+	 * @param artigo posicao do artigo.
+	 *
+	 * @return os nomes dos autores do artigo.
+	 */
+	public List<String> getAutores(int artigo) {
+		return this.autores.nomes(this.idsAutores, this.iniciosAutores[artigo], this.iniciosAutores[artigo + 1]);
+	}
+
+	/**
+	 * Getter das palavras chave de um artigo.
+	 *
+	 * @param artigo posicao do artigo.
+	 *
+	 * @return as palavras chave do artigo.
+	 */
+	public List<String> getPalavras(int artigo) {
+		return this.palavras.nomes(this.idsPalavras, this.iniciosPalavras[artigo], this.iniciosPalavras[artigo + 1]);
+	}
+
+	/**
+	 * Busca o numero de um autor no dicionario.
+	 *
+	 * @param autor nome do autor.
+	 *
+	 * @return o numero do autor, ou {@code -1}, caso ele nao seja autor de nenhum artigo.
+	 */
+	public int idAutor(String autor) {
+		return this.autores.ids.getOrDefault(autor, -1);
+	}
+
+	/**
+	 * Busca o numero de uma palavra chave no dicionario.
+	 *
+	 * @param palavra palavra chave.
+	 *
+	 * @return o numero da palavra, ou {@code -1}, caso nenhum artigo tenha essa palavra.
+	 */
+	public int idPalavra(String palavra) {
+		return this.palavras.ids.getOrDefault(palavra, -1);
+	}
+
+	/**
+	 * Getter do nome de um autor do dicionario.
+	 *
+	 * @param id numero do autor.
+	 *
+	 * @return o nome do autor.
+	 */
+	public String getAutor(int id) {
+		return this.autores.nomes.get(id);
+	}
+
+	/**
+	 * Getter de uma palavra chave do dicionario.
+	 *
+	 * @param id numero da palavra.
+	 *
+	 * @return a palavra chave.
+	 */
+	public String getPalavra(int id) {
+		return this.palavras.nomes.get(id);
+	}
+
+	/**
+	 * Getter do tamanho das colunas.
+	 *
+	 * @return quantidade de bytes ocupada pelos vetores das colunas, sem os dicionarios.
+	 */
+	public long getBytesColunas() {
+		return 4L * (this.dias.length + this.iniciosTitulos.length + this.idsAutores.length + this.iniciosAutores.length
+				+ this.idsPalavras.length + this.iniciosPalavras.length) + this.titulos.length;
+	}
+
+	/**
+	 * Conta os artigos publicados em um periodo.
+	 *
+	 * @param inicio primeiro dia do periodo.
+	 * @param fim ultimo dia do periodo.
+	 *
+	 * @return a quantidade de artigos com a data de publicacao entre {@code inicio} e {@code fim}.
+	 */
+	public int conta(LocalDate inicio, LocalDate fim) {
+		return this.conta((int) inicio.toEpochDay(), (int) fim.toEpochDay());
+	}
+
+	/**
+	 * Conta os artigos publicados em um periodo, em dias desde 1970-01-01.
+	 *
+	 * @param diaInicio primeiro dia do periodo.
+	 * @param diaFim ultimo dia do periodo.
+	 *
+	 * @return a quantidade de artigos com a data de publicacao entre {@code diaInicio} e
+	 * {@code diaFim}. Os artigos sem data so sao contados caso {@code diaInicio} seja
+	 * {@link #SEM_DATA}.
+	 */
+	public int conta(int diaInicio, int diaFim) {
+		final int[] dias = this.dias;
+
+		return this.contaEmPartes(1, (int inicio, int fim, int[] contagens) -> {
+			int qtd = 0;
+
+			for(int i = inicio; i < fim; i++) {
+				final int dia = dias[i];
+				qtd += dia >= diaInicio && dia <= diaFim ? 1 : 0;
+			}
+
+			contagens[0] += qtd;
+		})[0];
+	}
+
+	/**
+	 * Conta os artigos publicados em faixas de dias consecutivas, do mesmo tamanho.
+	 *
+	 * @param diaInicio primeiro dia da primeira faixa, em dias desde 1970-01-01.
+	 * @param largura quantidade de dias de cada faixa.
+	 * @param qtdFaixas quantidade de faixas.
+	 *
+	 * @return a quantidade de artigos de cada faixa. Os artigos fora das faixas nao sao contados.
+	 *
+	 * @throws IllegalArgumentException Caso a largura ou a quantidade de faixas nao seja positiva.
+	 */
+	public int[] histograma(int diaInicio, int largura, int qtdFaixas) {
+		if(largura < 1 || qtdFaixas < 1) {
+			throw new IllegalArgumentException("O histograma precisa de pelo menos uma faixa de pelo menos um dia!!");
+		}
+
+		final int[] dias = this.dias;
+		final long diaFim = (long) diaInicio + (long) largura * qtdFaixas;
+
+		return this.contaEmPartes(qtdFaixas, (int inicio, int fim, int[] contagens) -> {
+			for(int i = inicio; i < fim; i++) {
+				final int dia = dias[i];
+
+				if(dia != SEM_DATA && dia >= diaInicio && dia < diaFim) {
+					contagens[(int) (((long) dia - diaInicio) / largura)]++;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Conta os artigos publicados em cada ano.
+	 *
+	 * @return a quantidade de artigos de cada ano, em ordem crescente de ano. Os artigos sem data
+	 * nao sao contados.
+	 */
+	public SortedMap<Integer, Integer> contaPorAno() {
+		final TreeMap<Integer, Integer> res = new TreeMap<>();
+
+		if(this.diaMinimo > this.diaMaximo) {
+			return res;
+		}
+
+		// o ano de cada dia entre o primeiro e o ultimo, para que a contagem seja so uma leitura
+		final int primeiroAno = LocalDate.ofEpochDay(this.diaMinimo).getYear();
+		final int ultimoAno = LocalDate.ofEpochDay(this.diaMaximo).getYear();
+		final int[] anos = new int[this.diaMaximo - this.diaMinimo + 1];
+		for(int ano = primeiroAno; ano <= ultimoAno; ano++) {
+			final int de = Math.max(this.diaMinimo, (int) LocalDate.of(ano, 1, 1).toEpochDay());
+			final int ate = Math.min(this.diaMaximo + 1, (int) LocalDate.of(ano + 1, 1, 1).toEpochDay());
+			Arrays.fill(anos, de - this.diaMinimo, ate - this.diaMinimo, ano - primeiroAno);
+		}
+
+		final int[] dias = this.dias;
+		final int diaMinimo = this.diaMinimo;
+		final int[] contagens = this.contaEmPartes(ultimoAno - primeiroAno + 1, (int inicio, int fim, int[] parcial) -> {
+			for(int i = inicio; i < fim; i++) {
+				final int dia = dias[i];
+
+				if(dia != SEM_DATA) {
+					parcial[anos[dia - diaMinimo]]++;
+				}
+			}
+		});
+
+		for(int i = 0; i < contagens.length; i++) {
+			if(contagens[i] != 0) {
+				res.put(primeiroAno + i, contagens[i]);
+			}
+		}
+
+		return res;
+	}
+
+	/**
+	 * Conta os artigos de cada autor.
+	 *
+	 * @return a quantidade de artigos de cada autor, na posicao do numero do autor.
+	 */
+	public int[] contaPorAutor() {
+		return this.contaPorId(this.idsAutores, this.iniciosAutores, this.getQtdAutores(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Conta os artigos de cada autor publicados em um periodo.
+	 *
+	 * @param diaInicio primeiro dia do periodo, em dias desde 1970-01-01.
+	 * @param diaFim ultimo dia do periodo.
+	 *
+	 * @return a quantidade de artigos do periodo de cada autor, na posicao do numero do autor.
+	 */
+	public int[] contaPorAutor(int diaInicio, int diaFim) {
+		return this.contaPorId(this.idsAutores, this.iniciosAutores, this.getQtdAutores(), diaInicio, diaFim);
+	}
+
+	/**
+	 * Conta os artigos de cada palavra chave.
+	 *
+	 * @return a quantidade de artigos de cada palavra, na posicao do numero da palavra.
+	 */
+	public int[] contaPorPalavra() {
+		return this.contaPorId(this.idsPalavras, this.iniciosPalavras, this.getQtdPalavras(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Conta os artigos de cada palavra chave publicados em um periodo.
+	 *
+	 * @param diaInicio primeiro dia do periodo, em dias desde 1970-01-01.
+	 * @param diaFim ultimo dia do periodo.
+	 *
+	 * @return a quantidade de artigos do periodo de cada palavra, na posicao do numero da palavra.
+	 */
+	public int[] contaPorPalavra(int diaInicio, int diaFim) {
+		return this.contaPorId(this.idsPalavras, this.iniciosPalavras, this.getQtdPalavras(), diaInicio, diaFim);
+	}
+
+	/**
+	 * Busca os autores com mais artigos.
+	 *
+	 * @param k quantidade de autores devolvidos.
+	 *
+	 * @return ate {@code k} autores e as suas quantidades de artigos, da maior para a menor. Autores
+	 * com a mesma quantidade ficam em ordem alfabetica.
+	 */
+	public List<Map.Entry<String, Integer>> autoresMaisFrequentes(int k) {
+		return maisFrequentes(this.contaPorAutor(), this.autores, k);
+	}
+
+	/**
+	 * Busca as palavras chave com mais artigos.
+	 *
+	 * @param k quantidade de palavras devolvidas.
+	 *
+	 * @return ate {@code k} palavras e as suas quantidades de artigos, da maior para a menor.
+	 * Palavras com a mesma quantidade ficam em ordem alfabetica.
+	 */
+	public List<Map.Entry<String, Integer>> palavrasMaisFrequentes(int k) {
+		return maisFrequentes(this.contaPorPalavra(), this.palavras, k);
+	}
+
+	/**
+	 * Conta os artigos de cada numero de uma coluna de numeros do dicionario.
+	 *
+	 * @param ids numeros de todos os artigos.
+	 * @param inicios posicao onde comecam os numeros de cada artigo.
+	 * @param qtdIds tamanho do dicionario.
+	 * @param diaInicio primeiro dia dos artigos contados.
+	 * @param diaFim ultimo dia dos artigos contados.
+	 *
+	 * @return a quantidade de artigos de cada numero.
+	 */
+	private int[] contaPorId(int[] ids, int[] inicios, int qtdIds, int diaInicio, int diaFim) {
+		final int[] dias = this.dias;
+
+		return this.contaEmPartes(qtdIds, (int inicio, int fim, int[] contagens) -> {
+			for(int i = inicio; i < fim; i++) {
+				final int dia = dias[i];
+
+				if(dia >= diaInicio && dia <= diaFim) {
+					for(int j = inicios[i]; j < inicios[i + 1]; j++) {
+						contagens[ids[j]]++;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Divide os artigos em partes de {@link #TAMANHO_PARTE} artigos e conta as partes em paralelo,
+	 * cada uma no seu vetor de contagens.
+	 *
+	 * @param qtdGrupos tamanho do vetor de contagens.
+	 * @param contagem funcao que conta os artigos de uma parte.
+	 *
+	 * @return a soma das contagens de todas as partes.
+	 */
+	private int[] contaEmPartes(int qtdGrupos, Contagem contagem) {
+		final int qtdPartes = (this.qtdArtigos + TAMANHO_PARTE - 1) / TAMANHO_PARTE;
+
+		if(qtdPartes <= 1) {
+			final int[] contagens = new int[qtdGrupos];
+			contagem.conta(0, this.qtdArtigos, contagens);
+			return contagens;
+		}
+
+		return IntStream.range(0, qtdPartes).parallel().mapToObj((int parte) -> {
+			final int[] contagens = new int[qtdGrupos];
+			contagem.conta(parte * TAMANHO_PARTE, Math.min(this.qtdArtigos, (parte + 1) * TAMANHO_PARTE), contagens);
+			return contagens;
+		}).reduce((int[] a, int[] b) -> {
+			// cada vetor e de uma parte so, entao um deles pode guardar a soma
+			for(int i = 0; i < a.length; i++) {
+				a[i] += b[i];
+			}
+			return a;
+		}).get();
+	}
+
+	/**
+	 * Busca os {@code k} numeros com as maiores contagens.
+	 *
+	 * @param contagens contagem de cada numero.
+	 * @param dicionario dicionario dos numeros.
+	 * @param k quantidade de numeros devolvidos.
+	 *
+	 * @return ate {@code k} nomes e as suas contagens, da maior para a menor. Os numeros com contagem
+	 * zero nao sao devolvidos.
+	 */
+	private static List<Map.Entry<String, Integer>> maisFrequentes(int[] contagens, Dicionario dicionario, int k) {
+		// o heap guarda os k melhores, com o pior no topo
+		final PriorityQueue<Integer> melhores = new PriorityQueue<>((Integer a, Integer b) -> contagens[a] != contagens[b]
+				? Integer.compare(contagens[a], contagens[b]) : dicionario.nomes.get(b).compareTo(dicionario.nomes.get(a)));
+
+		for(int id = 0; id < contagens.length && k > 0; id++) {
+			if(contagens[id] == 0) {
+				continue;
+			}
+
+			if(melhores.size() < k) {
+				melhores.add(id);
+			} else if(melhores.comparator().compare(id, melhores.peek()) > 0) {
+				melhores.poll();
+				melhores.add(id);
+			}
+		}
+
+		final ArrayList<Map.Entry<String, Integer>> res = new ArrayList<>(melhores.size());
+		while(!melhores.isEmpty()) {
+			final int id = melhores.poll();
+			res.add(new AbstractMap.SimpleImmutableEntry<>(dicionario.nomes.get(id), contagens[id]));
+		}
+
+		// o heap devolve do pior para o melhor
+		Collections.reverse(res);
+		return res;
+	}
+
+	/**
+	 * Funcao que conta os artigos de uma parte.
+	 */
+	@FunctionalInterface
+	private interface Contagem {
+		/**
+		 * Conta os artigos de {@code inicio} ate {@code fim}, exclusive.
+		 */
+		void conta(int inicio, int fim, int[] contagens);
+	}
+
+	/**
+	 * Dicionario que troca nomes por numeros, na ordem em que os nomes aparecem.
+	 */
+	private static class Dicionario {
+		private final ArrayList<String> nomes = new ArrayList<>();
+		private final HashMap<String, Integer> ids = new HashMap<>();
+
+		private int id(String nome) {
+			Integer id = this.ids.get(nome);
+
+			if(id == null) {
+				id = this.nomes.size();
+				this.nomes.add(nome);
+				this.ids.put(nome, id);
+			}
+
+			return id;
+		}
+
+		private List<String> nomes(int[] ids, int inicio, int fim) {
+			final ArrayList<String> res = new ArrayList<>(fim - inicio);
+
+			for(int i = inicio; i < fim; i++) {
+				res.add(this.nomes.get(ids[i]));
+			}
+
+			return res;
+		}
+	}
+
+	/**
+	 * Montador das colunas, com vetores que crescem conforme os artigos sao adicionados.
+	 */
+	private static class Construtor {
+		private final HashSet<Artigo> vistos = new HashSet<>();
+		private int qtdArtigos = 0;
+		private int[] dias = new int[1024];
+
+		private byte[] titulos = new byte[16 * 1024];
+		private int tamanhoTitulos = 0;
+		private int[] iniciosTitulos = new int[1025];
+
+		private int[] idsAutores = new int[1024];
+		private int qtdAutores = 0;
+		private int[] iniciosAutores = new int[1025];
+		private final Dicionario autores = new Dicionario();
+
+		private int[] idsPalavras = new int[1024];
+		private int qtdPalavras = 0;
+		private int[] iniciosPalavras = new int[1025];
+		private final Dicionario palavras = new Dicionario();
+
+		/**
+		 * Adiciona um artigo, caso nenhum artigo com o mesmo titulo tenha sido adicionado.
+		 */
+		private void adiciona(Artigo artigo) {
+			if(!this.vistos.add(artigo)) {
+				return;
+			}
+
+			if(this.qtdArtigos == this.dias.length) {
+				this.dias = Arrays.copyOf(this.dias, 2 * this.dias.length);
+				this.iniciosTitulos = Arrays.copyOf(this.iniciosTitulos, this.dias.length + 1);
+				this.iniciosAutores = Arrays.copyOf(this.iniciosAutores, this.dias.length + 1);
+				this.iniciosPalavras = Arrays.copyOf(this.iniciosPalavras, this.dias.length + 1);
+			}
+
+			final int i = this.qtdArtigos++;
+			this.dias[i] = artigo.getDataPublicacao() == null ? SEM_DATA : (int) artigo.getDataPublicacao().toEpochDay();
+
+			final byte[] titulo = artigo.getTitulo() == null ? new byte[0] : artigo.getTitulo().getBytes(StandardCharsets.UTF_8);
+			if(this.tamanhoTitulos + titulo.length > this.titulos.length) {
+				this.titulos = Arrays.copyOf(this.titulos, Math.max(2 * this.titulos.length, this.tamanhoTitulos + titulo.length));
+			}
+			System.arraycopy(titulo, 0, this.titulos, this.tamanhoTitulos, titulo.length);
+			this.tamanhoTitulos += titulo.length;
+			this.iniciosTitulos[i + 1] = this.tamanhoTitulos;
+
+			for(String autor : artigo.getAutores()) {
+				if(this.qtdAutores == this.idsAutores.length) {
+					this.idsAutores = Arrays.copyOf(this.idsAutores, 2 * this.idsAutores.length);
+				}
+				this.idsAutores[this.qtdAutores++] = this.autores.id(autor);
+			}
+			this.iniciosAutores[i + 1] = this.qtdAutores;
+
+			for(String palavra : artigo.getPalavrasChave()) {
+				if(this.qtdPalavras == this.idsPalavras.length) {
+					this.idsPalavras = Arrays.copyOf(this.idsPalavras, 2 * this.idsPalavras.length);
+				}
+				this.idsPalavras[this.qtdPalavras++] = this.palavras.id(palavra);
+			}
+			this.iniciosPalavras[i + 1] = this.qtdPalavras;
+		}
+	}
+}
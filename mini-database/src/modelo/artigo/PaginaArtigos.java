@@ -0,0 +1,397 @@
+package modelo.artigo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import banco.CodecRegistro;
+import banco.MiniBD;
+import banco.VisaoBanco;
+
+/**
+ * Pagina dos artigos de uma palavra chave. Palavras chave muito usadas tem listas de artigos
+ * enormes, entao ao inves de decodificar a palavra inteira, a busca devolve so uma pagina dos
+ * artigos e um token para continuar de onde ela parou.
+ *
+ * </p>A pagina e lida direto dos bytes que o {@link CodecPalavraChave} guardou no banco: os
+ * artigos antes da pagina sao pulados sem ser montados, e so os artigos da pagina sao
+ * decodificados. O token guarda a palavra, a posicao da proxima pagina, o deslocamento em bytes
+ * do ultimo artigo devolvido e o titulo dele, entao a proxima pagina comeca direto nesse
+ * deslocamento, e uma pagina do fim da lista custa o mesmo que a primeira.
+ *
+ * </p>Caso a palavra chave tenha mudado entre as paginas, o artigo no deslocamento do token nao
+ * tem mais o titulo guardado, e a busca procura o titulo na lista para continuar logo depois
+ * dele. Se o artigo foi removido, a busca continua da mesma posicao.
+ *
+ * @see CodecPalavraChave
+ */
+public class PaginaArtigos {
+	private final String palavra;
+	private final List<Artigo> artigos;
+	private final int inicio;
+	private final int qtdTotal;
+	private final String token;
+
+	private PaginaArtigos(String palavra, List<Artigo> artigos, int inicio, int qtdTotal, String token) {
+		this.palavra = palavra;
+		this.artigos = Collections.unmodifiableList(artigos);
+		this.inicio = inicio;
+		this.qtdTotal = qtdTotal;
+		this.token = token;
+	}
+
+	/**
+	 * Busca a primeira pagina dos artigos de uma palavra chave.
+	 *
+	 * @param banco banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param palavra palavra chave buscada.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @return a primeira pagina, ou {@code null}, caso a palavra nao esteja no banco.
+	 *
+	 * @throws IllegalArgumentException Caso o banco nao use o {@link CodecPalavraChave}, ou caso
+	 * o tamanho da pagina nao seja positivo.
+	 */
+	public static PaginaArtigos busca(MiniBD<PalavraChave, String> banco, String palavra, int tamanhoPagina) {
+		return busca(banco.getCodec(), banco::buscaCodificado, palavra, tamanhoPagina);
+	}
+
+	/**
+	 * Busca a primeira pagina dos artigos de uma palavra chave em uma visao do banco.
+	 *
+	 * @param visao visao do banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param palavra palavra chave buscada.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @return a primeira pagina, ou {@code null}, caso a palavra nao esteja na visao.
+	 *
+	 * @throws IllegalArgumentException Caso o banco nao use o {@link CodecPalavraChave}, ou caso
+	 * o tamanho da pagina nao seja positivo.
+	 */
+	public static PaginaArtigos busca(VisaoBanco<PalavraChave, String> visao, String palavra, int tamanhoPagina) {
+		return busca(visao.getCodec(), visao::buscaCodificado, palavra, tamanhoPagina);
+	}
+
+	/**
+	 * Busca a primeira pagina dos artigos de uma palavra chave.
+	 *
+	 * @param codec codec do banco.
+	 * @param buscaCodificado funcao que busca os bytes de uma palavra chave no banco.
+	 * @param palavra palavra chave buscada.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @return a primeira pagina, ou {@code null}, caso a palavra nao esteja no banco.
+	 */
+	private static PaginaArtigos busca(CodecRegistro<PalavraChave> codec, Function<String, byte[]> buscaCodificado, String palavra,
+			int tamanhoPagina) {
+		verifica(codec, tamanhoPagina);
+
+		final byte[] bytes = buscaCodificado.apply(palavra);
+
+		if(bytes == null) {
+			return null;
+		}
+
+		try {
+			final Leitor leitor = new Leitor(bytes, 0);
+			leitor.leitor.readUTF();
+			final int qtdTotal = leitor.leitor.readInt();
+
+			return leitor.lePagina(palavra, 0, qtdTotal, tamanhoPagina);
+		} catch (IOException e) {
+			throw new RuntimeException("Erro ao ler os artigos da palavra " + palavra + ".", e);
+		}
+	}
+
+	/**
+	 * Busca a pagina que vem depois da pagina de um token.
+	 *
+	 * @param banco banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param token token devolvido por {@link #getToken()}.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @return a proxima pagina, ou {@code null}, caso a palavra tenha sido removida do banco.
+	 *
+	 * @throws IllegalArgumentException Caso o token seja invalido, caso o banco nao use o
+	 * {@link CodecPalavraChave}, ou caso o tamanho da pagina nao seja positivo.
+	 */
+	public static PaginaArtigos continua(MiniBD<PalavraChave, String> banco, String token, int tamanhoPagina) {
+		return continua(banco.getCodec(), banco::buscaCodificado, token, tamanhoPagina);
+	}
+
+	/**
+	 * Busca, em uma visao do banco, a pagina que vem depois da pagina de um token.
+	 *
+	 * @param visao visao do banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param token token devolvido por {@link #getToken()}.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @return a proxima pagina, ou {@code null}, caso a palavra nao esteja na visao.
+	 *
+	 * @throws IllegalArgumentException Caso o token seja invalido, caso o banco nao use o
+	 * {@link CodecPalavraChave}, ou caso o tamanho da pagina nao seja positivo.
+	 */
+	public static PaginaArtigos continua(VisaoBanco<PalavraChave, String> visao, String token, int tamanhoPagina) {
+		return continua(visao.getCodec(), visao::buscaCodificado, token, tamanhoPagina);
+	}
+
+	/**
+	 * Busca a pagina que vem depois da pagina de um token.
+	 *
+	 * @param codec codec do banco.
+	 * @param buscaCodificado funcao que busca os bytes de uma palavra chave no banco.
+	 * @param token token devolvido por {@link #getToken()}.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @return a proxima pagina, ou {@code null}, caso a palavra nao esteja no banco.
+	 */
+	private static PaginaArtigos continua(CodecRegistro<PalavraChave> codec, Function<String, byte[]> buscaCodificado, String token,
+			int tamanhoPagina) {
+		verifica(codec, tamanhoPagina);
+
+		final String palavra;
+		final int posicao;
+		final int deslocamento;
+		final String ultimoTitulo;
+
+		try {
+			final DataInputStream dados = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+
+			palavra = dados.readUTF();
+			posicao = dados.readInt();
+			deslocamento = dados.readInt();
+			ultimoTitulo = dados.readBoolean() ? dados.readUTF() : null;
+
+			if(posicao < 1 || deslocamento < 0 || dados.available() != 0) {
+				throw new IOException("Campos invalidos no token.");
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			throw new IllegalArgumentException("Token de pagina invalido!!", e);
+		}
+
+		final byte[] bytes = buscaCodificado.apply(palavra);
+
+		if(bytes == null) {
+			return null;
+		}
+
+		try {
+			Leitor leitor = new Leitor(bytes, 0);
+			leitor.leitor.readUTF();
+			final int qtdTotal = leitor.leitor.readInt();
+			final int inicioArtigos = leitor.deslocamento();
+
+			// caminho comum: a palavra nao mudou, e o ultimo artigo continua no mesmo lugar
+			if(posicao <= qtdTotal && deslocamento >= inicioArtigos && deslocamento < bytes.length) {
+				final Leitor direto = new Leitor(bytes, deslocamento);
+
+				if(direto.pulaTitulo(ultimoTitulo)) {
+					return direto.lePagina(palavra, posicao, qtdTotal, tamanhoPagina);
+				}
+			}
+
+			// a palavra mudou, entao o ultimo artigo e procurado pelo titulo
+			for(int i = 0; i < qtdTotal; i++) {
+				if(Objects.equals(CodecPalavraChave.pulaArtigo(leitor.leitor), ultimoTitulo)) {
+					return leitor.lePagina(palavra, i + 1, qtdTotal, tamanhoPagina);
+				}
+			}
+
+			// o ultimo artigo foi removido, entao os seguintes andaram uma posicao para tras
+			leitor = new Leitor(bytes, inicioArtigos);
+			final int inicio = Math.min(posicao - 1, qtdTotal);
+			for(int i = 0; i < inicio; i++) {
+				CodecPalavraChave.pulaArtigo(leitor.leitor);
+			}
+
+			return leitor.lePagina(palavra, inicio, qtdTotal, tamanhoPagina);
+		} catch (IOException e) {
+			throw new RuntimeException("Erro ao ler os artigos da palavra " + palavra + ".", e);
+		}
+	}
+
+	/**
+	 * Verifica se o banco e o tamanho da pagina podem ser usados em uma busca.
+	 *
+	 * @param codec codec do banco de palavras chave.
+	 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+	 *
+	 * @throws IllegalArgumentException Caso o banco nao use o {@link CodecPalavraChave}, ou caso
+	 * o tamanho da pagina nao seja positivo.
+	 */
+	private static void verifica(CodecRegistro<PalavraChave> codec, int tamanhoPagina) {
+		if(!(codec instanceof CodecPalavraChave)) {
+			throw new IllegalArgumentException("O banco deve usar o CodecPalavraChave para ser paginado!!");
+		}
+
+		if(tamanhoPagina < 1) {
+			throw new IllegalArgumentException("A pagina deve ter pelo menos um artigo!!");
+		}
+	}
+
+	/**
+	 * Getter da palavra chave da pagina.
+	 *
+	 * @return a palavra chave buscada.
+	 */
+	public String getPalavra() {
+		return this.palavra;
+	}
+
+	/**
+	 * Getter dos artigos da pagina.
+	 *
+	 * @return uma lista nao modificavel com os artigos da pagina.
+	 */
+	public List<Artigo> getArtigos() {
+		return this.artigos;
+	}
+
+	/**
+	 * Getter da posicao do primeiro artigo da pagina na lista de artigos da palavra chave.
+	 *
+	 * @return a posicao do primeiro artigo da pagina, comecando do 0.
+	 */
+	public int getInicio() {
+		return this.inicio;
+	}
+
+	/**
+	 * Getter da quantidade de artigos da palavra chave.
+	 *
+	 * @return a quantidade de artigos da palavra chave quando a pagina foi lida.
+	 */
+	public int getQtdTotal() {
+		return this.qtdTotal;
+	}
+
+	/**
+	 * Diz se existem artigos depois dessa pagina.
+	 *
+	 * @return {@code true} caso exista uma proxima pagina, {@code false} caso contrario.
+	 */
+	public boolean temProxima() {
+		return this.token != null;
+	}
+
+	/**
+	 * Getter do token da proxima pagina, que deve ser passado para
+	 * {@link #continua(MiniBD, String, int)} ou {@link #continua(VisaoBanco, String, int)}.
+	 *
+	 * @return o token da proxima pagina, ou {@code null}, caso essa seja a ultima pagina.
+	 */
+	public String getToken() {
+		return this.token;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder res = new StringBuilder();
+
+		res.append(this.palavra + ": artigos " + (this.inicio + 1) + " a " + (this.inicio + this.artigos.size()) + " de " + this.qtdTotal);
+
+		for(Artigo a : this.artigos) {
+			res.append("\n" + a);
+		}
+
+		return res.toString();
+	}
+
+	/**
+	 * Leitor dos artigos de uma palavra chave codificada, que sabe o deslocamento em bytes em
+	 * que esta.
+	 */
+	private static class Leitor {
+		private final ByteArrayInputStream bytes;
+		private final DataInputStream leitor;
+		private final int tamanho;
+
+		/**
+		 * Constroi um leitor posicionado em um deslocamento dos bytes.
+		 *
+		 * @param bytes bytes da palavra chave.
+		 * @param deslocamento deslocamento de onde a leitura comeca.
+		 */
+		private Leitor(byte[] bytes, int deslocamento) {
+			this.bytes = new ByteArrayInputStream(bytes, deslocamento, bytes.length - deslocamento);
+			this.leitor = new DataInputStream(this.bytes);
+			this.tamanho = bytes.length;
+		}
+
+		/**
+		 * Getter do deslocamento atual.
+		 *
+		 * @return o deslocamento, em bytes, do proximo byte que sera lido.
+		 */
+		private int deslocamento() {
+			return this.tamanho - this.bytes.available();
+		}
+
+		/**
+		 * Pula o artigo da posicao atual, caso ele tenha o titulo esperado.
+		 *
+		 * @param titulo titulo esperado.
+		 *
+		 * @return {@code true} caso o artigo tenha o titulo e tenha sido pulado, {@code false}
+		 * caso contrario, inclusive quando os bytes nao sao o comeco de um artigo.
+		 */
+		private boolean pulaTitulo(String titulo) {
+			try {
+				return Objects.equals(CodecPalavraChave.pulaArtigo(this.leitor), titulo);
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Le os artigos de uma pagina a partir da posicao atual.
+		 *
+		 * @param palavra palavra chave lida.
+		 * @param inicio posicao do artigo atual na lista de artigos.
+		 * @param qtdTotal quantidade de artigos da palavra chave.
+		 * @param tamanhoPagina quantidade maxima de artigos da pagina.
+		 *
+		 * @return a pagina lida.
+		 *
+		 * @throws IOException Caso ocorra algum erro na leitura.
+		 */
+		private PaginaArtigos lePagina(String palavra, int inicio, int qtdTotal, int tamanhoPagina) throws IOException {
+			final int fim = (int) Math.min((long) inicio + tamanhoPagina, qtdTotal);
+			final ArrayList<Artigo> artigos = new ArrayList<>(fim - inicio);
+			int ultimoDeslocamento = -1;
+
+			for(int i = inicio; i < fim; i++) {
+				ultimoDeslocamento = this.deslocamento();
+				artigos.add(CodecPalavraChave.leArtigo(this.leitor));
+			}
+
+			if(fim == qtdTotal) {
+				return new PaginaArtigos(palavra, artigos, inicio, qtdTotal, null);
+			}
+
+			// uma pagina que nao e a ultima sempre tem pelo menos um artigo
+			final String ultimoTitulo = artigos.get(artigos.size() - 1).getTitulo();
+			final ByteArrayOutputStream token = new ByteArrayOutputStream();
+			final DataOutputStream escritor = new DataOutputStream(token);
+
+			escritor.writeUTF(palavra);
+			escritor.writeInt(fim);
+			escritor.writeInt(ultimoDeslocamento);
+			escritor.writeBoolean(ultimoTitulo != null);
+			if(ultimoTitulo != null) {
+				escritor.writeUTF(ultimoTitulo);
+			}
+			escritor.flush();
+
+			return new PaginaArtigos(palavra, artigos, inicio, qtdTotal, Base64.getUrlEncoder().withoutPadding().encodeToString(token.toByteArray()));
+		}
+	}
+}
@@ -36,8 +36,11 @@ public class PalavraChave implements Serializable {
 		this.palavra = palavra;
 		this.artigos = new ArrayList<>();
 		
-		for(Artigo a : artigos) {
-			this.addArtigo(a);
+		// o construtor sem lista de artigos passa null
+		if(artigos != null) {
+			for(Artigo a : artigos) {
+				this.addArtigo(a);
+			}
 		}
 	}
 	
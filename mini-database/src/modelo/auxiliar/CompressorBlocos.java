@@ -0,0 +1,122 @@
+package modelo.auxiliar;
+
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Classe com os metodos que comprimem/descomprimem os blocos dos arquivos do banco, usando o
+ * algoritmo deflate ({@link Deflater}). Cada bloco e comprimido sozinho, entao blocos diferentes
+ * podem ser comprimidos e descomprimidos em paralelo.
+ */
+public final class CompressorBlocos {
+	/**
+	 * Nivel que indica que os blocos nao sao comprimidos.
+	 */
+	public static final int SEM_COMPRESSAO = 0;
+
+	/**
+	 * Nivel mais rapido de compressao.
+	 */
+	public static final int NIVEL_MINIMO = Deflater.BEST_SPEED;
+
+	/**
+	 * Nivel com a maior compressao.
+	 */
+	public static final int NIVEL_MAXIMO = Deflater.BEST_COMPRESSION;
+
+	private CompressorBlocos() {
+	}
+
+	/**
+	 * Verifica se um nivel de compressao e valido.
+	 *
+	 * @param nivel nivel de compressao.
+	 *
+	 * @throws IllegalArgumentException Caso o nivel nao seja {@link #SEM_COMPRESSAO} nem esteja
+	 * entre {@link #NIVEL_MINIMO} e {@link #NIVEL_MAXIMO}.
+	 */
+	public static void validaNivel(int nivel) {
+		if(nivel != SEM_COMPRESSAO && (nivel < NIVEL_MINIMO || nivel > NIVEL_MAXIMO)) {
+			throw new IllegalArgumentException("O nivel de compressao deve estar entre " + SEM_COMPRESSAO
+					+ " e " + NIVEL_MAXIMO + "!!");
+		}
+	}
+
+	/**
+	 * Comprime um bloco.
+	 *
+	 * @param bloco bytes do bloco.
+	 * @param nivel nivel de compressao, entre {@link #NIVEL_MINIMO} e {@link #NIVEL_MAXIMO}.
+	 *
+	 * @return os bytes comprimidos.
+	 */
+	public static byte[] comprime(byte[] bloco, int nivel) {
+		final Deflater deflater = new Deflater(nivel, true);
+
+		try {
+			deflater.setInput(bloco);
+			deflater.finish();
+
+			// blocos que nao comprimem ficam um pouco maiores que o original
+			byte[] saida = new byte[bloco.length + bloco.length / 1000 + 64];
+			int tamanho = 0;
+
+			while(!deflater.finished()) {
+				if(tamanho == saida.length) {
+					saida = Arrays.copyOf(saida, 2 * saida.length);
+				}
+
+				tamanho += deflater.deflate(saida, tamanho, saida.length - tamanho);
+			}
+
+			return Arrays.copyOf(saida, tamanho);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Descomprime um bloco.
+	 *
+	 * @param comprimido bytes comprimidos.
+	 * @param tamanhoOriginal tamanho do bloco antes da compressao.
+	 *
+	 * @return os bytes do bloco.
+	 *
+	 * @throws StreamCorruptedException Caso os bytes nao sejam um bloco comprimido com o tamanho
+	 * passado.
+	 */
+	public static byte[] descomprime(byte[] comprimido, int tamanhoOriginal) throws StreamCorruptedException {
+		final Inflater inflater = new Inflater(true);
+
+		try {
+			final byte[] bloco = new byte[tamanhoOriginal];
+			int tamanho = 0;
+
+			inflater.setInput(comprimido);
+
+			while(tamanho < tamanhoOriginal && !inflater.finished()) {
+				final int lidos = inflater.inflate(bloco, tamanho, tamanhoOriginal - tamanho);
+
+				if(lidos == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				tamanho += lidos;
+			}
+
+			if(tamanho != tamanhoOriginal) {
+				throw new StreamCorruptedException("o bloco comprimido tem um tamanho diferente do esperado.");
+			}
+
+			return bloco;
+		} catch (DataFormatException e) {
+			throw new StreamCorruptedException("o bloco comprimido e invalido.");
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package modelo.auxiliar;
+
+import java.util.SplittableRandom;
+
+/**
+ * Classe que sorteia numeros em {@code [0, n)} seguindo uma distribuicao de Zipf, i.e., o
+ * numero {@code i} e sorteado com probabilidade proporcional a {@code 1/(i+1)^s}. Com o
+ * expoente {@code s} perto de 1, poucos numeros concentram a maior parte dos sorteios, como
+ * acontece com as palavras de um texto real. Com o expoente 0 a distribuicao e uniforme.
+ *
+ * </p>O sorteio usa o metodo de rejeicao-inversao de Hormann e Derflinger, que nao precisa
+ * de nenhuma tabela com as probabilidades, entao ele usa memoria constante e nao aloca nada
+ * por sorteio, qualquer que seja o tamanho de {@code n}. A classe e imutavel e pode ser usada
+ * por varias threads ao mesmo tempo, desde que cada uma tenha o seu gerador aleatorio.
+ */
+public class DistribuicaoZipf {
+	/**
+	 * Quantidade de numeros que podem ser sorteados.
+	 */
+	private final int n;
+
+	/**
+	 * Expoente da distribuicao.
+	 */
+	private final double expoente;
+
+	// constantes do metodo de rejeicao-inversao, calculadas uma vez so
+	private final double hIntegralX1;
+	private final double hIntegralN;
+	private final double limiteAceite;
+
+	/**
+	 * Constroi uma distribuicao de Zipf sobre {@code [0, n)}.
+	 *
+	 * @param n quantidade de numeros que podem ser sorteados. Deve ser positivo.
+	 * @param expoente expoente da distribuicao. Deve ser maior ou igual a zero.
+	 */
+	public DistribuicaoZipf(int n, double expoente) {
+		if(n < 1) {
+			throw new IllegalArgumentException("A distribuicao precisa de pelo menos um numero!!");
+		}
+
+		if(expoente < 0) {
+			throw new IllegalArgumentException("O expoente da distribuicao nao pode ser negativo!!");
+		}
+
+		this.n = n;
+		this.expoente = expoente;
+		this.hIntegralX1 = this.hIntegral(1.5) - 1.0;
+		this.hIntegralN = this.hIntegral(n + 0.5);
+		this.limiteAceite = 2 - this.hIntegralInversa(this.hIntegral(2.5) - this.h(2));
+	}
+
+	/**
+	 * Getter da quantidade de numeros da distribuicao.
+	 *
+	 * @return quantidade de numeros que podem ser sorteados.
+	 */
+	public int getN() {
+		return this.n;
+	}
+
+	/**
+	 * Getter do expoente da distribuicao.
+	 *
+	 * @return expoente da distribuicao.
+	 */
+	public double getExpoente() {
+		return this.expoente;
+	}
+
+	/**
+	 * Sorteia um numero.
+	 *
+	 * @param rng gerador aleatorio usado no sorteio.
+	 *
+	 * @return um numero em {@code [0, n)}.
+	 */
+	public int amostra(SplittableRandom rng) {
+		if(this.expoente == 0) {
+			return rng.nextInt(this.n);
+		}
+
+		while(true) {
+			// u e uniforme em (hIntegral(1.5) - 1, hIntegral(n + 0.5)]
+			final double u = this.hIntegralN + rng.nextDouble() * (this.hIntegralX1 - this.hIntegralN);
+			final double x = this.hIntegralInversa(u);
+			int k = (int) (x + 0.5);
+
+			if(k < 1) {
+				k = 1;
+			} else if(k > this.n) {
+				k = this.n;
+			}
+
+			// aceita k direto quando ele esta perto de x, ou quando u cai na area de k
+			if(k - x <= this.limiteAceite || u >= this.hIntegral(k + 0.5) - this.h(k)) {
+				return k - 1;
+			}
+		}
+	}
+
+	/**
+	 * Funcao {@code h(x) = 1/x^s}, que e proporcional a probabilidade de {@code x}.
+	 */
+	private double h(double x) {
+		return Math.exp(-this.expoente * Math.log(x));
+	}
+
+	/**
+	 * Integral de {@code h}, escrita de um jeito que funciona tambem para {@code s = 1}.
+	 */
+	private double hIntegral(double x) {
+		final double logX = Math.log(x);
+		return auxiliar2((1 - this.expoente) * logX) * logX;
+	}
+
+	/**
+	 * Inversa de {@link #hIntegral(double)}.
+	 */
+	private double hIntegralInversa(double x) {
+		double t = x * (1 - this.expoente);
+
+		if(t < -1) {
+			// evita erros de arredondamento perto do limite
+			t = -1;
+		}
+
+		return Math.exp(auxiliar1(t) * x);
+	}
+
+	/**
+	 * {@code log(1 + x)/x}, com uma serie de Taylor perto de zero.
+	 */
+	private static double auxiliar1(double x) {
+		if(Math.abs(x) > 1e-8) {
+			return Math.log1p(x) / x;
+		} else {
+			return 1 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+		}
+	}
+
+	/**
+	 * {@code (exp(x) - 1)/x}, com uma serie de Taylor perto de zero.
+	 */
+	private static double auxiliar2(double x) {
+		if(Math.abs(x) > 1e-8) {
+			return Math.expm1(x) / x;
+		} else {
+			return 1 + x * 0.5 * (1 + x * 1.0 / 3.0 * (1 + 0.25 * x));
+		}
+	}
+}
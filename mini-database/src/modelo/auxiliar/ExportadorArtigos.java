@@ -0,0 +1,84 @@
+package modelo.auxiliar;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import banco.ExportadorBanco;
+import banco.MiniBD;
+import banco.VisaoBanco;
+import modelo.artigo.Artigo;
+import modelo.artigo.PalavraChave;
+
+/**
+ * Classe que exporta os artigos de um banco de palavras chave para um arquivo texto em um
+ * dos formatos aceitos pelo {@link ImportadorArtigos}.
+ *
+ * </p>Um artigo aparece na lista de todas as suas palavras chave, mas ele so e escrito uma
+ * vez: junto com a menor das suas palavras chave que esta no banco. Assim, nenhum conjunto de
+ * artigos ja escritos precisa ser guardado e a memoria usada nao depende do tamanho do banco.
+ *
+ * @see banco.ExportadorBanco
+ */
+public class ExportadorArtigos {
+	/**
+	 * Banco que sera exportado.
+	 */
+	private MiniBD<PalavraChave, String> banco;
+
+	/**
+	 * Constroi um exportador para o banco passado.
+	 *
+	 * @param banco banco que sera exportado.
+	 */
+	public ExportadorArtigos(MiniBD<PalavraChave, String> banco) {
+		this.banco = banco;
+	}
+
+	/**
+	 * Exporta os artigos do banco, em ordem de palavra chave.
+	 *
+	 * @param destino arquivo onde os artigos serao escritos.
+	 * @param formato formato do arquivo.
+	 *
+	 * @return quantidade de palavras chave percorridas que tinham algum artigo para escrever.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	public long exporta(Path destino, FormatoArtigo formato) throws IOException {
+		// as palavras do artigo sao procuradas na mesma visao que esta sendo exportada
+		final VisaoBanco<PalavraChave, String> visao = this.banco.abreVisao();
+		final ExportadorBanco<PalavraChave, String> exportador = new ExportadorBanco<>(visao);
+
+		return exportador.exportaTexto(destino, (PalavraChave pc) -> {
+			final StringBuilder linhas = new StringBuilder();
+
+			for(Artigo a : pc.getArtigos()) {
+				if(ehDonoDoArtigo(visao, pc.getPalavra(), a)) {
+					linhas.append(linhas.length() == 0 ? "" : "\n").append(formato.formata(a));
+				}
+			}
+
+			return linhas.length() == 0 ? null : linhas.toString();
+		});
+	}
+
+	/**
+	 * Verifica se uma palavra e a menor palavra chave do artigo que esta no banco, i.e., se o
+	 * artigo deve ser escrito junto com ela.
+	 *
+	 * @param visao visao do banco que esta sendo exportada.
+	 * @param palavra palavra chave que esta sendo exportada.
+	 * @param artigo artigo da lista dessa palavra.
+	 *
+	 * @return {@code true} caso o artigo deva ser escrito junto com a palavra.
+	 */
+	private static boolean ehDonoDoArtigo(VisaoBanco<PalavraChave, String> visao, String palavra, Artigo artigo) {
+		for(String outra : artigo.getPalavrasChave()) {
+			if(outra.compareTo(palavra) < 0 && visao.contem(outra)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,517 @@
+package modelo.auxiliar;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import modelo.artigo.Artigo;
+
+/**
+ * Formatos de arquivo texto com um artigo por registro.
+ *
+ * </p>No formato {@code CSV} cada registro tem os campos {@code titulo,autores,palavrasChave,dataPublicacao,link},
+ * separados por virgula. As listas de autores e de palavras chave sao separadas por {@code |}, e um
+ * {@code |} ou uma {@code \} dentro de um item sao escritos como {@code \|} e {@code \\}. A data esta no
+ * formato {@code aaaa-mm-dd}. Campos com virgulas, aspas ou quebras de linha devem estar entre aspas, com as
+ * aspas internas duplicadas, e campos vazios representam valores desconhecidos. Um registro ocupa uma linha,
+ * a menos que um campo entre aspas tenha quebras de linha: nesse caso, ele continua nas linhas seguintes,
+ * ate as aspas serem fechadas (veja {@link #registroIncompleto(CharSequence)}).
+ *
+ * </p>No formato {@code JSON_LINHAS} cada registro e uma linha com um objeto JSON com as chaves {@code titulo}, {@code autores},
+ * {@code palavrasChave}, {@code dataPublicacao} e {@code link}. As listas sao arrays de strings e os outros
+ * campos sao strings ou {@code null}.
+ */
+public enum FormatoArtigo {
+	CSV, JSON_LINHAS;
+
+	/**
+	 * Descobre o formato de um arquivo pela sua extensao. Arquivos {@code .json} e {@code .jsonl}
+	 * sao {@code JSON_LINHAS}, os outros sao {@code CSV}.
+	 *
+	 * @param arquivo caminho do arquivo.
+	 *
+	 * @return o formato do arquivo.
+	 */
+	public static FormatoArtigo deArquivo(Path arquivo) {
+		final String nome = arquivo.getFileName().toString().toLowerCase();
+
+		return nome.endsWith(".jsonl") || nome.endsWith(".json") ? JSON_LINHAS : CSV;
+	}
+
+	/**
+	 * Verifica se uma linha e o cabecalho do arquivo, i.e., uma linha que deve ser ignorada.
+	 *
+	 * @param linha linha lida do arquivo.
+	 *
+	 * @return {@code true} caso a linha seja o cabecalho do formato CSV, {@code false} caso contrario.
+	 */
+	public boolean ehCabecalho(String linha) {
+		return this == CSV && linha.toLowerCase().startsWith("titulo,");
+	}
+
+	/**
+	 * Verifica se um registro lido do arquivo continua na proxima linha, i.e., se ele termina dentro
+	 * de um campo CSV entre aspas. Como as aspas dentro de um campo sao duplicadas, isso acontece
+	 * quando o registro tem uma quantidade impar de aspas. No formato {@code JSON_LINHAS}, as quebras
+	 * de linha dentro das strings sao escapadas, entao cada registro e uma linha.
+	 *
+	 * @param registro linhas lidas ate agora, com as quebras de linha entre elas.
+	 *
+	 * @return {@code true} caso o registro continue na proxima linha, {@code false} caso contrario.
+	 */
+	public boolean registroIncompleto(CharSequence registro) {
+		if(this != CSV) {
+			return false;
+		}
+
+		boolean entreAspas = false;
+
+		for(int i = 0; i < registro.length(); i++) {
+			if(registro.charAt(i) == '"') {
+				entreAspas = !entreAspas;
+			}
+		}
+
+		return entreAspas;
+	}
+
+	/**
+	 * Converte um registro do arquivo em um artigo.
+	 *
+	 * @param linha linha lida do arquivo.
+	 *
+	 * @return o artigo representado pela linha.
+	 *
+	 * @throws IllegalArgumentException Caso a linha nao represente um artigo valido.
+	 */
+	public Artigo converte(String linha) {
+		final Artigo artigo;
+
+		try {
+			if(this == CSV) {
+				artigo = converteCsv(linha);
+			} else {
+				artigo = converteJson(linha);
+			}
+		} catch (IllegalArgumentException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			// o construtor do artigo e o parse da data lancam outras excecoes
+			throw new IllegalArgumentException("Linha invalida: " + linha, e);
+		}
+
+		// os artigos sao comparados pelo titulo, entao ele e obrigatorio
+		if(artigo.getTitulo() == null) {
+			throw new IllegalArgumentException("Artigo sem titulo: " + linha);
+		}
+
+		return artigo;
+	}
+
+	/**
+	 * Transforma um artigo em um registro desse formato, sem a quebra de linha no fim. O registro
+	 * gerado pode ser lido de volta por {@link #converte(String)}. No formato {@code CSV}, ele tem
+	 * mais de uma linha caso algum campo tenha quebras de linha.
+	 *
+	 * @param artigo artigo que sera formatado.
+	 *
+	 * @return a linha que representa o artigo.
+	 */
+	public String formata(Artigo artigo) {
+		final StringBuilder res = new StringBuilder();
+		final String data = artigo.getDataPublicacao() == null ? null : artigo.getDataPublicacao().toString();
+
+		if(this == CSV) {
+			res.append(textoCsv(artigo.getTitulo())).append(',');
+			res.append(textoCsv(listaCsv(artigo.getAutores()))).append(',');
+			res.append(textoCsv(listaCsv(artigo.getPalavrasChave()))).append(',');
+			res.append(textoCsv(data)).append(',');
+			res.append(textoCsv(artigo.getLink()));
+		} else {
+			res.append("{\"titulo\": ").append(textoJson(artigo.getTitulo()));
+			res.append(", \"autores\": ").append(listaJson(artigo.getAutores()));
+			res.append(", \"palavrasChave\": ").append(listaJson(artigo.getPalavrasChave()));
+			res.append(", \"dataPublicacao\": ").append(textoJson(data));
+			res.append(", \"link\": ").append(textoJson(artigo.getLink())).append('}');
+		}
+
+		return res.toString();
+	}
+
+	/**
+	 * Escreve um campo CSV, colocando ele entre aspas caso ele tenha virgulas, aspas ou quebras de linha.
+	 *
+	 * @param texto texto do campo, que pode ser {@code null}.
+	 *
+	 * @return o campo pronto para ser colocado na linha.
+	 */
+	private static String textoCsv(String texto) {
+		if(texto == null) {
+			return "";
+		} else if(texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+			return '"' + texto.replace("\"", "\"\"") + '"';
+		} else {
+			return texto;
+		}
+	}
+
+	/**
+	 * Junta uma lista do formato CSV, separando os itens por {@code |}. As barras invertidas e os
+	 * {@code |} dentro dos itens sao escapados com uma barra invertida.
+	 *
+	 * @param lista lista que sera escrita.
+	 *
+	 * @return o texto do campo, antes de ser passado por {@link #textoCsv(String)}.
+	 */
+	private static String listaCsv(List<String> lista) {
+		final StringBuilder res = new StringBuilder();
+
+		for(int i = 0; i < lista.size(); i++) {
+			res.append(i == 0 ? "" : "|").append(lista.get(i).replace("\\", "\\\\").replace("|", "\\|"));
+		}
+
+		return res.toString();
+	}
+
+	/**
+	 * Escreve uma string JSON, com os escapes necessarios.
+	 *
+	 * @param texto texto que sera escrito, que pode ser {@code null}.
+	 *
+	 * @return a string JSON entre aspas, ou {@code null}.
+	 */
+	private static String textoJson(String texto) {
+		if(texto == null) {
+			return "null";
+		}
+
+		final StringBuilder res = new StringBuilder(texto.length() + 2).append('"');
+
+		for(int i = 0; i < texto.length(); i++) {
+			final char c = texto.charAt(i);
+
+			if(c == '"' || c == '\\') {
+				res.append('\\').append(c);
+			} else if(c == '\n') {
+				res.append("\\n");
+			} else if(c == '\r') {
+				res.append("\\r");
+			} else if(c == '\t') {
+				res.append("\\t");
+			} else if(c < 0x20) {
+				res.append(String.format("\\u%04x", (int) c));
+			} else {
+				res.append(c);
+			}
+		}
+
+		return res.append('"').toString();
+	}
+
+	/**
+	 * Escreve uma lista de strings como um array JSON.
+	 *
+	 * @param lista lista que sera escrita.
+	 *
+	 * @return o array JSON.
+	 */
+	private static String listaJson(List<String> lista) {
+		final StringBuilder res = new StringBuilder("[");
+
+		for(int i = 0; i < lista.size(); i++) {
+			res.append(i == 0 ? "" : ", ").append(textoJson(lista.get(i)));
+		}
+
+		return res.append(']').toString();
+	}
+
+	/**
+	 * Converte uma linha no formato CSV em um artigo.
+	 *
+	 * @param linha linha no formato CSV.
+	 *
+	 * @return o artigo representado pela linha.
+	 */
+	private static Artigo converteCsv(String linha) {
+		final List<String> campos = separaCsv(linha);
+
+		if(campos.size() != 5) {
+			throw new IllegalArgumentException("Linha com " + campos.size() + " campos, esperados 5: " + linha);
+		}
+
+		final String titulo = campos.get(0).isEmpty() ? null : campos.get(0);
+		final List<String> autores = separaLista(campos.get(1));
+		final List<String> palavrasChave = separaLista(campos.get(2));
+		final LocalDate data = campos.get(3).isEmpty() ? null : LocalDate.parse(campos.get(3));
+		final String link = campos.get(4).isEmpty() ? null : campos.get(4);
+
+		return new Artigo(titulo, autores, palavrasChave, data, link);
+	}
+
+	/**
+	 * Separa os campos de uma linha CSV, respeitando campos entre aspas.
+	 *
+	 * @param linha linha no formato CSV.
+	 *
+	 * @return lista com os campos da linha.
+	 */
+	private static List<String> separaCsv(String linha) {
+		final ArrayList<String> campos = new ArrayList<>(5);
+		final StringBuilder campo = new StringBuilder();
+		boolean entreAspas = false;
+
+		for(int i = 0; i < linha.length(); i++) {
+			final char c = linha.charAt(i);
+
+			if(entreAspas) {
+				if(c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+					// aspas duplicadas representam uma aspa dentro do campo
+					campo.append('"');
+					i++;
+				} else if(c == '"') {
+					entreAspas = false;
+				} else {
+					campo.append(c);
+				}
+			} else if(c == '"') {
+				entreAspas = true;
+			} else if(c == ',') {
+				campos.add(campo.toString());
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+
+		if(entreAspas) {
+			throw new IllegalArgumentException("Aspas nao fechadas: " + linha);
+		}
+
+		campos.add(campo.toString());
+		return campos;
+	}
+
+	/**
+	 * Separa uma lista do formato CSV, cujos itens sao separados por {@code |}. Um {@code \|} ou uma
+	 * {@code \\} representam um {@code |} ou uma barra invertida dentro do item, e uma barra invertida
+	 * antes de qualquer outro caractere e mantida.
+	 *
+	 * @param campo campo com a lista.
+	 *
+	 * @return lista com os itens nao vazios do campo.
+	 */
+	private static List<String> separaLista(String campo) {
+		final ArrayList<String> itens = new ArrayList<>();
+		final StringBuilder item = new StringBuilder();
+
+		for(int i = 0; i <= campo.length(); i++) {
+			final char c = i < campo.length() ? campo.charAt(i) : '|';
+
+			if(c == '\\' && i + 1 < campo.length() && (campo.charAt(i + 1) == '|' || campo.charAt(i + 1) == '\\')) {
+				item.append(campo.charAt(++i));
+			} else if(c == '|') {
+				if(!item.toString().trim().isEmpty()) {
+					itens.add(item.toString().trim());
+				}
+				item.setLength(0);
+			} else {
+				item.append(c);
+			}
+		}
+
+		return itens;
+	}
+
+	/**
+	 * Converte uma linha no formato JSON em um artigo.
+	 *
+	 * @param linha objeto JSON em uma linha.
+	 *
+	 * @return o artigo representado pela linha.
+	 */
+	private static Artigo converteJson(String linha) {
+		final LeitorJson leitor = new LeitorJson(linha);
+		String titulo = null, data = null, link = null;
+		List<String> autores = null, palavrasChave = null;
+
+		leitor.espera('{');
+
+		if(!leitor.consome('}')) {
+			do {
+				final String chave = leitor.leTexto();
+				leitor.espera(':');
+
+				switch(chave) {
+				case "titulo":
+					titulo = leitor.leTextoOuNull();
+					break;
+				case "autores":
+					autores = leitor.leListaOuNull();
+					break;
+				case "palavrasChave":
+					palavrasChave = leitor.leListaOuNull();
+					break;
+				case "dataPublicacao":
+					data = leitor.leTextoOuNull();
+					break;
+				case "link":
+					link = leitor.leTextoOuNull();
+					break;
+				default:
+					throw new IllegalArgumentException("Campo desconhecido " + chave + ": " + linha);
+				}
+			} while(leitor.consome(','));
+
+			leitor.espera('}');
+		}
+
+		return new Artigo(titulo, autores, palavrasChave, data == null ? null : LocalDate.parse(data), link);
+	}
+
+	/**
+	 * Leitor de um subconjunto de JSON suficiente para os artigos: objetos com valores que sao
+	 * strings, {@code null} ou arrays de strings.
+	 */
+	private static class LeitorJson {
+		private final String texto;
+		private int posicao;
+
+		private LeitorJson(String texto) {
+			this.texto = texto;
+			this.posicao = 0;
+		}
+
+		/**
+		 * Pula os espacos em branco e consome o caractere, caso ele seja o proximo.
+		 *
+		 * @param c caractere esperado.
+		 *
+		 * @return {@code true} caso o caractere tenha sido consumido.
+		 */
+		private boolean consome(char c) {
+			while(this.posicao < this.texto.length() && Character.isWhitespace(this.texto.charAt(this.posicao))) {
+				this.posicao++;
+			}
+
+			if(this.posicao < this.texto.length() && this.texto.charAt(this.posicao) == c) {
+				this.posicao++;
+				return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Consome o caractere, lancando uma excecao caso ele nao seja o proximo.
+		 *
+		 * @param c caractere esperado.
+		 */
+		private void espera(char c) {
+			if(!this.consome(c)) {
+				throw new IllegalArgumentException("Esperado '" + c + "' na posicao " + this.posicao + ": " + this.texto);
+			}
+		}
+
+		/**
+		 * Le uma string ou {@code null}.
+		 *
+		 * @return a string lida, ou {@code null}.
+		 */
+		private String leTextoOuNull() {
+			return this.consomeNull() ? null : this.leTexto();
+		}
+
+		/**
+		 * Le um array de strings ou {@code null}.
+		 *
+		 * @return a lista lida, ou {@code null}.
+		 */
+		private List<String> leListaOuNull() {
+			if(this.consomeNull()) {
+				return null;
+			}
+
+			final ArrayList<String> lista = new ArrayList<>();
+			this.espera('[');
+
+			if(!this.consome(']')) {
+				do {
+					lista.add(this.leTexto());
+				} while(this.consome(','));
+
+				this.espera(']');
+			}
+
+			return lista;
+		}
+
+		/**
+		 * Consome a palavra {@code null}, caso ela seja a proxima.
+		 *
+		 * @return {@code true} caso ela tenha sido consumida.
+		 */
+		private boolean consomeNull() {
+			if(this.consome('n')) {
+				if(this.texto.startsWith("ull", this.posicao)) {
+					this.posicao += 3;
+					return true;
+				}
+
+				throw new IllegalArgumentException("Valor invalido na posicao " + this.posicao + ": " + this.texto);
+			}
+
+			return false;
+		}
+
+		/**
+		 * Le uma string entre aspas, tratando os escapes do JSON.
+		 *
+		 * @return a string lida.
+		 */
+		private String leTexto() {
+			this.espera('"');
+			final StringBuilder res = new StringBuilder();
+
+			while(this.posicao < this.texto.length()) {
+				final char c = this.texto.charAt(this.posicao++);
+
+				if(c == '"') {
+					return res.toString();
+				} else if(c == '\\' && this.posicao < this.texto.length()) {
+					final char escape = this.texto.charAt(this.posicao++);
+
+					switch(escape) {
+					case 'n':
+						res.append('\n');
+						break;
+					case 't':
+						res.append('\t');
+						break;
+					case 'r':
+						res.append('\r');
+						break;
+					case 'b':
+						res.append('\b');
+						break;
+					case 'f':
+						res.append('\f');
+						break;
+					case 'u':
+						res.append((char) Integer.parseInt(this.texto.substring(this.posicao, this.posicao + 4), 16));
+						this.posicao += 4;
+						break;
+					default:
+						// cobre \", \\ e \/
+						res.append(escape);
+						break;
+					}
+				} else {
+					res.append(c);
+				}
+			}
+
+			throw new IllegalArgumentException("String nao fechada: " + this.texto);
+		}
+	}
+}
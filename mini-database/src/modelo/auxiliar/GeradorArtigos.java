@@ -2,157 +2,432 @@ package modelo.auxiliar;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import modelo.artigo.Artigo;
 
 /**
  * Classe que gera um conjunto aleatorio de artigos. Ela existe para propositos
- * de teste.
+ * de teste e de medicao de desempenho.
  *
+ * </p>Os artigos sao gerados em blocos de {@link #TAMANHO_BLOCO} artigos, e cada bloco tem o
+ * seu proprio {@code SplittableRandom}, criado a partir da semente do gerador e do numero do
+ * bloco. Assim, blocos diferentes podem ser gerados em threads diferentes sem nenhuma
+ * sincronizacao, e o resultado de {@link #gera(int, int, int)} e de
+ * {@link #geraParalelo(int, int, int)} e o mesmo para a mesma semente, qualquer que seja a
+ * quantidade de threads usada.
+ *
+ * </p>As palavras chave e os autores de um artigo sao sorteados sem repeticao de um universo
+ * de numeros. Por padrao esse universo tem {@code 100000} numeros para cada palavra chave (ou
+ * autor) que um artigo pode ter, e o sorteio e uniforme, feito com o algoritmo de Floyd, que
+ * nao precisa de memoria proporcional ao tamanho do universo. O tamanho do universo e a
+ * distribuicao podem ser trocados, por exemplo por uma distribuicao de Zipf, onde poucas
+ * palavras aparecem em muitos artigos, como em um acervo real.
+ *
+ * @see DistribuicaoZipf
  */
 public class GeradorArtigos {
 	/**
-	 * Gerador de numeros aleatorios da classe.
+	 * Quantidade de artigos gerados com o mesmo gerador de numeros aleatorios.
+	 */
+	public static final int TAMANHO_BLOCO = 4096;
+
+	/**
+	 * Tamanho padrao do universo de palavras chave (ou autores) para cada palavra chave (ou
+	 * autor) que um artigo pode ter.
+	 */
+	private static final int UNIVERSO_POR_ITEM = 100000;
+
+	/**
+	 * Incremento usado para espalhar as sementes dos blocos.
+	 */
+	private static final long GAMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Semente do gerador.
+	 */
+	private final long semente;
+
+	/**
+	 * Numero do proximo bloco que sera gerado. Chamadas seguidas de {@code gera} continuam
+	 * a sequencia, entao elas nao repetem artigos.
+	 */
+	private long proximoBloco;
+
+	/**
+	 * Quantidade de palavras chave diferentes que podem ser sorteadas, ou 0 para usar o
+	 * tamanho padrao.
+	 */
+	private int qtdPalavrasDistintas;
+
+	/**
+	 * Expoente da distribuicao de Zipf das palavras chave. 0 indica um sorteio uniforme.
+	 */
+	private double expoentePalavras;
+
+	/**
+	 * Quantidade de autores diferentes que podem ser sorteados, ou 0 para usar o tamanho padrao.
 	 */
-	private Random rng;
-	
+	private int qtdAutoresDistintos;
+
+	/**
+	 * Expoente da distribuicao de Zipf dos autores. 0 indica um sorteio uniforme.
+	 */
+	private double expoenteAutores;
+
 	/**
-	 * Constroi uma instancia da classe.
+	 * Constroi uma instancia da classe com uma semente aleatoria.
 	 */
 	public GeradorArtigos() {
-		this.rng = new Random();
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constroi uma instancia da classe com a semente passada. Dois geradores com a mesma semente
+	 * e a mesma configuracao geram os mesmos artigos.
+	 *
+	 * @param semente semente do gerador.
+	 */
+	public GeradorArtigos(long semente) {
+		this.semente = semente;
+		this.proximoBloco = 0;
+		this.qtdPalavrasDistintas = 0;
+		this.expoentePalavras = 0;
+		this.qtdAutoresDistintos = 0;
+		this.expoenteAutores = 0;
+	}
+
+	/**
+	 * Getter da semente do gerador.
+	 *
+	 * @return semente do gerador.
+	 */
+	public long getSemente() {
+		return this.semente;
+	}
+
+	/**
+	 * Configura o sorteio das palavras chave.
+	 *
+	 * @param qtdDistintas quantidade de palavras chave diferentes que podem ser sorteadas, ou 0
+	 * para usar {@code 100000} vezes o maximo de palavras chave por artigo.
+	 * @param expoente expoente da distribuicao de Zipf das palavras, ou 0 para um sorteio uniforme.
+	 * Valores perto de 1 imitam a frequencia das palavras em textos reais.
+	 */
+	public void setDistribuicaoPalavras(int qtdDistintas, double expoente) {
+		verificaDistribuicao(qtdDistintas, expoente);
+
+		this.qtdPalavrasDistintas = qtdDistintas;
+		this.expoentePalavras = expoente;
+	}
+
+	/**
+	 * Configura o sorteio dos autores.
+	 *
+	 * @param qtdDistintos quantidade de autores diferentes que podem ser sorteados, ou 0 para
+	 * usar {@code 100000} vezes o maximo de autores por artigo.
+	 * @param expoente expoente da distribuicao de Zipf dos autores, ou 0 para um sorteio uniforme.
+	 */
+	public void setDistribuicaoAutores(int qtdDistintos, double expoente) {
+		verificaDistribuicao(qtdDistintos, expoente);
+
+		this.qtdAutoresDistintos = qtdDistintos;
+		this.expoenteAutores = expoente;
 	}
-	
+
 	/**
-	 * Gera um conjunto de artigos de acordo com os parametros especificados.
-	 * 
+	 * Gera um conjunto de artigos de acordo com os parametros especificados, usando
+	 * somente a thread atual.
+	 *
 	 * @param qtdArtigos quantidade de artigos que sera gerada.
 	 * @param maxPalavrasChave maximo numero de palavras chave que um artigo pode ter.
 	 * @param maxAutores maximo numero de autores que um artigo pode ter.
-	 * 
+	 *
 	 * @return {@code ArrayList} de artigos gerados aleatoriamente.
 	 */
-	public ArrayList<Artigo> gera(int qtdArtigos, int maxPalavrasChave, int maxAutores) {	
-		ArrayList<Artigo> artigos = new ArrayList<>();
-		
-		for(int i = 0; i < qtdArtigos; i++) {
-			final String titulo = this.geraTitulo();
-			final ArrayList<String> autores = this.geraAutores(maxAutores);
-			final ArrayList<String> palavrasChave = this.geraPalavrasChave(maxPalavrasChave);
-			final String link = this.geraLink(titulo);
-			final LocalDate data = this.geraData();
-			
-			artigos.add(new Artigo(titulo, autores, palavrasChave, data, link));
+	public ArrayList<Artigo> gera(int qtdArtigos, int maxPalavrasChave, int maxAutores) {
+		final ArrayList<Artigo> artigos = new ArrayList<>(qtdArtigos);
+		final DistribuicaoZipf palavras = this.distribuicaoPalavras(maxPalavrasChave);
+		final DistribuicaoZipf autores = this.distribuicaoAutores(maxAutores);
+		final int qtdBlocos = this.reservaBlocos(qtdArtigos);
+
+		for(int i = 0; i < qtdBlocos; i++) {
+			this.geraBloco(this.proximoBloco - qtdBlocos + i, tamanhoBloco(qtdArtigos, i), maxPalavrasChave,
+					maxAutores, palavras, autores, artigos);
 		}
-		
+
 		return artigos;
 	}
-	
+
 	/**
-	 * Gera uma data aleatoria.
-	 * 
-	 * @return um objeto {@code LocalDate} com uma data aleatoria.
+	 * Gera um conjunto de artigos de acordo com os parametros especificados, dividindo
+	 * os blocos entre as threads do pool comum. Para a mesma semente, o resultado e igual
+	 * ao de {@link #gera(int, int, int)}.
+	 *
+	 * @param qtdArtigos quantidade de artigos que sera gerada.
+	 * @param maxPalavrasChave maximo numero de palavras chave que um artigo pode ter.
+	 * @param maxAutores maximo numero de autores que um artigo pode ter.
+	 *
+	 * @return {@code ArrayList} de artigos gerados aleatoriamente.
 	 */
-	private LocalDate geraData() {
-		final int anoRandom = pegaAleatorioEntre(1900, 2019);
-		final int mesRandom = pegaAleatorioEntre(1, 12);
-		final int diaRandom = pegaAleatorioEntre(1, 28);
-		
-		return LocalDate.of(anoRandom, mesRandom, diaRandom);
+	public ArrayList<Artigo> geraParalelo(int qtdArtigos, int maxPalavrasChave, int maxAutores) {
+		final DistribuicaoZipf palavras = this.distribuicaoPalavras(maxPalavrasChave);
+		final DistribuicaoZipf autores = this.distribuicaoAutores(maxAutores);
+		final int qtdBlocos = this.reservaBlocos(qtdArtigos);
+		final long primeiroBloco = this.proximoBloco - qtdBlocos;
+
+		final List<ArrayList<Artigo>> blocos = IntStream.range(0, qtdBlocos).parallel().mapToObj((int i) -> {
+			final int tamanho = tamanhoBloco(qtdArtigos, i);
+			final ArrayList<Artigo> bloco = new ArrayList<>(tamanho);
+			this.geraBloco(primeiroBloco + i, tamanho, maxPalavrasChave, maxAutores, palavras, autores, bloco);
+			return bloco;
+		}).collect(Collectors.toList());
+
+		final ArrayList<Artigo> artigos = new ArrayList<>(qtdArtigos);
+
+		for(ArrayList<Artigo> bloco : blocos) {
+			artigos.addAll(bloco);
+		}
+
+		return artigos;
 	}
-	
+
 	/**
-	 * Pega um numero aleatorio no intervalo [left, right]
-	 * 
-	 * @param left comeco do intervalo
-	 * @param right fim do intervalo
-	 * 
-	 * @return um valor aleatorio dentro do intervalo
+	 * Gera os artigos de um bloco, sem alterar o estado do gerador. O mesmo bloco sempre gera
+	 * os mesmos artigos, entao ele pode ser usado para gerar partes de um conjunto grande em
+	 * qualquer ordem e em qualquer thread.
+	 *
+	 * @param indiceBloco numero do bloco.
+	 * @param qtdArtigos quantidade de artigos gerados, no maximo {@link #TAMANHO_BLOCO}.
+	 * @param maxPalavrasChave maximo numero de palavras chave que um artigo pode ter.
+	 * @param maxAutores maximo numero de autores que um artigo pode ter.
+	 *
+	 * @return {@code ArrayList} com os artigos do bloco.
 	 */
-	private int pegaAleatorioEntre(int left, int right) {
-		return left + (int) Math.round(Math.random() * (right - left));
+	public ArrayList<Artigo> geraBloco(long indiceBloco, int qtdArtigos, int maxPalavrasChave, int maxAutores) {
+		if(qtdArtigos > TAMANHO_BLOCO) {
+			throw new IllegalArgumentException("Um bloco tem no maximo " + TAMANHO_BLOCO + " artigos!!");
+		}
+
+		final ArrayList<Artigo> artigos = new ArrayList<>(qtdArtigos);
+		this.geraBloco(indiceBloco, qtdArtigos, maxPalavrasChave, maxAutores,
+				this.distribuicaoPalavras(maxPalavrasChave), this.distribuicaoAutores(maxAutores), artigos);
+
+		return artigos;
 	}
-	
+
+	/**
+	 * Gera os artigos de um bloco e adiciona eles em uma lista.
+	 *
+	 * @param indiceBloco numero do bloco.
+	 * @param qtdArtigos quantidade de artigos gerados.
+	 * @param maxPalavrasChave maximo numero de palavras chave que um artigo pode ter.
+	 * @param maxAutores maximo numero de autores que um artigo pode ter.
+	 * @param palavras distribuicao das palavras chave.
+	 * @param autores distribuicao dos autores.
+	 * @param destino lista onde os artigos sao adicionados.
+	 */
+	private void geraBloco(long indiceBloco, int qtdArtigos, int maxPalavrasChave, int maxAutores,
+			DistribuicaoZipf palavras, DistribuicaoZipf autores, ArrayList<Artigo> destino) {
+		final SplittableRandom rng = new SplittableRandom(misturaSemente(this.semente + GAMA * (indiceBloco + 1)));
+		final int[] sorteados = new int[Math.max(maxPalavrasChave, maxAutores)];
+
+		for(int i = 0; i < qtdArtigos; i++) {
+			final String titulo = geraTitulo(rng);
+			final ArrayList<String> listaAutores = geraNomes(rng, "Autor", maxAutores, autores, sorteados);
+			final ArrayList<String> palavrasChave = geraNomes(rng, "Palavra", maxPalavrasChave, palavras, sorteados);
+			final String link = geraLink(titulo);
+			final LocalDate data = geraData(rng);
+
+			destino.add(new Artigo(titulo, listaAutores, palavrasChave, data, link));
+		}
+	}
+
+	/**
+	 * Reserva os blocos usados por uma chamada de {@code gera}.
+	 *
+	 * @param qtdArtigos quantidade de artigos que sera gerada.
+	 *
+	 * @return quantidade de blocos reservados.
+	 */
+	private int reservaBlocos(int qtdArtigos) {
+		final int qtdBlocos = (qtdArtigos + TAMANHO_BLOCO - 1) / TAMANHO_BLOCO;
+		this.proximoBloco += qtdBlocos;
+
+		return qtdBlocos;
+	}
+
+	/**
+	 * Calcula a quantidade de artigos de um dos blocos de uma chamada de {@code gera}.
+	 * Somente o ultimo bloco pode estar incompleto.
+	 */
+	private static int tamanhoBloco(int qtdArtigos, int i) {
+		return Math.min(TAMANHO_BLOCO, qtdArtigos - i * TAMANHO_BLOCO);
+	}
+
+	/**
+	 * Cria a distribuicao das palavras chave de acordo com a configuracao do gerador.
+	 */
+	private DistribuicaoZipf distribuicaoPalavras(int maxPalavrasChave) {
+		final int n = this.qtdPalavrasDistintas > 0 ? this.qtdPalavrasDistintas : maxPalavrasChave * UNIVERSO_POR_ITEM;
+		return new DistribuicaoZipf(Math.max(n, maxPalavrasChave), this.expoentePalavras);
+	}
+
+	/**
+	 * Cria a distribuicao dos autores de acordo com a configuracao do gerador.
+	 */
+	private DistribuicaoZipf distribuicaoAutores(int maxAutores) {
+		final int n = this.qtdAutoresDistintos > 0 ? this.qtdAutoresDistintos : maxAutores * UNIVERSO_POR_ITEM;
+		return new DistribuicaoZipf(Math.max(n, maxAutores), this.expoenteAutores);
+	}
+
+	/**
+	 * Gera uma data aleatoria.
+	 *
+	 * @param rng gerador de numeros aleatorios do bloco.
+	 *
+	 * @return um objeto {@code LocalDate} com uma data aleatoria.
+	 */
+	private static LocalDate geraData(SplittableRandom rng) {
+		final int anoRandom = rng.nextInt(1900, 2020);
+		final int mesRandom = rng.nextInt(1, 13);
+		final int diaRandom = rng.nextInt(1, 29);
+
+		return LocalDate.of(anoRandom, mesRandom, diaRandom);
+	}
+
 	/**
 	 * Gera um link com base no nome do artigo.
-	 * 
+	 *
 	 * @param nomeArtigo nome do artigo referente ao link
-	 * 
+	 *
 	 * @return String com o link gerado.
 	 */
-	private String geraLink(String nomeArtigo) {
+	private static String geraLink(String nomeArtigo) {
 		return "www.link-" + nomeArtigo + ".edu.br";
 	}
 
 	/**
-	 * Gera um titulo aleatorio para o artigo.
-	 * 
+	 * Gera um titulo aleatorio para o artigo. O numero do titulo tem 63 bits, o que torna
+	 * improvavel que dois artigos gerados tenham o mesmo titulo.
+	 *
+	 * @param rng gerador de numeros aleatorios do bloco.
+	 *
 	 * @return titulo gerado.
 	 */
-	private String geraTitulo() {
-		return "Titulo" + this.rng.nextInt();
-	}
-	
-	/**
-	 * Gera um conjunto com de palavras chave. As palavras chave geradas por essa
-	 * funcao sao no formato "Palavra[numero]", onde [numero] e um numero aleatorio.
-	 * A funcao garante que nao serao geradas duas palavras iguais na mesma lista.
-	 * 
-	 * @param maxPalavras tamanho maximo desse conjunto.
-	 * 
-	 * @return {@code ArrayList} com ate {@code maxPalavras} palavras chave.
-	 */
-	private ArrayList<String> geraPalavrasChave(int maxPalavras) {
-		ArrayList<Integer> listaAleatoria = this.sequenciaEmbaralhada(maxPalavras*100000);
-		ArrayList<String> palavrasAleatorias = new ArrayList<>();
-		int qtdPalavras = this.rng.nextInt(maxPalavras) + 1;
-		
-		for(int i = 0; i < qtdPalavras; i++) {
-			palavrasAleatorias.add("Palavra" + listaAleatoria.get(i));
+	private static String geraTitulo(SplittableRandom rng) {
+		return "Titulo" + (rng.nextLong() >>> 1);
+	}
+
+	/**
+	 * Gera um conjunto de nomes no formato "[prefixo][numero]", onde [numero] e sorteado da
+	 * distribuicao passada. A funcao garante que nao serao gerados dois nomes iguais na mesma
+	 * lista.
+	 *
+	 * @param rng gerador de numeros aleatorios do bloco.
+	 * @param prefixo prefixo dos nomes.
+	 * @param maxNomes tamanho maximo desse conjunto.
+	 * @param distribuicao distribuicao dos numeros.
+	 * @param sorteados array reaproveitado onde os numeros sorteados sao guardados.
+	 *
+	 * @return {@code ArrayList} com ate {@code maxNomes} nomes.
+	 */
+	private static ArrayList<String> geraNomes(SplittableRandom rng, String prefixo, int maxNomes,
+			DistribuicaoZipf distribuicao, int[] sorteados) {
+		final int qtdNomes = rng.nextInt(maxNomes) + 1;
+		final ArrayList<String> nomes = new ArrayList<>(qtdNomes);
+
+		if(distribuicao.getExpoente() == 0) {
+			sorteiaUniforme(rng, distribuicao.getN(), qtdNomes, sorteados);
+		} else {
+			sorteiaSemRepeticao(rng, distribuicao, qtdNomes, sorteados);
 		}
-		
-		return palavrasAleatorias;
-	}
-
-	/**
-	 * Gera um conjunto com de autores. Os autores gerados por essa funcao sao
-	 * no formato "Autor[numero]", onde [numero] e um numero aleatorio. A funcao
-	 * garante que nao serao gerados dois autores iguais na mesma lista.
-	 * 
-	 * @param maxAutores tamanho maximo desse conjunto.
-	 * 
-	 * @return {@code ArrayList} com ate {@code maxAutores} autores.
-	 */
-	private ArrayList<String> geraAutores(int maxAutores) {
-		ArrayList<Integer> listaAleatoria = this.sequenciaEmbaralhada(maxAutores*100000);
-		ArrayList<String> autoresAleatorios = new ArrayList<>();
-		int qtdAutores = rng.nextInt(maxAutores) + 1;
-		
-		for(int i = 0; i < qtdAutores; i++) {
-			autoresAleatorios.add("Autor" + listaAleatoria.get(i));
+
+		for(int i = 0; i < qtdNomes; i++) {
+			nomes.add(prefixo + sorteados[i]);
+		}
+
+		return nomes;
+	}
+
+	/**
+	 * Sorteia {@code k} numeros diferentes de {@code [0, n)} com o algoritmo de Floyd, que faz
+	 * exatamente {@code k} sorteios e nao precisa de memoria proporcional a {@code n}.
+	 *
+	 * @param rng gerador de numeros aleatorios do bloco.
+	 * @param n tamanho do universo.
+	 * @param k quantidade de numeros sorteados.
+	 * @param sorteados array onde os numeros sorteados sao guardados.
+	 */
+	private static void sorteiaUniforme(SplittableRandom rng, int n, int k, int[] sorteados) {
+		int qtd = 0;
+
+		for(int j = n - k; j < n; j++) {
+			final int t = rng.nextInt(j + 1);
+			// se t ja foi sorteado, j certamente nao foi
+			sorteados[qtd] = contem(sorteados, qtd, t) ? j : t;
+			qtd++;
 		}
-		
-		return autoresAleatorios;
-	}
-	
-	/**
-	 * Gera uma sequencia com os numeros de 0 at n-1 em uma ordem aleatoria.
-	 * 
-	 * @param n quantidade de itens na lista.
-	 * 
-	 * @return {@code ArrayList} embaralhada com os numeros de 0 a n-1.
-	 */
-	private ArrayList<Integer> sequenciaEmbaralhada(int n) {
-		ArrayList<Integer> lista = new ArrayList<>();
-		
-		for(int i = 0; i < n; i++) {
-			lista.add(i);
+	}
+
+	/**
+	 * Sorteia {@code k} numeros diferentes de uma distribuicao, sorteando de novo os numeros
+	 * repetidos. Como {@code k} e pequeno perto do tamanho do universo, poucos sorteios sao
+	 * refeitos.
+	 *
+	 * @param rng gerador de numeros aleatorios do bloco.
+	 * @param distribuicao distribuicao dos numeros.
+	 * @param k quantidade de numeros sorteados.
+	 * @param sorteados array onde os numeros sorteados sao guardados.
+	 */
+	private static void sorteiaSemRepeticao(SplittableRandom rng, DistribuicaoZipf distribuicao, int k, int[] sorteados) {
+		int qtd = 0;
+
+		while(qtd < k) {
+			final int t = distribuicao.amostra(rng);
+
+			if(!contem(sorteados, qtd, t)) {
+				sorteados[qtd++] = t;
+			}
+		}
+	}
+
+	/**
+	 * Verifica se um numero esta entre os {@code qtd} primeiros elementos de um array.
+	 */
+	private static boolean contem(int[] array, int qtd, int valor) {
+		for(int i = 0; i < qtd; i++) {
+			if(array[i] == valor) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Espalha os bits de uma semente, para que blocos vizinhos tenham sequencias
+	 * independentes.
+	 */
+	private static long misturaSemente(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+
+	/**
+	 * Verifica os parametros de uma distribuicao.
+	 */
+	private static void verificaDistribuicao(int qtdDistintos, double expoente) {
+		if(qtdDistintos < 0) {
+			throw new IllegalArgumentException("A quantidade de valores distintos nao pode ser negativa!!");
+		}
+
+		if(expoente < 0) {
+			throw new IllegalArgumentException("O expoente da distribuicao nao pode ser negativo!!");
 		}
-		
-		Collections.shuffle(lista);
-		
-		return lista;
 	}
 }
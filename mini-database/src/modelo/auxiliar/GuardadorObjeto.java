@@ -1,25 +1,73 @@
 package modelo.auxiliar;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
 
 /**
  * Classe que le/escreve objetos em um arquivo especifico.
  *
+ * </p>O objeto e serializado e dividido em blocos de {@link #TAMANHO_BLOCO} bytes, e o arquivo
+ * guarda um cabecalho com o numero magico {@link #MAGICO}, a versao do formato e um diretorio com
+ * o tamanho e o checksum CRC32C de cada bloco, seguido pelos blocos. O cabecalho tem o seu proprio
+ * checksum, entao um arquivo incompleto ou corrompido e recusado antes do objeto ser lido, e os
+ * blocos sao verificados em paralelo.
+ *
+ * </p>Os blocos podem ser comprimidos com o {@link CompressorBlocos}, no nivel escolhido em
+ * {@link #setNivelCompressao(int)}. Nesse caso, o diretorio tambem guarda o tamanho original de
+ * cada bloco, e os blocos sao comprimidos e descomprimidos em paralelo. O checksum e calculado
+ * sobre os bytes gravados, entao um bloco corrompido e recusado antes de ser descomprimido.
+ *
+ * </p>Arquivos salvos antes desse formato, que guardam so o objeto serializado, tambem sao lidos.
+ *
  * @param <T> tipo do objeto guardado por essa classe
  */
 public class GuardadorObjeto<T extends Serializable> {
+	/**
+	 * Numero magico que identifica os arquivos nesse formato ("MBDO").
+	 */
+	public static final int MAGICO = 0x4D42444F;
+
+	/**
+	 * Versao atual do formato do arquivo.
+	 */
+	public static final int VERSAO = 2;
+
+	/**
+	 * Tamanho, em bytes, de cada bloco do objeto serializado. So o ultimo bloco pode ser menor.
+	 */
+	public static final int TAMANHO_BLOCO = 1 << 18;
+
 	/**
 	 * Nome do arquivo onde o objeto sera guardado.
 	 */
 	private String nomeArquivo;
 
+	/**
+	 * Nivel de compressao dos blocos salvos, ou {@link CompressorBlocos#SEM_COMPRESSAO}.
+	 */
+	private int nivelCompressao;
+
 	/**
 	 * Constroi uma instancia da classe, que guardara o objeto no arquivo
 	 * passado por parametro.
@@ -28,6 +76,7 @@ public class GuardadorObjeto<T extends Serializable> {
 	 */
 	public GuardadorObjeto(String nomeArquivo) {
 		this.nomeArquivo = nomeArquivo;
+		this.nivelCompressao = CompressorBlocos.SEM_COMPRESSAO;
 	}
 
 	/**
@@ -39,6 +88,29 @@ public class GuardadorObjeto<T extends Serializable> {
 		return nomeArquivo + ".bin";
 	}
 
+	/**
+	 * Getter do nivel de compressao.
+	 * 
+	 * @return o nivel de compressao dos blocos salvos.
+	 */
+	public int getNivelCompressao() {
+		return this.nivelCompressao;
+	}
+
+	/**
+	 * Setter do nivel de compressao. So afeta os proximos arquivos salvos, ja que o nivel usado
+	 * fica gravado no arquivo.
+	 * 
+	 * @param nivelCompressao {@link CompressorBlocos#SEM_COMPRESSAO}, ou um nivel entre
+	 * {@link CompressorBlocos#NIVEL_MINIMO} e {@link CompressorBlocos#NIVEL_MAXIMO}.
+	 * 
+	 * @throws IllegalArgumentException Caso o nivel seja invalido.
+	 */
+	public void setNivelCompressao(int nivelCompressao) {
+		CompressorBlocos.validaNivel(nivelCompressao);
+		this.nivelCompressao = nivelCompressao;
+	}
+
 	/**
 	 * Salva o objeto passado no arquivo da classe.
 	 * 
@@ -51,10 +123,8 @@ public class GuardadorObjeto<T extends Serializable> {
 			try {
 				// salva o objeto em um novo arquivo, para preservar o anterior
 				// caso ocorram erros
-				ObjectOutputStream escritorObjs = new ObjectOutputStream(new FileOutputStream(this.nomeArquivo + "-new.bin"));
-				escritorObjs.writeObject(objeto);
-				escritorObjs.close();
-				
+				this.escreve(objeto, new File(this.nomeArquivo + "-new.bin"), false);
+
 				// caso nenhum erro ocorra, sobrescreve o anterior
 				sobrescreveAnterior();
 			} catch (IOException e) {
@@ -63,6 +133,67 @@ public class GuardadorObjeto<T extends Serializable> {
 		}
 	}
 
+	/**
+	 * Salva o objeto passado em outro arquivo, no mesmo formato, e forca o arquivo para o disco.
+	 * O arquivo da classe nao e alterado, entao quem chama decide quando o arquivo novo passa a
+	 * valer, por exemplo junto com outros arquivos salvos ao mesmo tempo.
+	 * 
+	 * @param objeto objeto que sera salvo.
+	 * @param arquivo arquivo onde o objeto sera salvo.
+	 * 
+	 * @throws IOException Caso ocorram erros na escrita do arquivo.
+	 */
+	public void salvaObjetoEm(T objeto, File arquivo) throws IOException {
+		try {
+			this.escreve(objeto, arquivo, true);
+		} catch (IOException e) {
+			throw new IOException("Erro ao tentar escrever o arquivo " + arquivo + ".", e);
+		}
+	}
+
+	/**
+	 * Serializa o objeto, dividido em blocos, e escreve o cabecalho e os blocos em um arquivo.
+	 * 
+	 * @param objeto objeto que sera salvo.
+	 * @param arquivo arquivo escrito.
+	 * @param forca se o arquivo deve ser forcado para o disco antes de ser fechado.
+	 * 
+	 * @throws IOException Caso ocorram erros na escrita do arquivo.
+	 */
+	private void escreve(T objeto, File arquivo, boolean forca) throws IOException {
+		// serializa o objeto na memoria, ja dividido em blocos
+		final SaidaBlocos blocos = new SaidaBlocos();
+
+		try(ObjectOutputStream escritorObjs = new ObjectOutputStream(blocos)) {
+			escritorObjs.writeObject(objeto);
+		}
+
+		final byte[][] dados = blocos.getBlocos();
+		final byte[][] gravados = new byte[dados.length][];
+		final int[] checksums = new int[dados.length];
+		final int nivel = this.nivelCompressao;
+
+		IntStream.range(0, dados.length).parallel().forEach((int i) -> {
+			gravados[i] = nivel == CompressorBlocos.SEM_COMPRESSAO ? dados[i] : CompressorBlocos.comprime(dados[i], nivel);
+			checksums[i] = checksum(gravados[i], gravados[i].length);
+		});
+
+		final FileOutputStream arquivoSaida = new FileOutputStream(arquivo);
+
+		try(DataOutputStream escritor = new DataOutputStream(new BufferedOutputStream(arquivoSaida, 1 << 16))) {
+			escritor.write(cabecalho(nivel != CompressorBlocos.SEM_COMPRESSAO, dados, gravados, checksums));
+
+			for(byte[] bloco : gravados) {
+				escritor.write(bloco);
+			}
+
+			if(forca) {
+				escritor.flush();
+				arquivoSaida.getFD().sync();
+			}
+		}
+	}
+
 	/**
 	 * Le um objeto do arquivo e retorna ele.
 	 * 
@@ -70,37 +201,262 @@ public class GuardadorObjeto<T extends Serializable> {
 	 * 
 	 * @throws IOException Caso ocorram erros na abertura do arquivo.
 	 * 
+	 * @throws StreamCorruptedException Caso o arquivo esteja incompleto ou corrompido.
+	 * 
 	 * @throws ClassNotFoundException Casso estejam faltando modulos no programa.
 	 */
 	@SuppressWarnings("unchecked")
 	public T carregaObjeto() throws IOException, ClassNotFoundException {
-		try {
+		try(DataInputStream leitor = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(this.nomeArquivo + ".bin"), 1 << 16))) {
+			leitor.mark(4);
+
+			final InputStream objetoSerializado;
+
+			if(leitor.readInt() == MAGICO) {
+				objetoSerializado = this.leBlocos(leitor);
+			} else {
+				// formato antigo: o arquivo so tem o objeto serializado
+				leitor.reset();
+				objetoSerializado = leitor;
+			}
+
 			// le o conteudo do arquivo e salva na variavel objeto
-			ObjectInputStream leitorObjs = new ObjectInputStream(new FileInputStream(this.nomeArquivo + ".bin"));
+			ObjectInputStream leitorObjs = new ObjectInputStream(objetoSerializado);
 			Object objetoLido = leitorObjs.readObject();
-			leitorObjs.close();
-			
+
 			return (T) objetoLido;
 		} catch (FileNotFoundException e) {
 			throw new FileNotFoundException("Erro ao tentar abrir o arquivo " + this.getNomeArquivo() + ".");
+		} catch (StreamCorruptedException e) {
+			throw new StreamCorruptedException("O arquivo " + this.getNomeArquivo() + " esta corrompido: " + e.getMessage());
 		} catch (IOException e) {
-			throw new IOException("Erro ao tentar abrir o arquivo " + this.getNomeArquivo() + ".");
+			throw new IOException("Erro ao tentar abrir o arquivo " + this.getNomeArquivo() + ".", e);
 		} catch (ClassNotFoundException e) {
 			throw new ClassNotFoundException("Algum dos modulos do programa esta ausente. Erro " + e.getMessage());
 		}
 	}
-	
+
+	/**
+	 * Apaga o arquivo onde o objeto e guardado, caso ele exista.
+	 */
+	public void apagaArquivo() {
+		File arquivo = new File(this.nomeArquivo + ".bin");
+
+		if(arquivo.exists()) {
+			arquivo.delete();
+		}
+	}
+
+	/**
+	 * Le o cabecalho e os blocos do arquivo, depois do numero magico, e verifica os checksums.
+	 * 
+	 * @param leitor stream do arquivo, posicionada logo depois do numero magico.
+	 * 
+	 * @return stream com o objeto serializado.
+	 * 
+	 * @throws IOException Caso ocorram erros na leitura do arquivo, ou caso ele esteja em uma
+	 * versao mais nova que a suportada.
+	 * @throws StreamCorruptedException Caso o arquivo esteja incompleto ou algum checksum nao
+	 * confira.
+	 */
+	private InputStream leBlocos(DataInputStream leitor) throws IOException {
+		final int versao = leitor.readInt();
+
+		if(versao > VERSAO) {
+			throw new IOException("O arquivo " + this.getNomeArquivo() + " esta na versao " + versao
+					+ ", mas so ate a versao " + VERSAO + " e suportada.");
+		}
+
+		// a versao 1 nao tem compressao, entao nao guarda o tamanho original dos blocos
+		final boolean comprimido = versao > 1 && leitor.readInt() != 0;
+		final int qtdBlocos = leitor.readInt();
+		final int tamanhoEntrada = versao > 1 ? 12 : 8;
+		final int tamanhoInicio = versao > 1 ? 16 : 12;
+
+		// um cabecalho corrompido poderia pedir um diretorio enorme
+		if(qtdBlocos < 0 || tamanhoInicio + 4L + (long) tamanhoEntrada * qtdBlocos > new File(this.nomeArquivo + ".bin").length()) {
+			throw new StreamCorruptedException("cabecalho invalido.");
+		}
+
+		final int[] tamanhos = new int[qtdBlocos];
+		final int[] tamanhosOriginais = new int[qtdBlocos];
+		final int[] checksums = new int[qtdBlocos];
+		final ByteBuffer cabecalho = ByteBuffer.allocate(tamanhoInicio + tamanhoEntrada * qtdBlocos);
+		cabecalho.putInt(MAGICO).putInt(versao);
+
+		if(versao > 1) {
+			cabecalho.putInt(comprimido ? 1 : 0);
+		}
+
+		cabecalho.putInt(qtdBlocos);
+
+		long tamanhoArquivo = cabecalho.capacity() + 4;
+
+		for(int i = 0; i < qtdBlocos; i++) {
+			tamanhos[i] = leitor.readInt();
+			tamanhosOriginais[i] = versao > 1 ? leitor.readInt() : tamanhos[i];
+			checksums[i] = leitor.readInt();
+
+			cabecalho.putInt(tamanhos[i]);
+			if(versao > 1) {
+				cabecalho.putInt(tamanhosOriginais[i]);
+			}
+			cabecalho.putInt(checksums[i]);
+
+			tamanhoArquivo += tamanhos[i];
+		}
+
+		if(leitor.readInt() != checksum(cabecalho.array(), cabecalho.capacity())) {
+			throw new StreamCorruptedException("checksum do cabecalho nao confere.");
+		}
+
+		// um arquivo com tamanho diferente do esperado foi escrito pela metade
+		if(tamanhoArquivo != new File(this.nomeArquivo + ".bin").length()) {
+			throw new StreamCorruptedException("o arquivo tem um tamanho diferente do esperado.");
+		}
+
+		final byte[][] blocos = new byte[qtdBlocos][];
+
+		for(int i = 0; i < qtdBlocos; i++) {
+			blocos[i] = new byte[tamanhos[i]];
+			leitor.readFully(blocos[i]);
+		}
+
+		// verifica e descomprime os blocos em paralelo
+		final String[] erros = new String[qtdBlocos];
+
+		IntStream.range(0, qtdBlocos).parallel().forEach((int i) -> {
+			if(checksum(blocos[i], blocos[i].length) != checksums[i]) {
+				erros[i] = "checksum do bloco " + i + " nao confere.";
+			} else if(comprimido) {
+				try {
+					blocos[i] = CompressorBlocos.descomprime(blocos[i], tamanhosOriginais[i]);
+				} catch (StreamCorruptedException e) {
+					erros[i] = "bloco " + i + ": " + e.getMessage();
+				}
+			}
+		});
+
+		for(String erro : erros) {
+			if(erro != null) {
+				throw new StreamCorruptedException(erro);
+			}
+		}
+
+		final ArrayList<InputStream> streams = new ArrayList<>(qtdBlocos);
+
+		for(byte[] bloco : blocos) {
+			streams.add(new ByteArrayInputStream(bloco));
+		}
+
+		return new SequenceInputStream(Collections.enumeration(streams));
+	}
+
+	/**
+	 * Monta o cabecalho do arquivo: numero magico, versao, se os blocos estao comprimidos,
+	 * quantidade de blocos, o diretorio com o tamanho gravado, o tamanho original e o checksum
+	 * de cada bloco e, por fim, o checksum de tudo isso.
+	 * 
+	 * @param comprimido se os blocos estao comprimidos.
+	 * @param blocos blocos do objeto serializado.
+	 * @param gravados blocos como serao gravados no arquivo.
+	 * @param checksums checksum de cada bloco gravado.
+	 * 
+	 * @return os bytes do cabecalho.
+	 */
+	private static byte[] cabecalho(boolean comprimido, byte[][] blocos, byte[][] gravados, int[] checksums) {
+		final ByteBuffer cabecalho = ByteBuffer.allocate(16 + 12 * blocos.length + 4);
+		cabecalho.putInt(MAGICO).putInt(VERSAO).putInt(comprimido ? 1 : 0).putInt(blocos.length);
+
+		for(int i = 0; i < blocos.length; i++) {
+			cabecalho.putInt(gravados[i].length).putInt(blocos[i].length).putInt(checksums[i]);
+		}
+
+		cabecalho.putInt(checksum(cabecalho.array(), cabecalho.position()));
+
+		return cabecalho.array();
+	}
+
+	/**
+	 * Calcula o checksum CRC32C do comeco de um array.
+	 * 
+	 * @param bytes array de bytes.
+	 * @param tamanho quantidade de bytes usados no calculo.
+	 * 
+	 * @return o checksum.
+	 */
+	private static int checksum(byte[] bytes, int tamanho) {
+		final CRC32C crc = new CRC32C();
+		crc.update(bytes, 0, tamanho);
+
+		return (int) crc.getValue();
+	}
+
 	/**
 	 * Sobrescreve o arquivo anterior apos salvar o novo objeto.
 	 */
 	private void sobrescreveAnterior() {
 		File old = new File(this.nomeArquivo + ".bin");
 		File curr = new File(this.nomeArquivo + "-new.bin");
-		
+
 		if(old.exists()) {
 			old.delete();
 		} 
-		
+
 		curr.renameTo(old);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Stream que guarda os bytes escritos na memoria, divididos em blocos de {@link #TAMANHO_BLOCO}
+	 * bytes, sem copiar tudo para um array unico no final.
+	 */
+	private static class SaidaBlocos extends OutputStream {
+		private final ArrayList<byte[]> blocos = new ArrayList<>();
+		private byte[] atual = new byte[TAMANHO_BLOCO];
+		private int posicao = 0;
+
+		@Override
+		public void write(int b) {
+			if(this.posicao == TAMANHO_BLOCO) {
+				this.proximoBloco();
+			}
+
+			this.atual[this.posicao++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int inicio, int tamanho) {
+			while(tamanho > 0) {
+				if(this.posicao == TAMANHO_BLOCO) {
+					this.proximoBloco();
+				}
+
+				final int copiados = Math.min(tamanho, TAMANHO_BLOCO - this.posicao);
+				System.arraycopy(bytes, inicio, this.atual, this.posicao, copiados);
+				this.posicao += copiados;
+				inicio += copiados;
+				tamanho -= copiados;
+			}
+		}
+
+		/**
+		 * Blocos com tudo o que foi escrito. O ultimo bloco e cortado no tamanho usado.
+		 */
+		byte[][] getBlocos() {
+			final ArrayList<byte[]> todos = new ArrayList<>(this.blocos);
+
+			if(this.posicao > 0) {
+				todos.add(Arrays.copyOf(this.atual, this.posicao));
+			}
+
+			return todos.toArray(new byte[0][]);
+		}
+
+		private void proximoBloco() {
+			this.blocos.add(this.atual);
+			this.atual = new byte[TAMANHO_BLOCO];
+			this.posicao = 0;
+		}
+	}
+}
@@ -0,0 +1,464 @@
+package modelo.auxiliar;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+
+/**
+ * Classe que importa artigos de um arquivo texto para um banco de palavras chave, sem
+ * carregar o arquivo inteiro na memoria.
+ *
+ * </p>O arquivo e lido registro por registro e os registros sao agrupados em lotes. Um registro
+ * e uma linha, ou varias linhas quando um campo CSV entre aspas tem quebras de linha (veja
+ * {@link FormatoArtigo#registroIncompleto(CharSequence)}). Cada lote e convertido em artigos por uma thread de um pool, enquanto a thread que chamou
+ * {@link #importa(Path)} continua lendo o arquivo e aplica no banco os lotes ja convertidos,
+ * na ordem em que foram lidos. Como so uma quantidade fixa de lotes fica em andamento ao
+ * mesmo tempo, a memoria usada pelo importador nao depende do tamanho do arquivo.
+ *
+ * </p>Os artigos dos lotes convertidos sao agrupados por palavra chave em uma janela de varios
+ * lotes, e so quando a janela enche cada palavra chave dela e buscada e atualizada no banco, uma
+ * vez so. Em um banco com o {@link CodecPalavraChave}, os artigos novos sao acrescentados no fim do
+ * registro codificado da palavra, e os artigos que ja estavam nele so tem o titulo lido, para
+ * descartar os repetidos, entao uma palavra com muitos artigos nao e decodificada a cada janela.
+ *
+ * @see FormatoArtigo
+ */
+public class ImportadorArtigos {
+	/**
+	 * Quantidade de lotes juntados em cada janela antes de serem gravados no banco.
+	 */
+	private static final int LOTES_POR_JANELA = 16;
+
+	/**
+	 * Quantidade maxima de linhas de um registro. Um registro com aspas que nao sao fechadas nessa
+	 * quantidade de linhas e considerado invalido, e so a sua primeira linha e descartada.
+	 */
+	private static final int MAX_LINHAS_REGISTRO = 100;
+
+	/**
+	 * Banco onde os artigos serao importados.
+	 */
+	private MiniBD<PalavraChave, String> banco;
+
+	/**
+	 * Quantidade de linhas de cada lote.
+	 */
+	private int tamanhoLote;
+
+	/**
+	 * Quantidade de threads que convertem as linhas em artigos.
+	 */
+	private int qtdThreads;
+
+	/**
+	 * Quantidade de artigos importados na ultima importacao.
+	 */
+	private long qtdImportados;
+
+	/**
+	 * Artigos da janela atual que ainda nao foram gravados no banco, por palavra chave e, em
+	 * cada palavra chave, pelo titulo.
+	 */
+	private LinkedHashMap<String, LinkedHashMap<String, Artigo>> janela = new LinkedHashMap<>();
+
+	/**
+	 * Quantidade de lotes juntados na janela atual.
+	 */
+	private int lotesNaJanela;
+
+	/**
+	 * Quantidade de linhas que nao representavam um artigo valido na ultima importacao.
+	 */
+	private long qtdInvalidas;
+
+	/**
+	 * Constroi um importador que usa lotes de 1000 linhas e uma thread por processador.
+	 *
+	 * @param banco banco onde os artigos serao importados.
+	 */
+	public ImportadorArtigos(MiniBD<PalavraChave, String> banco) {
+		this(banco, 1000, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constroi um importador com o tamanho de lote e a quantidade de threads passados.
+	 * Valores menores que 1 sao trocados por 1.
+	 *
+	 * @param banco banco onde os artigos serao importados.
+	 * @param tamanhoLote quantidade de linhas de cada lote.
+	 * @param qtdThreads quantidade de threads que convertem as linhas em artigos.
+	 */
+	public ImportadorArtigos(MiniBD<PalavraChave, String> banco, int tamanhoLote, int qtdThreads) {
+		this.banco = banco;
+		this.tamanhoLote = Math.max(1, tamanhoLote);
+		this.qtdThreads = Math.max(1, qtdThreads);
+	}
+
+	/**
+	 * Getter da quantidade de artigos importados.
+	 *
+	 * @return quantidade de artigos adicionados no banco na ultima importacao, sem contar os
+	 * artigos que ja estavam nele ou que se repetiram no arquivo.
+	 */
+	public long getQtdImportados() {
+		return this.qtdImportados;
+	}
+
+	/**
+	 * Getter da quantidade de linhas invalidas.
+	 *
+	 * @return quantidade de linhas ignoradas na ultima importacao por nao representarem
+	 * um artigo valido.
+	 */
+	public long getQtdInvalidas() {
+		return this.qtdInvalidas;
+	}
+
+	/**
+	 * Importa um arquivo, descobrindo o seu formato pela extensao.
+	 *
+	 * @param arquivo arquivo com os artigos.
+	 *
+	 * @return quantidade de artigos importados.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 *
+	 * @see FormatoArtigo#deArquivo(Path)
+	 */
+	public long importa(Path arquivo) throws IOException {
+		return this.importa(arquivo, FormatoArtigo.deArquivo(arquivo));
+	}
+
+	/**
+	 * Importa um arquivo no formato passado. Linhas em branco sao ignoradas e registros que nao
+	 * representam um artigo valido sao contados em {@link #getQtdInvalidas()}. Um registro com aspas
+	 * que nao sao fechadas e invalido, e a leitura continua na linha seguinte a ele.
+	 *
+	 * @param arquivo arquivo com os artigos.
+	 * @param formato formato das linhas do arquivo.
+	 *
+	 * @return quantidade de artigos importados.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	public long importa(Path arquivo, FormatoArtigo formato) throws IOException {
+		this.qtdImportados = 0;
+		this.qtdInvalidas = 0;
+		this.janela.clear();
+		this.lotesNaJanela = 0;
+
+		// no maximo dois lotes por thread ficam em andamento, o que limita a memoria usada
+		final int maxLotesEmAndamento = 2 * this.qtdThreads;
+		final ArrayDeque<Future<LoteConvertido>> emAndamento = new ArrayDeque<>();
+		final ExecutorService conversores = Executors.newFixedThreadPool(this.qtdThreads);
+
+		try(BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+			final LeitorLinhas linhasArquivo = new LeitorLinhas(leitor);
+			ArrayList<String> linhas = new ArrayList<>(this.tamanhoLote);
+			String linha = leRegistro(linhasArquivo, formato);
+
+			// o cabecalho so pode estar na primeira linha
+			if(linha != null && formato.ehCabecalho(linha)) {
+				linha = leRegistro(linhasArquivo, formato);
+			}
+
+			while(linha != null) {
+				if(!linha.trim().isEmpty()) {
+					linhas.add(linha);
+				}
+
+				if(linhas.size() == this.tamanhoLote) {
+					final List<String> lote = linhas;
+					emAndamento.add(conversores.submit(() -> converte(lote, formato)));
+					linhas = new ArrayList<>(this.tamanhoLote);
+
+					// espera o lote mais antigo antes de ler mais linhas
+					if(emAndamento.size() >= maxLotesEmAndamento) {
+						this.aplica(emAndamento.poll());
+					}
+				}
+
+				linha = leRegistro(linhasArquivo, formato);
+			}
+
+			if(!linhas.isEmpty()) {
+				final List<String> lote = linhas;
+				emAndamento.add(conversores.submit(() -> converte(lote, formato)));
+			}
+
+			while(!emAndamento.isEmpty()) {
+				this.aplica(emAndamento.poll());
+			}
+
+			this.gravaJanela();
+		} finally {
+			conversores.shutdownNow();
+		}
+
+		return this.qtdImportados;
+	}
+
+	/**
+	 * Le o proximo registro do arquivo, juntando as linhas seguintes enquanto ele estiver dentro de
+	 * um campo entre aspas. As quebras de linha dentro do registro sao mantidas como estavam no
+	 * arquivo, e a do fim dele e tirada. Caso as aspas nao sejam fechadas em
+	 * {@link #MAX_LINHAS_REGISTRO} linhas ou ate o fim do arquivo, so a primeira linha e devolvida,
+	 * para ser contada como invalida, e as outras sao lidas de novo.
+	 *
+	 * @param linhas linhas do arquivo.
+	 * @param formato formato do arquivo.
+	 *
+	 * @return o registro lido, ou {@code null} no fim do arquivo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	private static String leRegistro(LeitorLinhas linhas, FormatoArtigo formato) throws IOException {
+		final String primeira = linhas.proxima();
+
+		if(primeira == null || !formato.registroIncompleto(primeira)) {
+			return primeira == null ? null : tiraQuebraFinal(primeira);
+		}
+
+		final StringBuilder registro = new StringBuilder(primeira);
+		final ArrayList<String> seguintes = new ArrayList<>();
+		String linha;
+
+		while(seguintes.size() < MAX_LINHAS_REGISTRO - 1 && (linha = linhas.proxima()) != null) {
+			seguintes.add(linha);
+			registro.append(linha);
+
+			if(!formato.registroIncompleto(registro)) {
+				return tiraQuebraFinal(registro.toString());
+			}
+		}
+
+		linhas.devolve(seguintes);
+		return tiraQuebraFinal(primeira);
+	}
+
+	/**
+	 * Tira a quebra de linha do fim de uma linha lida por {@link LeitorLinhas}.
+	 *
+	 * @param linha linha lida.
+	 *
+	 * @return a linha sem o {@code \n} ou {@code \r} final.
+	 */
+	private static String tiraQuebraFinal(String linha) {
+		final int fim = linha.length() - 1;
+
+		return fim >= 0 && (linha.charAt(fim) == '\n' || linha.charAt(fim) == '\r') ? linha.substring(0, fim) : linha;
+	}
+
+	/**
+	 * Espera um lote ser convertido e junta os seus artigos na janela, gravando a janela no banco
+	 * quando ela enche.
+	 *
+	 * @param lote lote em conversao.
+	 *
+	 * @throws IOException Caso a conversao tenha sido interrompida.
+	 */
+	private void aplica(Future<LoteConvertido> lote) throws IOException {
+		final LoteConvertido convertido;
+
+		try {
+			convertido = lote.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Importacao interrompida.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Erro ao converter um lote de artigos.", e.getCause());
+		}
+
+		this.qtdInvalidas += convertido.qtdInvalidas;
+
+		for(Artigo a : convertido.artigos) {
+			for(String palavra : a.getPalavrasChave()) {
+				this.janela.computeIfAbsent(palavra, p -> new LinkedHashMap<>()).putIfAbsent(a.getTitulo(), a);
+			}
+		}
+
+		if(++this.lotesNaJanela == LOTES_POR_JANELA) {
+			this.gravaJanela();
+		}
+	}
+
+	/**
+	 * Grava os artigos da janela no banco. Cada palavra chave da janela e buscada e salva no banco
+	 * uma unica vez, e os artigos que ja estao na lista dela nao sao adicionados de novo. Um
+	 * artigo e contado como importado quando entra na lista de alguma das suas palavras chave.
+	 *
+	 * @throws IOException Caso o registro de uma palavra chave nao possa ser lido.
+	 */
+	private void gravaJanela() throws IOException {
+		final boolean codificado = this.banco.getCodec() instanceof CodecPalavraChave;
+		final HashSet<String> adicionados = new HashSet<>();
+
+		for(Map.Entry<String, LinkedHashMap<String, Artigo>> entrada : this.janela.entrySet()) {
+			final String palavra = entrada.getKey();
+			final LinkedHashMap<String, Artigo> novos = entrada.getValue();
+
+			if(codificado) {
+				final byte[] bytes = this.banco.buscaCodificado(palavra);
+
+				if(bytes != null) {
+					CodecPalavraChave.tiraPresentes(bytes, novos);
+
+					// so os artigos novos sao escritos, depois dos bytes que ja estavam no banco
+					if(!novos.isEmpty()) {
+						this.banco.atualizaCodificado(palavra, CodecPalavraChave.acrescentaArtigos(bytes, novos.values()));
+					}
+				} else {
+					this.banco.adiciona(new PalavraChave(palavra, new ArrayList<>(novos.values())));
+				}
+			} else {
+				// sem o formato do codec, a palavra chave e decodificada e codificada inteira
+				PalavraChave pc = this.banco.busca(palavra);
+
+				if(pc != null) {
+					for(Artigo a : pc.getArtigos()) {
+						novos.remove(a.getTitulo());
+					}
+
+					if(!novos.isEmpty()) {
+						novos.values().forEach(pc::addArtigo);
+						this.banco.atualiza(pc);
+					}
+				} else {
+					this.banco.adiciona(new PalavraChave(palavra, new ArrayList<>(novos.values())));
+				}
+			}
+
+			adicionados.addAll(novos.keySet());
+		}
+
+		this.qtdImportados += adicionados.size();
+		this.janela.clear();
+		this.lotesNaJanela = 0;
+	}
+
+	/**
+	 * Converte as linhas de um lote em artigos. Essa funcao roda nas threads do pool.
+	 *
+	 * @param linhas linhas do lote.
+	 * @param formato formato das linhas.
+	 *
+	 * @return os artigos convertidos e a quantidade de linhas invalidas.
+	 */
+	private static LoteConvertido converte(List<String> linhas, FormatoArtigo formato) {
+		final LoteConvertido convertido = new LoteConvertido(linhas.size());
+
+		for(String linha : linhas) {
+			try {
+				convertido.artigos.add(formato.converte(linha));
+			} catch (IllegalArgumentException e) {
+				convertido.qtdInvalidas++;
+			}
+		}
+
+		return convertido;
+	}
+
+	/**
+	 * Leitor das linhas de um arquivo que, ao contrario de {@link BufferedReader#readLine()}, mantem
+	 * a quebra de linha no fim de cada linha, para que um campo com quebras de linha seja lido
+	 * exatamente como foi escrito. Cada {@code \r} e cada {@code \n} terminam uma linha, entao um
+	 * {@code \r\n} gera uma linha com so o {@code \n}, que fica em branco fora de um campo entre aspas.
+	 */
+	private static class LeitorLinhas {
+		private final Reader leitor;
+		private final char[] buffer = new char[8192];
+		private int posicao;
+		private int fim;
+		private final ArrayDeque<String> devolvidas = new ArrayDeque<>();
+
+		private LeitorLinhas(Reader leitor) {
+			this.leitor = leitor;
+		}
+
+		/**
+		 * Le a proxima linha, com a quebra de linha do fim, caso ela exista.
+		 *
+		 * @return a linha lida, ou {@code null} no fim do arquivo.
+		 *
+		 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+		 */
+		private String proxima() throws IOException {
+			if(!this.devolvidas.isEmpty()) {
+				return this.devolvidas.poll();
+			}
+
+			StringBuilder linha = null;
+
+			while(true) {
+				if(this.posicao == this.fim) {
+					this.fim = Math.max(0, this.leitor.read(this.buffer));
+					this.posicao = 0;
+
+					if(this.fim == 0) {
+						return linha == null ? null : linha.toString();
+					}
+				}
+
+				final int inicio = this.posicao;
+
+				while(this.posicao < this.fim && this.buffer[this.posicao] != '\n' && this.buffer[this.posicao] != '\r') {
+					this.posicao++;
+				}
+
+				if(this.posicao < this.fim) {
+					this.posicao++;
+					final String resto = new String(this.buffer, inicio, this.posicao - inicio);
+
+					return linha == null ? resto : linha.append(resto).toString();
+				}
+
+				if(linha == null) {
+					linha = new StringBuilder();
+				}
+				linha.append(this.buffer, inicio, this.posicao - inicio);
+			}
+		}
+
+		/**
+		 * Devolve linhas ja lidas, que serao as proximas retornadas por {@link #proxima()}, na mesma ordem.
+		 *
+		 * @param linhas linhas devolvidas.
+		 */
+		private void devolve(List<String> linhas) {
+			for(int i = linhas.size() - 1; i >= 0; i--) {
+				this.devolvidas.addFirst(linhas.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Resultado da conversao de um lote de linhas.
+	 */
+	private static class LoteConvertido {
+		private final ArrayList<Artigo> artigos;
+		private int qtdInvalidas;
+
+		private LoteConvertido(int tamanho) {
+			this.artigos = new ArrayList<>(tamanho);
+			this.qtdInvalidas = 0;
+		}
+	}
+}
@@ -1,33 +1,101 @@
 package modelo.auxiliar;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import banco.CodecRegistro;
+import banco.ConstrutorBanco;
 import banco.MiniBD;
 import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
 import modelo.artigo.PalavraChave;
 
 /**
  * Classe que monta um banco de dados padrao, i.e., com artigos
  * gerados aleatoriamente pelo {@code GeradorArtigos}.
  *
+ * </p>A montagem e feita em tres etapas que rodam ao mesmo tempo, ligadas por filas limitadas:
+ * </p>- Geracao: varias threads geram os blocos de artigos e mandam cada artigo para as particoes
+ * das suas palavras chave. Cada palavra pertence a uma unica particao, escolhida pelo hash dela.
+ * </p>- Agrupamento: uma thread por particao junta os artigos de cada palavra chave. Quando todos os
+ * artigos chegam, ela ordena as suas palavras e codifica cada uma, em paralelo com as outras particoes.
+ * </p>- Indices: a thread que chamou {@link #monta()} intercala as particoes ordenadas e passa os
+ * registros para um {@link ConstrutorBanco}, que monta a arvore de indices de uma vez so.
+ *
+ * </p>As filas limitadas fazem com que uma etapa rapida espere pela seguinte, ao inves de acumular
+ * todos os artigos na memoria. Os blocos sao agrupados na ordem em que foram gerados, entao, para uma
+ * mesma semente, o banco montado e o mesmo que o de uma montagem sequencial, qualquer que seja a
+ * quantidade de threads.
+ *
  * @see modelo.auxiliar.GeradorArtigos
  */
 public class MontadorBDPadrao {
+	/**
+	 * Quantidade de artigos do banco padrao.
+	 */
+	public static final int QTD_ARTIGOS_PADRAO = 100000;
+
+	private static final int MAX_PALAVRAS_CHAVE = 5;
+	private static final int MAX_AUTORES = 5;
+
+	/**
+	 * Quantidade maxima de lotes esperando em cada fila.
+	 */
+	private static final int CAPACIDADE_FILA = 8;
+
+	/**
+	 * Quantidade de registros codificados mandados de uma vez para a etapa dos indices.
+	 */
+	private static final int REGISTROS_POR_LOTE = 512;
+
 	private MiniBD<PalavraChave, String> banco;
 	private String nomeBanco;
-	
+	private GeradorArtigos gerador;
+	private int qtdArtigos;
+	private int qtdThreads;
+
 	/**
-	 * Constroi uma instancia da classe.
-	 * 
+	 * Constroi uma instancia da classe que monta o banco padrao usando todos os
+	 * processadores da maquina.
+	 *
 	 * @param nomeBanco nome do banco que sera criado.
 	 */
 	public MontadorBDPadrao(String nomeBanco) {
+		this(nomeBanco, new GeradorArtigos(), QTD_ARTIGOS_PADRAO, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constroi uma instancia da classe.
+	 *
+	 * @param nomeBanco nome do banco que sera criado.
+	 * @param gerador gerador dos artigos. Sua configuracao e semente sao usadas, mas o seu estado
+	 * nao e alterado.
+	 * @param qtdArtigos quantidade de artigos gerados.
+	 * @param qtdThreads quantidade de threads de geracao e de particoes de palavras chave.
+	 */
+	public MontadorBDPadrao(String nomeBanco, GeradorArtigos gerador, int qtdArtigos, int qtdThreads) {
+		if(qtdThreads < 1) {
+			throw new IllegalArgumentException("A montagem precisa de pelo menos uma thread!!");
+		}
+
 		this.nomeBanco = nomeBanco;
+		this.gerador = gerador;
+		this.qtdArtigos = qtdArtigos;
+		this.qtdThreads = qtdThreads;
 	}
 
 	/**
 	 * Getter do banco criado por essa classe
-	 * 
+	 *
 	 * @return uma instancia de {@code}
 	 */
 	public MiniBD<PalavraChave, String> getBanco() {
@@ -35,18 +103,311 @@ public class MontadorBDPadrao {
 		if(this.banco == null) {
 			this.monta();
 		}
-		
+
 		return banco;
 	}
-	
+
 	/**
 	 * Funcao que cria o banco aleatorio.
 	 */
 	public void monta() {
-		final GeradorArtigos geradorArtigos = new GeradorArtigos();
-		final ArrayList<Artigo> artigos = geradorArtigos.gera(100000, 5, 5);
-		final ArrayList<PalavraChave> palavrasChave = ProcessadorPalavrasChave.processa(artigos);
-		
-		this.banco = new MiniBD<>(palavrasChave, (PalavraChave pc) -> pc.getPalavra(), this.nomeBanco);
+		final CodecPalavraChave codec = new CodecPalavraChave();
+		final int qtdBlocos = (this.qtdArtigos + GeradorArtigos.TAMANHO_BLOCO - 1) / GeradorArtigos.TAMANHO_BLOCO;
+		final AtomicLong proximoBloco = new AtomicLong(0);
+		final AtomicReference<Throwable> falha = new AtomicReference<>();
+
+		final List<ArrayBlockingQueue<Lote<Artigo>>> entradas = new ArrayList<>();
+		final List<ArrayBlockingQueue<Lote<RegistroCodificado>>> saidas = new ArrayList<>();
+
+		for(int i = 0; i < this.qtdThreads; i++) {
+			entradas.add(new ArrayBlockingQueue<>(CAPACIDADE_FILA));
+			saidas.add(new ArrayBlockingQueue<>(CAPACIDADE_FILA));
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2 * this.qtdThreads);
+
+		try {
+			for(int i = 0; i < this.qtdThreads; i++) {
+				final int particao = i;
+
+				executor.execute(() -> executaEtapa(falha, () -> this.gera(proximoBloco, qtdBlocos, entradas)));
+				executor.execute(() -> executaEtapa(falha, () -> this.agrupa(particao, entradas.get(particao),
+						saidas.get(particao), codec)));
+			}
+
+			this.banco = this.montaIndices(saidas, codec, falha);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("A montagem do banco " + this.nomeBanco + " foi interrompida.", e);
+		} finally {
+			// interrompe as etapas que ainda estejam esperando, caso alguma tenha falhado
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Etapa de geracao: gera blocos de artigos ate que todos tenham sido gerados e manda cada
+	 * artigo para as particoes das suas palavras chave. Todas as particoes recebem todos os
+	 * blocos, mesmo que vazios, para que elas saibam a ordem dos blocos.
+	 *
+	 * @param proximoBloco contador compartilhado com o proximo bloco que sera gerado.
+	 * @param qtdBlocos quantidade total de blocos.
+	 * @param entradas filas de entrada das particoes.
+	 *
+	 * @throws InterruptedException Caso a montagem seja cancelada.
+	 */
+	private void gera(AtomicLong proximoBloco, int qtdBlocos, List<ArrayBlockingQueue<Lote<Artigo>>> entradas)
+			throws InterruptedException {
+		final int qtdParticoes = entradas.size();
+		final int[] ultimoArtigo = new int[qtdParticoes];
+
+		for(long bloco = proximoBloco.getAndIncrement(); bloco < qtdBlocos; bloco = proximoBloco.getAndIncrement()) {
+			final int tamanho = (int) Math.min(GeradorArtigos.TAMANHO_BLOCO, this.qtdArtigos - bloco * GeradorArtigos.TAMANHO_BLOCO);
+			final ArrayList<Artigo> artigos = this.gerador.geraBloco(bloco, tamanho, MAX_PALAVRAS_CHAVE, MAX_AUTORES);
+			final List<ArrayList<Artigo>> porParticao = new ArrayList<>(qtdParticoes);
+
+			for(int p = 0; p < qtdParticoes; p++) {
+				porParticao.add(new ArrayList<>());
+				ultimoArtigo[p] = -1;
+			}
+
+			for(int i = 0; i < artigos.size(); i++) {
+				for(String palavra : artigos.get(i).getPalavrasChave()) {
+					final int p = particao(palavra, qtdParticoes);
+
+					// um artigo vai uma vez so para cada particao, mesmo com varias palavras nela
+					if(ultimoArtigo[p] != i) {
+						porParticao.get(p).add(artigos.get(i));
+						ultimoArtigo[p] = i;
+					}
+				}
+			}
+
+			for(int p = 0; p < qtdParticoes; p++) {
+				entradas.get(p).put(new Lote<>(bloco, porParticao.get(p)));
+			}
+		}
+
+		for(ArrayBlockingQueue<Lote<Artigo>> entrada : entradas) {
+			entrada.put(Lote.fim());
+		}
+	}
+
+	/**
+	 * Etapa de agrupamento de uma particao: junta os artigos de cada palavra chave da particao e,
+	 * quando todos os geradores terminam, manda as palavras codificadas, em ordem, para a etapa
+	 * dos indices.
+	 *
+	 * @param particao numero da particao.
+	 * @param entrada fila com os blocos de artigos da particao.
+	 * @param saida fila onde os registros codificados sao colocados.
+	 * @param codec codec dos registros do banco.
+	 *
+	 * @throws Exception Caso a montagem seja cancelada ou algum registro nao possa ser codificado.
+	 */
+	private void agrupa(int particao, ArrayBlockingQueue<Lote<Artigo>> entrada, ArrayBlockingQueue<Lote<RegistroCodificado>> saida,
+			CodecRegistro<PalavraChave> codec) throws Exception {
+		final HashMap<String, PalavraChave> grupos = new HashMap<>();
+
+		// blocos que chegaram antes dos blocos anteriores a eles. Os blocos sao agrupados em ordem
+		// para que as listas de artigos nao dependam da ordem em que as threads terminam
+		final HashMap<Long, List<Artigo>> adiantados = new HashMap<>();
+		long proximoBloco = 0;
+		int geradoresAtivos = this.qtdThreads;
+
+		while(geradoresAtivos > 0) {
+			final Lote<Artigo> lote = entrada.take();
+
+			if(lote.ehFim()) {
+				geradoresAtivos--;
+				continue;
+			}
+
+			adiantados.put(lote.numero, lote.itens);
+
+			for(List<Artigo> artigos = adiantados.remove(proximoBloco); artigos != null; artigos = adiantados.remove(++proximoBloco)) {
+				for(Artigo a : artigos) {
+					for(String palavra : a.getPalavrasChave()) {
+						if(particao(palavra, this.qtdThreads) == particao) {
+							grupos.computeIfAbsent(palavra, PalavraChave::new).addArtigo(a);
+						}
+					}
+				}
+			}
+		}
+
+		final ArrayList<String> palavras = new ArrayList<>(grupos.keySet());
+		Collections.sort(palavras);
+
+		ArrayList<RegistroCodificado> registros = new ArrayList<>(REGISTROS_POR_LOTE);
+
+		for(String palavra : palavras) {
+			// a palavra sai do mapa assim que e codificada, liberando a memoria dos objetos
+			registros.add(new RegistroCodificado(palavra, codec.codifica(grupos.remove(palavra))));
+
+			if(registros.size() == REGISTROS_POR_LOTE) {
+				saida.put(new Lote<>(0, registros));
+				registros = new ArrayList<>(REGISTROS_POR_LOTE);
+			}
+		}
+
+		if(registros.size() != 0) {
+			saida.put(new Lote<>(0, registros));
+		}
+
+		saida.put(Lote.fim());
+	}
+
+	/**
+	 * Etapa dos indices: intercala os registros ordenados de todas as particoes e monta o banco
+	 * com eles.
+	 *
+	 * @param saidas filas com os registros codificados de cada particao.
+	 * @param codec codec dos registros do banco.
+	 * @param falha primeiro erro ocorrido em alguma das outras etapas.
+	 *
+	 * @return o banco montado.
+	 *
+	 * @throws InterruptedException Caso a montagem seja interrompida.
+	 */
+	private MiniBD<PalavraChave, String> montaIndices(List<ArrayBlockingQueue<Lote<RegistroCodificado>>> saidas,
+			CodecRegistro<PalavraChave> codec, AtomicReference<Throwable> falha) throws InterruptedException {
+		final ConstrutorBanco<PalavraChave, String> construtor = new ConstrutorBanco<>((PalavraChave pc) -> pc.getPalavra(),
+				codec, this.nomeBanco);
+		final PriorityQueue<Cursor> cursores = new PriorityQueue<>(
+				(a, b) -> a.atual().chave.compareTo(b.atual().chave));
+
+		for(ArrayBlockingQueue<Lote<RegistroCodificado>> saida : saidas) {
+			final Cursor cursor = new Cursor(saida, falha);
+
+			if(cursor.avanca()) {
+				cursores.add(cursor);
+			}
+		}
+
+		while(!cursores.isEmpty()) {
+			final Cursor cursor = cursores.poll();
+			construtor.adiciona(cursor.atual().chave, cursor.atual().bytes);
+
+			if(cursor.avanca()) {
+				cursores.add(cursor);
+			}
+		}
+
+		return construtor.constroi();
+	}
+
+	/**
+	 * Particao a que uma palavra chave pertence.
+	 */
+	private static int particao(String palavra, int qtdParticoes) {
+		return Math.floorMod(palavra.hashCode(), qtdParticoes);
+	}
+
+	/**
+	 * Roda uma etapa da montagem, guardando o primeiro erro que acontecer em alguma etapa para
+	 * que a etapa dos indices possa ser avisada.
+	 */
+	private static void executaEtapa(AtomicReference<Throwable> falha, Etapa etapa) {
+		try {
+			etapa.executa();
+		} catch (InterruptedException e) {
+			// a montagem foi cancelada
+		} catch (Throwable e) {
+			falha.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * Uma etapa da montagem, rodada em uma thread do executor.
+	 */
+	@FunctionalInterface
+	private interface Etapa {
+		void executa() throws Exception;
+	}
+
+	/**
+	 * Conjunto de itens passado de uma etapa para outra. Um lote com numero negativo marca o fim
+	 * dos lotes de quem o mandou.
+	 */
+	private static class Lote<E> {
+		private final long numero;
+		private final List<E> itens;
+
+		private Lote(long numero, List<E> itens) {
+			this.numero = numero;
+			this.itens = itens;
+		}
+
+		private static <E> Lote<E> fim() {
+			return new Lote<>(-1, Collections.emptyList());
+		}
+
+		private boolean ehFim() {
+			return this.numero < 0;
+		}
+	}
+
+	/**
+	 * Uma palavra chave ja codificada, junto com a sua chave.
+	 */
+	private static class RegistroCodificado {
+		private final String chave;
+		private final byte[] bytes;
+
+		private RegistroCodificado(String chave, byte[] bytes) {
+			this.chave = chave;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Posicao atual na sequencia ordenada de registros de uma particao.
+	 */
+	private static class Cursor {
+		private final ArrayBlockingQueue<Lote<RegistroCodificado>> fila;
+		private final AtomicReference<Throwable> falha;
+		private List<RegistroCodificado> lote;
+		private int posicao;
+
+		private Cursor(ArrayBlockingQueue<Lote<RegistroCodificado>> fila, AtomicReference<Throwable> falha) {
+			this.fila = fila;
+			this.falha = falha;
+			this.lote = Collections.emptyList();
+			this.posicao = -1;
+		}
+
+		private RegistroCodificado atual() {
+			return this.lote.get(this.posicao);
+		}
+
+		/**
+		 * Avanca para o proximo registro, esperando o proximo lote da particao se necessario.
+		 *
+		 * @return {@code false} caso a particao nao tenha mais registros.
+		 *
+		 * @throws InterruptedException Caso a montagem seja interrompida.
+		 */
+		private boolean avanca() throws InterruptedException {
+			this.posicao++;
+
+			while(this.posicao >= this.lote.size()) {
+				final Lote<RegistroCodificado> proximo = this.fila.poll(100, TimeUnit.MILLISECONDS);
+
+				if(proximo == null) {
+					// a espera e curta para que um erro em outra etapa nao trave a montagem
+					if(this.falha.get() != null) {
+						throw new RuntimeException("Erro na montagem do banco.", this.falha.get());
+					}
+				} else if(proximo.ehFim()) {
+					return false;
+				} else {
+					this.lote = proximo.itens;
+					this.posicao = 0;
+				}
+			}
+
+			return true;
+		}
 	}
 }
@@ -1,6 +1,7 @@
 package modelo.auxiliar;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 
 import modelo.artigo.Artigo;
 import modelo.artigo.PalavraChave;
@@ -25,31 +26,20 @@ public class ProcessadorPalavrasChave {
 	 * lista dos artigos nos quais ela aparece.
 	 */
 	public static ArrayList<PalavraChave> processa(ArrayList<Artigo> artigos) {
-		ArrayList<PalavraChave> palavras = new ArrayList<>();
+		// o mapa encontra a palavra chave de cada palavra em tempo constante e mantem a ordem
+		// em que as palavras aparecem pela primeira vez
+		LinkedHashMap<String, PalavraChave> palavras = new LinkedHashMap<>();
 		
 		// repete para cada artigo
 		for(Artigo a : artigos) {
 			// repete para cada palavra chave do artigo
 			for(String pc : a.getPalavrasChave()) {
-				// cria um objeto PalavraChave referente a palavra atual
-				final PalavraChave pcDummy = new PalavraChave(pc);
-				
-				if(palavras.contains(pcDummy)) {
-					// caso essa palavra ja esteja na lista, adicione o artigo atual
-					// na lista de artigos dessa palavra
-					final int posicao = palavras.indexOf(pcDummy);
-					PalavraChave pcReal = palavras.get(posicao);
-					
-					pcReal.addArtigo(a);
-				} else {
-					// caso contrario, adicione o artigo na lista de artigos da palavra
-					// chave e adicione a palavra chave na lista de palavras.
-					pcDummy.addArtigo(a);
-					palavras.add(pcDummy);
-				}
+				// caso essa palavra ainda nao esteja no mapa, cria um objeto PalavraChave
+				// referente a ela. Depois, adiciona o artigo atual na lista de artigos dela
+				palavras.computeIfAbsent(pc, PalavraChave::new).addArtigo(a);
 			}
 		}
 		
-		return palavras;
+		return new ArrayList<>(palavras.values());
 	}
 }
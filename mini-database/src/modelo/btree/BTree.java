@@ -1,7 +1,10 @@
 package modelo.btree;
 
-import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import modelo.indice.Indice;
 
 /**
  * Classe da arvore B que traduz uma chave de um tipo qualquer
@@ -9,11 +12,17 @@ import java.util.ArrayList;
  * duplicados.
  *
  */
-public class BTree<K extends Comparable<K>> implements Serializable {
+public class BTree<K extends Comparable<K>> implements Indice<K> {
 	private static final long serialVersionUID = -7560067459913604026L;
 	private Node<K> raiz;
 	private int grauMaximo;
 	
+	/**
+	 * Geracao atual da arvore. Ela aumenta a cada copia instantanea, e so os nodes da geracao
+	 * atual podem ser alterados.
+	 */
+	private int geracao;
+	
 	/**
 	 * Constroi uma arvore binaria.
 	 */
@@ -40,6 +49,121 @@ public class BTree<K extends Comparable<K>> implements Serializable {
 		this.raiz = null;
 	}
 	
+	/**
+	 * Constroi uma arvore B n-aria a partir de pares (chave, indice) ja ordenados pela chave.
+	 * A arvore e montada de baixo para cima, dividindo as chaves igualmente entre os filhos de
+	 * cada node, o que custa O(n) ao inves dos O(n log n) de inserir as chaves uma de cada vez
+	 * e deixa os nodes mais cheios do que as insercoes deixariam.
+	 * 
+	 * </p>Os indices nao sao verificados, entao eles nao devem ter repeticoes.
+	 * 
+	 * @param <K> tipo de chave armazenada na arvore.
+	 * 
+	 * @param n grau maximo da arvore. Caso seja menor que 2, o grau maximo sera 2.
+	 * @param chaves chaves em ordem estritamente crescente.
+	 * @param indices indice de cada chave, na mesma ordem das chaves.
+	 * 
+	 * @return uma arvore com todos os pares passados.
+	 */
+	public static <K extends Comparable<K>> BTree<K> constroiOrdenada(int n, List<K> chaves, List<Integer> indices) {
+		if(chaves.size() != indices.size()) {
+			throw new IllegalArgumentException("Cada chave precisa de exatamente um indice!!");
+		}
+		
+		for(int i = 1; i < chaves.size(); i++) {
+			if(chaves.get(i - 1).compareTo(chaves.get(i)) >= 0) {
+				throw new IllegalArgumentException("As chaves devem estar em ordem estritamente crescente!!");
+			}
+		}
+		
+		BTree<K> arvore = new BTree<>(n);
+		
+		if(chaves.size() == 0) {
+			return arvore;
+		}
+		
+		if(arvore.grauMaximo < 4) {
+			// com graus muito pequenos a divisao igual pode deixar nodes sem chaves, entao
+			// as chaves sao inseridas uma de cada vez
+			for(int i = 0; i < chaves.size(); i++) {
+				arvore.insere(chaves.get(i), indices.get(i));
+			}
+			
+			return arvore;
+		}
+		
+		// procura a menor altura em que todas as chaves cabem
+		int altura = 0;
+		while(capacidade(arvore.grauMaximo, altura) < chaves.size()) {
+			altura++;
+		}
+		
+		arvore.raiz = constroiSubarvore(arvore.grauMaximo, chaves, indices, 0, chaves.size(), altura);
+		
+		return arvore;
+	}
+	
+	/**
+	 * Constroi uma subarvore com as chaves do intervalo [inicio, fim).
+	 * 
+	 * @param grau grau maximo da arvore.
+	 * @param chaves todas as chaves ordenadas.
+	 * @param indices todos os indices.
+	 * @param inicio primeira chave da subarvore.
+	 * @param fim posicao seguinte a ultima chave da subarvore.
+	 * @param altura altura da subarvore, onde 0 e uma folha.
+	 * 
+	 * @return a raiz da subarvore.
+	 */
+	private static <K extends Comparable<K>> Node<K> constroiSubarvore(int grau, List<K> chaves, List<Integer> indices,
+			int inicio, int fim, int altura) {
+		if(altura == 0) {
+			return new Node<>(grau, new ArrayList<>(chaves.subList(inicio, fim)),
+					new ArrayList<>(indices.subList(inicio, fim)), null);
+		}
+		
+		// menor quantidade de filhos em que as chaves cabem. cada chave do node separa dois
+		// filhos, entao os filhos dividem as chaves que sobram
+		final long capacidadeFilho = capacidade(grau, altura - 1);
+		final int qtdChaves = fim - inicio;
+		final int qtdFilhos = (int) ((qtdChaves + 1 + capacidadeFilho) / (capacidadeFilho + 1));
+		final int chavesNosFilhos = qtdChaves - (qtdFilhos - 1);
+		
+		ArrayList<K> chavesNode = new ArrayList<>(qtdFilhos - 1);
+		ArrayList<Integer> indicesNode = new ArrayList<>(qtdFilhos - 1);
+		ArrayList<Node<K>> filhos = new ArrayList<>(qtdFilhos);
+		int atual = inicio;
+		
+		for(int i = 0; i < qtdFilhos; i++) {
+			// os primeiros filhos ficam com uma chave a mais quando a divisao nao e exata
+			final int tamanhoFilho = chavesNosFilhos / qtdFilhos + (i < chavesNosFilhos % qtdFilhos ? 1 : 0);
+			filhos.add(constroiSubarvore(grau, chaves, indices, atual, atual + tamanhoFilho, altura - 1));
+			atual += tamanhoFilho;
+			
+			if(i < qtdFilhos - 1) {
+				chavesNode.add(chaves.get(atual));
+				indicesNode.add(indices.get(atual));
+				atual++;
+			}
+		}
+		
+		return new Node<>(grau, chavesNode, indicesNode, filhos);
+	}
+	
+	/**
+	 * Calcula a quantidade maxima de chaves de uma subarvore, i.e., {@code grau^(altura+1) - 1}.
+	 * O resultado e limitado para nao estourar um {@code long}.
+	 */
+	private static long capacidade(int grau, int altura) {
+		long resultado = 1;
+		
+		for(int i = 0; i <= altura && resultado <= Integer.MAX_VALUE; i++) {
+			resultado *= grau;
+		}
+		
+		return resultado - 1;
+	}
+	
 	/**
 	 * Getter do grau maximo da arvore.
 	 * 
@@ -55,6 +179,7 @@ public class BTree<K extends Comparable<K>> implements Serializable {
 	 * @param chave chave buscada.
 	 * @return o indice dessa chave, ou -1, caso a mesma nao esteja na arvore.
 	 */
+	@Override
 	public int busca(K chave) {
 		if(this.raiz != null) {
 			return raiz.busca(chave);
@@ -71,15 +196,18 @@ public class BTree<K extends Comparable<K>> implements Serializable {
 	 * 
 	 * @see Node#insere(Comparable, int)
 	 */
+	@Override
 	public void insere(K chave, int indice) {
 		// caso a raiz seja nula, atribua a ela um node novo
 		if(this.raiz == null) {
 			this.raiz = new Node<K>(this.grauMaximo);
+			this.raiz.setGeracao(this.geracao);
 		}
 		
 		// so insere se a arvore nao tiver o indice
 		if(!raiz.temIndice(indice)) {
 			// insere o par recursivamente na arvore.
+			this.preparaEscrita(chave, false);
 			raiz.insere(chave, indice);
 
 			// como quem balanceia um node e seu pai, esse balanceamento precisa ser
@@ -95,6 +223,7 @@ public class BTree<K extends Comparable<K>> implements Serializable {
 				
 				// criando o node da nova raiz e corrigindo o overflow da raiz antiga
 				Node<K> novaRaiz = new Node<>(this.grauMaximo, null, null, filhosNovaRaiz);
+				novaRaiz.setGeracao(this.geracao);
 				novaRaiz.corrigeOverflowEm(0);
 				
 				this.raiz = novaRaiz;
@@ -107,12 +236,81 @@ public class BTree<K extends Comparable<K>> implements Serializable {
 	 * 
 	 * @param chave chave a ser removida.
 	 */
+	@Override
 	public void remove(K chave) {
 		if(this.raiz != null) {
+			this.preparaEscrita(chave, true);
 			raiz.remove(chave);
 		}
 	}
 	
+	/**
+	 * Cria uma copia instantanea da arvore, que compartilha todos os nodes com ela. Depois da
+	 * copia, a arvore passa para uma nova geracao: um node compartilhado e copiado na primeira
+	 * vez em que uma insercao ou remocao precisa altera-lo, entao a copia nao muda e pode ser
+	 * lida (por exemplo, salva em um arquivo) em outra thread enquanto a arvore e alterada.
+	 * 
+	 * </p>A copia nao deve ser alterada.
+	 * 
+	 * @return a copia instantanea da arvore.
+	 */
+	@Override
+	public BTree<K> copiaInstantanea() {
+		BTree<K> copia = new BTree<>(this.grauMaximo);
+		copia.raiz = this.raiz;
+		copia.geracao = this.geracao;
+		
+		this.geracao++;
+		
+		return copia;
+	}
+	
+	/**
+	 * Copia os nodes de geracoes anteriores que uma insercao ou remocao pode alterar,
+	 * comecando pela raiz.
+	 * 
+	 * @param chave chave que sera inserida ou removida.
+	 * @param remocao {@code true} caso a operacao seja uma remocao.
+	 * 
+	 * @see Node#preparaCaminho(Comparable, int, boolean)
+	 */
+	private void preparaEscrita(K chave, boolean remocao) {
+		if(this.raiz.getGeracao() != this.geracao) {
+			this.raiz = this.raiz.copia(this.geracao);
+		}
+		
+		this.raiz.preparaCaminho(chave, this.geracao, remocao);
+	}
+	
+	/**
+	 * Percorre todos os pares (chave, indice) da arvore em ordem crescente de chave.
+	 * 
+	 * @param consumidor funcao chamada para cada par da arvore.
+	 * 
+	 * @see Node#percorre(BiConsumer)
+	 */
+	@Override
+	public void percorre(BiConsumer<K, Integer> consumidor) {
+		if(this.raiz != null) {
+			raiz.percorre(consumidor);
+		}
+	}
+	
+	/**
+	 * Busca a menor chave da arvore maior ou igual a chave passada.
+	 * 
+	 * @see Node#teto(Comparable)
+	 */
+	@Override
+	public K teto(K chave) {
+		return this.raiz == null ? null : this.raiz.teto(chave);
+	}
+	
+	@Override
+	public boolean ehOrdenado() {
+		return true;
+	}
+	
 	@Override
 	public String toString() {
 		if(this.raiz == null) {
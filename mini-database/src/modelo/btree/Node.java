@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Classe do node de uma arvore. Ela armazena dois {@code ArrayList}, um para
@@ -33,6 +34,15 @@ public class Node<K extends Comparable<K>> implements Serializable {
 	 */
 	private int grauMaximo;
 	
+	/**
+	 * Geracao da arvore em que o node foi criado. Um node de uma geracao anterior a atual pode
+	 * fazer parte de uma copia instantanea da arvore, entao ele nunca e alterado: ele e copiado
+	 * antes, e a copia toma o lugar dele na arvore.
+	 * 
+	 * @see BTree#copiaInstantanea()
+	 */
+	private int geracao;
+	
 	/**
 	 * Construtor de um no com capacidade para {@code grauMaximo - 1} elementos.
 	 * 
@@ -87,6 +97,118 @@ public class Node<K extends Comparable<K>> implements Serializable {
 		return grauMaximo;
 	}
 	
+	/**
+	 * Getter da geracao do node.
+	 * 
+	 * @return geracao da arvore em que o node foi criado.
+	 */
+	int getGeracao() {
+		return this.geracao;
+	}
+	
+	/**
+	 * Setter da geracao do node. So deve ser usado em nodes que acabaram de ser criados.
+	 * 
+	 * @param geracao geracao atual da arvore.
+	 */
+	void setGeracao(int geracao) {
+		this.geracao = geracao;
+	}
+	
+	/**
+	 * Copia o node para uma nova geracao. As listas do node sao copiadas, mas os filhos
+	 * sao compartilhados com o node original.
+	 * 
+	 * @param geracao geracao da copia.
+	 * 
+	 * @return a copia do node.
+	 */
+	Node<K> copia(int geracao) {
+		final Node<K> copia = new Node<>(this.grauMaximo, this.chaves, this.indices, this.filhos);
+		copia.geracao = geracao;
+		
+		return copia;
+	}
+	
+	/**
+	 * Prepara a subarvore para uma insercao ou remocao de {@code chave}, copiando os nodes de
+	 * geracoes anteriores que a operacao pode alterar. Esses nodes sao os do caminho ate a chave
+	 * e, na remocao, os irmaos de cada node do caminho, que podem ser usados nas rotacoes, e o
+	 * caminho ate a maior chave da subarvore esquerda, caso a chave esteja em um node interno.
+	 * O node atual ja deve ser da geracao passada.
+	 * 
+	 * @param chave chave que sera inserida ou removida.
+	 * @param geracao geracao atual da arvore.
+	 * @param remocao {@code true} caso a operacao seja uma remocao.
+	 */
+	void preparaCaminho(K chave, int geracao, boolean remocao) {
+		if(this.filhos.size() == 0) {
+			return;
+		}
+		
+		final int intervalo = this.getIntervalo(chave);
+		final boolean achou = intervalo < this.chaves.size() && this.chaves.get(intervalo).compareTo(chave) == 0;
+		
+		if(remocao) {
+			// as correcoes de underflow usam os irmaos do filho alterado
+			if(intervalo > 0) {
+				this.filhoParaEscrita(intervalo - 1, geracao);
+			}
+			
+			if(intervalo + 1 < this.filhos.size()) {
+				this.filhoParaEscrita(intervalo + 1, geracao);
+			}
+		}
+		
+		final Node<K> filho = this.filhoParaEscrita(intervalo, geracao);
+		
+		if(!achou) {
+			filho.preparaCaminho(chave, geracao, remocao);
+		} else if(remocao) {
+			// a chave e trocada pela maior chave da subarvore esquerda, que e removida de la
+			filho.preparaMaior(geracao);
+		}
+	}
+	
+	/**
+	 * Prepara o caminho ate a maior chave da subarvore para uma remocao, i.e., o ultimo filho
+	 * de cada node e o irmao esquerdo dele.
+	 * 
+	 * @param geracao geracao atual da arvore.
+	 */
+	private void preparaMaior(int geracao) {
+		if(this.filhos.size() == 0) {
+			return;
+		}
+		
+		final int ultimo = this.filhos.size() - 1;
+		
+		if(ultimo > 0) {
+			this.filhoParaEscrita(ultimo - 1, geracao);
+		}
+		
+		this.filhoParaEscrita(ultimo, geracao).preparaMaior(geracao);
+	}
+	
+	/**
+	 * Pega um filho que pode ser alterado, copiando ele caso seja de uma geracao anterior.
+	 * 
+	 * @param posicao posicao do filho.
+	 * @param geracao geracao atual da arvore.
+	 * 
+	 * @return o filho da geracao atual.
+	 */
+	private Node<K> filhoParaEscrita(int posicao, int geracao) {
+		Node<K> filho = this.filhos.get(posicao);
+		
+		if(filho.geracao != geracao) {
+			filho = filho.copia(geracao);
+			this.filhos.set(posicao, filho);
+		}
+		
+		return filho;
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder res = new StringBuilder();
@@ -147,6 +269,53 @@ public class Node<K extends Comparable<K>> implements Serializable {
 		}
 	}
 	
+	/**
+	 * Percorre a subarvore do node atual em ordem, i.e., visita o filho que esta antes de cada
+	 * chave, a propria chave e, por fim, o ultimo filho.
+	 * 
+	 * @param consumidor funcao chamada para cada par (chave, indice) da subarvore.
+	 */
+	public void percorre(BiConsumer<K, Integer> consumidor) {
+		for(int i = 0; i < this.chaves.size(); i++) {
+			if(this.filhos.size() != 0) {
+				this.filhos.get(i).percorre(consumidor);
+			}
+			
+			consumidor.accept(this.chaves.get(i), this.indices.get(i));
+		}
+		
+		// o ultimo filho guarda as chaves maiores que todas as chaves do node
+		if(this.filhos.size() != 0) {
+			this.filhos.get(this.filhos.size() - 1).percorre(consumidor);
+		}
+	}
+	
+	/**
+	 * Busca a menor chave da subarvore que e maior ou igual a chave passada.
+	 * 
+	 * @param chave chave de onde a busca comeca.
+	 * 
+	 * @return a menor chave maior ou igual a chave passada, ou {@code null}, caso nenhuma chave
+	 * da subarvore seja maior ou igual a ela.
+	 */
+	public K teto(K chave) {
+		final int intervalo = this.getIntervalo(chave);
+		
+		if(intervalo < this.chaves.size() && this.chaves.get(intervalo).compareTo(chave) == 0) {
+			return this.chaves.get(intervalo);
+		}
+		
+		// as chaves do filho do intervalo ficam entre a chave buscada e a chave do node no mesmo
+		// intervalo, entao a chave do node so e a resposta se o filho nao tiver nenhuma
+		final K doFilho = this.filhos.size() != 0 ? this.filhos.get(intervalo).teto(chave) : null;
+		
+		if(doFilho != null) {
+			return doFilho;
+		}
+		
+		return intervalo < this.chaves.size() ? this.chaves.get(intervalo) : null;
+	}
+	
 	/**
 	 * Insere um par (chave, indice) na arvore, fazendo as alteracoes necessarias 
 	 * para mante-la balanceada. Por padra, chaves repetidas nao sao adicionadas,
@@ -360,6 +529,8 @@ public class Node<K extends Comparable<K>> implements Serializable {
 		// criando cada um dos nos esquerdo(metade menor) e direito(metade maior)
 		final Node<K> filhoEsq = new Node<>(this.grauMaximo, chavesEsq, valoresEsq, filhosEsq);
 		final Node<K> filhoDir = new Node<>(this.grauMaximo, chavesDir, valoresDir, filhosDir);
+		filhoEsq.geracao = this.geracao;
+		filhoDir.geracao = this.geracao;
 
 		ArrayList<Node<K>> resultado = new ArrayList<>();
 		
@@ -575,6 +746,7 @@ public class Node<K extends Comparable<K>> implements Serializable {
 		filhosNovoFilho.addAll(filhoUnderflow.filhos);
 		
 		final Node<K> novoFilho = new Node<>(this.grauMaximo, chavesNovoFilho, valoresNovoFilho, filhosNovoFilho);
+		novoFilho.geracao = this.geracao;
 		
 		// adicionando o novo node como filho no node atual e removendo o irmao esquerdo
 		// da lista de filhos
@@ -620,6 +792,7 @@ public class Node<K extends Comparable<K>> implements Serializable {
 		filhosNovoFilho.addAll(irmaoDir.filhos);
 		
 		Node<K> novoFilho = new Node<>(this.grauMaximo, chavesNovoFilho, valoresNovoFilho, filhosNovoFilho);
+		novoFilho.geracao = this.geracao;
 		
 		// adicionando o novo node e removendo o filho direito
 		this.filhos.set(posicao, novoFilho);
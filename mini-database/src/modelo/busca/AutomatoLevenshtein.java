@@ -0,0 +1,256 @@
+package modelo.busca;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import banco.MiniBD;
+import banco.VisaoBanco;
+
+/**
+ * Automato que reconhece as palavras que estao a no maximo uma distancia de edicao (de
+ * Levenshtein) de uma palavra buscada, i.e., que podem ser transformadas nela com ate essa
+ * quantidade de insercoes, remocoes ou trocas de caracteres.
+ *
+ * </p>O estado do automato depois de ler um prefixo e a linha da tabela de distancias entre o
+ * prefixo e cada prefixo da palavra buscada, e cada caractere lido calcula a proxima linha a
+ * partir da anterior. Quando o menor valor da linha passa da distancia maxima, nenhuma palavra
+ * que comeca com aquele prefixo pode ser aceita. A busca em {@link #buscaPalavras(MiniBD, String, int)}
+ * usa isso para percorrer as chaves de um indice ordenado como se fosse uma arvore de prefixos:
+ * chaves vizinhas reaproveitam as linhas do prefixo que tem em comum, e quando um prefixo e
+ * recusado, a busca salta direto para a primeira chave que nao comeca com ele, sem ler as
+ * chaves do meio.
+ */
+public class AutomatoLevenshtein {
+	private final String palavra;
+	private final int distanciaMaxima;
+
+	/**
+	 * Constroi o automato de uma palavra.
+	 *
+	 * @param palavra palavra buscada.
+	 * @param distanciaMaxima maior distancia de edicao aceita.
+	 *
+	 * @throws IllegalArgumentException Caso a distancia seja negativa.
+	 */
+	public AutomatoLevenshtein(String palavra, int distanciaMaxima) {
+		if(distanciaMaxima < 0) {
+			throw new IllegalArgumentException("A distancia maxima nao pode ser negativa!!");
+		}
+
+		this.palavra = palavra;
+		this.distanciaMaxima = distanciaMaxima;
+	}
+
+	/**
+	 * Busca as chaves de um banco que estao a no maximo {@code distanciaMaxima} edicoes de uma
+	 * palavra.
+	 *
+	 * @param banco banco onde as chaves sao buscadas.
+	 * @param palavra palavra buscada.
+	 * @param distanciaMaxima maior distancia de edicao aceita.
+	 *
+	 * @return as chaves encontradas, das mais proximas para as mais distantes, e em ordem
+	 * alfabetica entre as que estao a mesma distancia.
+	 */
+	public static List<String> buscaPalavras(MiniBD<?, String> banco, String palavra, int distanciaMaxima) {
+		return buscaPalavras(palavra, distanciaMaxima, banco.temIndiceOrdenado(), banco::buscaTeto, (Consumer<String> consumidor) -> {
+			banco.buscaChaves(chave -> {
+				consumidor.accept(chave);
+				return false;
+			});
+		});
+	}
+
+	/**
+	 * Busca as chaves de uma visao que estao a no maximo {@code distanciaMaxima} edicoes de uma
+	 * palavra. Como a visao nao muda, a busca ve as chaves de um unico momento do banco, mesmo que
+	 * ele seja alterado durante a busca.
+	 *
+	 * @param visao visao onde as chaves sao buscadas.
+	 * @param palavra palavra buscada.
+	 * @param distanciaMaxima maior distancia de edicao aceita.
+	 *
+	 * @return as chaves encontradas, das mais proximas para as mais distantes, e em ordem
+	 * alfabetica entre as que estao a mesma distancia.
+	 */
+	public static List<String> buscaPalavras(VisaoBanco<?, String> visao, String palavra, int distanciaMaxima) {
+		return buscaPalavras(palavra, distanciaMaxima, visao.temIndiceOrdenado(), visao::buscaTeto, visao::percorreChaves);
+	}
+
+	/**
+	 * Busca as chaves que estao a no maximo {@code distanciaMaxima} edicoes de uma palavra.
+	 *
+	 * @param palavra palavra buscada.
+	 * @param distanciaMaxima maior distancia de edicao aceita.
+	 * @param ordenado se as chaves podem ser percorridas em ordem com {@code teto}.
+	 * @param teto funcao que busca a menor chave maior ou igual a passada.
+	 * @param percorreChaves funcao que passa todas as chaves para um consumidor.
+	 *
+	 * @return as chaves encontradas, das mais proximas para as mais distantes, e em ordem
+	 * alfabetica entre as que estao a mesma distancia.
+	 */
+	private static List<String> buscaPalavras(String palavra, int distanciaMaxima, boolean ordenado, UnaryOperator<String> teto,
+			Consumer<Consumer<String>> percorreChaves) {
+		final AutomatoLevenshtein automato = new AutomatoLevenshtein(palavra, distanciaMaxima);
+		final HashMap<String, Integer> distancias = new HashMap<>();
+
+		if(ordenado) {
+			automato.percorreOrdenado(teto, distancias);
+		} else {
+			// sem ordem nao da para saltar os prefixos recusados, entao todas as chaves sao testadas
+			percorreChaves.accept(chave -> {
+				final int distancia = automato.distancia(chave);
+
+				if(distancia != -1) {
+					distancias.put(chave, distancia);
+				}
+			});
+		}
+
+		final ArrayList<String> encontradas = new ArrayList<>(distancias.keySet());
+		encontradas.sort(Comparator.comparingInt((String chave) -> distancias.get(chave)).thenComparing(Comparator.naturalOrder()));
+
+		return encontradas;
+	}
+
+	/**
+	 * Percorre as chaves de um indice ordenado, saltando os prefixos recusados.
+	 *
+	 * @param teto funcao que busca a menor chave do indice maior ou igual a passada.
+	 * @param distancias mapa onde as chaves aceitas sao guardadas, com a distancia de cada uma.
+	 */
+	private void percorreOrdenado(UnaryOperator<String> teto, Map<String, Integer> distancias) {
+		// linhas.get(i) e o estado depois de ler os i primeiros caracteres de anterior
+		final ArrayList<int[]> linhas = new ArrayList<>();
+		linhas.add(this.inicial());
+		String anterior = "";
+		String chave = teto.apply("");
+
+		while(chave != null) {
+			// o prefixo comum com a chave anterior ja foi lido
+			int lido = 0;
+			while(lido < anterior.length() && lido < chave.length() && anterior.charAt(lido) == chave.charAt(lido)) {
+				lido++;
+			}
+			linhas.subList(lido + 1, linhas.size()).clear();
+
+			int[] linha = linhas.get(lido);
+			while(lido < chave.length() && (linha = this.avanca(linha, chave.charAt(lido))) != null) {
+				linhas.add(linha);
+				lido++;
+			}
+
+			if(linha == null) {
+				// nenhuma chave que comeca com os lido + 1 primeiros caracteres pode ser aceita
+				anterior = chave.substring(0, lido);
+				final String depois = sucessorPrefixo(chave.substring(0, lido + 1));
+				chave = depois == null ? null : teto.apply(depois);
+			} else {
+				if(linha[linha.length - 1] <= this.distanciaMaxima) {
+					distancias.put(chave, linha[linha.length - 1]);
+				}
+
+				// a menor String maior que a chave e ela com o caractere 0 no fim
+				anterior = chave;
+				chave = teto.apply(chave + '\0');
+			}
+		}
+	}
+
+	/**
+	 * Calcula a menor String maior que todas as Strings que comecam com um prefixo.
+	 *
+	 * @param prefixo prefixo passado.
+	 *
+	 * @return a menor String que nao comeca com o prefixo e e maior que ele, ou {@code null},
+	 * caso ela nao exista.
+	 */
+	private static String sucessorPrefixo(String prefixo) {
+		int fim = prefixo.length();
+
+		// o ultimo caractere que pode ser aumentado e aumentado, e o que vem depois dele e descartado
+		while(fim > 0 && prefixo.charAt(fim - 1) == Character.MAX_VALUE) {
+			fim--;
+		}
+
+		return fim == 0 ? null : prefixo.substring(0, fim - 1) + (char) (prefixo.charAt(fim - 1) + 1);
+	}
+
+	/**
+	 * Calcula a distancia de edicao entre a palavra do automato e outra palavra, caso ela seja
+	 * aceita.
+	 *
+	 * @param outra palavra comparada.
+	 *
+	 * @return a distancia entre as palavras, ou {@code -1}, caso ela passe da distancia maxima.
+	 */
+	public int distancia(String outra) {
+		int[] linha = this.inicial();
+
+		for(int i = 0; i < outra.length(); i++) {
+			linha = this.avanca(linha, outra.charAt(i));
+
+			if(linha == null) {
+				return -1;
+			}
+		}
+
+		final int distancia = linha[linha.length - 1];
+		return distancia <= this.distanciaMaxima ? distancia : -1;
+	}
+
+	/**
+	 * Verifica se uma palavra esta a no maximo a distancia maxima da palavra do automato.
+	 *
+	 * @param outra palavra verificada.
+	 *
+	 * @return {@code true} caso a palavra seja aceita, {@code false} caso contrario.
+	 */
+	public boolean aceita(String outra) {
+		return this.distancia(outra) != -1;
+	}
+
+	/**
+	 * Estado inicial do automato, antes de ler qualquer caractere: a distancia do prefixo vazio
+	 * para cada prefixo da palavra e o tamanho desse prefixo.
+	 *
+	 * @return a linha inicial da tabela de distancias.
+	 */
+	private int[] inicial() {
+		final int[] linha = new int[this.palavra.length() + 1];
+
+		for(int j = 0; j < linha.length; j++) {
+			linha[j] = j;
+		}
+
+		return linha;
+	}
+
+	/**
+	 * Le um caractere, calculando a proxima linha da tabela de distancias.
+	 *
+	 * @param anterior linha do prefixo lido ate agora.
+	 * @param caractere caractere lido.
+	 *
+	 * @return a linha do prefixo com o caractere, ou {@code null}, caso nenhuma palavra que
+	 * comeca com esse prefixo possa ser aceita.
+	 */
+	private int[] avanca(int[] anterior, char caractere) {
+		final int[] linha = new int[anterior.length];
+		int menor = linha[0] = anterior[0] + 1;
+
+		for(int j = 1; j < linha.length; j++) {
+			final int troca = anterior[j - 1] + (this.palavra.charAt(j - 1) == caractere ? 0 : 1);
+
+			linha[j] = Math.min(troca, Math.min(anterior[j], linha[j - 1]) + 1);
+			menor = Math.min(menor, linha[j]);
+		}
+
+		return menor <= this.distanciaMaxima ? linha : null;
+	}
+}
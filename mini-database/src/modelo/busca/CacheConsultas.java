@@ -0,0 +1,380 @@
+package modelo.busca;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import banco.MiniBD;
+import banco.OuvinteAlteracoes;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+
+/**
+ * Cache dos resultados das consultas repetidas a um banco de palavras chave: os artigos de uma
+ * palavra, os artigos com todas ou com alguma das palavras de uma lista, e se um artigo esta no
+ * banco. Cada resultado e guardado pelo texto normalizado da consulta, em que as palavras sao
+ * ordenadas e as repetidas sao juntadas, entao a mesma consulta escrita em outra ordem tambem usa
+ * o resultado guardado.
+ *
+ * </p>O cache assina as alteracoes do banco, e cada palavra alterada aumenta o contador de versao
+ * da palavra. Isso vale para qualquer alteracao que chegue ao banco: {@code adiciona},
+ * {@code remove}, {@code atualiza} e transacoes, que e por onde passam os artigos incluidos ou
+ * tirados de uma palavra com {@link PalavraChave#addArtigo(Artigo)} e
+ * {@link PalavraChave#removeArtigo(Artigo)}. Cada resultado guarda a versao de cada palavra que ele
+ * leu, e so e devolvido enquanto nenhuma delas mudou, entao uma alteracao so descarta as consultas
+ * das palavras alteradas. Os contadores ficam em um vetor de tamanho fixo, indexado pelo hash da
+ * palavra: duas palavras que caem no mesmo contador so fazem uma consulta ser recalculada sem
+ * necessidade, nunca devolvem um resultado desatualizado.
+ *
+ * </p>O cache tem um orcamento em bytes e, quando ele e ultrapassado, os resultados usados ha mais
+ * tempo sao descartados (politica LRU), como no cache de registros do banco. O tamanho de cada
+ * resultado e aproximado pela quantidade de artigos e de palavras dele.
+ *
+ * </p>As listas devolvidas nao podem ser alteradas, e sao copias das listas do banco, entao
+ * alterar o banco nao muda um resultado ja devolvido. As consultas leem o banco como
+ * {@link MiniBD#busca(Comparable)}, entao valem as mesmas regras de concorrencia do banco.
+ *
+ * @see banco.CacheRegistros
+ */
+public class CacheConsultas implements Closeable {
+	/**
+	 * Orcamento padrao, em bytes, dos resultados guardados.
+	 */
+	public static final long ORCAMENTO_PADRAO = 8 * 1024 * 1024;
+
+	/**
+	 * Quantidade de contadores de versao. Deve ser uma potencia de 2.
+	 */
+	private static final int QTD_CONTADORES = 1 << 16;
+
+	/**
+	 * Tamanho aproximado, em bytes, de um artigo e de uma palavra de um resultado.
+	 */
+	private static final int TAMANHO_ARTIGO = 128;
+	private static final int TAMANHO_PALAVRA = 64;
+
+	private final MiniBD<PalavraChave, String> banco;
+	private final OuvinteAlteracoes ouvinte = this::alterado;
+
+	/**
+	 * Versao das palavras de cada contador.
+	 */
+	private final AtomicLongArray versoes = new AtomicLongArray(QTD_CONTADORES);
+
+	/**
+	 * Resultados guardados, do menos recente para o mais recente.
+	 */
+	private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+	private final long capacidadeBytes;
+	private long bytesUsados = 0;
+	private long acertos = 0;
+	private long faltas = 0;
+
+	/**
+	 * Constroi um cache vazio e passa a acompanhar as alteracoes do banco.
+	 *
+	 * @param banco banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param capacidadeBytes quantidade maxima de bytes que os resultados podem ocupar.
+	 *
+	 * @throws IllegalArgumentException Caso o banco nao use o {@link CodecPalavraChave}.
+	 */
+	public CacheConsultas(MiniBD<PalavraChave, String> banco, long capacidadeBytes) {
+		if(!(banco.getCodec() instanceof CodecPalavraChave)) {
+			throw new IllegalArgumentException("O banco do cache deve usar o CodecPalavraChave!!");
+		}
+
+		this.banco = banco;
+		this.capacidadeBytes = Math.max(0, capacidadeBytes);
+		this.banco.assinaAlteracoes(this.ouvinte);
+	}
+
+	/**
+	 * Busca os artigos de uma palavra chave.
+	 *
+	 * @param palavra palavra buscada.
+	 *
+	 * @return os artigos da palavra, ou {@code null}, caso ela nao esteja no banco.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Artigo> busca(String palavra) {
+		return (List<Artigo>) this.consulta("P\0" + palavra, List.of(palavra), (Map<String, PalavraChave> lidas) -> {
+			final PalavraChave pc = lidas.get(palavra);
+			return pc == null ? null : List.copyOf(pc.getArtigos());
+		});
+	}
+
+	/**
+	 * Busca os artigos que tem todas as palavras chave passadas.
+	 *
+	 * @param palavras palavras buscadas.
+	 *
+	 * @return os artigos com todas as palavras, na ordem em que aparecem na menor palavra em ordem
+	 * alfabetica. A lista e vazia caso alguma palavra nao esteja no banco.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Artigo> buscaTodas(Collection<String> palavras) {
+		final TreeSet<String> normalizadas = new TreeSet<>(palavras);
+
+		return (List<Artigo>) this.consulta("E\0" + String.join("\0", normalizadas), normalizadas, (Map<String, PalavraChave> lidas) -> {
+			LinkedHashSet<Artigo> res = null;
+
+			for(String palavra : normalizadas) {
+				final PalavraChave pc = lidas.get(palavra);
+
+				if(pc == null) {
+					return List.of();
+				} else if(res == null) {
+					res = new LinkedHashSet<>(pc.getArtigos());
+				} else {
+					res.retainAll(new LinkedHashSet<>(pc.getArtigos()));
+				}
+			}
+
+			return res == null ? List.of() : List.copyOf(res);
+		});
+	}
+
+	/**
+	 * Busca os artigos que tem alguma das palavras chave passadas.
+	 *
+	 * @param palavras palavras buscadas.
+	 *
+	 * @return os artigos com alguma das palavras, sem repeticoes, na ordem das palavras em ordem
+	 * alfabetica.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Artigo> buscaAlguma(Collection<String> palavras) {
+		final TreeSet<String> normalizadas = new TreeSet<>(palavras);
+
+		return (List<Artigo>) this.consulta("OU\0" + String.join("\0", normalizadas), normalizadas, (Map<String, PalavraChave> lidas) -> {
+			final LinkedHashSet<Artigo> res = new LinkedHashSet<>();
+
+			for(String palavra : normalizadas) {
+				final PalavraChave pc = lidas.get(palavra);
+
+				if(pc != null) {
+					res.addAll(pc.getArtigos());
+				}
+			}
+
+			return List.copyOf(res);
+		});
+	}
+
+	/**
+	 * Verifica se um artigo esta no banco, i.e., se ele esta na lista de alguma das suas palavras
+	 * chave. Os artigos sao iguais quando tem o mesmo titulo.
+	 *
+	 * @param artigo artigo buscado.
+	 *
+	 * @return {@code true} caso o artigo esteja no banco, {@code false} caso contrario.
+	 */
+	public boolean contemArtigo(Artigo artigo) {
+		final TreeSet<String> normalizadas = new TreeSet<>(artigo.getPalavrasChave());
+
+		return (Boolean) this.consulta("A\0" + artigo.getTitulo() + "\0" + String.join("\0", normalizadas), normalizadas,
+				(Map<String, PalavraChave> lidas) -> {
+					for(PalavraChave pc : lidas.values()) {
+						if(pc != null && pc.contemArtigo(artigo)) {
+							return true;
+						}
+					}
+
+					return false;
+				});
+	}
+
+	/**
+	 * Getter da quantidade de acertos.
+	 *
+	 * @return quantidade de consultas respondidas com um resultado guardado.
+	 */
+	public synchronized long getAcertos() {
+		return this.acertos;
+	}
+
+	/**
+	 * Getter da quantidade de faltas.
+	 *
+	 * @return quantidade de consultas que precisaram ler o banco.
+	 */
+	public synchronized long getFaltas() {
+		return this.faltas;
+	}
+
+	/**
+	 * Getter da quantidade de bytes usada.
+	 *
+	 * @return quantidade aproximada de bytes ocupada pelos resultados guardados.
+	 */
+	public synchronized long getBytesUsados() {
+		return this.bytesUsados;
+	}
+
+	/**
+	 * Getter da quantidade de resultados guardados.
+	 *
+	 * @return quantidade de consultas com o resultado no cache.
+	 */
+	public synchronized int getQtdResultados() {
+		return this.entradas.size();
+	}
+
+	/**
+	 * Para de acompanhar as alteracoes do banco e descarta os resultados guardados. Depois disso,
+	 * o cache nao deve mais ser usado.
+	 */
+	@Override
+	public synchronized void close() {
+		this.banco.cancelaAssinatura(this.ouvinte);
+		this.entradas.clear();
+		this.bytesUsados = 0;
+	}
+
+	/**
+	 * Responde uma consulta com o resultado guardado, caso as palavras dele nao tenham mudado, ou
+	 * calcula o resultado e guarda ele.
+	 *
+	 * </p>As versoes das palavras sao lidas antes das palavras, entao uma alteracao feita enquanto
+	 * o resultado e calculado muda alguma versao depois da leitura, e o resultado guardado e
+	 * descartado na proxima consulta.
+	 *
+	 * @param chave texto normalizado da consulta.
+	 * @param palavras palavras lidas pela consulta.
+	 * @param calcula funcao que calcula o resultado a partir de cada palavra lida, que e
+	 * {@code null} quando a palavra nao esta no banco.
+	 *
+	 * @return o resultado da consulta.
+	 */
+	private Object consulta(String chave, Collection<String> palavras, Function<Map<String, PalavraChave>, Object> calcula) {
+		synchronized(this) {
+			final Entrada entrada = this.entradas.get(chave);
+
+			if(entrada != null && entrada.valida(this.versoes)) {
+				this.acertos++;
+				return entrada.resultado;
+			}
+
+			this.faltas++;
+		}
+
+		final int[] contadores = new int[palavras.size()];
+		final long[] versoesLidas = new long[palavras.size()];
+		int i = 0;
+		for(String palavra : palavras) {
+			contadores[i] = contador(palavra);
+			versoesLidas[i] = this.versoes.get(contadores[i]);
+			i++;
+		}
+
+		final HashMap<String, PalavraChave> lidas = new HashMap<>();
+		for(String palavra : palavras) {
+			lidas.put(palavra, this.banco.busca(palavra));
+		}
+
+		final Object resultado = calcula.apply(lidas);
+		final long tamanho = 2L * chave.length() + TAMANHO_PALAVRA * palavras.size()
+				+ (resultado instanceof List ? TAMANHO_ARTIGO * ((List<?>) resultado).size() : 0);
+
+		synchronized(this) {
+			this.guarda(chave, new Entrada(resultado, contadores, versoesLidas, tamanho));
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Guarda um resultado, descartando os resultados menos recentes caso o orcamento seja
+	 * ultrapassado. Resultados maiores que o orcamento inteiro nao sao guardados.
+	 *
+	 * @param chave texto normalizado da consulta.
+	 * @param entrada resultado da consulta.
+	 */
+	private void guarda(String chave, Entrada entrada) {
+		final Entrada anterior = this.entradas.remove(chave);
+		if(anterior != null) {
+			this.bytesUsados -= anterior.tamanho;
+		}
+
+		if(entrada.tamanho > this.capacidadeBytes) {
+			return;
+		}
+
+		this.entradas.put(chave, entrada);
+		this.bytesUsados += entrada.tamanho;
+
+		final Iterator<Entrada> iterador = this.entradas.values().iterator();
+		while(this.bytesUsados > this.capacidadeBytes && iterador.hasNext()) {
+			this.bytesUsados -= iterador.next().tamanho;
+			iterador.remove();
+		}
+	}
+
+	/**
+	 * Aumenta a versao das palavras alteradas no banco. Chamado pelo banco a cada alteracao, entao
+	 * so le a palavra de cada registro, sem decodificar os artigos.
+	 */
+	private void alterado(long versao, List<byte[]> registros, List<Boolean> apagados) {
+		for(byte[] registro : registros) {
+			try {
+				this.versoes.incrementAndGet(contador(CodecPalavraChave.lePalavra(registro)));
+			} catch (IOException e) {
+				throw new RuntimeException("Erro ao ler a palavra de um registro alterado.", e);
+			}
+		}
+	}
+
+	/**
+	 * Contador de versao de uma palavra.
+	 *
+	 * @param palavra palavra chave.
+	 *
+	 * @return a posicao do contador da palavra.
+	 */
+	private static int contador(String palavra) {
+		final int hash = palavra.hashCode();
+
+		// espalha os bits altos, ja que so os bits baixos escolhem o contador
+		return (hash ^ (hash >>> 16)) & (QTD_CONTADORES - 1);
+	}
+
+	/**
+	 * Resultado guardado, com as versoes das palavras quando ele foi calculado.
+	 */
+	private static class Entrada {
+		private final Object resultado;
+		private final int[] contadores;
+		private final long[] versoes;
+		private final long tamanho;
+
+		private Entrada(Object resultado, int[] contadores, long[] versoes, long tamanho) {
+			this.resultado = resultado;
+			this.contadores = contadores;
+			this.versoes = versoes;
+			this.tamanho = tamanho;
+		}
+
+		/**
+		 * Verifica se nenhuma das palavras do resultado mudou desde que ele foi calculado.
+		 */
+		private boolean valida(AtomicLongArray versoesAtuais) {
+			for(int i = 0; i < this.contadores.length; i++) {
+				if(versoesAtuais.get(this.contadores[i]) != this.versoes[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package modelo.busca;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import banco.CodecRegistro;
+import modelo.artigo.CodecPalavraChave;
+
+/**
+ * Codec dos documentos do indice de titulos. O artigo e escrito no mesmo formato usado pelo
+ * {@link CodecPalavraChave}, depois do numero do documento.
+ *
+ * @see DocumentoTitulo
+ */
+public class CodecDocumentoTitulo implements CodecRegistro<DocumentoTitulo> {
+
+	@Override
+	public byte[] codifica(DocumentoTitulo registro) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream escritor = new DataOutputStream(bytes);
+
+		escritor.writeInt(registro.getId());
+		CodecPalavraChave.escreveArtigo(escritor, registro.getArtigo());
+
+		escritor.flush();
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public DocumentoTitulo decodifica(byte[] bytes) throws IOException {
+		DataInputStream leitor = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		final int id = leitor.readInt();
+		return new DocumentoTitulo(id, CodecPalavraChave.leArtigo(leitor));
+	}
+
+	/**
+	 * Os documentos nao mudam depois de criados, entao o proprio documento serve de copia.
+	 */
+	@Override
+	public DocumentoTitulo copia(DocumentoTitulo registro, byte[] bytes) {
+		return registro;
+	}
+
+	@Override
+	public boolean copiaSemDecodificar() {
+		return true;
+	}
+}
@@ -0,0 +1,64 @@
+package modelo.busca;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import banco.CodecRegistro;
+
+/**
+ * Codec das listas de ocorrencias. Como a lista ja guarda os documentos comprimidos, os bytes
+ * dela sao escritos como estao, depois do termo e dos contadores.
+ *
+ * </p>Formato: o termo, a quantidade de documentos, o maior documento, a quantidade de bytes
+ * da lista e os bytes.
+ *
+ * @see ListaOcorrencias
+ */
+public class CodecListaOcorrencias implements CodecRegistro<ListaOcorrencias> {
+
+	@Override
+	public byte[] codifica(ListaOcorrencias registro) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(registro.getTamanho() + 32);
+		DataOutputStream escritor = new DataOutputStream(bytes);
+
+		escritor.writeUTF(registro.getTermo());
+		escritor.writeInt(registro.getQtdDocumentos());
+		escritor.writeInt(registro.getUltimoDocumento());
+		escritor.writeInt(registro.getTamanho());
+		escritor.write(registro.getDados(), 0, registro.getTamanho());
+
+		escritor.flush();
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public ListaOcorrencias decodifica(byte[] bytes) throws IOException {
+		DataInputStream leitor = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		final String termo = leitor.readUTF();
+		final int qtdDocumentos = leitor.readInt();
+		final int ultimoDocumento = leitor.readInt();
+		final byte[] dados = new byte[leitor.readInt()];
+		leitor.readFully(dados);
+
+		return new ListaOcorrencias(termo, qtdDocumentos, ultimoDocumento, dados, dados.length);
+	}
+
+	/**
+	 * Copia a lista sem decodificar os bytes, copiando so os bytes usados dos documentos.
+	 */
+	@Override
+	public ListaOcorrencias copia(ListaOcorrencias registro, byte[] bytes) {
+		return new ListaOcorrencias(registro.getTermo(), registro.getQtdDocumentos(), registro.getUltimoDocumento(),
+				Arrays.copyOf(registro.getDados(), registro.getTamanho()), registro.getTamanho());
+	}
+
+	@Override
+	public boolean copiaSemDecodificar() {
+		return true;
+	}
+}
@@ -0,0 +1,44 @@
+package modelo.busca;
+
+import java.io.Serializable;
+
+import modelo.artigo.Artigo;
+
+/**
+ * Documento do indice de titulos: um artigo e o numero com que ele aparece nas listas de
+ * ocorrencias.
+ */
+public class DocumentoTitulo implements Serializable {
+	private static final long serialVersionUID = 2735190846622019415L;
+	private final int id;
+	private final Artigo artigo;
+
+	/**
+	 * Constroi um documento.
+	 *
+	 * @param id numero do documento.
+	 * @param artigo artigo do documento.
+	 */
+	public DocumentoTitulo(int id, Artigo artigo) {
+		this.id = id;
+		this.artigo = artigo;
+	}
+
+	/**
+	 * Getter do numero do documento.
+	 *
+	 * @return o numero do documento nas listas de ocorrencias.
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * Getter do artigo do documento.
+	 *
+	 * @return o artigo do documento.
+	 */
+	public Artigo getArtigo() {
+		return this.artigo;
+	}
+}
@@ -0,0 +1,325 @@
+package modelo.busca;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import banco.VisaoBanco;
+import modelo.artigo.Artigo;
+import modelo.artigo.PalavraChave;
+
+/**
+ * Indice que ordena os artigos por relevancia em buscas com varias palavras chave. A relevancia
+ * de um artigo e a soma, para cada palavra buscada que ele tem, da pontuacao BM25 da palavra no
+ * artigo: palavras que aparecem em poucos artigos valem mais, e artigos com menos palavras chave
+ * valem mais que artigos com muitas.
+ *
+ * </p>Cada palavra chave tem uma {@link ListaOcorrencias} com os artigos que a contem, e o
+ * indice guarda a maior pontuacao que a palavra da para qualquer artigo. A busca so guarda os
+ * {@code k} melhores artigos, em um heap, e usa o algoritmo WAND para nao calcular a pontuacao
+ * de todos os artigos: as listas sao percorridas juntas, e um artigo so e pontuado quando a soma
+ * das maiores pontuacoes das palavras que ele pode ter passa da pior pontuacao do heap. Os outros
+ * sao pulados, entao quanto melhor o heap fica, mais artigos sao pulados.
+ *
+ * </p>O indice e montado na memoria a partir dos artigos, e nao muda quando o banco muda.
+ *
+ * @see ListaOcorrencias
+ */
+public class IndiceRanqueado {
+	/**
+	 * Saturacao da frequencia de uma palavra em um artigo no BM25.
+	 */
+	public static final double K1 = 1.2;
+
+	/**
+	 * Quanto o tamanho do artigo pesa na pontuacao no BM25.
+	 */
+	public static final double B = 0.75;
+
+	/**
+	 * Artigos indexados, na posicao do seu numero.
+	 */
+	private final Artigo[] artigos;
+	/**
+	 * Quantidade de palavras chave de cada artigo.
+	 */
+	private final int[] tamanhos;
+	private final double tamanhoMedio;
+	private final HashMap<String, ListaOcorrencias> listas;
+	/**
+	 * Maior pontuacao que cada palavra da para um artigo.
+	 */
+	private final HashMap<String, Double> maioresPontuacoes;
+
+	/**
+	 * Constroi o indice com os artigos passados. Artigos repetidos, i.e., com o mesmo titulo, so
+	 * sao indexados uma vez.
+	 *
+	 * @param artigos artigos indexados.
+	 */
+	public IndiceRanqueado(Collection<Artigo> artigos) {
+		this.artigos = new LinkedHashSet<>(artigos).toArray(new Artigo[0]);
+		this.tamanhos = new int[this.artigos.length];
+		this.listas = new HashMap<>();
+		this.maioresPontuacoes = new HashMap<>();
+
+		long soma = 0;
+		for(int id = 0; id < this.artigos.length; id++) {
+			final Map<String, int[]> posicoes = posicoesDasPalavras(this.artigos[id]);
+
+			// os artigos sao percorridos em ordem de numero, entao cada lista recebe os artigos em ordem
+			for(Map.Entry<String, int[]> palavra : posicoes.entrySet()) {
+				this.listas.computeIfAbsent(palavra.getKey(), ListaOcorrencias::new).adiciona(id, palavra.getValue());
+			}
+
+			this.tamanhos[id] = this.artigos[id].getPalavrasChave().size();
+			soma += this.tamanhos[id];
+		}
+		this.tamanhoMedio = this.artigos.length == 0 ? 0 : (double) soma / this.artigos.length;
+
+		for(ListaOcorrencias lista : this.listas.values()) {
+			final double idf = this.idf(lista);
+			final ListaOcorrencias.Leitor leitor = lista.leitor();
+			double maior = 0;
+
+			for(int id = leitor.proximo(); id != ListaOcorrencias.FIM; id = leitor.proximo()) {
+				maior = Math.max(maior, this.pontuacao(idf, leitor.qtdPosicoes(), id));
+			}
+
+			this.maioresPontuacoes.put(lista.getTermo(), maior);
+		}
+	}
+
+	/**
+	 * Constroi o indice com os artigos de um banco de palavras chave.
+	 *
+	 * @param visao visao do banco de palavras chave.
+	 *
+	 * @return o indice dos artigos do banco.
+	 */
+	public static IndiceRanqueado de(VisaoBanco<PalavraChave, String> visao) {
+		final LinkedHashSet<Artigo> artigos = new LinkedHashSet<>();
+
+		visao.percorre((palavra, pc) -> artigos.addAll(pc.getArtigos()));
+
+		return new IndiceRanqueado(artigos);
+	}
+
+	/**
+	 * Getter da quantidade de artigos do indice.
+	 *
+	 * @return a quantidade de artigos indexados.
+	 */
+	public int getQtdArtigos() {
+		return this.artigos.length;
+	}
+
+	/**
+	 * Busca os {@code k} artigos mais relevantes para as palavras chave passadas. Um artigo
+	 * precisa ter pelo menos uma das palavras para ser encontrado.
+	 *
+	 * @param palavras palavras chave buscadas. Palavras repetidas so contam uma vez.
+	 * @param k quantidade maxima de artigos devolvidos.
+	 *
+	 * @return os artigos encontrados, do mais relevante para o menos relevante. Artigos com a
+	 * mesma pontuacao ficam na ordem em que foram indexados.
+	 *
+	 * @throws IllegalArgumentException Caso {@code k} nao seja positivo.
+	 */
+	public List<Resultado> busca(Collection<String> palavras, int k) {
+		if(k < 1) {
+			throw new IllegalArgumentException("A busca deve devolver pelo menos um artigo!!");
+		}
+
+		// uma lista por palavra que esta no indice
+		final ArrayList<Cursor> cursores = new ArrayList<>();
+		for(String palavra : new LinkedHashSet<>(palavras)) {
+			final ListaOcorrencias lista = this.listas.get(palavra);
+
+			if(lista != null) {
+				final Cursor cursor = new Cursor(lista.leitor(), this.idf(lista), this.maioresPontuacoes.get(palavra));
+				cursor.leitor.proximo();
+				cursores.add(cursor);
+			}
+		}
+
+		// o heap tem o pior dos k melhores resultados no topo
+		final PriorityQueue<Resultado> melhores = new PriorityQueue<>(ORDEM_RELEVANCIA.reversed());
+		final Cursor[] ordenados = cursores.toArray(new Cursor[0]);
+
+		while(true) {
+			Arrays.sort(ordenados, Comparator.comparingInt((Cursor c) -> c.leitor.documento()));
+
+			// o pivo e o primeiro artigo cuja soma das maiores pontuacoes das listas ate ele pode
+			// passar do pior resultado do heap. Nenhum artigo antes dele pode entrar no heap
+			final double limite = melhores.size() < k ? 0 : melhores.peek().pontuacao;
+			double somaMaiores = 0;
+			int pivo = -1;
+
+			for(int i = 0; i < ordenados.length && ordenados[i].leitor.documento() != ListaOcorrencias.FIM; i++) {
+				somaMaiores += ordenados[i].maiorPontuacao;
+
+				if(somaMaiores > limite) {
+					pivo = i;
+					break;
+				}
+			}
+
+			if(pivo == -1) {
+				break;
+			}
+
+			final int documento = ordenados[pivo].leitor.documento();
+
+			if(ordenados[0].leitor.documento() == documento) {
+				// todas as listas antes do pivo estao nele, entao o artigo e pontuado por inteiro. As
+				// pontuacoes sao somadas sempre na ordem da consulta, para que artigos empatados
+				// tenham exatamente a mesma soma
+				double pontuacao = 0;
+
+				for(Cursor cursor : cursores) {
+					if(cursor.leitor.documento() == documento) {
+						pontuacao += this.pontuacao(cursor.idf, cursor.leitor.qtdPosicoes(), documento);
+						cursor.leitor.proximo();
+					}
+				}
+
+				final Resultado resultado = new Resultado(this.artigos[documento], documento, pontuacao);
+
+				if(melhores.size() < k) {
+					melhores.add(resultado);
+				} else if(ORDEM_RELEVANCIA.compare(resultado, melhores.peek()) < 0) {
+					melhores.poll();
+					melhores.add(resultado);
+				}
+			} else {
+				// as listas antes do pivo pulam direto para ele, sem pontuar os artigos do meio
+				for(int i = 0; i < pivo && ordenados[i].leitor.documento() < documento; i++) {
+					ordenados[i].leitor.avancaAte(documento);
+				}
+			}
+		}
+
+		final ArrayList<Resultado> resultados = new ArrayList<>(melhores);
+		resultados.sort(ORDEM_RELEVANCIA);
+
+		return resultados;
+	}
+
+	/**
+	 * Calcula o idf de uma palavra, que e maior para as palavras que aparecem em menos artigos.
+	 *
+	 * @param lista lista de ocorrencias da palavra.
+	 *
+	 * @return o idf da palavra.
+	 */
+	private double idf(ListaOcorrencias lista) {
+		final double qtd = lista.getQtdDocumentos();
+
+		return Math.log(1 + (this.artigos.length - qtd + 0.5) / (qtd + 0.5));
+	}
+
+	/**
+	 * Calcula a pontuacao BM25 de uma palavra em um artigo.
+	 *
+	 * @param idf idf da palavra.
+	 * @param frequencia quantidade de vezes que a palavra aparece no artigo.
+	 * @param documento numero do artigo.
+	 *
+	 * @return a pontuacao da palavra no artigo.
+	 */
+	private double pontuacao(double idf, int frequencia, int documento) {
+		final double normalizacao = 1 - B + B * this.tamanhos[documento] / this.tamanhoMedio;
+
+		return idf * frequencia * (K1 + 1) / (frequencia + K1 * normalizacao);
+	}
+
+	/**
+	 * Junta as posicoes de cada palavra chave na lista de palavras de um artigo.
+	 *
+	 * @param artigo artigo processado.
+	 *
+	 * @return as posicoes de cada palavra chave diferente do artigo.
+	 */
+	private static Map<String, int[]> posicoesDasPalavras(Artigo artigo) {
+		final List<String> palavras = artigo.getPalavrasChave();
+		final LinkedHashMap<String, int[]> posicoes = new LinkedHashMap<>();
+
+		for(int i = 0; i < palavras.size(); i++) {
+			final int[] anteriores = posicoes.get(palavras.get(i));
+			final int[] atuais = anteriores == null ? new int[1] : Arrays.copyOf(anteriores, anteriores.length + 1);
+
+			atuais[atuais.length - 1] = i;
+			posicoes.put(palavras.get(i), atuais);
+		}
+
+		return posicoes;
+	}
+
+	/**
+	 * Ordem dos resultados: do mais relevante para o menos relevante, e em ordem de numero entre
+	 * artigos com a mesma pontuacao.
+	 */
+	private static final Comparator<Resultado> ORDEM_RELEVANCIA = Comparator.comparingDouble((Resultado r) -> -r.pontuacao)
+			.thenComparingInt(r -> r.documento);
+
+	/**
+	 * Posicao da busca na lista de uma palavra.
+	 */
+	private static class Cursor {
+		private final ListaOcorrencias.Leitor leitor;
+		private final double idf;
+		private final double maiorPontuacao;
+
+		private Cursor(ListaOcorrencias.Leitor leitor, double idf, double maiorPontuacao) {
+			this.leitor = leitor;
+			this.idf = idf;
+			this.maiorPontuacao = maiorPontuacao;
+		}
+	}
+
+	/**
+	 * Artigo encontrado em uma busca, com a sua pontuacao.
+	 */
+	public static class Resultado {
+		private final Artigo artigo;
+		private final int documento;
+		private final double pontuacao;
+
+		private Resultado(Artigo artigo, int documento, double pontuacao) {
+			this.artigo = artigo;
+			this.documento = documento;
+			this.pontuacao = pontuacao;
+		}
+
+		/**
+		 * Getter do artigo encontrado.
+		 *
+		 * @return o artigo encontrado.
+		 */
+		public Artigo getArtigo() {
+			return this.artigo;
+		}
+
+		/**
+		 * Getter da pontuacao do artigo.
+		 *
+		 * @return a soma das pontuacoes BM25 das palavras buscadas no artigo.
+		 */
+		public double getPontuacao() {
+			return this.pontuacao;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%.3f: %s", this.pontuacao, this.artigo.getTitulo());
+		}
+	}
+}
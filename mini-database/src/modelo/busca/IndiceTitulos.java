@@ -0,0 +1,443 @@
+package modelo.busca;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import banco.MiniBD;
+import banco.TipoIndice;
+import banco.Transacao;
+import modelo.artigo.Artigo;
+import modelo.auxiliar.GuardadorObjeto;
+
+/**
+ * Indice invertido sobre os titulos dos artigos. Cada titulo e quebrado em termos pelo
+ * {@link Tokenizador}, e cada termo tem uma {@link ListaOcorrencias} com os documentos cujo
+ * titulo contem o termo. Assim uma busca por palavras so le as listas dos termos buscados, sem
+ * percorrer os artigos.
+ *
+ * </p>O indice e guardado em dois bancos: um com as listas de ocorrencias, com o termo como
+ * chave, e outro com os artigos, com o numero do documento como chave. Os numeros dos documentos
+ * so crescem, entao um artigo novo sempre vai para o fim das listas dos seus termos.
+ *
+ * </p>As buscas podem ser por palavras, que devolvem os artigos com todas as palavras no titulo,
+ * em qualquer ordem, ou por frases, que devolvem os artigos com as palavras em sequencia.
+ *
+ * @see ListaOcorrencias
+ */
+public class IndiceTitulos implements AutoCloseable {
+	/**
+	 * Quantidade de numeros de documento reservados de cada vez no arquivo do proximo documento.
+	 */
+	private static final int RESERVA_DOCUMENTOS = 1024;
+
+	/**
+	 * Banco com as listas de ocorrencias de cada termo.
+	 */
+	private MiniBD<ListaOcorrencias, String> termos;
+	/**
+	 * Banco com os artigos indexados.
+	 */
+	private MiniBD<DocumentoTitulo, Integer> documentos;
+	/**
+	 * Numero do proximo documento adicionado no indice.
+	 */
+	private int proximoDocumento;
+	/**
+	 * Primeiro numero de documento que ainda nao foi reservado no arquivo.
+	 */
+	private int limiteReservado;
+	private GuardadorObjeto<Integer> guardadorProximoDocumento;
+
+	private IndiceTitulos() {}
+
+	/**
+	 * Constroi um indice de titulos vazio.
+	 *
+	 * @param nomeIndice nome usado nos arquivos do indice.
+	 */
+	public IndiceTitulos(String nomeIndice) {
+		this(new ArrayList<>(), nomeIndice);
+	}
+
+	/**
+	 * Constroi um indice de titulos com os artigos passados. As listas de ocorrencias sao
+	 * montadas na memoria e os bancos sao criados ja com elas. Artigos repetidos, i.e., com o
+	 * mesmo titulo, so sao indexados uma vez, e artigos cujo titulo nao tem palavras nao sao
+	 * indexados.
+	 *
+	 * @param artigos artigos indexados.
+	 * @param nomeIndice nome usado nos arquivos do indice.
+	 */
+	public IndiceTitulos(Collection<Artigo> artigos, String nomeIndice) {
+		final TreeMap<String, ListaOcorrencias> listas = new TreeMap<>();
+		final ArrayList<DocumentoTitulo> docs = new ArrayList<>();
+		final HashSet<Artigo> vistos = new HashSet<>();
+
+		for(Artigo artigo : artigos) {
+			final Map<String, int[]> posicoes = posicoesDosTermos(artigo.getTitulo());
+
+			if(!posicoes.isEmpty() && vistos.add(artigo)) {
+				final int id = docs.size();
+				docs.add(new DocumentoTitulo(id, artigo));
+
+				for(Map.Entry<String, int[]> termo : posicoes.entrySet()) {
+					listas.computeIfAbsent(termo.getKey(), ListaOcorrencias::new).adiciona(id, termo.getValue());
+				}
+			}
+		}
+
+		this.termos = new MiniBD<>(new ArrayList<>(listas.values()), (ListaOcorrencias lista) -> lista.getTermo(),
+				new CodecListaOcorrencias(), TipoIndice.ARVORE_B, nomeIndice + "-termos");
+		this.documentos = new MiniBD<>(docs, (DocumentoTitulo doc) -> doc.getId(), new CodecDocumentoTitulo(),
+				TipoIndice.INTEIRO, nomeIndice + "-documentos");
+		this.proximoDocumento = docs.size();
+		this.limiteReservado = docs.size();
+		this.guardadorProximoDocumento = new GuardadorObjeto<>(nomeIndice + "-proximo-documento");
+	}
+
+	/**
+	 * Carrega um indice de titulos salvo por {@link #close()}.
+	 *
+	 * @param nomeIndice nome usado nos arquivos do indice.
+	 *
+	 * @return o indice carregado.
+	 *
+	 * @throws ClassNotFoundException Caso existam classes faltando no programa.
+	 * @throws IOException Caso ocorra algum erro na leitura dos arquivos.
+	 */
+	public static IndiceTitulos carrega(String nomeIndice) throws ClassNotFoundException, IOException {
+		final IndiceTitulos indice = new IndiceTitulos();
+
+		indice.termos = MiniBD.carregaBanco(nomeIndice + "-termos", nomeIndice + "-termos-indices",
+				nomeIndice + "-termos-posicoes-vazias", (ListaOcorrencias lista) -> lista.getTermo(), new CodecListaOcorrencias());
+		indice.documentos = MiniBD.carregaBanco(nomeIndice + "-documentos", nomeIndice + "-documentos-indices",
+				nomeIndice + "-documentos-posicoes-vazias", (DocumentoTitulo doc) -> doc.getId(),
+				new CodecDocumentoTitulo());
+		indice.guardadorProximoDocumento = new GuardadorObjeto<>(nomeIndice + "-proximo-documento");
+		indice.proximoDocumento = indice.guardadorProximoDocumento.carregaObjeto();
+		indice.limiteReservado = indice.proximoDocumento;
+
+		return indice;
+	}
+
+	/**
+	 * Adiciona um artigo no indice. Caso um artigo com o mesmo titulo ja esteja no indice, ou caso
+	 * o titulo nao tenha nenhuma palavra, nada e feito. As listas de todos os termos do titulo sao
+	 * alteradas em uma so transacao.
+	 *
+	 * @param artigo artigo adicionado.
+	 *
+	 * @return {@code true} caso o artigo tenha sido adicionado, {@code false} caso contrario.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do diario dos bancos.
+	 */
+	public synchronized boolean adiciona(Artigo artigo) throws IOException {
+		final Map<String, int[]> posicoes = posicoesDosTermos(artigo.getTitulo());
+
+		if(posicoes.isEmpty() || this.documentoDe(artigo) != null) {
+			return false;
+		}
+
+		// os numeros sao reservados no arquivo antes de serem usados, entao um indice carregado
+		// depois de uma parada inesperada nunca repete um numero que ja esta nas listas
+		if(this.proximoDocumento >= this.limiteReservado) {
+			this.limiteReservado = this.proximoDocumento + RESERVA_DOCUMENTOS;
+			this.guardadorProximoDocumento.salvaObjeto(this.limiteReservado);
+		}
+		
+		final int id = this.proximoDocumento++;
+		final Transacao<ListaOcorrencias, String> transacao = this.termos.iniciaTransacao();
+
+		for(Map.Entry<String, int[]> termo : posicoes.entrySet()) {
+			ListaOcorrencias lista = transacao.busca(termo.getKey());
+
+			if(lista == null) {
+				lista = new ListaOcorrencias(termo.getKey());
+				lista.adiciona(id, termo.getValue());
+				transacao.adiciona(lista);
+			} else {
+				lista.adiciona(id, termo.getValue());
+				transacao.atualiza(lista);
+			}
+		}
+
+		// o artigo so e guardado depois que as listas foram confirmadas. Se o programa parar antes
+		// disso, as listas apontam para um documento que nao existe, e as buscas ignoram ele
+		transacao.confirma();
+		this.guardaDocumento(new DocumentoTitulo(id, artigo));
+
+		return true;
+	}
+
+	/**
+	 * Remove um artigo do indice.
+	 *
+	 * @param artigo artigo removido. So o titulo dele e usado.
+	 *
+	 * @return {@code true} caso o artigo estivesse no indice, {@code false} caso contrario.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do diario dos bancos.
+	 */
+	public synchronized boolean remove(Artigo artigo) throws IOException {
+		final DocumentoTitulo doc = this.documentoDe(artigo);
+
+		if(doc == null) {
+			return false;
+		}
+
+		final Transacao<ListaOcorrencias, String> transacao = this.termos.iniciaTransacao();
+
+		for(String termo : posicoesDosTermos(artigo.getTitulo()).keySet()) {
+			final ListaOcorrencias lista = transacao.busca(termo);
+
+			if(lista != null && lista.remove(doc.getId())) {
+				if(lista.getQtdDocumentos() == 0) {
+					transacao.remove(termo);
+				} else {
+					transacao.atualiza(lista);
+				}
+			}
+		}
+
+		// o documento sai primeiro, entao se o programa parar no meio as listas so ficam com um
+		// documento que as buscas ignoram
+		final Transacao<DocumentoTitulo, Integer> remocao = this.documentos.iniciaTransacao();
+		remocao.remove(doc.getId());
+		remocao.confirma();
+		transacao.confirma();
+
+		return true;
+	}
+
+	/**
+	 * Verifica se um artigo esta no indice.
+	 *
+	 * @param artigo artigo buscado. So o titulo dele e usado.
+	 *
+	 * @return {@code true} caso um artigo com o mesmo titulo esteja no indice, {@code false} caso
+	 * contrario.
+	 */
+	public synchronized boolean contem(Artigo artigo) {
+		return this.documentoDe(artigo) != null;
+	}
+
+	/**
+	 * Busca os artigos cujo titulo contem todas as palavras da consulta, em qualquer ordem.
+	 *
+	 * @param consulta palavras buscadas.
+	 *
+	 * @return os artigos encontrados, na ordem em que foram indexados. Uma consulta sem
+	 * palavras nao encontra nada.
+	 */
+	public synchronized List<Artigo> buscaPalavras(String consulta) {
+		final ArrayList<Artigo> artigos = new ArrayList<>();
+
+		for(DocumentoTitulo doc : this.buscaDocumentos(Tokenizador.tokeniza(consulta), false)) {
+			artigos.add(doc.getArtigo());
+		}
+
+		return artigos;
+	}
+
+	/**
+	 * Busca os artigos cujo titulo contem as palavras da frase em sequencia.
+	 *
+	 * @param frase frase buscada.
+	 *
+	 * @return os artigos encontrados, na ordem em que foram indexados. Uma frase sem palavras
+	 * nao encontra nada.
+	 */
+	public synchronized List<Artigo> buscaFrase(String frase) {
+		final ArrayList<Artigo> artigos = new ArrayList<>();
+
+		for(DocumentoTitulo doc : this.buscaDocumentos(Tokenizador.tokeniza(frase), true)) {
+			artigos.add(doc.getArtigo());
+		}
+
+		return artigos;
+	}
+
+	/**
+	 * Getter da quantidade de termos diferentes do indice.
+	 *
+	 * @return a quantidade de termos com lista de ocorrencias.
+	 */
+	public synchronized int getQtdTermos() {
+		return this.termos.getQtdRegistros();
+	}
+
+	/**
+	 * Salva os bancos do indice e libera os recursos usados por eles.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita dos arquivos.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.guardadorProximoDocumento.salvaObjeto(this.proximoDocumento);
+		this.limiteReservado = this.proximoDocumento;
+		this.termos.close();
+		this.documentos.close();
+	}
+
+	/**
+	 * Busca o documento de um artigo, comparando os titulos dos documentos que tem todas as
+	 * palavras do titulo do artigo em sequencia.
+	 *
+	 * @param artigo artigo buscado.
+	 *
+	 * @return o documento do artigo, ou {@code null}, caso ele nao esteja no indice.
+	 */
+	private DocumentoTitulo documentoDe(Artigo artigo) {
+		for(DocumentoTitulo doc : this.buscaDocumentos(Tokenizador.tokeniza(artigo.getTitulo()), true)) {
+			if(doc.getArtigo().equals(artigo)) {
+				return doc;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Guarda um documento no banco de documentos, em uma transacao para que ele va para o diario.
+	 *
+	 * @param doc documento guardado.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do diario.
+	 */
+	private void guardaDocumento(DocumentoTitulo doc) throws IOException {
+		final Transacao<DocumentoTitulo, Integer> transacao = this.documentos.iniciaTransacao();
+		transacao.adiciona(doc);
+		transacao.confirma();
+	}
+
+	/**
+	 * Busca os documentos cujo titulo contem todos os termos. As listas dos termos sao
+	 * percorridas juntas, comecando pela menor: cada documento dela e procurado nas outras, que
+	 * pulam direto para ele, entao o custo depende do tamanho da menor lista, e nao da
+	 * quantidade de artigos.
+	 *
+	 * @param termosBuscados termos buscados, na ordem em que aparecem na consulta.
+	 * @param emSequencia {@code true} caso os termos tenham que aparecer em sequencia no titulo.
+	 *
+	 * @return os documentos encontrados, em ordem crescente de numero.
+	 */
+	private List<DocumentoTitulo> buscaDocumentos(List<String> termosBuscados, boolean emSequencia) {
+		final ArrayList<DocumentoTitulo> encontrados = new ArrayList<>();
+
+		if(termosBuscados.isEmpty()) {
+			return encontrados;
+		}
+
+		// uma lista por termo diferente. Se algum termo nao esta no indice, nada e encontrado
+		final LinkedHashMap<String, ListaOcorrencias> listas = new LinkedHashMap<>();
+		for(String termo : termosBuscados) {
+			if(!listas.containsKey(termo)) {
+				final ListaOcorrencias lista = this.termos.busca(termo);
+
+				if(lista == null) {
+					return encontrados;
+				}
+
+				listas.put(termo, lista);
+			}
+		}
+
+		final ArrayList<String> ordem = new ArrayList<>(listas.keySet());
+		ordem.sort(Comparator.comparingInt((String termo) -> listas.get(termo).getQtdDocumentos()));
+
+		final ListaOcorrencias.Leitor[] leitores = new ListaOcorrencias.Leitor[ordem.size()];
+		for(int i = 0; i < leitores.length; i++) {
+			leitores[i] = listas.get(ordem.get(i)).leitor();
+		}
+
+		int candidato = leitores[0].proximo();
+		while(candidato != ListaOcorrencias.FIM) {
+			int maior = candidato;
+
+			for(int i = 1; i < leitores.length && maior == candidato; i++) {
+				maior = leitores[i].avancaAte(candidato);
+			}
+
+			if(maior != candidato) {
+				// algum termo nao esta no candidato, entao a menor lista pula para o proximo
+				// documento que pode ter todos eles
+				candidato = leitores[0].avancaAte(maior);
+			} else {
+				if(!emSequencia || emSequencia(termosBuscados, ordem, leitores)) {
+					final DocumentoTitulo doc = this.documentos.busca(candidato);
+
+					// listas podem apontar para documentos que nao foram guardados
+					if(doc != null) {
+						encontrados.add(doc);
+					}
+				}
+
+				candidato = leitores[0].proximo();
+			}
+		}
+
+		return encontrados;
+	}
+
+	/**
+	 * Verifica se os termos aparecem em sequencia no documento atual dos leitores.
+	 *
+	 * @param termosBuscados termos buscados, na ordem em que aparecem na consulta.
+	 * @param ordem termos diferentes, na ordem dos leitores.
+	 * @param leitores leitores das listas dos termos, todos no mesmo documento.
+	 *
+	 * @return {@code true} caso exista uma posicao a partir da qual os termos aparecem em
+	 * sequencia, {@code false} caso contrario.
+	 */
+	private static boolean emSequencia(List<String> termosBuscados, List<String> ordem, ListaOcorrencias.Leitor[] leitores) {
+		final int[][] posicoes = new int[termosBuscados.size()][];
+
+		for(int i = 0; i < posicoes.length; i++) {
+			posicoes[i] = leitores[ordem.indexOf(termosBuscados.get(i))].posicoes();
+		}
+
+		for(int inicio : posicoes[0]) {
+			boolean achou = true;
+
+			for(int i = 1; i < posicoes.length && achou; i++) {
+				achou = Arrays.binarySearch(posicoes[i], inicio + i) >= 0;
+			}
+
+			if(achou) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Quebra um titulo em termos e junta as posicoes de cada termo.
+	 *
+	 * @param titulo titulo quebrado.
+	 *
+	 * @return as posicoes de cada termo diferente do titulo, em ordem crescente.
+	 */
+	private static Map<String, int[]> posicoesDosTermos(String titulo) {
+		final List<String> termosTitulo = Tokenizador.tokeniza(titulo);
+		final LinkedHashMap<String, int[]> posicoes = new LinkedHashMap<>();
+
+		for(int i = 0; i < termosTitulo.size(); i++) {
+			final int[] anteriores = posicoes.get(termosTitulo.get(i));
+			final int[] atuais = anteriores == null ? new int[1] : Arrays.copyOf(anteriores, anteriores.length + 1);
+
+			atuais[atuais.length - 1] = i;
+			posicoes.put(termosTitulo.get(i), atuais);
+		}
+
+		return posicoes;
+	}
+}
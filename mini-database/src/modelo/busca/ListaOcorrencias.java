@@ -0,0 +1,336 @@
+package modelo.busca;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Lista de ocorrencias de um termo: os documentos que contem o termo, em ordem crescente, e as
+ * posicoes do termo em cada documento (por exemplo, no titulo de um artigo). A lista e guardada comprimida em um vetor de bytes, com
+ * cada numero escrito como um inteiro de tamanho variavel (7 bits por byte), e os documentos e as
+ * posicoes escritos como a diferenca para o anterior, que costuma caber em um byte so.
+ *
+ * </p>Formato de cada documento: a diferenca para o documento anterior, a quantidade de posicoes,
+ * o tamanho em bytes das posicoes e as posicoes (a primeira inteira, as outras como diferencas).
+ * Com o tamanho das posicoes, um {@link Leitor} pode pular os documentos que nao interessam sem
+ * decodificar as posicoes deles.
+ *
+ * </p>Os documentos sao sempre adicionados no fim da lista, entao a adicao so escreve os bytes
+ * novos, sem decodificar a lista.
+ */
+public class ListaOcorrencias implements Serializable {
+	private static final long serialVersionUID = -6312480951722469104L;
+
+	/**
+	 * Valor devolvido pelo {@link Leitor} quando os documentos da lista acabam.
+	 */
+	public static final int FIM = Integer.MAX_VALUE;
+
+	private final String termo;
+	private int qtdDocumentos;
+	private int ultimoDocumento;
+	private byte[] dados;
+	private int tamanho;
+
+	/**
+	 * Constroi uma lista de ocorrencias vazia.
+	 *
+	 * @param termo termo da lista.
+	 */
+	public ListaOcorrencias(String termo) {
+		this(termo, 0, -1, new byte[16], 0);
+	}
+
+	/**
+	 * Constroi uma lista de ocorrencias a partir dos bytes ja codificados.
+	 *
+	 * @param termo termo da lista.
+	 * @param qtdDocumentos quantidade de documentos da lista.
+	 * @param ultimoDocumento maior documento da lista, ou {@code -1}, caso ela esteja vazia.
+	 * @param dados bytes da lista.
+	 * @param tamanho quantidade de bytes usados do vetor.
+	 */
+	ListaOcorrencias(String termo, int qtdDocumentos, int ultimoDocumento, byte[] dados, int tamanho) {
+		this.termo = termo;
+		this.qtdDocumentos = qtdDocumentos;
+		this.ultimoDocumento = ultimoDocumento;
+		this.dados = dados;
+		this.tamanho = tamanho;
+	}
+
+	/**
+	 * Getter do termo da lista.
+	 *
+	 * @return o termo da lista.
+	 */
+	public String getTermo() {
+		return this.termo;
+	}
+
+	/**
+	 * Getter da quantidade de documentos da lista.
+	 *
+	 * @return a quantidade de documentos que contem o termo.
+	 */
+	public int getQtdDocumentos() {
+		return this.qtdDocumentos;
+	}
+
+	/**
+	 * Getter do maior documento da lista.
+	 *
+	 * @return o maior documento da lista, ou {@code -1}, caso ela esteja vazia.
+	 */
+	int getUltimoDocumento() {
+		return this.ultimoDocumento;
+	}
+
+	/**
+	 * Getter da quantidade de bytes usados pela lista.
+	 *
+	 * @return a quantidade de bytes da lista comprimida.
+	 */
+	public int getTamanho() {
+		return this.tamanho;
+	}
+
+	/**
+	 * Getter dos bytes da lista. So os primeiros {@link #getTamanho()} bytes sao usados.
+	 *
+	 * @return o vetor de bytes da lista.
+	 */
+	byte[] getDados() {
+		return this.dados;
+	}
+
+	/**
+	 * Adiciona um documento no fim da lista.
+	 *
+	 * @param documento documento adicionado, maior que todos os documentos da lista.
+	 * @param posicoes posicoes do termo no documento, em ordem crescente.
+	 *
+	 * @throws IllegalArgumentException Caso o documento nao seja maior que o ultimo da lista, ou
+	 * caso ele nao tenha nenhuma posicao.
+	 */
+	public void adiciona(int documento, int[] posicoes) {
+		if(documento <= this.ultimoDocumento) {
+			throw new IllegalArgumentException("Os documentos devem ser adicionados em ordem crescente!!");
+		}
+
+		if(posicoes.length == 0) {
+			throw new IllegalArgumentException("O documento deve ter pelo menos uma posicao do termo!!");
+		}
+
+		int tamanhoPosicoes = tamanhoVariavel(posicoes[0]);
+		for(int i = 1; i < posicoes.length; i++) {
+			tamanhoPosicoes += tamanhoVariavel(posicoes[i] - posicoes[i - 1]);
+		}
+
+		// no pior caso cada numero do cabecalho ocupa 5 bytes
+		this.garanteEspaco(15 + tamanhoPosicoes);
+		this.escreveVariavel(documento - this.ultimoDocumento);
+		this.escreveVariavel(posicoes.length);
+		this.escreveVariavel(tamanhoPosicoes);
+
+		this.escreveVariavel(posicoes[0]);
+		for(int i = 1; i < posicoes.length; i++) {
+			this.escreveVariavel(posicoes[i] - posicoes[i - 1]);
+		}
+
+		this.ultimoDocumento = documento;
+		this.qtdDocumentos++;
+	}
+
+	/**
+	 * Remove um documento da lista, reescrevendo os bytes dos documentos seguintes.
+	 *
+	 * @param documento documento removido.
+	 *
+	 * @return {@code true} caso o documento estivesse na lista, {@code false} caso contrario.
+	 */
+	public boolean remove(int documento) {
+		final ListaOcorrencias nova = new ListaOcorrencias(this.termo);
+		final Leitor leitor = this.leitor();
+		boolean removido = false;
+
+		for(int atual = leitor.proximo(); atual != FIM; atual = leitor.proximo()) {
+			if(atual == documento) {
+				removido = true;
+			} else {
+				nova.adiciona(atual, leitor.posicoes());
+			}
+		}
+
+		if(removido) {
+			this.qtdDocumentos = nova.qtdDocumentos;
+			this.ultimoDocumento = nova.ultimoDocumento;
+			this.dados = nova.dados;
+			this.tamanho = nova.tamanho;
+		}
+
+		return removido;
+	}
+
+	/**
+	 * Cria um leitor que percorre os documentos da lista em ordem crescente.
+	 *
+	 * @return um leitor posicionado antes do primeiro documento.
+	 */
+	public Leitor leitor() {
+		return new Leitor();
+	}
+
+	/**
+	 * Aumenta o vetor de bytes, caso ele nao tenha espaco para mais {@code qtdBytes} bytes.
+	 *
+	 * @param qtdBytes quantidade de bytes que sera escrita.
+	 */
+	private void garanteEspaco(int qtdBytes) {
+		if(this.tamanho + qtdBytes > this.dados.length) {
+			this.dados = Arrays.copyOf(this.dados, Math.max(this.dados.length * 2, this.tamanho + qtdBytes));
+		}
+	}
+
+	/**
+	 * Escreve um inteiro nao negativo com 7 bits por byte, do menos significativo para o mais
+	 * significativo. O bit mais alto de cada byte diz se o numero continua no proximo byte.
+	 *
+	 * @param valor valor escrito.
+	 */
+	private void escreveVariavel(int valor) {
+		while((valor & ~0x7F) != 0) {
+			this.dados[this.tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+			valor >>>= 7;
+		}
+
+		this.dados[this.tamanho++] = (byte) valor;
+	}
+
+	/**
+	 * Calcula quantos bytes um inteiro nao negativo ocupa quando escrito por
+	 * {@link #escreveVariavel(int)}.
+	 *
+	 * @param valor valor que sera escrito.
+	 *
+	 * @return a quantidade de bytes do valor.
+	 */
+	private static int tamanhoVariavel(int valor) {
+		int qtdBytes = 1;
+
+		while((valor & ~0x7F) != 0) {
+			valor >>>= 7;
+			qtdBytes++;
+		}
+
+		return qtdBytes;
+	}
+
+	/**
+	 * Leitor que percorre os documentos de uma lista em ordem crescente. As posicoes de um
+	 * documento so sao decodificadas quando {@link #posicoes()} e chamado.
+	 */
+	public class Leitor {
+		private int deslocamento = 0;
+		private int documento = -1;
+		private int qtdPosicoes;
+		private int inicioPosicoes;
+
+		private Leitor() {}
+
+		/**
+		 * Getter do documento atual.
+		 *
+		 * @return o documento atual, {@code -1} antes do primeiro, ou {@link ListaOcorrencias#FIM}
+		 * depois do ultimo.
+		 */
+		public int documento() {
+			return this.documento;
+		}
+
+		/**
+		 * Getter da quantidade de posicoes do termo no documento atual, i.e., quantas vezes o
+		 * termo aparece nele. Ela nao precisa decodificar as posicoes.
+		 *
+		 * @return a quantidade de posicoes do documento atual.
+		 */
+		public int qtdPosicoes() {
+			return this.qtdPosicoes;
+		}
+
+		/**
+		 * Avanca para o proximo documento da lista.
+		 *
+		 * @return o proximo documento, ou {@link ListaOcorrencias#FIM}, caso a lista tenha acabado.
+		 */
+		public int proximo() {
+			if(this.deslocamento >= ListaOcorrencias.this.tamanho) {
+				this.documento = FIM;
+				return FIM;
+			}
+
+			this.documento += this.leVariavel();
+			this.qtdPosicoes = this.leVariavel();
+			final int tamanhoPosicoes = this.leVariavel();
+
+			// as posicoes sao puladas, e so decodificadas se forem pedidas
+			this.inicioPosicoes = this.deslocamento;
+			this.deslocamento += tamanhoPosicoes;
+
+			return this.documento;
+		}
+
+		/**
+		 * Avanca ate o primeiro documento maior ou igual ao alvo. Caso o documento atual ja seja
+		 * maior ou igual ao alvo, o leitor nao se move.
+		 *
+		 * @param alvo documento procurado.
+		 *
+		 * @return o primeiro documento maior ou igual ao alvo, ou {@link ListaOcorrencias#FIM},
+		 * caso ele nao exista.
+		 */
+		public int avancaAte(int alvo) {
+			while(this.documento < alvo) {
+				this.proximo();
+			}
+
+			return this.documento;
+		}
+
+		/**
+		 * Decodifica as posicoes do termo no documento atual.
+		 *
+		 * @return as posicoes do termo no documento atual, em ordem crescente.
+		 */
+		public int[] posicoes() {
+			final int[] posicoes = new int[this.qtdPosicoes];
+			final int fim = this.deslocamento;
+
+			this.deslocamento = this.inicioPosicoes;
+			for(int i = 0; i < posicoes.length; i++) {
+				posicoes[i] = this.leVariavel() + (i == 0 ? 0 : posicoes[i - 1]);
+			}
+			this.deslocamento = fim;
+
+			return posicoes;
+		}
+
+		/**
+		 * Le um inteiro escrito por {@link ListaOcorrencias#escreveVariavel(int)}.
+		 *
+		 * @return o valor lido.
+		 */
+		private int leVariavel() {
+			final byte[] dados = ListaOcorrencias.this.dados;
+			int valor = 0;
+			int deslocamentoBits = 0;
+			byte atual;
+
+			do {
+				atual = dados[this.deslocamento++];
+				valor |= (atual & 0x7F) << deslocamentoBits;
+				deslocamentoBits += 7;
+			} while(atual < 0);
+
+			return valor;
+		}
+	}
+}
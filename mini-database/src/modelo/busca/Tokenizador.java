@@ -0,0 +1,59 @@
+package modelo.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Classe que quebra um texto nos termos usados pelos indices de busca. Os termos sao normalizados
+ * para que variacoes de escrita de uma mesma palavra sejam encontradas: eles ficam em letras
+ * minusculas e sem acentos, e tudo que nao e letra ou digito separa os termos.
+ */
+public class Tokenizador {
+	/**
+	 * Marcas que sobram depois de separar as letras dos acentos.
+	 */
+	private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+	/**
+	 * Tudo que nao e letra ou digito.
+	 */
+	private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private Tokenizador() {}
+
+	/**
+	 * Normaliza uma palavra, deixando ela em letras minusculas e sem acentos.
+	 *
+	 * @param palavra palavra normalizada.
+	 *
+	 * @return a palavra normalizada.
+	 */
+	public static String normaliza(String palavra) {
+		return ACENTOS.matcher(Normalizer.normalize(palavra, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Quebra um texto em termos normalizados. A posicao de cada termo na lista e a posicao dele
+	 * no texto, entao termos repetidos aparecem mais de uma vez.
+	 *
+	 * @param texto texto quebrado, que pode ser {@code null}.
+	 *
+	 * @return a lista de termos do texto, na ordem em que aparecem.
+	 */
+	public static List<String> tokeniza(String texto) {
+		final ArrayList<String> termos = new ArrayList<>();
+
+		if(texto != null) {
+			for(String termo : SEPARADORES.split(normaliza(texto))) {
+				if(!termo.isEmpty()) {
+					termos.add(termo);
+				}
+			}
+		}
+
+		return termos;
+	}
+}
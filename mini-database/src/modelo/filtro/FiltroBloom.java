@@ -0,0 +1,226 @@
+package modelo.filtro;
+
+import java.io.Serializable;
+
+/**
+ * Classe que representa um filtro de Bloom, i.e., uma estrutura probabilistica que responde
+ * se uma chave <b>pode</b> estar em um conjunto ou se ela <b>com certeza nao</b> esta nele.
+ *
+ * </p>O filtro nunca da falsos negativos: se uma chave foi adicionada, {@link #podeConter(Object)}
+ * sempre devolve {@code true}. Falsos positivos acontecem com uma probabilidade proxima da taxa
+ * passada no construtor, enquanto a quantidade de chaves nao passar da capacidade do filtro.
+ * Como nao e possivel remover chaves de um filtro de Bloom, chaves removidas do conjunto continuam
+ * marcadas ate que o filtro seja reconstruido.
+ *
+ * </p>As posicoes dos bits sao calculadas a partir do {@code hashCode()} da chave, entao o tipo
+ * da chave precisa ter um {@code hashCode()} que nao mude entre execucoes do programa (como o de
+ * {@code String} e o de {@code Integer}) para que o filtro possa ser salvo em um arquivo.
+ *
+ * @param <K> tipo das chaves guardadas no filtro.
+ */
+public class FiltroBloom<K> implements Serializable {
+	private static final long serialVersionUID = 3186958420718164921L;
+
+	/**
+	 * Vetor de bits do filtro, guardados 64 por posicao.
+	 */
+	private long[] bits;
+
+	/**
+	 * Quantidade de bits do filtro.
+	 */
+	private long qtdBits;
+
+	/**
+	 * Quantidade de funcoes de hash usadas para marcar cada chave.
+	 */
+	private int qtdHashes;
+
+	/**
+	 * Quantidade de chaves para a qual o filtro foi dimensionado.
+	 */
+	private int capacidade;
+
+	/**
+	 * Quantidade de chaves que ja foram adicionadas no filtro.
+	 */
+	private int qtdChaves;
+
+	/**
+	 * Taxa de falsos positivos esperada enquanto o filtro nao passar da sua capacidade.
+	 */
+	private double taxaFalsosPositivos;
+
+	/**
+	 * Geracao da copia do banco com que o filtro foi salvo, ou 0. Serve para verificar, ao carregar
+	 * o filtro, se ele e da mesma copia que o arquivo de indices carregado junto com ele.
+	 */
+	private long geracaoSalva;
+
+	/**
+	 * Constroi um filtro vazio dimensionado para {@code capacidade} chaves. Caso a capacidade seja
+	 * menor que 1 ela sera 1, e caso a taxa nao esteja no intervalo (0, 1) ela sera 0.01.
+	 *
+	 * @param capacidade quantidade de chaves esperada.
+	 * @param taxaFalsosPositivos taxa de falsos positivos desejada.
+	 */
+	public FiltroBloom(int capacidade, double taxaFalsosPositivos) {
+		if(capacidade < 1) {
+			capacidade = 1;
+		}
+
+		if(taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1) {
+			taxaFalsosPositivos = 0.01;
+		}
+
+		this.capacidade = capacidade;
+		this.taxaFalsosPositivos = taxaFalsosPositivos;
+		this.qtdChaves = 0;
+
+		// formulas classicas do filtro de Bloom: m = -n*ln(p)/ln(2)^2 bits e k = (m/n)*ln(2) hashes
+		final double ln2 = Math.log(2);
+		final long m = (long) Math.ceil(-capacidade * Math.log(taxaFalsosPositivos) / (ln2 * ln2));
+
+		// arredonda a quantidade de bits para um multiplo de 64, ja que eles sao guardados em longs
+		this.bits = new long[(int) Math.max(1, (m + 63) / 64)];
+		this.qtdBits = (long) this.bits.length * 64;
+		this.qtdHashes = Math.max(1, (int) Math.round((double) this.qtdBits / capacidade * ln2));
+	}
+
+	/**
+	 * Adiciona uma chave no filtro.
+	 *
+	 * @param chave chave que sera adicionada.
+	 */
+	public void adiciona(K chave) {
+		final long hash = espalha(chave.hashCode());
+		final long h1 = hash & 0xFFFFFFFFL;
+		final long h2 = hash >>> 32;
+
+		for(int i = 0; i < this.qtdHashes; i++) {
+			final long posicao = ((h1 + i * h2) & Long.MAX_VALUE) % this.qtdBits;
+			this.bits[(int) (posicao >>> 6)] |= 1L << posicao;
+		}
+
+		this.qtdChaves++;
+	}
+
+	/**
+	 * Verifica se uma chave pode estar no filtro.
+	 *
+	 * @param chave chave verificada.
+	 *
+	 * @return {@code false} caso a chave com certeza nao tenha sido adicionada no filtro,
+	 * ou {@code true} caso ela possa ter sido adicionada.
+	 */
+	public boolean podeConter(K chave) {
+		final long hash = espalha(chave.hashCode());
+		final long h1 = hash & 0xFFFFFFFFL;
+		final long h2 = hash >>> 32;
+
+		for(int i = 0; i < this.qtdHashes; i++) {
+			final long posicao = ((h1 + i * h2) & Long.MAX_VALUE) % this.qtdBits;
+
+			if((this.bits[(int) (posicao >>> 6)] & (1L << posicao)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Cria uma copia independente do filtro, i.e., chaves adicionadas em um deles nao aparecem
+	 * no outro.
+	 *
+	 * @return a copia do filtro.
+	 */
+	public FiltroBloom<K> copia() {
+		final FiltroBloom<K> copia = new FiltroBloom<>(1, this.taxaFalsosPositivos);
+
+		copia.bits = this.bits.clone();
+		copia.qtdBits = this.qtdBits;
+		copia.qtdHashes = this.qtdHashes;
+		copia.capacidade = this.capacidade;
+		copia.qtdChaves = this.qtdChaves;
+		copia.geracaoSalva = this.geracaoSalva;
+
+		return copia;
+	}
+
+	/**
+	 * Verifica se o filtro ja recebeu mais chaves do que a sua capacidade. Nesse caso a taxa
+	 * de falsos positivos passa a ser maior que a esperada e o filtro deve ser reconstruido.
+	 *
+	 * @return {@code true} caso o filtro tenha passado da sua capacidade, {@code false} caso
+	 * contrario.
+	 */
+	public boolean saturado() {
+		return this.qtdChaves > this.capacidade;
+	}
+
+	/**
+	 * Getter da capacidade do filtro.
+	 *
+	 * @return quantidade de chaves para a qual o filtro foi dimensionado.
+	 */
+	public int getCapacidade() {
+		return this.capacidade;
+	}
+
+	/**
+	 * Getter da quantidade de chaves adicionadas.
+	 *
+	 * @return quantidade de chaves que ja foram adicionadas no filtro.
+	 */
+	public int getQtdChaves() {
+		return this.qtdChaves;
+	}
+
+	/**
+	 * Getter da taxa de falsos positivos.
+	 *
+	 * @return taxa de falsos positivos esperada para o filtro.
+	 */
+	public double getTaxaFalsosPositivos() {
+		return this.taxaFalsosPositivos;
+	}
+
+	/**
+	 * Getter da geracao da copia do banco com que o filtro foi salvo.
+	 *
+	 * @return a geracao da copia, ou 0, caso o filtro nao tenha sido salvo com uma.
+	 */
+	public long getGeracaoSalva() {
+		return this.geracaoSalva;
+	}
+
+	/**
+	 * Setter da geracao da copia do banco com que o filtro e salvo.
+	 *
+	 * @param geracaoSalva geracao da copia.
+	 */
+	public void setGeracaoSalva(long geracaoSalva) {
+		this.geracaoSalva = geracaoSalva;
+	}
+
+	/**
+	 * Espalha os bits de um hash de 32 bits em 64 bits (finalizador do MurmurHash3), para que
+	 * chaves com {@code hashCode()} parecidos marquem posicoes bem diferentes do filtro.
+	 *
+	 * @param hash hash original da chave.
+	 *
+	 * @return hash de 64 bits.
+	 */
+	private static long espalha(int hash) {
+		long h = hash;
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+}
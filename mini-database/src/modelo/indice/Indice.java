@@ -0,0 +1,82 @@
+package modelo.indice;
+
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+/**
+ * Interface de um indice que traduz uma chave de um tipo qualquer para a posicao de um registro.
+ * O indice nao guarda chaves duplicadas, e cada implementacao favorece um padrao de acesso
+ * diferente: a {@link modelo.btree.BTree} e ordenada e compartilha nodes nas copias instantaneas,
+ * o {@link IndiceHash} so responde buscas pontuais, mas em tempo constante, e o
+ * {@link IndiceSkipList} e ordenado e pode ser lido e alterado por varias threads ao mesmo tempo.
+ *
+ * </p>O indice e salvo junto com o banco, entao as implementacoes devem ser serializaveis.
+ *
+ * @param <K> tipo da chave guardada no indice.
+ */
+public interface Indice<K extends Comparable<K>> extends Serializable {
+	/**
+	 * Busca a posicao de uma chave.
+	 *
+	 * @param chave chave buscada.
+	 * @return a posicao dessa chave, ou -1, caso a mesma nao esteja no indice.
+	 */
+	int busca(K chave);
+
+	/**
+	 * Insere um novo par (chave, posicao) no indice. Caso a chave ja esteja no indice,
+	 * nada e feito.
+	 *
+	 * @param chave chave a ser inserida.
+	 * @param posicao posicao referente a chave inserida.
+	 */
+	void insere(K chave, int posicao);
+
+	/**
+	 * Remove uma chave do indice. Caso a chave nao esteja no indice, nada e feito.
+	 *
+	 * @param chave chave a ser removida.
+	 */
+	void remove(K chave);
+
+	/**
+	 * Percorre todos os pares (chave, posicao) do indice. Caso o indice seja ordenado, os pares
+	 * sao percorridos em ordem crescente de chave, e caso contrario, em uma ordem qualquer.
+	 *
+	 * @param consumidor funcao chamada para cada par do indice.
+	 *
+	 * @see #ehOrdenado()
+	 */
+	void percorre(BiConsumer<K, Integer> consumidor);
+
+	/**
+	 * Diz se o indice percorre as chaves em ordem crescente.
+	 *
+	 * @return {@code true} caso o indice seja ordenado, {@code false} caso contrario.
+	 */
+	boolean ehOrdenado();
+
+	/**
+	 * Busca a menor chave do indice que e maior ou igual a chave passada. Com essa busca, as
+	 * chaves de um indice ordenado podem ser percorridas pulando intervalos inteiros.
+	 *
+	 * @param chave chave de onde a busca comeca.
+	 *
+	 * @return a menor chave maior ou igual a chave passada, ou {@code null}, caso ela nao exista.
+	 *
+	 * @throws UnsupportedOperationException Caso o indice nao seja ordenado.
+	 *
+	 * @see #ehOrdenado()
+	 */
+	K teto(K chave);
+
+	/**
+	 * Cria uma copia do indice que nao muda quando o indice e alterado, e que pode ser lida
+	 * (por exemplo, salva em um arquivo) em outra thread enquanto o indice e alterado.
+	 *
+	 * </p>A copia nao deve ser alterada.
+	 *
+	 * @return a copia instantanea do indice.
+	 */
+	Indice<K> copiaInstantanea();
+}
@@ -0,0 +1,245 @@
+package modelo.indice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Indice imutavel em que as chaves ficam em um vetor no layout de Eytzinger, i.e., a ordem em que
+ * uma busca em largura visitaria uma arvore binaria de busca completa: a raiz fica na posicao 1 e
+ * os filhos da posicao {@code i} ficam nas posicoes {@code 2i} e {@code 2i + 1}. Os filhos de cada
+ * posicao nao precisam de ponteiros, e as primeiras posicoes visitadas por todas as buscas ficam
+ * juntas no comeco do vetor, entao uma busca passa por bem menos linhas de cache do que
+ * percorrendo os nodes e as listas de filhos da arvore B.
+ *
+ * </p>O indice nao pode ser alterado depois de criado, e todos os seus campos sao finais, entao ele
+ * pode ser lido por varias threads ao mesmo tempo sem travas.
+ *
+ * @param <K> tipo da chave guardada no indice.
+ */
+public class IndiceCongelado<K extends Comparable<K>> implements Indice<K> {
+	private static final long serialVersionUID = -5367240913328156044L;
+
+	/**
+	 * Chaves no layout de Eytzinger, a partir da posicao 1.
+	 */
+	private final Object[] chaves;
+
+	/**
+	 * Posicao do registro de cada chave, no mesmo lugar da chave em {@link #chaves}.
+	 */
+	private final int[] posicoes;
+
+	/**
+	 * Quantidade de chaves no indice.
+	 */
+	private final int qtdChaves;
+
+	/**
+	 * Constroi o indice a partir de pares (chave, posicao) ordenados pela chave.
+	 *
+	 * @param ordenadas chaves em ordem estritamente crescente.
+	 * @param posicoesOrdenadas posicao de cada chave, na mesma ordem das chaves.
+	 */
+	private IndiceCongelado(Object[] ordenadas, int[] posicoesOrdenadas) {
+		this.qtdChaves = ordenadas.length;
+		this.chaves = new Object[this.qtdChaves + 1];
+		this.posicoes = new int[this.qtdChaves + 1];
+
+		this.preenche(ordenadas, posicoesOrdenadas, 1, 0);
+	}
+
+	/**
+	 * Cria um indice congelado com todos os pares de outro indice. O indice original nao muda.
+	 *
+	 * @param <K> tipo da chave guardada no indice.
+	 *
+	 * @param indice indice copiado.
+	 *
+	 * @return o indice congelado.
+	 */
+	public static <K extends Comparable<K>> IndiceCongelado<K> de(Indice<K> indice) {
+		if(indice instanceof IndiceCongelado) {
+			return (IndiceCongelado<K>) indice;
+		}
+
+		final ArrayList<K> chaves = new ArrayList<>();
+		final ArrayList<Integer> posicoes = new ArrayList<>();
+
+		indice.percorre((chave, posicao) -> {
+			chaves.add(chave);
+			posicoes.add(posicao);
+		});
+
+		final Object[] ordenadas = chaves.toArray();
+		final int[] posicoesOrdenadas = new int[ordenadas.length];
+
+		if(indice.ehOrdenado()) {
+			for(int i = 0; i < ordenadas.length; i++) {
+				posicoesOrdenadas[i] = posicoes.get(i);
+			}
+		} else {
+			// os pares de um indice sem ordem sao ordenados pela chave
+			final Integer[] ordem = new Integer[ordenadas.length];
+			for(int i = 0; i < ordem.length; i++) {
+				ordem[i] = i;
+			}
+
+			Arrays.parallelSort(ordem, (a, b) -> chaves.get(a).compareTo(chaves.get(b)));
+
+			for(int i = 0; i < ordem.length; i++) {
+				ordenadas[i] = chaves.get(ordem[i]);
+				posicoesOrdenadas[i] = posicoes.get(ordem[i]);
+			}
+		}
+
+		return new IndiceCongelado<>(ordenadas, posicoesOrdenadas);
+	}
+
+	/**
+	 * Preenche a subarvore da posicao {@code no} com as chaves ordenadas a partir de
+	 * {@code proxima}, visitando a subarvore em ordem.
+	 *
+	 * @param ordenadas chaves ordenadas.
+	 * @param posicoesOrdenadas posicao de cada chave ordenada.
+	 * @param no posicao da raiz da subarvore no vetor.
+	 * @param proxima primeira chave ordenada que ainda nao foi colocada.
+	 *
+	 * @return a primeira chave ordenada que nao foi colocada na subarvore.
+	 */
+	private int preenche(Object[] ordenadas, int[] posicoesOrdenadas, int no, int proxima) {
+		if(no <= this.qtdChaves) {
+			proxima = this.preenche(ordenadas, posicoesOrdenadas, 2 * no, proxima);
+			this.chaves[no] = ordenadas[proxima];
+			this.posicoes[no] = posicoesOrdenadas[proxima];
+			proxima = this.preenche(ordenadas, posicoesOrdenadas, 2 * no + 1, proxima + 1);
+		}
+
+		return proxima;
+	}
+
+	/**
+	 * Getter da quantidade de chaves do indice.
+	 *
+	 * @return quantidade de chaves no indice.
+	 */
+	public int tamanho() {
+		return this.qtdChaves;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int busca(K chave) {
+		int no = 1;
+
+		while(no <= this.qtdChaves) {
+			final int comparacao = chave.compareTo((K) this.chaves[no]);
+
+			if(comparacao == 0) {
+				return this.posicoes[no];
+			}
+
+			no = 2 * no + (comparacao > 0 ? 1 : 0);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Nao suportado, ja que o indice e imutavel.
+	 *
+	 * @throws UnsupportedOperationException sempre.
+	 */
+	@Override
+	public void insere(K chave, int posicao) {
+		throw new UnsupportedOperationException("O indice congelado nao pode ser alterado!!");
+	}
+
+	/**
+	 * Nao suportado, ja que o indice e imutavel.
+	 *
+	 * @throws UnsupportedOperationException sempre.
+	 */
+	@Override
+	public void remove(K chave) {
+		throw new UnsupportedOperationException("O indice congelado nao pode ser alterado!!");
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void percorre(BiConsumer<K, Integer> consumidor) {
+		if(this.qtdChaves == 0) {
+			return;
+		}
+
+		// comeca pela chave mais a esquerda
+		int no = 1;
+		while(2 * no <= this.qtdChaves) {
+			no = 2 * no;
+		}
+
+		while(no != 0) {
+			consumidor.accept((K) this.chaves[no], this.posicoes[no]);
+
+			if(2 * no + 1 <= this.qtdChaves) {
+				// a proxima chave e a mais a esquerda da subarvore direita
+				no = 2 * no + 1;
+				while(2 * no <= this.qtdChaves) {
+					no = 2 * no;
+				}
+			} else {
+				// sobe enquanto o no for filho direito, e depois mais uma vez
+				while((no & 1) == 1) {
+					no >>= 1;
+				}
+				no >>= 1;
+			}
+		}
+	}
+
+	@Override
+	public boolean ehOrdenado() {
+		return true;
+	}
+
+	/**
+	 * Busca a menor chave maior ou igual a chave passada. A busca desce pelo vetor como
+	 * {@link #busca(Comparable)}, guardando a ultima chave maior ou igual vista no caminho.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public K teto(K chave) {
+		int no = 1;
+		int candidato = 0;
+
+		while(no <= this.qtdChaves) {
+			if(chave.compareTo((K) this.chaves[no]) <= 0) {
+				candidato = no;
+				no = 2 * no;
+			} else {
+				no = 2 * no + 1;
+			}
+		}
+
+		return candidato == 0 ? null : (K) this.chaves[candidato];
+	}
+
+	/**
+	 * Como o indice e imutavel, a copia e o proprio indice.
+	 *
+	 * @return esse indice.
+	 */
+	@Override
+	public IndiceCongelado<K> copiaInstantanea() {
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{ ");
+
+		this.percorre((chave, posicao) -> sb.append(chave).append('=').append(posicao).append(' '));
+
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,232 @@
+package modelo.indice;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Indice guardado em uma tabela hash de enderecamento aberto com sondagem linear. As chaves e
+ * posicoes ficam em dois vetores paralelos, sem um objeto por entrada, e cada busca pontual custa
+ * O(1) em media, ao inves das O(log n) comparacoes da arvore B.
+ *
+ * </p>O indice nao e ordenado, entao ele serve para tabelas que so fazem buscas pontuais. A copia
+ * instantanea copia os vetores, entao ela custa O(n).
+ *
+ * </p>Assim como no {@link modelo.filtro.FiltroBloom}, o {@code hashCode()} das chaves precisa ser
+ * o mesmo entre execucoes do programa para que o indice possa ser salvo em um arquivo.
+ *
+ * @param <K> tipo da chave guardada no indice.
+ */
+public class IndiceHash<K extends Comparable<K>> implements Indice<K> {
+	private static final long serialVersionUID = -2918466207719431553L;
+
+	/**
+	 * Capacidade inicial da tabela. A capacidade e sempre uma potencia de 2, para que a posicao
+	 * inicial de uma chave seja calculada com uma mascara.
+	 */
+	private static final int CAPACIDADE_INICIAL = 16;
+
+	/**
+	 * Fracao maxima da tabela ocupada antes que ela seja dobrada. Com a sondagem linear, as
+	 * sequencias de posicoes ocupadas crescem rapido perto de tabelas cheias.
+	 */
+	private static final double OCUPACAO_MAXIMA = 0.6;
+
+	/**
+	 * Chave guardada em cada posicao da tabela, ou {@code null} nas posicoes livres.
+	 */
+	private Object[] chaves;
+
+	/**
+	 * Posicao do registro de cada chave, no mesmo lugar da chave em {@link #chaves}.
+	 */
+	private int[] posicoes;
+
+	/**
+	 * Quantidade de chaves no indice.
+	 */
+	private int qtdChaves;
+
+	/**
+	 * Constroi um indice vazio.
+	 */
+	public IndiceHash() {
+		this(CAPACIDADE_INICIAL);
+	}
+
+	/**
+	 * Constroi um indice vazio com a capacidade passada.
+	 *
+	 * @param capacidade tamanho da tabela. Deve ser uma potencia de 2.
+	 */
+	private IndiceHash(int capacidade) {
+		this.chaves = new Object[capacidade];
+		this.posicoes = new int[capacidade];
+		this.qtdChaves = 0;
+	}
+
+	/**
+	 * Getter da quantidade de chaves do indice.
+	 *
+	 * @return quantidade de chaves no indice.
+	 */
+	public int tamanho() {
+		return this.qtdChaves;
+	}
+
+	@Override
+	public int busca(K chave) {
+		final int lugar = this.lugarDe(chave);
+
+		return this.chaves[lugar] == null ? -1 : this.posicoes[lugar];
+	}
+
+	@Override
+	public void insere(K chave, int posicao) {
+		final int lugar = this.lugarDe(chave);
+
+		if(this.chaves[lugar] == null) {
+			this.chaves[lugar] = chave;
+			this.posicoes[lugar] = posicao;
+			this.qtdChaves++;
+
+			if(this.qtdChaves > this.chaves.length * OCUPACAO_MAXIMA) {
+				this.redimensiona(this.chaves.length * 2);
+			}
+		}
+	}
+
+	@Override
+	public void remove(K chave) {
+		int livre = this.lugarDe(chave);
+
+		if(this.chaves[livre] == null) {
+			return;
+		}
+
+		this.chaves[livre] = null;
+		this.qtdChaves--;
+
+		// as chaves seguintes da mesma sequencia que nao conseguem mais ser achadas a partir
+		// da sua posicao inicial sao puxadas para o lugar livre, assim nenhuma marca de remocao
+		// e necessaria
+		final int mascara = this.chaves.length - 1;
+		int lugar = (livre + 1) & mascara;
+
+		while(this.chaves[lugar] != null) {
+			final int inicial = lugarInicial(this.chaves[lugar], mascara);
+
+			// a chave e puxada caso o lugar livre esteja entre a sua posicao inicial e ela
+			if(((lugar - inicial) & mascara) >= ((lugar - livre) & mascara)) {
+				this.chaves[livre] = this.chaves[lugar];
+				this.posicoes[livre] = this.posicoes[lugar];
+				this.chaves[lugar] = null;
+				livre = lugar;
+			}
+
+			lugar = (lugar + 1) & mascara;
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void percorre(BiConsumer<K, Integer> consumidor) {
+		for(int i = 0; i < this.chaves.length; i++) {
+			if(this.chaves[i] != null) {
+				consumidor.accept((K) this.chaves[i], this.posicoes[i]);
+			}
+		}
+	}
+
+	@Override
+	public boolean ehOrdenado() {
+		return false;
+	}
+
+	/**
+	 * Nao suportado, ja que o indice nao e ordenado.
+	 *
+	 * @throws UnsupportedOperationException sempre.
+	 */
+	@Override
+	public K teto(K chave) {
+		throw new UnsupportedOperationException("O indice nao e ordenado!!");
+	}
+
+	@Override
+	public IndiceHash<K> copiaInstantanea() {
+		final IndiceHash<K> copia = new IndiceHash<>(0);
+		copia.chaves = this.chaves.clone();
+		copia.posicoes = this.posicoes.clone();
+		copia.qtdChaves = this.qtdChaves;
+
+		return copia;
+	}
+
+	/**
+	 * Procura o lugar da tabela onde uma chave esta, ou, caso ela nao esteja na tabela, o
+	 * lugar livre onde ela seria inserida.
+	 *
+	 * @param chave chave procurada.
+	 * @return o lugar da chave na tabela.
+	 */
+	private int lugarDe(K chave) {
+		final int mascara = this.chaves.length - 1;
+		int lugar = lugarInicial(chave, mascara);
+
+		while(this.chaves[lugar] != null && !this.chaves[lugar].equals(chave)) {
+			lugar = (lugar + 1) & mascara;
+		}
+
+		return lugar;
+	}
+
+	/**
+	 * Calcula o primeiro lugar da tabela onde uma chave e procurada. Os bits do
+	 * {@code hashCode()} sao misturados antes da mascara, ja que hashes como o de {@code Integer}
+	 * so variam nos bits mais baixos.
+	 *
+	 * @param chave chave procurada.
+	 * @param mascara tamanho da tabela menos 1.
+	 * @return o lugar inicial da chave.
+	 */
+	private static int lugarInicial(Object chave, int mascara) {
+		final int hash = chave.hashCode() * 0x9E3779B9;
+
+		return (hash ^ (hash >>> 16)) & mascara;
+	}
+
+	/**
+	 * Copia todas as chaves para uma tabela nova.
+	 *
+	 * @param capacidade tamanho da tabela nova. Deve ser uma potencia de 2.
+	 */
+	private void redimensiona(int capacidade) {
+		final Object[] chavesAntigas = this.chaves;
+		final int[] posicoesAntigas = this.posicoes;
+		final int mascara = capacidade - 1;
+
+		this.chaves = new Object[capacidade];
+		this.posicoes = new int[capacidade];
+
+		for(int i = 0; i < chavesAntigas.length; i++) {
+			if(chavesAntigas[i] != null) {
+				int lugar = lugarInicial(chavesAntigas[i], mascara);
+
+				while(this.chaves[lugar] != null) {
+					lugar = (lugar + 1) & mascara;
+				}
+
+				this.chaves[lugar] = chavesAntigas[i];
+				this.posicoes[lugar] = posicoesAntigas[i];
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{ ");
+
+		this.percorre((chave, posicao) -> sb.append(chave).append('=').append(posicao).append(' '));
+
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,560 @@
+package modelo.indice;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Indice para chaves numericas ({@code Integer} ou {@code Long}) guardado em uma tabela hash de
+ * enderecamento aberto com sondagem linear sobre vetores primitivos. Diferente do
+ * {@link IndiceHash}, as chaves nao ficam em objetos: elas sao guardadas em um {@code long[]}, e
+ * uma posicao livre e marcada com {@link #VAZIO} no vetor de posicoes. Assim as buscas nao alocam
+ * objetos nem chamam {@code equals()} ou {@code hashCode()}, e custam O(1) em media.
+ *
+ * </p>O indice tambem e salvo sem a serializacao do Java: os dois vetores sao escritos como bytes
+ * crus por um {@link FileChannel}, entao salvar e carregar o indice e basicamente uma copia de
+ * memoria. Formato do arquivo:
+ * </p>- Cabecalho: o numero magico {@link #MAGICO}, a versao do formato, o tipo da chave
+ * ({@code 0} para {@code Integer} e {@code 1} para {@code Long}), a capacidade da tabela, a
+ * quantidade de chaves e o checksum CRC32C dos vetores.
+ * </p>- O vetor de chaves ({@code long}) e o vetor de posicoes ({@code int}), com a capacidade
+ * da tabela.
+ *
+ * </p>Os indices sao criados por {@link #inteiro()} e {@link #longo()}. O indice nao e ordenado.
+ *
+ * @param <K> tipo da chave guardada no indice.
+ */
+public abstract class IndicePrimitivo<K extends Comparable<K>> implements Indice<K> {
+	private static final long serialVersionUID = 4518230496187733210L;
+
+	/**
+	 * Numero magico que identifica os arquivos de indices primitivos ("MBDH").
+	 */
+	public static final int MAGICO = 0x4D424448;
+
+	/**
+	 * Versao atual do formato do arquivo.
+	 */
+	public static final int VERSAO = 1;
+
+	/**
+	 * Valor guardado no vetor de posicoes nos lugares livres da tabela.
+	 */
+	private static final int VAZIO = -1;
+
+	/**
+	 * Capacidade inicial da tabela. A capacidade e sempre uma potencia de 2.
+	 */
+	private static final int CAPACIDADE_INICIAL = 16;
+
+	/**
+	 * Fracao maxima da tabela ocupada antes que ela seja dobrada.
+	 */
+	private static final double OCUPACAO_MAXIMA = 0.6;
+
+	/**
+	 * Tamanho, em bytes, do cabecalho do arquivo.
+	 */
+	private static final int TAMANHO_CABECALHO = 4 + 4 + 1 + 4 + 4 + 4;
+
+	/**
+	 * Tamanho do buffer usado para ler e escrever os vetores.
+	 */
+	private static final int TAMANHO_BUFFER = 1 << 20;
+
+	/**
+	 * Chave guardada em cada lugar da tabela.
+	 */
+	private long[] chaves;
+
+	/**
+	 * Posicao do registro de cada chave, ou {@link #VAZIO} nos lugares livres.
+	 */
+	private int[] posicoes;
+
+	/**
+	 * Quantidade de chaves no indice.
+	 */
+	private int qtdChaves;
+
+	/**
+	 * Constroi um indice vazio com a capacidade passada.
+	 *
+	 * @param capacidade tamanho da tabela. Deve ser uma potencia de 2.
+	 */
+	private IndicePrimitivo(int capacidade) {
+		this.chaves = new long[capacidade];
+		this.posicoes = new int[capacidade];
+		this.qtdChaves = 0;
+
+		Arrays.fill(this.posicoes, VAZIO);
+	}
+
+	/**
+	 * Cria um indice vazio para chaves {@code Integer}.
+	 *
+	 * @return o indice criado.
+	 */
+	public static IndicePrimitivo<Integer> inteiro() {
+		return new Inteiro(CAPACIDADE_INICIAL);
+	}
+
+	/**
+	 * Cria um indice vazio para chaves {@code Long}.
+	 *
+	 * @return o indice criado.
+	 */
+	public static IndicePrimitivo<Long> longo() {
+		return new Longo(CAPACIDADE_INICIAL);
+	}
+
+	/**
+	 * Converte uma chave para o valor guardado no vetor de chaves.
+	 *
+	 * @param chave chave convertida.
+	 * @return o valor da chave.
+	 */
+	abstract long valor(K chave);
+
+	/**
+	 * Converte um valor do vetor de chaves de volta para a chave.
+	 *
+	 * @param valor valor guardado no vetor.
+	 * @return a chave desse valor.
+	 */
+	abstract K chave(long valor);
+
+	/**
+	 * Tipo da chave gravado no arquivo.
+	 *
+	 * @return {@code 0} para {@code Integer} e {@code 1} para {@code Long}.
+	 */
+	abstract byte tipo();
+
+	/**
+	 * Cria um indice vazio do mesmo tipo, com a capacidade passada.
+	 *
+	 * @param capacidade tamanho da tabela.
+	 * @return o indice criado.
+	 */
+	abstract IndicePrimitivo<K> novo(int capacidade);
+
+	/**
+	 * Getter da quantidade de chaves do indice.
+	 *
+	 * @return quantidade de chaves no indice.
+	 */
+	public int tamanho() {
+		return this.qtdChaves;
+	}
+
+	@Override
+	public int busca(K chave) {
+		return this.busca(this.valor(chave));
+	}
+
+	/**
+	 * Busca a posicao de uma chave sem precisar de um objeto para ela.
+	 *
+	 * @param chave valor da chave buscada.
+	 * @return a posicao dessa chave, ou -1, caso a mesma nao esteja no indice.
+	 */
+	public int busca(long chave) {
+		return this.posicoes[this.lugarDe(chave)];
+	}
+
+	@Override
+	public void insere(K chave, int posicao) {
+		if(posicao < 0) {
+			throw new IllegalArgumentException("A posicao " + posicao + " e invalida!!");
+		}
+
+		final long valor = this.valor(chave);
+		final int lugar = this.lugarDe(valor);
+
+		if(this.posicoes[lugar] == VAZIO) {
+			this.chaves[lugar] = valor;
+			this.posicoes[lugar] = posicao;
+			this.qtdChaves++;
+
+			if(this.qtdChaves > this.chaves.length * OCUPACAO_MAXIMA) {
+				this.redimensiona(this.chaves.length * 2);
+			}
+		}
+	}
+
+	@Override
+	public void remove(K chave) {
+		int livre = this.lugarDe(this.valor(chave));
+
+		if(this.posicoes[livre] == VAZIO) {
+			return;
+		}
+
+		this.posicoes[livre] = VAZIO;
+		this.qtdChaves--;
+
+		// as chaves seguintes da mesma sequencia sao puxadas para o lugar livre, como no IndiceHash
+		final int mascara = this.chaves.length - 1;
+		int lugar = (livre + 1) & mascara;
+
+		while(this.posicoes[lugar] != VAZIO) {
+			final int inicial = lugarInicial(this.chaves[lugar], mascara);
+
+			if(((lugar - inicial) & mascara) >= ((lugar - livre) & mascara)) {
+				this.chaves[livre] = this.chaves[lugar];
+				this.posicoes[livre] = this.posicoes[lugar];
+				this.posicoes[lugar] = VAZIO;
+				livre = lugar;
+			}
+
+			lugar = (lugar + 1) & mascara;
+		}
+	}
+
+	@Override
+	public void percorre(BiConsumer<K, Integer> consumidor) {
+		for(int i = 0; i < this.chaves.length; i++) {
+			if(this.posicoes[i] != VAZIO) {
+				consumidor.accept(this.chave(this.chaves[i]), this.posicoes[i]);
+			}
+		}
+	}
+
+	@Override
+	public boolean ehOrdenado() {
+		return false;
+	}
+
+	/**
+	 * Nao suportado, ja que o indice nao e ordenado.
+	 *
+	 * @throws UnsupportedOperationException sempre.
+	 */
+	@Override
+	public K teto(K chave) {
+		throw new UnsupportedOperationException("O indice nao e ordenado!!");
+	}
+
+	@Override
+	public IndicePrimitivo<K> copiaInstantanea() {
+		final IndicePrimitivo<K> copia = this.novo(0);
+		copia.chaves = this.chaves.clone();
+		copia.posicoes = this.posicoes.clone();
+		copia.qtdChaves = this.qtdChaves;
+
+		return copia;
+	}
+
+	/**
+	 * Procura o lugar da tabela onde uma chave esta, ou, caso ela nao esteja na tabela, o
+	 * lugar livre onde ela seria inserida.
+	 *
+	 * @param chave valor da chave procurada.
+	 * @return o lugar da chave na tabela.
+	 */
+	private int lugarDe(long chave) {
+		final int mascara = this.chaves.length - 1;
+		int lugar = lugarInicial(chave, mascara);
+
+		while(this.posicoes[lugar] != VAZIO && this.chaves[lugar] != chave) {
+			lugar = (lugar + 1) & mascara;
+		}
+
+		return lugar;
+	}
+
+	/**
+	 * Calcula o primeiro lugar da tabela onde uma chave e procurada. A chave e multiplicada por
+	 * uma constante impar e os bits altos do produto sao misturados aos baixos, ja que IDs
+	 * sequenciais so variam nos bits mais baixos.
+	 *
+	 * @param chave valor da chave procurada.
+	 * @param mascara tamanho da tabela menos 1.
+	 * @return o lugar inicial da chave.
+	 */
+	private static int lugarInicial(long chave, int mascara) {
+		final long hash = chave * 0x9E3779B97F4A7C15L;
+
+		return (int) (hash ^ (hash >>> 32) ^ (hash >>> 47)) & mascara;
+	}
+
+	/**
+	 * Copia todas as chaves para uma tabela nova.
+	 *
+	 * @param capacidade tamanho da tabela nova. Deve ser uma potencia de 2.
+	 */
+	private void redimensiona(int capacidade) {
+		final long[] chavesAntigas = this.chaves;
+		final int[] posicoesAntigas = this.posicoes;
+		final int mascara = capacidade - 1;
+
+		this.chaves = new long[capacidade];
+		this.posicoes = new int[capacidade];
+		Arrays.fill(this.posicoes, VAZIO);
+
+		for(int i = 0; i < chavesAntigas.length; i++) {
+			if(posicoesAntigas[i] != VAZIO) {
+				int lugar = lugarInicial(chavesAntigas[i], mascara);
+
+				while(this.posicoes[lugar] != VAZIO) {
+					lugar = (lugar + 1) & mascara;
+				}
+
+				this.chaves[lugar] = chavesAntigas[i];
+				this.posicoes[lugar] = posicoesAntigas[i];
+			}
+		}
+	}
+
+	/**
+	 * Salva o indice no arquivo passado. O arquivo e escrito primeiro com o sufixo
+	 * {@code -new} e so depois substitui o arquivo antigo, entao um erro no meio da escrita
+	 * nao estraga o indice salvo antes.
+	 *
+	 * @param arquivo arquivo onde o indice sera salvo.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do arquivo.
+	 */
+	public void salva(Path arquivo) throws IOException {
+		final String nome = arquivo.getFileName().toString();
+		final Path novo = arquivo.resolveSibling(nome.endsWith(".bin")
+				? nome.substring(0, nome.length() - 4) + "-new.bin" : nome + "-new");
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+
+		final CRC32C checksum = new CRC32C();
+
+		try(FileChannel canal = FileChannel.open(novo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			// os vetores sao escritos depois do cabecalho, que so e escrito no final, com o checksum
+			canal.position(TAMANHO_CABECALHO);
+
+			for(int i = 0; i < this.chaves.length; ) {
+				final int qtd = Math.min(this.chaves.length - i, TAMANHO_BUFFER / 8);
+				buffer.clear();
+				buffer.asLongBuffer().put(this.chaves, i, qtd);
+				buffer.limit(qtd * 8);
+				escreve(canal, buffer, checksum);
+				i += qtd;
+			}
+
+			for(int i = 0; i < this.posicoes.length; ) {
+				final int qtd = Math.min(this.posicoes.length - i, TAMANHO_BUFFER / 4);
+				buffer.clear();
+				buffer.asIntBuffer().put(this.posicoes, i, qtd);
+				buffer.limit(qtd * 4);
+				escreve(canal, buffer, checksum);
+				i += qtd;
+			}
+
+			buffer.clear();
+			buffer.putInt(MAGICO).putInt(VERSAO).put(this.tipo()).putInt(this.chaves.length).putInt(this.qtdChaves)
+					.putInt((int) checksum.getValue());
+			buffer.flip();
+			canal.position(0);
+			escreve(canal, buffer, new CRC32C());
+			canal.force(false);
+		}
+
+		Files.move(novo, arquivo, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Verifica se o arquivo existe e guarda um indice primitivo.
+	 *
+	 * @param arquivo arquivo verificado.
+	 *
+	 * @return {@code true} caso o arquivo exista e comece com o numero magico.
+	 *
+	 * @throws IOException Caso ocorra algum erro na leitura do arquivo.
+	 */
+	public static boolean ehIndicePrimitivo(Path arquivo) throws IOException {
+		if(!Files.exists(arquivo)) {
+			return false;
+		}
+
+		try(FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+			final ByteBuffer magico = ByteBuffer.allocate(4);
+			return canal.read(magico, 0) == 4 && magico.getInt(0) == MAGICO;
+		}
+	}
+
+	/**
+	 * Carrega um indice salvo por {@link #salva(Path)}.
+	 *
+	 * @param arquivo arquivo onde o indice foi salvo.
+	 *
+	 * @return o indice carregado.
+	 *
+	 * @throws IOException Caso o arquivo nao exista ou nao seja um indice primitivo.
+	 * @throws StreamCorruptedException Caso o arquivo esteja incompleto ou o checksum nao confira.
+	 */
+	public static IndicePrimitivo<?> carrega(Path arquivo) throws IOException {
+		final FileChannel canal;
+
+		try {
+			canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException("Erro ao tentar abrir o arquivo " + arquivo + ".");
+		}
+
+		try(canal) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+			buffer.limit(TAMANHO_CABECALHO);
+			le(canal, buffer, arquivo);
+			buffer.flip();
+
+			if(buffer.getInt() != MAGICO || buffer.getInt() != VERSAO) {
+				throw new IOException("O arquivo " + arquivo + " nao e um indice em uma versao suportada.");
+			}
+
+			final byte tipo = buffer.get();
+			final int capacidade = buffer.getInt();
+			final int qtdChaves = buffer.getInt();
+			final int checksumSalvo = buffer.getInt();
+			final CRC32C checksum = new CRC32C();
+
+			if(tipo < 0 || tipo > 1 || capacidade <= 0 || Integer.bitCount(capacidade) != 1 || qtdChaves < 0
+					|| qtdChaves > capacidade || canal.size() != TAMANHO_CABECALHO + 12L * capacidade) {
+				throw new StreamCorruptedException("O arquivo " + arquivo + " esta incompleto.");
+			}
+
+			final IndicePrimitivo<?> indice = tipo == 0 ? new Inteiro(0) : new Longo(0);
+			indice.chaves = new long[capacidade];
+			indice.posicoes = new int[capacidade];
+			indice.qtdChaves = qtdChaves;
+
+			for(int i = 0; i < capacidade; ) {
+				final int qtd = Math.min(capacidade - i, TAMANHO_BUFFER / 8);
+				buffer.clear().limit(qtd * 8);
+				le(canal, buffer, arquivo);
+				buffer.flip();
+				checksum.update(buffer.duplicate());
+				buffer.asLongBuffer().get(indice.chaves, i, qtd);
+				i += qtd;
+			}
+
+			for(int i = 0; i < capacidade; ) {
+				final int qtd = Math.min(capacidade - i, TAMANHO_BUFFER / 4);
+				buffer.clear().limit(qtd * 4);
+				le(canal, buffer, arquivo);
+				buffer.flip();
+				checksum.update(buffer.duplicate());
+				buffer.asIntBuffer().get(indice.posicoes, i, qtd);
+				i += qtd;
+			}
+
+			if((int) checksum.getValue() != checksumSalvo) {
+				throw new StreamCorruptedException("O arquivo " + arquivo + " esta corrompido.");
+			}
+
+			return indice;
+		}
+	}
+
+	/**
+	 * Escreve todo o conteudo do buffer no canal, atualizando o checksum com ele.
+	 *
+	 * @param canal canal do arquivo.
+	 * @param buffer bytes escritos.
+	 * @param checksum checksum atualizado com os bytes escritos.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita.
+	 */
+	private static void escreve(FileChannel canal, ByteBuffer buffer, CRC32C checksum) throws IOException {
+		checksum.update(buffer.duplicate());
+
+		while(buffer.hasRemaining()) {
+			canal.write(buffer);
+		}
+	}
+
+	/**
+	 * Le bytes do canal ate encher o buffer.
+	 *
+	 * @param canal canal do arquivo.
+	 * @param buffer buffer preenchido ate o seu limite.
+	 * @param arquivo arquivo lido, usado na mensagem de erro.
+	 *
+	 * @throws IOException Caso o arquivo acabe antes.
+	 */
+	private static void le(FileChannel canal, ByteBuffer buffer, Path arquivo) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(canal.read(buffer) < 0) {
+				throw new StreamCorruptedException("O arquivo " + arquivo + " esta incompleto.");
+			}
+		}
+	}
+
+	/**
+	 * Indice com chaves {@code Integer}.
+	 */
+	private static class Inteiro extends IndicePrimitivo<Integer> {
+		private static final long serialVersionUID = -3021855471958260397L;
+
+		private Inteiro(int capacidade) {
+			super(capacidade);
+		}
+
+		@Override
+		long valor(Integer chave) {
+			return chave;
+		}
+
+		@Override
+		Integer chave(long valor) {
+			return (int) valor;
+		}
+
+		@Override
+		byte tipo() {
+			return 0;
+		}
+
+		@Override
+		IndicePrimitivo<Integer> novo(int capacidade) {
+			return new Inteiro(capacidade);
+		}
+	}
+
+	/**
+	 * Indice com chaves {@code Long}.
+	 */
+	private static class Longo extends IndicePrimitivo<Long> {
+		private static final long serialVersionUID = 8834017728512409176L;
+
+		private Longo(int capacidade) {
+			super(capacidade);
+		}
+
+		@Override
+		long valor(Long chave) {
+			return chave;
+		}
+
+		@Override
+		Long chave(long valor) {
+			return valor;
+		}
+
+		@Override
+		byte tipo() {
+			return 1;
+		}
+
+		@Override
+		IndicePrimitivo<Long> novo(int capacidade) {
+			return new Longo(capacidade);
+		}
+	}
+}
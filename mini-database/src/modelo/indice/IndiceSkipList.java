@@ -0,0 +1,81 @@
+package modelo.indice;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Indice ordenado guardado em uma {@link ConcurrentSkipListMap}. Diferente da arvore B, ele pode
+ * ser lido e alterado por varias threads ao mesmo tempo sem travas externas, e as buscas nao
+ * esperam pelas insercoes e remocoes.
+ *
+ * </p>Em troca, a copia instantanea copia o mapa inteiro, entao ela custa O(n).
+ *
+ * @param <K> tipo da chave guardada no indice.
+ */
+public class IndiceSkipList<K extends Comparable<K>> implements Indice<K> {
+	private static final long serialVersionUID = 6293318857710948402L;
+
+	/**
+	 * Mapa ordenado de cada chave para a sua posicao.
+	 */
+	private final ConcurrentSkipListMap<K, Integer> posicoes;
+
+	/**
+	 * Constroi um indice vazio.
+	 */
+	public IndiceSkipList() {
+		this.posicoes = new ConcurrentSkipListMap<>();
+	}
+
+	/**
+	 * Constroi um indice com uma copia do mapa passado. Como o mapa ja esta ordenado, a copia
+	 * e montada em tempo linear.
+	 *
+	 * @param posicoes mapa copiado.
+	 */
+	private IndiceSkipList(ConcurrentSkipListMap<K, Integer> posicoes) {
+		this.posicoes = new ConcurrentSkipListMap<>(posicoes);
+	}
+
+	@Override
+	public int busca(K chave) {
+		final Integer posicao = this.posicoes.get(chave);
+
+		return posicao == null ? -1 : posicao;
+	}
+
+	@Override
+	public void insere(K chave, int posicao) {
+		this.posicoes.putIfAbsent(chave, posicao);
+	}
+
+	@Override
+	public void remove(K chave) {
+		this.posicoes.remove(chave);
+	}
+
+	@Override
+	public void percorre(BiConsumer<K, Integer> consumidor) {
+		this.posicoes.forEach(consumidor);
+	}
+
+	@Override
+	public boolean ehOrdenado() {
+		return true;
+	}
+
+	@Override
+	public K teto(K chave) {
+		return this.posicoes.ceilingKey(chave);
+	}
+
+	@Override
+	public IndiceSkipList<K> copiaInstantanea() {
+		return new IndiceSkipList<>(this.posicoes);
+	}
+
+	@Override
+	public String toString() {
+		return this.posicoes.toString();
+	}
+}
@@ -0,0 +1,698 @@
+package principal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import banco.MiniBD;
+import banco.PublicadorReplicacao;
+import banco.ReplicaLeitura;
+import banco.Transacao;
+import banco.VisaoBanco;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PaginaArtigos;
+import modelo.artigo.PalavraChave;
+import modelo.busca.AutomatoLevenshtein;
+
+/**
+ * Servidor sem interface grafica que responde buscas e alteracoes de um banco de palavras chave
+ * pela rede, so no endereco local. Cada conexao e atendida por uma thread propria, e todas as
+ * conexoes usam o mesmo banco.
+ *
+ * </p>O protocolo e de texto, em UTF-8: cada pedido e uma linha com o comando e os seus campos
+ * separados por tabulacao, e cada pedido recebe exatamente uma linha de resposta, que comeca com
+ * {@code OK}, {@code NAO_ENCONTRADO} ou {@code ERRO}. Tabulacoes, quebras de linha e barras dentro
+ * dos campos sao escritas como {@code \t}, {@code \n}, {@code \r} e {@code \\}. Os comandos sao:
+ * <ul>
+ * <li>{@code CONTEM palavra}: responde {@code OK true} ou {@code OK false}.</li>
+ * <li>{@code BUSCA palavra tamanhoPagina}: responde {@code OK qtdTotal inicio token titulos...}
+ * com a primeira pagina dos artigos da palavra, em que o token e {@code -} na ultima pagina.</li>
+ * <li>{@code CONTINUA token tamanhoPagina}: responde a proxima pagina, no mesmo formato.</li>
+ * <li>{@code PARECIDAS palavra distancia}: responde {@code OK palavras...} com as palavras do
+ * banco a ate essa distancia de edicao.</li>
+ * <li>{@code ADICIONA titulo data link qtdAutores autores... palavras...}: insere um artigo, com
+ * a data no formato {@code aaaa-mm-dd}. A data e o link podem ser vazios. Responde
+ * {@code OK false} caso o artigo ja estivesse no banco.</li>
+ * <li>{@code REMOVE titulo palavras...}: remove um artigo que tenha alguma das palavras.
+ * Responde {@code OK false} caso o artigo nao estivesse no banco.</li>
+ * <li>{@code ESTADO}: responde {@code OK PRIMARIO qtdRegistros versao} no primario, ou
+ * {@code OK REPLICA qtdRegistros versaoAplicada versaoPrimario atrasoMicros conectada} em uma
+ * replica.</li>
+ * <li>{@code SAIR}: responde {@code OK} e fecha a conexao.</li>
+ * </ul>
+ *
+ * </p>Os clientes podem mandar varios pedidos sem esperar as respostas. As respostas sao escritas
+ * na ordem dos pedidos, e so sao enviadas quando nao ha mais pedidos ja recebidos, entao uma
+ * sequencia de pedidos recebe as respostas juntas.
+ *
+ * </p>As buscas leem uma {@link VisaoBanco}, que e trocada por uma visao nova depois de cada
+ * alteracao, entao elas nao travam umas as outras nem esperam as alteracoes. As alteracoes sao
+ * feitas uma por vez, cada uma em uma {@link Transacao}.
+ *
+ * </p>O servidor tambem pode atender as buscas de uma {@link ReplicaLeitura}, em outro processo,
+ * para dividir as buscas entre varios processos. Nesse caso, as buscas leem a visao atual da
+ * replica, e os comandos que alteram o banco respondem {@code ERRO}.
+ */
+public class ServidorConsultas implements Closeable {
+	/**
+	 * Porta usada quando nenhuma porta e passada para o {@link #main(String[])}.
+	 */
+	public static final int PORTA_PADRAO = 5151;
+
+	/**
+	 * Maior quantidade de artigos de uma pagina.
+	 */
+	public static final int TAMANHO_PAGINA_MAXIMO = 1000;
+
+	/**
+	 * Maior distancia de edicao de uma busca por palavras parecidas. Com distancias maiores, quase
+	 * todas as palavras curtas sao parecidas.
+	 */
+	public static final int DISTANCIA_MAXIMA = 3;
+
+	/**
+	 * Tamanho da pilha das threads das conexoes. As conexoes so guardam uma linha por vez, entao
+	 * uma pilha pequena permite milhares de conexoes abertas sem reservar muita memoria.
+	 */
+	private static final long TAMANHO_PILHA = 256 * 1024;
+
+	private final MiniBD<PalavraChave, String> banco;
+	private final ReplicaLeitura<PalavraChave, String> replica;
+	private volatile VisaoBanco<PalavraChave, String> visao;
+	private final Object escrita = new Object();
+
+	private final ServerSocket servidor;
+	private final ExecutorService conexoes;
+	private final Set<Socket> abertas = ConcurrentHashMap.newKeySet();
+	private final Thread aceitador;
+	private final AtomicLong qtdPedidos = new AtomicLong();
+
+	/**
+	 * Abre o servidor em uma porta do endereco local e comeca a aceitar conexoes.
+	 *
+	 * @param banco banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param porta porta do servidor, ou {@code 0} para usar qualquer porta livre.
+	 *
+	 * @throws IOException Caso a porta nao possa ser aberta.
+	 * @throws IllegalArgumentException Caso o banco nao use o {@link CodecPalavraChave}.
+	 */
+	public ServidorConsultas(MiniBD<PalavraChave, String> banco, int porta) throws IOException {
+		this(banco, null, banco.abreVisao(), porta);
+	}
+
+	/**
+	 * Abre um servidor so de leitura, que responde as buscas com a visao atual de uma replica.
+	 *
+	 * @param replica replica de um banco de palavras chave, codificadas com o {@link CodecPalavraChave}.
+	 * @param porta porta do servidor, ou {@code 0} para usar qualquer porta livre.
+	 *
+	 * @throws IOException Caso a porta nao possa ser aberta.
+	 * @throws IllegalArgumentException Caso a replica nao use o {@link CodecPalavraChave}.
+	 */
+	public ServidorConsultas(ReplicaLeitura<PalavraChave, String> replica, int porta) throws IOException {
+		this(null, replica, replica.getVisao(), porta);
+	}
+
+	/**
+	 * Abre o servidor de um banco ou de uma replica.
+	 *
+	 * @param banco banco do servidor, ou {@code null} em uma replica.
+	 * @param replica replica do servidor, ou {@code null} no primario.
+	 * @param visao visao inicial do banco.
+	 * @param porta porta do servidor.
+	 *
+	 * @throws IOException Caso a porta nao possa ser aberta.
+	 */
+	private ServidorConsultas(MiniBD<PalavraChave, String> banco, ReplicaLeitura<PalavraChave, String> replica,
+			VisaoBanco<PalavraChave, String> visao, int porta) throws IOException {
+		if(!(visao.getCodec() instanceof CodecPalavraChave)) {
+			throw new IllegalArgumentException("O banco do servidor deve usar o CodecPalavraChave!!");
+		}
+
+		this.banco = banco;
+		this.replica = replica;
+		this.visao = visao;
+		this.servidor = new ServerSocket(porta, 1024, InetAddress.getLoopbackAddress());
+		this.conexoes = Executors.newCachedThreadPool((Runnable tarefa) -> {
+			Thread thread = new Thread(null, tarefa, "ServidorConsultas-conexao", TAMANHO_PILHA);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.aceitador = new Thread(this::aceita, "ServidorConsultas-aceitador");
+		this.aceitador.setDaemon(true);
+		this.aceitador.start();
+	}
+
+	/**
+	 * Getter da porta do servidor.
+	 *
+	 * @return a porta em que o servidor aceita conexoes.
+	 */
+	public int getPorta() {
+		return this.servidor.getLocalPort();
+	}
+
+	/**
+	 * Getter da quantidade de pedidos respondidos.
+	 *
+	 * @return a quantidade de pedidos respondidos desde que o servidor foi aberto.
+	 */
+	public long getQtdPedidos() {
+		return this.qtdPedidos.get();
+	}
+
+	/**
+	 * Getter da quantidade de conexoes abertas.
+	 *
+	 * @return a quantidade de clientes conectados agora.
+	 */
+	public int getQtdConexoes() {
+		return this.abertas.size();
+	}
+
+	/**
+	 * Para de aceitar conexoes e fecha as conexoes abertas. O banco nao e fechado.
+	 *
+	 * @throws IOException Caso ocorra algum erro ao fechar a porta do servidor.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.servidor.close();
+
+		for(Socket conexao : this.abertas) {
+			conexao.close();
+		}
+
+		this.conexoes.shutdown();
+		try {
+			this.conexoes.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Aceita conexoes ate o servidor ser fechado, entregando cada uma para uma thread.
+	 */
+	private void aceita() {
+		while(!this.servidor.isClosed()) {
+			try {
+				final Socket conexao = this.servidor.accept();
+
+				this.abertas.add(conexao);
+				this.conexoes.execute(() -> this.atende(conexao));
+			} catch (IOException e) {
+				// o servidor foi fechado
+			}
+		}
+	}
+
+	/**
+	 * Responde os pedidos de uma conexao ate o cliente fechar a conexao ou mandar {@code SAIR}.
+	 *
+	 * @param conexao conexao atendida.
+	 */
+	private void atende(Socket conexao) {
+		try(conexao) {
+			conexao.setTcpNoDelay(true);
+
+			final BufferedReader leitor = new BufferedReader(new InputStreamReader(conexao.getInputStream(), StandardCharsets.UTF_8));
+			final BufferedWriter escritor = new BufferedWriter(new OutputStreamWriter(conexao.getOutputStream(), StandardCharsets.UTF_8));
+			String linha;
+
+			while((linha = leitor.readLine()) != null) {
+				final List<String> campos = separa(linha);
+				final boolean sair = campos.get(0).equals("SAIR");
+
+				escritor.write(sair ? "OK" : this.responde(campos));
+				escritor.write('\n');
+				this.qtdPedidos.incrementAndGet();
+
+				if(sair) {
+					break;
+				}
+
+				// os pedidos que ja chegaram sao respondidos antes de enviar as respostas
+				if(!leitor.ready()) {
+					escritor.flush();
+				}
+			}
+
+			escritor.flush();
+		} catch (SocketException e) {
+			// o cliente fechou a conexao, ou o servidor foi fechado
+		} catch (IOException e) {
+			System.err.println("Erro na conexao com " + conexao.getRemoteSocketAddress() + ": " + e.getMessage());
+		} finally {
+			this.abertas.remove(conexao);
+		}
+	}
+
+	/**
+	 * Executa um pedido.
+	 *
+	 * @param campos comando e campos do pedido.
+	 *
+	 * @return a linha de resposta do pedido.
+	 */
+	private String responde(List<String> campos) {
+		try {
+			switch(campos.get(0)) {
+			case "CONTEM":
+				verificaCampos(campos, 2);
+				return "OK\t" + this.visaoAtual().contem(campos.get(1));
+			case "BUSCA":
+				verificaCampos(campos, 3);
+				return respostaPagina(PaginaArtigos.busca(this.visaoAtual(), campos.get(1), tamanhoPagina(campos.get(2))));
+			case "CONTINUA":
+				verificaCampos(campos, 3);
+				return respostaPagina(PaginaArtigos.continua(this.visaoAtual(), campos.get(1), tamanhoPagina(campos.get(2))));
+			case "ESTADO":
+				verificaCampos(campos, 1);
+				return this.estado();
+			case "PARECIDAS":
+				verificaCampos(campos, 3);
+				return "OK" + juntaCampos(AutomatoLevenshtein.buscaPalavras(this.visaoAtual(), campos.get(1), distancia(campos.get(2))));
+			case "ADICIONA":
+				this.verificaPrimario();
+				return "OK\t" + this.adiciona(montaArtigo(campos));
+			case "REMOVE":
+				this.verificaPrimario();
+				if(campos.size() < 3) {
+					throw new IllegalArgumentException("O artigo removido precisa de pelo menos uma palavra chave!!");
+				}
+				return "OK\t" + this.remove(campos.get(1), campos.subList(2, campos.size()));
+			default:
+				return "ERRO\t" + escapa("Comando desconhecido: " + campos.get(0));
+			}
+		} catch (IllegalArgumentException | IllegalStateException | DateTimeParseException e) {
+			return "ERRO\t" + escapa(String.valueOf(e.getMessage()));
+		} catch (IOException | RuntimeException e) {
+			return "ERRO\t" + escapa("Erro ao executar o pedido: " + e);
+		}
+	}
+
+	/**
+	 * Visao lida pelas buscas.
+	 *
+	 * @return a visao mais recente do banco, ou da replica.
+	 */
+	private VisaoBanco<PalavraChave, String> visaoAtual() {
+		return this.replica != null ? this.replica.getVisao() : this.visao;
+	}
+
+	/**
+	 * Monta a resposta do comando {@code ESTADO}.
+	 *
+	 * @return a linha de resposta, com a versao do banco e, na replica, o atraso dela.
+	 */
+	private String estado() {
+		if(this.replica == null) {
+			return "OK\tPRIMARIO\t" + this.visao.getQtdRegistros() + "\t" + this.banco.getVersao();
+		}
+
+		return "OK\tREPLICA\t" + this.replica.getQtdRegistros() + "\t" + this.replica.getVersaoAplicada() + "\t"
+				+ this.replica.getVersaoPrimario() + "\t" + this.replica.getAtrasoMicros() + "\t" + this.replica.estaConectada();
+	}
+
+	/**
+	 * Impede que uma replica execute os comandos que so o primario executa.
+	 *
+	 * @throws IllegalStateException Caso o servidor seja de uma replica.
+	 */
+	private void verificaPrimario() {
+		if(this.replica != null) {
+			throw new IllegalStateException("O servidor e de uma replica so de leitura!!");
+		}
+	}
+
+	/**
+	 * Insere um artigo no banco, caso ele ainda nao esteja la, em uma transacao.
+	 *
+	 * @param artigo artigo inserido.
+	 *
+	 * @return {@code true} caso o artigo tenha sido inserido, {@code false} caso ele ja estivesse
+	 * no banco.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do diario do banco.
+	 */
+	private boolean adiciona(Artigo artigo) throws IOException {
+		synchronized(this.escrita) {
+			// caso a transacao nao seja confirmada, ela e desfeita quando e fechada
+			try(Transacao<PalavraChave, String> transacao = this.banco.iniciaTransacao()) {
+				// uma palavra repetida encontraria na transacao a palavra ja alterada, com o artigo
+				for(String palavra : new LinkedHashSet<>(artigo.getPalavrasChave())) {
+					PalavraChave pc = transacao.busca(palavra);
+
+					if(pc != null && pc.contemArtigo(artigo)) {
+						return false;
+					} else if(pc != null) {
+						pc.addArtigo(artigo);
+						transacao.atualiza(pc);
+					} else {
+						pc = new PalavraChave(palavra);
+						pc.addArtigo(artigo);
+						transacao.adiciona(pc);
+					}
+				}
+
+				transacao.confirma();
+				this.visao = this.banco.abreVisao();
+
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Remove um artigo de todas as suas palavras chave em uma transacao, removendo as palavras
+	 * que ficam sem artigos.
+	 *
+	 * @param titulo titulo do artigo.
+	 * @param palavras palavras chave onde o artigo e procurado.
+	 *
+	 * @return {@code true} caso o artigo tenha sido removido, {@code false} caso ele nao esteja
+	 * em nenhuma das palavras.
+	 *
+	 * @throws IOException Caso ocorra algum erro na escrita do diario do banco.
+	 */
+	private boolean remove(String titulo, List<String> palavras) throws IOException {
+		// os artigos sao iguais quando tem o mesmo titulo
+		final Artigo procurado = new Artigo(titulo, List.of(), palavras, null, null);
+
+		synchronized(this.escrita) {
+			// caso a transacao nao seja confirmada, ela e desfeita quando e fechada
+			try(Transacao<PalavraChave, String> transacao = this.banco.iniciaTransacao()) {
+				Artigo original = null;
+
+				for(int i = 0; original == null && i < palavras.size(); i++) {
+					final PalavraChave pc = transacao.busca(palavras.get(i));
+					final int posicao = pc == null ? -1 : pc.getArtigos().indexOf(procurado);
+
+					original = posicao == -1 ? null : pc.getArtigos().get(posicao);
+				}
+
+				if(original == null) {
+					return false;
+				}
+
+				for(String palavra : original.getPalavrasChave()) {
+					final PalavraChave pc = transacao.busca(palavra);
+
+					if(pc != null) {
+						pc.removeArtigo(original);
+
+						if(pc.getArtigos().isEmpty()) {
+							transacao.remove(palavra);
+						} else {
+							transacao.atualiza(pc);
+						}
+					}
+				}
+
+				transacao.confirma();
+				this.visao = this.banco.abreVisao();
+
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Monta o artigo de um pedido {@code ADICIONA}.
+	 *
+	 * @param campos campos do pedido.
+	 *
+	 * @return o artigo do pedido.
+	 *
+	 * @throws IllegalArgumentException Caso os campos nao formem um artigo.
+	 */
+	private static Artigo montaArtigo(List<String> campos) {
+		if(campos.size() < 5) {
+			throw new IllegalArgumentException("O artigo precisa de titulo, data, link e quantidade de autores!!");
+		}
+
+		final int qtdAutores = Integer.parseInt(campos.get(4));
+		if(qtdAutores < 0 || campos.size() < 6 + qtdAutores) {
+			throw new IllegalArgumentException("O artigo precisa dos autores e de pelo menos uma palavra chave!!");
+		}
+
+		final LocalDate data = campos.get(2).isEmpty() ? null : LocalDate.parse(campos.get(2));
+		final String link = campos.get(3).isEmpty() ? null : campos.get(3);
+		final List<String> autores = new ArrayList<>(campos.subList(5, 5 + qtdAutores));
+		final List<String> palavras = new ArrayList<>(campos.subList(5 + qtdAutores, campos.size()));
+
+		return new Artigo(campos.get(1), autores, palavras, data, link);
+	}
+
+	/**
+	 * Monta a resposta de uma pagina de artigos.
+	 *
+	 * @param pagina pagina buscada, ou {@code null}, caso a palavra nao esteja no banco.
+	 *
+	 * @return a linha de resposta da pagina.
+	 */
+	private static String respostaPagina(PaginaArtigos pagina) {
+		if(pagina == null) {
+			return "NAO_ENCONTRADO";
+		}
+
+		final ArrayList<String> titulos = new ArrayList<>(pagina.getArtigos().size());
+		for(Artigo a : pagina.getArtigos()) {
+			titulos.add(a.getTitulo());
+		}
+
+		return "OK\t" + pagina.getQtdTotal() + "\t" + pagina.getInicio() + "\t" + (pagina.temProxima() ? pagina.getToken() : "-")
+				+ juntaCampos(titulos);
+	}
+
+	/**
+	 * Le o tamanho de pagina de um pedido.
+	 *
+	 * @param campo campo com o tamanho.
+	 *
+	 * @return o tamanho da pagina.
+	 *
+	 * @throws IllegalArgumentException Caso o tamanho nao esteja entre 1 e
+	 * {@link #TAMANHO_PAGINA_MAXIMO}.
+	 */
+	private static int tamanhoPagina(String campo) {
+		final int tamanho = Integer.parseInt(campo);
+
+		if(tamanho < 1 || tamanho > TAMANHO_PAGINA_MAXIMO) {
+			throw new IllegalArgumentException("O tamanho da pagina deve estar entre 1 e " + TAMANHO_PAGINA_MAXIMO + "!!");
+		}
+
+		return tamanho;
+	}
+
+	/**
+	 * Le a distancia de edicao de um pedido {@code PARECIDAS}.
+	 *
+	 * @param campo campo com a distancia.
+	 *
+	 * @return a distancia.
+	 *
+	 * @throws IllegalArgumentException Caso a distancia nao esteja entre 0 e
+	 * {@link #DISTANCIA_MAXIMA}.
+	 */
+	private static int distancia(String campo) {
+		final int distancia = Integer.parseInt(campo);
+
+		if(distancia < 0 || distancia > DISTANCIA_MAXIMA) {
+			throw new IllegalArgumentException("A distancia deve estar entre 0 e " + DISTANCIA_MAXIMA + "!!");
+		}
+
+		return distancia;
+	}
+
+	/**
+	 * Verifica a quantidade de campos de um pedido.
+	 *
+	 * @param campos campos do pedido, incluindo o comando.
+	 * @param qtd quantidade de campos esperada.
+	 *
+	 * @throws IllegalArgumentException Caso o pedido tenha outra quantidade de campos.
+	 */
+	private static void verificaCampos(List<String> campos, int qtd) {
+		if(campos.size() != qtd) {
+			throw new IllegalArgumentException("O comando " + campos.get(0) + " recebe " + (qtd - 1) + " campos!!");
+		}
+	}
+
+	/**
+	 * Junta campos em uma linha, com uma tabulacao antes de cada campo.
+	 *
+	 * @param campos campos juntados.
+	 *
+	 * @return os campos escapados, cada um precedido por uma tabulacao.
+	 */
+	private static String juntaCampos(List<String> campos) {
+		final StringBuilder res = new StringBuilder();
+
+		for(String campo : campos) {
+			res.append('\t').append(escapa(campo == null ? "" : campo));
+		}
+
+		return res.toString();
+	}
+
+	/**
+	 * Escapa um campo, para que ele possa ser escrito em uma linha do protocolo.
+	 *
+	 * @param campo campo escapado.
+	 *
+	 * @return o campo sem tabulacoes, quebras de linha ou barras sem escape.
+	 */
+	public static String escapa(String campo) {
+		final StringBuilder res = new StringBuilder(campo.length());
+
+		for(int i = 0; i < campo.length(); i++) {
+			final char c = campo.charAt(i);
+
+			switch(c) {
+			case '\\': res.append("\\\\"); break;
+			case '\t': res.append("\\t"); break;
+			case '\n': res.append("\\n"); break;
+			case '\r': res.append("\\r"); break;
+			default: res.append(c);
+			}
+		}
+
+		return res.toString();
+	}
+
+	/**
+	 * Separa os campos de uma linha do protocolo, desfazendo os escapes.
+	 *
+	 * @param linha linha recebida.
+	 *
+	 * @return os campos da linha.
+	 */
+	public static List<String> separa(String linha) {
+		final ArrayList<String> campos = new ArrayList<>();
+		final StringBuilder atual = new StringBuilder();
+
+		for(int i = 0; i < linha.length(); i++) {
+			final char c = linha.charAt(i);
+
+			if(c == '\t') {
+				campos.add(atual.toString());
+				atual.setLength(0);
+			} else if(c == '\\' && i + 1 < linha.length()) {
+				final char proximo = linha.charAt(++i);
+				atual.append(proximo == 't' ? '\t' : proximo == 'n' ? '\n' : proximo == 'r' ? '\r' : proximo);
+			} else {
+				atual.append(c);
+			}
+		}
+		campos.add(atual.toString());
+
+		return campos;
+	}
+
+	/**
+	 * Abre o banco padrao e atende conexoes ate o processo ser terminado. O banco tambem e publicado
+	 * para replicas na porta seguinte a do servidor, ou em qualquer porta livre caso a porta do
+	 * servidor seja {@code 0}.
+	 *
+	 * </p>Com {@code --replica} como primeiro argumento, o processo e uma replica so de leitura do
+	 * banco publicado na porta do segundo argumento, e atende as buscas na porta do terceiro, que e
+	 * qualquer porta livre caso nao seja passada.
+	 *
+	 * @param args nome do banco e porta, opcionais, ou {@code --replica}, a porta do publicador e a
+	 * porta do servidor, opcional.
+	 *
+	 * @throws IOException Caso o banco ou a porta nao possam ser abertos.
+	 * @throws ClassNotFoundException Caso os arquivos do banco nao sejam de um banco.
+	 * @throws InterruptedException Caso a thread principal seja interrompida.
+	 */
+	public static void main(String[] args) throws IOException, ClassNotFoundException, InterruptedException {
+		if(args.length > 0 && args[0].equals("--replica")) {
+			if(args.length < 2) {
+				throw new IllegalArgumentException("A replica precisa da porta do publicador do primario!!");
+			}
+
+			atendeReplica(Integer.parseInt(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 0);
+			return;
+		}
+
+		final String nomeBanco = args.length > 0 ? args[0] : "banco";
+		final int porta = args.length > 1 ? Integer.parseInt(args[1]) : PORTA_PADRAO;
+
+		final MiniBD<PalavraChave, String> banco = MiniBD.carregaBanco(nomeBanco, nomeBanco + "-indices", nomeBanco + "-posicoes-vazias",
+				(PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		final ServidorConsultas servidor = new ServidorConsultas(banco, porta);
+		final PublicadorReplicacao<PalavraChave, String> publicador = new PublicadorReplicacao<>(banco, porta == 0 ? 0 : porta + 1);
+
+		// o banco e salvo quando o processo e terminado
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				publicador.close();
+				servidor.close();
+				banco.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar o banco: " + e.getMessage());
+			}
+		}));
+
+		System.out.println("Servidor do banco " + nomeBanco + " na porta " + servidor.getPorta() + " com os comandos "
+				+ Arrays.asList("CONTEM", "BUSCA", "CONTINUA", "PARECIDAS", "ADICIONA", "REMOVE", "ESTADO", "SAIR"));
+		System.out.println("Replicacao do banco " + nomeBanco + " na porta " + publicador.getPorta());
+
+		// as threads do servidor sao daemon, entao a thread principal espera o servidor fechar
+		servidor.aceitador.join();
+	}
+
+	/**
+	 * Abre uma replica de um banco publicado e atende as buscas dela ate o processo ser terminado.
+	 *
+	 * @param portaPublicador porta do publicador do primario.
+	 * @param porta porta do servidor da replica, ou {@code 0} para usar qualquer porta livre.
+	 *
+	 * @throws IOException Caso a replica nao consiga se conectar, ou a porta nao possa ser aberta.
+	 * @throws InterruptedException Caso a thread principal seja interrompida.
+	 */
+	private static void atendeReplica(int portaPublicador, int porta) throws IOException, InterruptedException {
+		final ReplicaLeitura<PalavraChave, String> replica = new ReplicaLeitura<>(portaPublicador, (PalavraChave pc) -> pc.getPalavra(),
+				new CodecPalavraChave(), "replica-" + portaPublicador);
+		final ServidorConsultas servidor = new ServidorConsultas(replica, porta);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				servidor.close();
+				replica.close();
+			} catch (IOException e) {
+				System.err.println("Erro ao fechar a replica: " + e.getMessage());
+			}
+		}));
+
+		System.out.println("Replica do publicador na porta " + portaPublicador + " com " + replica.getQtdRegistros()
+				+ " registros, atendendo na porta " + servidor.getPorta() + " com os comandos "
+				+ Arrays.asList("CONTEM", "BUSCA", "CONTINUA", "ESTADO", "SAIR"));
+
+		servidor.aceitador.join();
+	}
+}
@@ -9,8 +9,13 @@ import java.util.List;
 import javax.swing.JOptionPane;
 
 import banco.MiniBD;
+import banco.Transacao;
 import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PaginaArtigos;
 import modelo.artigo.PalavraChave;
+import modelo.busca.AutomatoLevenshtein;
+import modelo.busca.CacheConsultas;
 
 /**
  * Classe principal que permite com que o usuario interaja com o banco.
@@ -22,7 +27,15 @@ public class Sistema {
 	 * O banco de dados do sistema.
 	 */
 	private static MiniBD<PalavraChave, String> banco;
+	/**
+	 * Cache das consultas ao banco, que o menu de inserir artigos e o de buscar artigos repetem.
+	 */
+	private static CacheConsultas consultas;
 	private static String nomeBanco = "banco";
+	/**
+	 * Quantidade de artigos mostrados por vez na busca de uma palavra chave.
+	 */
+	private static final int TAMANHO_PAGINA = 20;
 	
 	/**
 	 * Programa principal com o qual o usuario interage.
@@ -34,9 +47,10 @@ public class Sistema {
 		// abre o banco a partir do arquivo. caso nenhum exista, um novo eh criado.
 		// caso ocorram erros no processo, o programa e finalizado
 		try {
-			banco = MiniBD.carregaBanco(nomeBanco, nomeBanco + "-indices", nomeBanco + "-posicoes-vazias", (PalavraChave pc) -> pc.getPalavra());
+			banco = MiniBD.carregaBanco(nomeBanco, nomeBanco + "-indices", nomeBanco + "-posicoes-vazias", (PalavraChave pc) -> pc.getPalavra(),
+					new CodecPalavraChave());
 		} catch (FileNotFoundException e) {
-			banco = new MiniBD<PalavraChave, String>((PalavraChave pc) -> pc.getPalavra(), nomeBanco);
+			banco = new MiniBD<PalavraChave, String>((PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(), nomeBanco);
 		} catch (ClassNotFoundException e) {
 			JOptionPane.showMessageDialog(null, "Erro ao carregar os modulos do programa.", "Erro", JOptionPane.ERROR_MESSAGE);
 			escolha = 6;
@@ -46,7 +60,14 @@ public class Sistema {
 			escolha = 6;
 			banco = null;
 		}
-		
+
+		// a maioria das palavras chave de um artigo novo nao esta no banco, entao o filtro de
+		// Bloom evita que essas buscas percorram a arvore de indices inteira
+		if(banco != null) {
+			banco.habilitaFiltroBloom(0.01);
+			consultas = new CacheConsultas(banco, CacheConsultas.ORCAMENTO_PADRAO);
+		}
+
 		// loop do programa principal, enquanto o usuario nao escolher a opcao 6
 		// esse loop e executado
 		while(escolha >= 1 && escolha < 6) {
@@ -54,6 +75,9 @@ public class Sistema {
 			switch(escolha) {
 			case 1:
 				menuInserirArtigo();
+				// salva as alteracoes em segundo plano enquanto o usuario escolhe a proxima opcao,
+				// assim o programa nao precisa salvar o banco inteiro ao terminar
+				banco.salvaCopiaInstantanea();
 				escolha = menuPrincipal();
 				break;
 			case 2:
@@ -66,10 +90,12 @@ public class Sistema {
 				break;
 			case 4:
 				menuRemoverArtigo();
+				banco.salvaCopiaInstantanea();
 				escolha = menuPrincipal();
 				break;
 			case 5:
 				menuRemoverPalavraChave();
+				banco.salvaCopiaInstantanea();
 				escolha = menuPrincipal();
 				break;
 			default:
@@ -140,23 +166,35 @@ public class Sistema {
 		// caso o usuario nao tenha cancelado a operacao, ou o artigo nao esteja
 		// presente na base de dados, insere ele
 		if(artigoUsuario != null && !buscaArtigo(artigoUsuario)) {
+			// todas as palavras do artigo sao alteradas em uma transacao, para que o banco nunca
+			// fique com o artigo em so algumas delas
+			Transacao<PalavraChave, String> transacao = banco.iniciaTransacao();
+			
 			// para cada uma das palavras digitadas pelo usuario
 			for(String palavra : artigoUsuario.getPalavrasChave()) {
-				PalavraChave pc = banco.busca(palavra);
+				PalavraChave pc = transacao.busca(palavra);
 								
 				if(pc != null) {
 					// se a palavra ja esta no banco, adiciona o artido na lista de
-					// artigos da palavra
+					// artigos da palavra e salva a alteracao no banco
 					pc.addArtigo(artigoUsuario);
+					transacao.atualiza(pc);
 				} else {
-					// caso contrario, insere a palavra no banco e adiciona o artigo na
-					// lista de artigos dessa palavra
+					// caso contrario, adiciona o artigo na lista de artigos de uma palavra
+					// nova e insere essa palavra no banco
 					PalavraChave novaPalavra = new PalavraChave(palavra);
-					banco.adiciona(novaPalavra);
 					novaPalavra.addArtigo(artigoUsuario);
+					transacao.adiciona(novaPalavra);
 				}
 			}
 			
+			try {
+				transacao.confirma();
+			} catch (IOException e) {
+				JOptionPane.showMessageDialog(null, "Erro ao inserir o artigo.", "Erro", JOptionPane.ERROR_MESSAGE);
+				return;
+			}
+			
 			// mostra a mensagem de sucesso da insercao
 			JOptionPane.showMessageDialog(null, "Artigo inserido com sucesso", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
 		}
@@ -191,17 +229,9 @@ public class Sistema {
 	 * caso contrario.
 	 */
 	public static boolean buscaArtigo(Artigo artigo) {
-		// pra cada palavra chave do artigo, busca ela no banco e verifica
-		// se o artigo esta na lista de artigos dessa palavra
-		for(String palavra : artigo.getPalavrasChave()) {
-			PalavraChave pc = banco.busca(palavra);
-			
-			if(pc != null && pc.getArtigos().contains(artigo)) {
-				return true;
-			}
-		}
-		
-		return false;
+		// o cache busca cada palavra chave do artigo no banco e verifica se o artigo esta na
+		// lista de artigos dessa palavra, so quando alguma delas mudou desde a ultima busca
+		return consultas.contemArtigo(artigo);
 	}
 	
 	/**
@@ -211,16 +241,36 @@ public class Sistema {
 		// pergunta qual palavra o usuario quer buscar
 		String palavraUsuario = JOptionPane.showInputDialog(null, "Digite a palavra chave que deseja buscar: ", 
 				"Menu buscar palavra chave", JOptionPane.QUESTION_MESSAGE);
-		// busca essa palavra na base de dados
-		PalavraChave resultado = banco.busca(palavraUsuario);
+		// busca so a primeira pagina dos artigos dessa palavra, ao inves da palavra inteira
+		PaginaArtigos pagina = PaginaArtigos.busca(banco, palavraUsuario, TAMANHO_PAGINA);
 		
 		// mostra a mensagem adequada, i.e., caso a palavra foi ou nao encontrada
-		if(resultado == null) {
-			JOptionPane.showMessageDialog(null, "O termo " + palavraUsuario + " nao retornou nenhum resultado.", 
+		if(pagina == null) {
+			// a palavra pode ter sido digitada errada, entao as palavras parecidas sao sugeridas. Palavras
+			// curtas so aceitam um erro, para que as sugestoes nao sejam palavras quaisquer
+			List<String> parecidas = AutomatoLevenshtein.buscaPalavras(banco, palavraUsuario, palavraUsuario.length() <= 4 ? 1 : 2);
+			String sugestao = parecidas.isEmpty() ? "" 
+					: "\nVoce quis dizer: " + String.join(", ", parecidas.subList(0, Math.min(10, parecidas.size()))) + "?";
+			
+			JOptionPane.showMessageDialog(null, "O termo " + palavraUsuario + " nao retornou nenhum resultado." + sugestao, 
 					"Resultado", JOptionPane.INFORMATION_MESSAGE);
 		} else {
-			JOptionPane.showMessageDialog(null, resultado, 
-					"Artigos com a palavra: " + palavraUsuario, JOptionPane.INFORMATION_MESSAGE);
+			String[] opcoes = {"Proxima pagina", "Fechar"};
+			
+			// mostra uma pagina por vez, enquanto o usuario pedir a proxima
+			while(pagina != null) {
+				if(!pagina.temProxima()) {
+					JOptionPane.showMessageDialog(null, pagina, 
+							"Artigos com a palavra: " + palavraUsuario, JOptionPane.INFORMATION_MESSAGE);
+					pagina = null;
+				} else {
+					int escolha = JOptionPane.showOptionDialog(null, pagina, "Artigos com a palavra: " + palavraUsuario, 
+							JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, opcoes, opcoes[0]);
+					
+					// a proxima pagina comeca direto de onde essa parou
+					pagina = escolha == 0 ? PaginaArtigos.continua(banco, pagina.getToken(), TAMANHO_PAGINA) : null;
+				}
+			}
 		}	
 	}
 	
@@ -250,19 +300,30 @@ public class Sistema {
 			Artigo artigoOriginal = objPalavraChave.getArtigos().get(posicaoArtigoOriginal);
 			
 			// pra cada uma das palavras do artigo original, remova o artigo da lista de
-			// artigos da palavra chave
+			// artigos da palavra chave, tudo em uma so transacao
+			Transacao<PalavraChave, String> transacao = banco.iniciaTransacao();
+			
 			for(String pc : artigoOriginal.getPalavrasChave()) {
-				PalavraChave palavra = banco.busca(pc);
+				PalavraChave palavra = transacao.busca(pc);
 				
 				if(palavra != null) {
 					palavra.removeArtigo(artigoUsuario);
+					
+					// caso a palavra chave nao tenha nenhum outro artigo na sua lista, remova
+					// ela do banco, caso contrario, salve a alteracao no banco
+					if(palavra.getArtigos().size() == 0) {
+						transacao.remove(palavra.getPalavra());
+					} else {
+						transacao.atualiza(palavra);
+					}
 				}
-				
-				// caso a palavra chave nao tenha nenhum outro artigo na sua lista, remova
-				// ela do banco
-				if(palavra.getArtigos().size() == 0) {
-					banco.remove(palavra.getPalavra());
-				}
+			}
+			
+			try {
+				transacao.confirma();
+			} catch (IOException e) {
+				JOptionPane.showMessageDialog(null, "Erro ao remover o artigo.", "Erro", JOptionPane.ERROR_MESSAGE);
+				return;
 			}
 		} else {
 			// caso o usuario tenha cancelado a operacao, retorne
@@ -0,0 +1,80 @@
+package testes;
+
+import java.util.ArrayList;
+
+import banco.MiniBD;
+import banco.TabelaSerializada;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.GuardadorObjeto;
+import modelo.auxiliar.MontadorBDPadrao;
+import modelo.btree.BTree;
+
+public class TesteAberturaPreguicosa {
+
+	public static void main(String[] args) throws Exception {
+		// tempo ate a primeira busca em bancos de tamanhos diferentes
+		for(int qtdArtigos : new int[] {10000, 100000}) {
+			String nome = "banco-preguicoso-" + qtdArtigos;
+			MiniBD<PalavraChave, String> banco = new MontadorBDPadrao(nome, new GeradorArtigos(7), qtdArtigos, 2).getBanco();
+			String palavra = banco.getTabela().get(banco.getTabela().size() / 2).getPalavra();
+			banco.close();
+
+			long inicio = System.nanoTime();
+			MiniBD<PalavraChave, String> aberto = carrega(nome);
+			long abertura = System.nanoTime() - inicio;
+			boolean achou = aberto.busca(palavra) != null;
+			long primeiraBusca = System.nanoTime() - inicio - abertura;
+
+			System.out.println(qtdArtigos + " artigos: abertura em " + abertura / 1000000 + "ms, primeira busca em "
+					+ primeiraBusca / 1000 + "us (" + achou + ")");
+		}
+
+		// alteracoes em um banco aberto de forma preguicosa
+		MiniBD<PalavraChave, String> original = new MontadorBDPadrao("banco-preguicoso", new GeradorArtigos(8), 20000, 2).getBanco();
+		ArrayList<String> palavras = new ArrayList<>();
+		for(PalavraChave pc : original.getTabela()) {
+			palavras.add(pc.getPalavra());
+		}
+		original.close();
+
+		MiniBD<PalavraChave, String> aberto = carrega("banco-preguicoso");
+		aberto.remove(palavras.get(0));
+		aberto.adiciona(new PalavraChave("PalavraNova"));
+		aberto.close();
+		aberto.adiciona(new PalavraChave("OutraPalavra"));
+		aberto.close();
+
+		MiniBD<PalavraChave, String> reaberto = carrega("banco-preguicoso");
+		boolean completo = !reaberto.contem(palavras.get(0)) && reaberto.contem("PalavraNova") && reaberto.contem("OutraPalavra");
+		for(int i = 1; i < palavras.size(); i++) {
+			completo = completo && reaberto.busca(palavras.get(i)).getPalavra().equals(palavras.get(i));
+		}
+		System.out.println("Alteracoes salvas: " + completo);
+
+		// tabela salva no formato anterior ao arquivo paginado
+		TabelaSerializada tabela = new TabelaSerializada(CodecPalavraChave.class.getName());
+		BTree<String> indices = new BTree<>(20);
+		CodecPalavraChave codec = new CodecPalavraChave();
+		for(int i = 0; i < 3000; i++) {
+			PalavraChave pc = new PalavraChave("Palavra" + i);
+			indices.insere(pc.getPalavra(), tabela.adiciona(codec.codifica(pc)));
+		}
+		new GuardadorObjeto<TabelaSerializada>("banco-antigo").salvaObjeto(tabela);
+		new GuardadorObjeto<BTree<String>>("banco-antigo-indices").salvaObjeto(indices);
+		new GuardadorObjeto<ArrayList<Integer>>("banco-antigo-posicoes-vazias").salvaObjeto(new ArrayList<>());
+
+		MiniBD<PalavraChave, String> antigo = carrega("banco-antigo");
+		boolean lido = antigo.contem("Palavra0") && antigo.contem("Palavra2999");
+		antigo.adiciona(new PalavraChave("PalavraNova"));
+		antigo.close();
+		antigo = carrega("banco-antigo");
+		System.out.println("Formato anterior lido e convertido: " + (lido && antigo.contem("Palavra1500") && antigo.contem("PalavraNova")));
+	}
+
+	private static MiniBD<PalavraChave, String> carrega(String nome) throws Exception {
+		return MiniBD.carregaBanco(nome, nome + "-indices", nome + "-posicoes-vazias",
+				(PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+	}
+}
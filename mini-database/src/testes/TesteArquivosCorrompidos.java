@@ -0,0 +1,104 @@
+package testes;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+import banco.ArquivoTabela;
+import banco.MiniBD;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.GuardadorObjeto;
+import modelo.auxiliar.MontadorBDPadrao;
+
+public class TesteArquivosCorrompidos {
+
+	public static void main(String[] args) throws Exception {
+		// objeto com varios blocos
+		ArrayList<Integer> lista = new ArrayList<>();
+		for(int i = 0; i < 200000; i++) {
+			lista.add(i);
+		}
+
+		GuardadorObjeto<ArrayList<Integer>> guardador = new GuardadorObjeto<>("teste-corrompido");
+		guardador.salvaObjeto(lista);
+		System.out.println("Objeto lido: " + guardador.carregaObjeto().equals(lista));
+
+		altera("teste-corrompido.bin", 700000);
+		System.out.println("Bloco corrompido recusado: " + recusado(guardador));
+
+		guardador.salvaObjeto(lista);
+		try(RandomAccessFile arquivo = new RandomAccessFile("teste-corrompido.bin", "rw")) {
+			arquivo.setLength(arquivo.length() / 2);
+		}
+		System.out.println("Arquivo incompleto recusado: " + recusado(guardador));
+
+		// formato anterior, so com o objeto serializado
+		try(ObjectOutputStream saida = new ObjectOutputStream(new FileOutputStream("teste-corrompido.bin"))) {
+			saida.writeObject(lista);
+		}
+		System.out.println("Formato anterior lido: " + guardador.carregaObjeto().equals(lista));
+
+		// tabela paginada
+		MiniBD<PalavraChave, String> banco = new MontadorBDPadrao("banco-corrompido", new GeradorArtigos(5), 20000, 2).getBanco();
+		ArrayList<String> palavras = new ArrayList<>();
+		for(PalavraChave pc : banco.getTabela()) {
+			palavras.add(pc.getPalavra());
+		}
+		banco.close();
+
+		ArquivoTabela arquivo = new ArquivoTabela("banco-corrompido");
+		arquivo.abre();
+		arquivo.verifica();
+		arquivo.fecha();
+		System.out.println("Tabela verificada");
+
+		altera("banco-corrompido.bin", 5000);
+		try {
+			arquivo.verifica();
+			System.out.println("Tabela corrompida recusada: false");
+		} catch (StreamCorruptedException e) {
+			System.out.println("Tabela corrompida recusada: " + e.getMessage());
+		}
+		arquivo.fecha();
+
+		// o banco abre, ja que os blocos so sao lidos quando usados, mas o bloco corrompido nao e lido
+		MiniBD<PalavraChave, String> aberto = MiniBD.carregaBanco("banco-corrompido", "banco-corrompido-indices",
+				"banco-corrompido-posicoes-vazias", (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		int recusadas = 0;
+		for(String palavra : palavras) {
+			try {
+				aberto.busca(palavra);
+			} catch (UncheckedIOException e) {
+				recusadas++;
+			}
+		}
+		System.out.println("Buscas no bloco corrompido recusadas: " + recusadas + " de " + palavras.size());
+	}
+
+	private static void altera(String nomeArquivo, long posicao) throws IOException {
+		try(RandomAccessFile arquivo = new RandomAccessFile(nomeArquivo, "rw")) {
+			arquivo.seek(posicao);
+			int b = arquivo.read();
+			arquivo.seek(posicao);
+			arquivo.write(b ^ 0x5A);
+		}
+	}
+
+	private static boolean recusado(GuardadorObjeto<ArrayList<Integer>> guardador) throws ClassNotFoundException {
+		try {
+			guardador.carregaObjeto();
+			return false;
+		} catch (StreamCorruptedException e) {
+			System.out.println(e.getMessage());
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import banco.MiniBD;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.MontadorBDPadrao;
+import modelo.btree.BTree;
+import modelo.indice.Indice;
+import modelo.indice.IndiceCongelado;
+import modelo.indice.IndiceHash;
+
+public class TesteBancoCongelado {
+
+	public static void main(String[] args) throws Exception {
+		// indices congelados de varios tamanhos, comparados com a arvore de origem
+		boolean iguais = true;
+		for(int n = 0; n < 300; n++) {
+			BTree<Integer> arvore = new BTree<>(20);
+			IndiceHash<Integer> hash = new IndiceHash<>();
+			for(int i = 0; i < n; i++) {
+				arvore.insere(i * 2, i);
+				hash.insere(i * 2, i);
+			}
+
+			IndiceCongelado<Integer> congelado = IndiceCongelado.de(arvore);
+			iguais = iguais && pares(congelado).equals(pares(arvore)) && pares(IndiceCongelado.de(hash)).equals(pares(arvore));
+			for(int i = -1; i <= 2 * n; i++) {
+				iguais = iguais && congelado.busca(i) == arvore.busca(i);
+			}
+		}
+		System.out.println("Indices congelados iguais as arvores: " + iguais);
+
+		MiniBD<PalavraChave, String> banco = new MontadorBDPadrao("banco-congelado", new GeradorArtigos(5), 50000, 2).getBanco();
+		ArrayList<String> palavras = new ArrayList<>();
+		for(PalavraChave pc : banco.getTabela()) {
+			palavras.add(pc.getPalavra());
+		}
+		banco.close();
+
+		banco = MiniBD.carregaBanco("banco-congelado", "banco-congelado-indices", "banco-congelado-posicoes-vazias",
+				(PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		System.out.println("Buscas na arvore B: " + tempoBuscas(banco, palavras) + "ms");
+
+		banco.congela();
+		System.out.println("Buscas no banco congelado: " + tempoBuscas(banco, palavras) + "ms");
+
+		try {
+			banco.remove(palavras.get(0));
+			System.out.println("Banco congelado alterado");
+		} catch (IllegalStateException e) {
+			System.out.println("Alteracao recusada: " + e.getMessage());
+		}
+
+		// varias threads buscando no mesmo banco congelado
+		final MiniBD<PalavraChave, String> compartilhado = banco;
+		compartilhado.setOrcamentoCache(64 * 1024);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> resultados = new ArrayList<>();
+		for(int t = 0; t < 4; t++) {
+			final int inicio = t;
+			resultados.add(executor.submit(() -> {
+				boolean corretas = true;
+				for(int i = inicio; i < palavras.size(); i += 2) {
+					PalavraChave pc = compartilhado.busca(palavras.get(i));
+					corretas = corretas && pc != null && pc.getPalavra().equals(palavras.get(i));
+				}
+				return corretas && compartilhado.busca("palavra-que-nao-existe") == null;
+			}));
+		}
+		boolean corretas = true;
+		for(Future<Boolean> resultado : resultados) {
+			corretas = corretas && resultado.get();
+		}
+		executor.shutdown();
+		System.out.println("Buscas concorrentes corretas: " + corretas);
+		banco.close();
+
+		// os arquivos continuam com a arvore B, entao o banco carregado pode ser alterado
+		banco = MiniBD.carregaBanco("banco-congelado", "banco-congelado-indices", "banco-congelado-posicoes-vazias",
+				(PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		System.out.println("Banco recarregado alteravel: " + (!banco.ehCongelado() && banco.remove(palavras.get(0)) != null));
+	}
+
+	private static String pares(Indice<Integer> indice) {
+		StringBuilder sb = new StringBuilder();
+		indice.percorre((chave, posicao) -> sb.append(chave).append('=').append(posicao).append(' '));
+		return sb.toString();
+	}
+
+	private static long tempoBuscas(MiniBD<PalavraChave, String> banco, List<String> palavras) {
+		long inicio = System.nanoTime();
+		for(int rodada = 0; rodada < 20; rodada++) {
+			for(String palavra : palavras) {
+				banco.contem(palavra);
+			}
+		}
+		return (System.nanoTime() - inicio) / 1000000;
+	}
+}
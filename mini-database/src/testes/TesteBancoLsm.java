@@ -0,0 +1,132 @@
+package testes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import banco.Banco;
+import banco.CodecSerializacaoJava;
+import banco.MiniBD;
+import banco.lsm.BancoLsm;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteBancoLsm {
+
+	public static void main(String[] args) throws Exception {
+		// operacoes aleatorias comparadas com um HashMap, com uma memtable pequena para forcar
+		// varias gravacoes e juncoes de segmentos
+		Random rng = new Random(4);
+		HashMap<Integer, String> esperado = new HashMap<>();
+		BancoLsm<String, Integer> lsm = new BancoLsm<>((String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+				new CodecSerializacaoJava<String>(), "banco-lsm-aleatorio");
+		lsm.setLimiteMemtable(16 * 1024);
+		boolean iguais = true;
+
+		for(int i = 0; i < 200000; i++) {
+			int chave = rng.nextInt(20000);
+			String registro = chave + ":" + i;
+
+			switch(rng.nextInt(4)) {
+			case 0:
+				lsm.adiciona(registro);
+				esperado.putIfAbsent(chave, registro);
+				break;
+			case 1:
+				iguais = iguais && igual(lsm.remove(chave), esperado.remove(chave));
+				break;
+			case 2:
+				iguais = iguais && lsm.atualiza(registro) == esperado.containsKey(chave);
+				esperado.replace(chave, registro);
+				break;
+			default:
+				iguais = iguais && igual(lsm.busca(chave), esperado.get(chave));
+			}
+
+			if(i == 100000) {
+				// reabre o banco no meio das operacoes
+				lsm.close();
+				lsm = BancoLsm.carregaBanco("banco-lsm-aleatorio", (String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+						new CodecSerializacaoJava<String>());
+				lsm.setLimiteMemtable(16 * 1024);
+			}
+		}
+
+		System.out.println("Mesmo resultado que o HashMap: " + iguais + " (" + lsm.getQtdSegmentos() + " segmentos)");
+		lsm.compacta();
+		System.out.println("Depois de compactar: " + lsm.getQtdSegmentos() + " segmento, " + mesmoConteudo(lsm, esperado, 20000));
+		lsm.close();
+
+		// o programa para sem fechar o banco: as escritas que so estavam na memtable sao refeitas
+		// pelo diario, e uma escrita rasgada no fim dele e ignorada
+		BancoLsm<String, Integer> semFechar = new BancoLsm<>((String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+				new CodecSerializacaoJava<String>(), "banco-lsm-diario");
+		for(int i = 0; i < 1000; i++) {
+			semFechar.adiciona(i + ":original");
+		}
+		semFechar.remove(5);
+		semFechar.atualiza("6:alterado");
+		semFechar.sincroniza();
+		File[] diarios = new File(".").listFiles((dir, nome) -> nome.startsWith("banco-lsm-diario-diario-"));
+		try(FileOutputStream saida = new FileOutputStream(diarios[diarios.length - 1], true)) {
+			saida.write(new byte[] {0, 0, 0, 9, 1, 2});
+		}
+		BancoLsm<String, Integer> reaberto = BancoLsm.carregaBanco("banco-lsm-diario",
+				(String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))), new CodecSerializacaoJava<String>());
+		boolean refeitas = "999:original".equals(reaberto.busca(999)) && !reaberto.contem(5) && "6:alterado".equals(reaberto.busca(6));
+		reaberto.close();
+		reaberto = BancoLsm.carregaBanco("banco-lsm-diario", (String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+				new CodecSerializacaoJava<String>());
+		diarios = new File(".").listFiles((dir, nome) -> nome.startsWith("banco-lsm-diario-diario-"));
+		System.out.println("Escritas sem fechar refeitas pelo diario: " + (refeitas && "999:original".equals(reaberto.busca(999))
+				&& !reaberto.contem(5) && diarios.length == 0) + " (" + reaberto.getQtdSegmentos() + " segmento)");
+		reaberto.close();
+
+		// insercoes de palavras chave no MiniBD e no BancoLsm
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(new GeradorArtigos(11).gera(10000, 5, 5));
+
+		long inicio = System.nanoTime();
+		MiniBD<PalavraChave, String> arvore = new MiniBD<>((PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(), "banco-lsm-arvore");
+		insere(arvore, palavras);
+		System.out.println("MiniBD: " + palavras.size() + " insercoes em " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		inicio = System.nanoTime();
+		BancoLsm<PalavraChave, String> banco = new BancoLsm<>((PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(), "banco-lsm");
+		insere(banco, palavras);
+		System.out.println("BancoLsm: " + palavras.size() + " insercoes em " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		banco = BancoLsm.carregaBanco("banco-lsm", (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		boolean completo = true;
+		for(PalavraChave pc : palavras) {
+			completo = completo && banco.busca(pc.getPalavra()).getArtigos().equals(pc.getArtigos());
+		}
+		System.out.println("BancoLsm reaberto com todas as palavras: " + completo + " (" + banco.getQtdSegmentos() + " segmentos)");
+		banco.close();
+	}
+
+	private static void insere(Banco<PalavraChave, String> banco, ArrayList<PalavraChave> palavras) throws Exception {
+		for(PalavraChave pc : palavras) {
+			banco.adiciona(pc);
+		}
+		banco.close();
+	}
+
+	private static boolean igual(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static boolean mesmoConteudo(BancoLsm<String, Integer> lsm, Map<Integer, String> esperado, int qtdChaves) {
+		for(int chave = 0; chave < qtdChaves; chave++) {
+			if(!igual(lsm.busca(chave), esperado.get(chave))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,142 @@
+package testes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import banco.MiniBD;
+import banco.MiniBDParticionado;
+import banco.TipoIndice;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteBancoParticionado {
+
+	public static void main(String[] args) throws Exception {
+		GeradorArtigos gerador = new GeradorArtigos(47);
+		gerador.setDistribuicaoPalavras(100000, 0.8);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(gerador.geraParalelo(100000, 6, 3));
+
+		long inicio = System.nanoTime();
+		MiniBD<PalavraChave, String> unico = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-particionado-unico");
+		long tempoUnico = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		MiniBDParticionado<PalavraChave, String> banco = new MiniBDParticionado<>(palavras, 4, (PalavraChave pc) -> pc.getPalavra(),
+				new CodecPalavraChave(), TipoIndice.ARVORE_B, "banco-particionado");
+		long tempoParticionado = System.nanoTime() - inicio;
+
+		System.out.println(palavras.size() + " palavras montadas: banco unico " + tempoUnico / 1000000 + "ms, 4 particoes "
+				+ tempoParticionado / 1000000 + "ms (" + Runtime.getRuntime().availableProcessors() + " processadores)");
+
+		// cada palavra esta so na particao da sua chave
+		boolean nasParticoes = banco.getQtdRegistros() == palavras.size();
+		for(PalavraChave pc : palavras) {
+			for(int p = 0; p < banco.getQtdParticoes(); p++) {
+				nasParticoes = nasParticoes && banco.getParticao(p).contem(pc.getPalavra()) == (banco.getParticao(p) == banco.particaoDe(pc.getPalavra()));
+			}
+		}
+		System.out.println("Cada palavra so na sua particao: " + nasParticoes);
+
+		int[] tamanhos = new int[banco.getQtdParticoes()];
+		for(int p = 0; p < tamanhos.length; p++) {
+			tamanhos[p] = banco.getParticao(p).getQtdRegistros();
+		}
+		System.out.println("Palavras por particao: " + Arrays.toString(tamanhos));
+
+		// busca de varias chaves, com algumas que nao existem
+		ArrayList<String> chaves = new ArrayList<>();
+		for(int i = 0; i < palavras.size(); i += 3) {
+			chaves.add(palavras.get(i).getPalavra());
+			chaves.add("nao existe " + i);
+		}
+
+		inicio = System.nanoTime();
+		List<PalavraChave> encontradas = banco.buscaVarias(chaves);
+		long tempoVarias = System.nanoTime() - inicio;
+
+		boolean iguais = encontradas.size() == chaves.size();
+		for(int i = 0; iguais && i < chaves.size(); i++) {
+			PalavraChave esperada = unico.busca(chaves.get(i));
+			iguais = esperada == null ? encontradas.get(i) == null
+					: encontradas.get(i) != null && encontradas.get(i).getArtigos().equals(esperada.getArtigos());
+		}
+		System.out.println("Busca de " + chaves.size() + " chaves igual ao banco unico: " + iguais + " (" + tempoVarias / 1000000 + "ms)");
+
+		System.out.println("Busca de chaves igual ao banco unico: "
+				+ banco.buscaChaves((String s) -> s.startsWith("a")).equals(unico.buscaChaves((String s) -> s.startsWith("a"))));
+
+		// insercoes em lote, remocoes e atualizacoes
+		ArrayList<PalavraChave> novas = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			Artigo artigo = new Artigo("Artigo novo " + i, List.of(), List.of("nova " + i), null, null);
+			novas.add(new PalavraChave("nova " + i, List.of(artigo)));
+		}
+		banco.adicionaVarios(novas);
+		banco.remove(palavras.get(0).getPalavra());
+		banco.atualiza(new PalavraChave(palavras.get(1).getPalavra(), palavras.get(2).getArtigos().subList(0, 0)));
+		System.out.println("Depois das alteracoes: " + (banco.getQtdRegistros() == palavras.size() + 999) + " "
+				+ banco.contem("nova 999") + " " + !banco.contem(palavras.get(0).getPalavra()) + " "
+				+ banco.busca(palavras.get(1).getPalavra()).getArtigos().isEmpty());
+
+		inicio = System.nanoTime();
+		banco.close();
+		long tempoFecha = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		MiniBDParticionado<PalavraChave, String> carregado = MiniBDParticionado.carrega("banco-particionado", (PalavraChave pc) -> pc.getPalavra(),
+				new CodecPalavraChave());
+		long tempoCarrega = System.nanoTime() - inicio;
+
+		boolean mesmoConteudo = carregado.getQtdRegistros() == palavras.size() + 999 && carregado.contem("nova 500")
+				&& !carregado.contem(palavras.get(0).getPalavra());
+		for(int i = 3; mesmoConteudo && i < palavras.size(); i += 101) {
+			mesmoConteudo = carregado.busca(palavras.get(i).getPalavra()).getArtigos().equals(palavras.get(i).getArtigos());
+		}
+		System.out.println("Carregado com o mesmo conteudo: " + mesmoConteudo + " (fechar " + tempoFecha / 1000000 + "ms, carregar "
+				+ tempoCarrega / 1000000 + "ms)");
+
+		carregado.congela();
+		System.out.println("Particoes congeladas: " + carregado.getParticao(0).ehCongelado() + " " + carregado.contem("nova 500"));
+		carregado.close();
+		unico.close();
+
+		try {
+			new MiniBDParticionado<PalavraChave, String>(0, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(), TipoIndice.ARVORE_B,
+					"banco-particionado-vazio");
+			System.out.println("Banco sem particoes aceito");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Banco sem particoes recusado");
+		}
+
+		// uma particao que nao pode ser carregada: as threads do banco param e o erro chega a quem carregou
+		Files.write(Paths.get("banco-particionado-3-indices.bin"), new byte[] {1, 2, 3});
+		try {
+			MiniBDParticionado.carrega("banco-particionado", (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+			System.out.println("Particao com o indice corrompido aceita");
+		} catch (IOException e) {
+			System.out.println("Particao com o indice corrompido recusada, threads paradas: " + threadsParadas());
+		}
+	}
+
+	private static boolean threadsParadas() throws InterruptedException {
+		for(Thread thread : Thread.getAllStackTraces().keySet()) {
+			if(thread.getName().equals("MiniBDParticionado")) {
+				thread.join(1000);
+
+				if(thread.isAlive()) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,133 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import banco.CodecSerializacaoJava;
+import banco.MiniBD;
+import banco.TipoIndice;
+import modelo.busca.AutomatoLevenshtein;
+
+public class TesteBuscaAproximada {
+
+	public static void main(String[] args) throws Exception {
+		Random rng = new Random(21);
+		TreeSet<String> palavras = new TreeSet<>();
+		while(palavras.size() < 300000) {
+			StringBuilder palavra = new StringBuilder();
+			for(int i = 0; i < 5 + rng.nextInt(6); i++) {
+				palavra.append((char) ('a' + rng.nextInt(26)));
+			}
+			palavras.add(palavra.toString());
+		}
+
+		// conta quantas vezes a busca desce no indice
+		long[] saltos = {0};
+		MiniBD<String, String> arvore = new MiniBD<String, String>(new ArrayList<>(palavras), (String s) -> s,
+				new CodecSerializacaoJava<String>(), TipoIndice.ARVORE_B, "banco-aproximado-arvore") {
+			@Override
+			public synchronized String buscaTeto(String chave) {
+				saltos[0]++;
+				return super.buscaTeto(chave);
+			}
+		};
+		MiniBD<String, String> hash = new MiniBD<>(new ArrayList<>(palavras), (String s) -> s, new CodecSerializacaoJava<String>(),
+				TipoIndice.HASH, "banco-aproximado-hash");
+
+		// palavras do banco com erros de digitacao
+		ArrayList<String> consultas = new ArrayList<>();
+		ArrayList<String> lista = new ArrayList<>(palavras);
+		for(int i = 0; i < 50; i++) {
+			StringBuilder errada = new StringBuilder(lista.get(rng.nextInt(lista.size())));
+			errada.setCharAt(rng.nextInt(errada.length()), (char) ('a' + rng.nextInt(26)));
+			errada.deleteCharAt(rng.nextInt(errada.length()));
+			consultas.add(errada.toString());
+		}
+
+		boolean iguais = true;
+		long tempoArvore = 0;
+		long tempoHash = 0;
+		long tempoVarredura = 0;
+
+		for(String consulta : consultas) {
+			long inicio = System.nanoTime();
+			List<String> daArvore = AutomatoLevenshtein.buscaPalavras(arvore, consulta, 2);
+			tempoArvore += System.nanoTime() - inicio;
+
+			inicio = System.nanoTime();
+			List<String> doHash = AutomatoLevenshtein.buscaPalavras(hash, consulta, 2);
+			tempoHash += System.nanoTime() - inicio;
+
+			inicio = System.nanoTime();
+			List<String> daVarredura = varredura(palavras, consulta, 2);
+			tempoVarredura += System.nanoTime() - inicio;
+
+			iguais = iguais && daArvore.equals(daVarredura) && doHash.equals(daVarredura);
+		}
+
+		System.out.println("Mesmo resultado que a varredura: " + iguais);
+		System.out.println(consultas.size() + " buscas em " + palavras.size() + " chaves: arvore B " + tempoArvore / 1000000
+				+ "ms, hash (sem saltos) " + tempoHash / 1000000 + "ms, varredura " + tempoVarredura / 1000000 + "ms");
+		System.out.println("Chaves lidas por busca na arvore B: " + saltos[0] / consultas.size() + " com distancia 2");
+
+		saltos[0] = 0;
+		for(String consulta : consultas) {
+			AutomatoLevenshtein.buscaPalavras(arvore, consulta, 1);
+		}
+		System.out.println("Chaves lidas por busca na arvore B: " + saltos[0] / consultas.size() + " com distancia 1");
+
+		List<String> exemplo = AutomatoLevenshtein.buscaPalavras(arvore, lista.get(7) + "x", 1);
+		System.out.println("Palavra com uma letra a mais encontrada primeiro: " + exemplo.get(0).equals(lista.get(7)));
+
+		try {
+			new AutomatoLevenshtein("palavra", -1);
+			System.out.println("Distancia negativa aceita");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Distancia negativa recusada");
+		}
+
+		arvore.close();
+		hash.close();
+	}
+
+	private static List<String> varredura(TreeSet<String> palavras, String consulta, int distanciaMaxima) {
+		ArrayList<List<String>> porDistancia = new ArrayList<>();
+		for(int distancia = 0; distancia <= distanciaMaxima; distancia++) {
+			porDistancia.add(new ArrayList<>());
+		}
+
+		for(String palavra : palavras) {
+			int distancia = levenshtein(palavra, consulta);
+
+			if(distancia <= distanciaMaxima) {
+				porDistancia.get(distancia).add(palavra);
+			}
+		}
+
+		ArrayList<String> encontradas = new ArrayList<>();
+		for(List<String> daDistancia : porDistancia) {
+			encontradas.addAll(daDistancia);
+		}
+
+		return encontradas;
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+
+		for(int i = 0; i <= a.length(); i++) {
+			for(int j = 0; j <= b.length(); j++) {
+				if(i == 0 || j == 0) {
+					d[i][j] = i + j;
+				} else {
+					d[i][j] = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+							Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+				}
+			}
+		}
+
+		return d[a.length()][b.length()];
+	}
+}
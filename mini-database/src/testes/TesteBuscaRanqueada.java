@@ -0,0 +1,122 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+import modelo.busca.IndiceRanqueado;
+
+public class TesteBuscaRanqueada {
+
+	public static void main(String[] args) throws Exception {
+		GeradorArtigos gerador = new GeradorArtigos(31);
+		gerador.setDistribuicaoPalavras(20000, 1.0);
+		ArrayList<Artigo> artigos = gerador.geraParalelo(200000, 8, 3);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(artigos);
+
+		// palavras da mais comum para a menos comum
+		palavras.sort(Comparator.comparingInt((PalavraChave pc) -> -pc.getArtigos().size()));
+
+		long inicio = System.nanoTime();
+		IndiceRanqueado indice = new IndiceRanqueado(artigos);
+		System.out.println("Indice com " + indice.getQtdArtigos() + " artigos montado em " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		// consultas misturando palavras comuns e raras
+		List<List<String>> consultas = List.of(
+				List.of(palavras.get(0).getPalavra(), palavras.get(1).getPalavra()),
+				List.of(palavras.get(0).getPalavra(), palavras.get(50).getPalavra(), palavras.get(3000).getPalavra()),
+				List.of(palavras.get(2).getPalavra(), palavras.get(5).getPalavra(), palavras.get(9).getPalavra(), palavras.get(200).getPalavra()),
+				List.of(palavras.get(10000).getPalavra(), "palavra que nao existe"));
+
+		boolean iguais = true;
+		long tempoWand = 0;
+		long tempoCompleto = 0;
+
+		for(List<String> consulta : consultas) {
+			for(int k : new int[] {1, 10, 100}) {
+				inicio = System.nanoTime();
+				List<IndiceRanqueado.Resultado> resultados = indice.busca(consulta, k);
+				tempoWand += System.nanoTime() - inicio;
+
+				inicio = System.nanoTime();
+				List<Object[]> esperados = buscaCompleta(artigos, palavras, consulta, k);
+				tempoCompleto += System.nanoTime() - inicio;
+
+				iguais = iguais && resultados.size() == esperados.size();
+				for(int i = 0; iguais && i < resultados.size(); i++) {
+					iguais = resultados.get(i).getArtigo().equals(esperados.get(i)[0])
+							&& Math.abs(resultados.get(i).getPontuacao() - (double) esperados.get(i)[1]) < 1e-9;
+				}
+			}
+		}
+
+		System.out.println("Mesmos resultados que pontuar todos os artigos: " + iguais);
+		System.out.println("WAND: " + tempoWand / 1000000 + "ms, pontuando todos: " + tempoCompleto / 1000000 + "ms");
+		System.out.println("Melhor resultado: " + indice.busca(consultas.get(1), 1).get(0));
+
+		try {
+			indice.busca(consultas.get(0), 0);
+			System.out.println("k = 0 aceito");
+		} catch (IllegalArgumentException e) {
+			System.out.println("k = 0 recusado");
+		}
+
+		// o indice tambem pode ser montado a partir do banco de palavras chave
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-ranqueado");
+		IndiceRanqueado doBanco = IndiceRanqueado.de(banco.abreVisao());
+		System.out.println("Indice do banco com todos os artigos: " + (doBanco.getQtdArtigos() == artigos.size()));
+		banco.close();
+	}
+
+	/**
+	 * Pontua todos os artigos que tem alguma das palavras, com a mesma formula do indice, e
+	 * devolve os k melhores como pares (artigo, pontuacao).
+	 */
+	private static List<Object[]> buscaCompleta(List<Artigo> artigos, List<PalavraChave> palavras, List<String> consulta, int k) {
+		HashMap<String, Integer> qtdArtigos = new HashMap<>();
+		for(PalavraChave pc : palavras) {
+			qtdArtigos.put(pc.getPalavra(), pc.getArtigos().size());
+		}
+
+		double tamanhoMedio = 0;
+		for(Artigo a : artigos) {
+			tamanhoMedio += a.getPalavrasChave().size();
+		}
+		tamanhoMedio /= artigos.size();
+
+		ArrayList<Object[]> pontuados = new ArrayList<>();
+		for(int id = 0; id < artigos.size(); id++) {
+			Artigo a = artigos.get(id);
+			double pontuacao = 0;
+			boolean tem = false;
+
+			for(String palavra : new LinkedHashSet<>(consulta)) {
+				int frequencia = (int) a.getPalavrasChave().stream().filter(palavra::equals).count();
+
+				if(frequencia > 0) {
+					double qtd = qtdArtigos.get(palavra);
+					double idf = Math.log(1 + (artigos.size() - qtd + 0.5) / (qtd + 0.5));
+					double normalizacao = 1 - IndiceRanqueado.B + IndiceRanqueado.B * a.getPalavrasChave().size() / tamanhoMedio;
+					pontuacao += idf * frequencia * (IndiceRanqueado.K1 + 1) / (frequencia + IndiceRanqueado.K1 * normalizacao);
+					tem = true;
+				}
+			}
+
+			if(tem) {
+				pontuados.add(new Object[] {a, pontuacao, id});
+			}
+		}
+
+		pontuados.sort(Comparator.comparingDouble((Object[] p) -> -(double) p[1]).thenComparingInt(p -> (int) p[2]));
+		return pontuados.subList(0, Math.min(k, pontuados.size()));
+	}
+}
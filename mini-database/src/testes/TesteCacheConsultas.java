@@ -0,0 +1,205 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import banco.MiniBD;
+import banco.Transacao;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+import modelo.busca.CacheConsultas;
+
+public class TesteCacheConsultas {
+
+	public static void main(String[] args) throws Exception {
+		GeradorArtigos gerador = new GeradorArtigos(49);
+		gerador.setDistribuicaoPalavras(5000, 1.0);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(gerador.gera(20000, 6, 3));
+		palavras.sort(Comparator.comparingInt((PalavraChave pc) -> -pc.getArtigos().size()));
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-cache-consultas");
+		CacheConsultas cache = new CacheConsultas(banco, CacheConsultas.ORCAMENTO_PADRAO);
+
+		// consultas repetidas: sem o cache, cada uma percorre as listas das palavras de novo
+		List<String> tres = List.of(palavras.get(0).getPalavra(), palavras.get(1).getPalavra(), palavras.get(2).getPalavra());
+		int repeticoes = 20000;
+
+		long inicio = System.nanoTime();
+		int total = 0;
+		for(int i = 0; i < repeticoes; i++) {
+			total += todas(banco, tres).size();
+		}
+		long tempoSemCache = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		for(int i = 0; i < repeticoes; i++) {
+			total -= cache.buscaTodas(tres).size();
+		}
+		long tempoComCache = System.nanoTime() - inicio;
+
+		System.out.println("Consulta E de 3 palavras comuns: " + tempoSemCache / repeticoes / 1000.0 + "us sem cache, "
+				+ tempoComCache / repeticoes / 1000.0 + "us com cache, mesmos resultados: " + (total == 0));
+		System.out.println("Mesma consulta em outra ordem usa o resultado: "
+				+ (cache.buscaTodas(List.of(tres.get(2), tres.get(0), tres.get(1), tres.get(0))) == cache.buscaTodas(tres)));
+
+		// uma alteracao so descarta as consultas das palavras alteradas
+		String a = palavras.get(10).getPalavra();
+		String b = palavras.get(11).getPalavra();
+		cache.busca(a);
+		cache.busca(b);
+		PalavraChave pcA = banco.busca(a);
+		pcA.removeArtigo(pcA.getArtigos().get(0));
+		banco.atualiza(pcA);
+
+		long acertos = cache.getAcertos();
+		cache.busca(b);
+		boolean outraAcertou = cache.getAcertos() == acertos + 1;
+		boolean alteradaAtualizada = cache.busca(a).size() == pcA.getArtigos().size() && cache.getAcertos() == acertos + 1;
+		System.out.println("Alteracao de uma palavra: outra palavra continua no cache " + outraAcertou + ", palavra alterada recalculada "
+				+ alteradaAtualizada);
+
+		// alteracoes e consultas misturadas, conferindo cada consulta com o banco
+		Random aleatorio = new Random(49);
+		ArrayList<String> usadas = new ArrayList<>();
+		for(int i = 0; i < 40; i++) {
+			usadas.add(palavras.get(i).getPalavra());
+		}
+		for(int i = 0; i < 10; i++) {
+			usadas.add("palavra nova " + i);
+		}
+
+		int erradas = 0;
+		int qtdConsultas = 20000;
+		acertos = cache.getAcertos();
+		long faltas = cache.getFaltas();
+		for(int i = 0; i < qtdConsultas; i++) {
+			if(aleatorio.nextInt(50) == 0) {
+				altera(banco, usadas, aleatorio, i);
+			}
+
+			List<String> consulta = new ArrayList<>();
+			for(int j = 1 + aleatorio.nextInt(3); j > 0; j--) {
+				consulta.add(usadas.get(aleatorio.nextInt(usadas.size())));
+			}
+
+			switch(aleatorio.nextInt(4)) {
+			case 0:
+				PalavraChave pc = banco.busca(consulta.get(0));
+				List<Artigo> doCache = cache.busca(consulta.get(0));
+				erradas += (pc == null ? doCache == null : doCache != null && doCache.equals(pc.getArtigos())) ? 0 : 1;
+				break;
+			case 1:
+				erradas += cache.buscaTodas(consulta).equals(todas(banco, consulta)) ? 0 : 1;
+				break;
+			case 2:
+				erradas += cache.buscaAlguma(consulta).equals(alguma(banco, consulta)) ? 0 : 1;
+				break;
+			default:
+				Artigo artigo = new Artigo("Artigo do cache " + aleatorio.nextInt(qtdConsultas / 10), List.of(), consulta, null, null);
+				erradas += cache.contemArtigo(artigo) == contem(banco, artigo) ? 0 : 1;
+			}
+		}
+		System.out.println(qtdConsultas + " consultas com alteracoes no meio: " + erradas + " desatualizadas, "
+				+ (cache.getAcertos() - acertos) + " acertos e " + (cache.getFaltas() - faltas) + " faltas");
+
+		// o cache nao passa do orcamento, mesmo com muitas consultas diferentes
+		CacheConsultas pequeno = new CacheConsultas(banco, 64 * 1024);
+		boolean dentroOrcamento = true;
+		for(int i = 0; i < palavras.size(); i++) {
+			pequeno.buscaAlguma(List.of(palavras.get(i).getPalavra(), palavras.get((i * 7) % palavras.size()).getPalavra()));
+			dentroOrcamento = dentroOrcamento && pequeno.getBytesUsados() <= 64 * 1024;
+		}
+		System.out.println("Cache pequeno dentro do orcamento: " + dentroOrcamento + " (" + pequeno.getQtdResultados() + " resultados, "
+				+ pequeno.getBytesUsados() + " bytes)");
+
+		// depois de fechado, o cache nao acompanha mais o banco
+		pequeno.close();
+		cache.close();
+		banco.close();
+	}
+
+	/**
+	 * Faz uma alteracao aleatoria no banco, em uma das palavras usadas nas consultas.
+	 */
+	private static void altera(MiniBD<PalavraChave, String> banco, List<String> usadas, Random aleatorio, int i) throws Exception {
+		String palavra = usadas.get(aleatorio.nextInt(usadas.size()));
+		String outra = usadas.get(aleatorio.nextInt(usadas.size()));
+
+		switch(aleatorio.nextInt(4)) {
+		case 0:
+			// artigo novo em duas palavras, em uma transacao
+			Artigo artigo = new Artigo("Artigo do cache " + i / 10, List.of(), new ArrayList<>(new TreeSet<>(List.of(palavra, outra))), null, null);
+			try(Transacao<PalavraChave, String> transacao = banco.iniciaTransacao()) {
+				for(String p : artigo.getPalavrasChave()) {
+					PalavraChave pc = transacao.busca(p);
+					if(pc == null) {
+						pc = new PalavraChave(p);
+						pc.addArtigo(artigo);
+						transacao.adiciona(pc);
+					} else if(!pc.contemArtigo(artigo)) {
+						pc.addArtigo(artigo);
+						transacao.atualiza(pc);
+					}
+				}
+				transacao.confirma();
+			}
+			break;
+		case 1:
+			banco.remove(palavra);
+			break;
+		case 2:
+			banco.adiciona(new PalavraChave(palavra));
+			break;
+		default:
+			PalavraChave pc = banco.busca(palavra);
+			if(pc != null && !pc.getArtigos().isEmpty()) {
+				pc.removeArtigo(pc.getArtigos().get(aleatorio.nextInt(pc.getArtigos().size())));
+				banco.atualiza(pc);
+			}
+		}
+	}
+
+	private static List<Artigo> todas(MiniBD<PalavraChave, String> banco, List<String> palavras) {
+		LinkedHashSet<Artigo> res = null;
+		for(String palavra : new TreeSet<>(palavras)) {
+			PalavraChave pc = banco.busca(palavra);
+			if(pc == null) {
+				return List.of();
+			} else if(res == null) {
+				res = new LinkedHashSet<>(pc.getArtigos());
+			} else {
+				res.retainAll(new LinkedHashSet<>(pc.getArtigos()));
+			}
+		}
+		return new ArrayList<>(res);
+	}
+
+	private static List<Artigo> alguma(MiniBD<PalavraChave, String> banco, List<String> palavras) {
+		LinkedHashSet<Artigo> res = new LinkedHashSet<>();
+		for(String palavra : new TreeSet<>(palavras)) {
+			PalavraChave pc = banco.busca(palavra);
+			if(pc != null) {
+				res.addAll(pc.getArtigos());
+			}
+		}
+		return new ArrayList<>(res);
+	}
+
+	private static boolean contem(MiniBD<PalavraChave, String> banco, Artigo artigo) {
+		for(String palavra : artigo.getPalavrasChave()) {
+			PalavraChave pc = banco.busca(palavra);
+			if(pc != null && pc.contemArtigo(artigo)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
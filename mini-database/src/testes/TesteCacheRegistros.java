@@ -0,0 +1,114 @@
+package testes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import banco.CodecSerializacaoJava;
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteCacheRegistros {
+
+	public static void main(String[] args) {
+		GeradorArtigos ga = new GeradorArtigos();
+		ArrayList<Artigo> artigos = ga.gera(2000, 5, 5);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(artigos);
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(),
+				new CodecPalavraChave(), "banco-cache");
+		banco.setOrcamentoCache(16 * 1024);
+
+		System.out.println("Bytes da tabela codificada: " + banco.getBytesTabela());
+
+		// as 10 primeiras palavras sao buscadas varias vezes e as outras uma vez so
+		for(int i = 0; i < 100; i++) {
+			for(int j = 0; j < 10; j++) {
+				banco.busca(palavras.get(j).getPalavra());
+			}
+
+			banco.busca(palavras.get(10 + i).getPalavra());
+		}
+
+		System.out.println("Acertos: " + banco.getAcertosCache() + ", faltas: " + banco.getFaltasCache());
+
+		// alteracoes so ficam no banco depois de atualizar o registro
+		PalavraChave pc = banco.busca(palavras.get(0).getPalavra());
+		pc.addArtigo(new Artigo("Titulo novo", null, pc.getArtigos().get(0).getPalavrasChave(), null, null));
+		banco.atualiza(pc);
+		banco.setOrcamentoCache(0);
+
+		System.out.println("Artigos de " + pc.getPalavra() + ": " + banco.busca(pc.getPalavra()).getArtigos().size());
+
+		// o cache guarda a sua propria copia, entao alteracoes sem atualizar nao aparecem em outras buscas
+		banco.setOrcamentoCache(16 * 1024);
+		PalavraChave buscada = banco.busca(palavras.get(1).getPalavra());
+		int qtdArtigos = buscada.getArtigos().size();
+		buscada.removeArtigo(buscada.getArtigos().get(0));
+		pc.addArtigo(new Artigo("Titulo depois de atualizar", null, pc.getArtigos().get(0).getPalavrasChave(), null, null));
+		System.out.println("Alteracoes sem atualizar isoladas: " + (banco.busca(buscada.getPalavra()).getArtigos().size() == qtdArtigos
+				&& banco.busca(pc.getPalavra()).getArtigos().size() == pc.getArtigos().size() - 1
+				&& banco.busca(buscada.getPalavra()) != banco.busca(buscada.getPalavra())));
+		banco.setOrcamentoCache(0);
+
+		try {
+			banco.close();
+
+			banco = MiniBD.carregaBanco("banco-cache", "banco-cache-indices", "banco-cache-posicoes-vazias",
+					(PalavraChave p) -> p.getPalavra(), new CodecPalavraChave());
+
+			System.out.println("Depois de carregar: " + banco.busca(pc.getPalavra()).getArtigos().size());
+		} catch (ClassNotFoundException | IOException e) {
+			System.out.println(e.getMessage());
+		}
+
+		// um acerto do cache nao decodifica nada
+		CodecContador codecPalavras = new CodecContador();
+		MiniBD<PalavraChave, String> contado = new MiniBD<>(palavras, (PalavraChave p) -> p.getPalavra(), codecPalavras,
+				"banco-cache-contado");
+		int decodificacoes = codecPalavras.qtdDecodificacoes;
+		contado.busca(palavras.get(0).getPalavra());
+		long acertos = contado.getAcertosCache();
+		int depoisDaPrimeira = codecPalavras.qtdDecodificacoes;
+		contado.busca(palavras.get(0).getPalavra());
+		System.out.println("Acerto do cache sem decodificar: " + (decodificacoes == 0 && depoisDaPrimeira <= 1
+				&& codecPalavras.qtdDecodificacoes == depoisDaPrimeira && contado.getAcertosCache() == acertos + 1));
+
+		// com um codec sem copia barata, o cache nao e usado e cada busca decodifica uma vez so
+		CodecSerializacaoContador codecJava = new CodecSerializacaoContador();
+		MiniBD<String, Integer> semCache = new MiniBD<>((String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+				codecJava, "banco-cache-sem-copia");
+		for(int i = 0; i < 100; i++) {
+			semCache.adiciona(i + ":original");
+		}
+		semCache.atualiza("1:alterado");
+		int decodificacoesAlteracoes = codecJava.qtdDecodificacoes;
+		semCache.busca(1);
+		semCache.busca(1);
+		System.out.println("Sem cache para copia cara: " + (decodificacoesAlteracoes == 0 && codecJava.qtdDecodificacoes == 2
+				&& semCache.getAcertosCache() == 0 && semCache.getFaltasCache() == 0));
+	}
+
+	private static class CodecContador extends CodecPalavraChave {
+		private int qtdDecodificacoes = 0;
+
+		@Override
+		public PalavraChave decodifica(byte[] bytes) throws IOException {
+			this.qtdDecodificacoes++;
+			return super.decodifica(bytes);
+		}
+	}
+
+	private static class CodecSerializacaoContador extends CodecSerializacaoJava<String> {
+		private int qtdDecodificacoes = 0;
+
+		@Override
+		public String decodifica(byte[] bytes) throws IOException, ClassNotFoundException {
+			this.qtdDecodificacoes++;
+			return super.decodifica(bytes);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package testes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.ColunasArtigos;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteColunasArtigos {
+
+	public static void main(String[] args) throws Exception {
+		GeradorArtigos gerador = new GeradorArtigos(50);
+		gerador.setDistribuicaoPalavras(20000, 1.0);
+		gerador.setDistribuicaoAutores(50000, 1.0);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(gerador.geraParalelo(200000, 6, 4));
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-colunas");
+
+		long inicio = System.nanoTime();
+		ColunasArtigos colunas = ColunasArtigos.de(banco);
+		long tempoMontagem = System.nanoTime() - inicio;
+		System.out.println(colunas.getQtdArtigos() + " artigos, " + colunas.getQtdAutores() + " autores e " + colunas.getQtdPalavras()
+				+ " palavras em colunas com " + colunas.getBytesColunas() / 1024 + "KiB, montadas em " + tempoMontagem / 1000000 + "ms");
+
+		// as mesmas perguntas percorrendo os objetos dos artigos de todas as palavras
+		inicio = System.nanoTime();
+		HashSet<Artigo> artigos = new HashSet<>();
+		TreeMap<Integer, Integer> porAnoObjetos = new TreeMap<>();
+		HashMap<String, Integer> porAutorObjetos = new HashMap<>();
+		HashMap<String, Integer> porPalavraObjetos = new HashMap<>();
+		banco.abreVisao().percorre((String palavra, PalavraChave pc) -> {
+			for(Artigo artigo : pc.getArtigos()) {
+				if(artigos.add(artigo)) {
+					if(artigo.getDataPublicacao() != null) {
+						porAnoObjetos.merge(artigo.getDataPublicacao().getYear(), 1, Integer::sum);
+					}
+					for(String autor : artigo.getAutores()) {
+						porAutorObjetos.merge(autor, 1, Integer::sum);
+					}
+					for(String p : artigo.getPalavrasChave()) {
+						porPalavraObjetos.merge(p, 1, Integer::sum);
+					}
+				}
+			}
+		});
+		long tempoObjetos = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		SortedMap<Integer, Integer> porAno = colunas.contaPorAno();
+		int[] porAutor = colunas.contaPorAutor();
+		int[] porPalavra = colunas.contaPorPalavra();
+		long tempoColunas = System.nanoTime() - inicio;
+
+		System.out.println("Contagens por ano, autor e palavra: " + tempoObjetos / 1000000 + "ms percorrendo os objetos, "
+				+ tempoColunas / 1000000 + "ms nas colunas");
+		System.out.println("Mesmos artigos: " + (artigos.size() == colunas.getQtdArtigos()) + ", mesmos anos: " + porAno.equals(porAnoObjetos)
+				+ ", mesmos autores: " + iguais(porAutor, porAutorObjetos, colunas::getAutor) + ", mesmas palavras: "
+				+ iguais(porPalavra, porPalavraObjetos, colunas::getPalavra));
+
+		// contagens repetidas, depois que a JVM ja compilou os lacos
+		int repeticoes = 20;
+		inicio = System.nanoTime();
+		for(int i = 0; i < repeticoes; i++) {
+			colunas.contaPorAno();
+		}
+		System.out.println("Contagem por ano nas colunas: " + (System.nanoTime() - inicio) / repeticoes / 1000 + "us");
+
+		// periodo e histograma, conferidos com as datas dos objetos
+		LocalDate de = LocalDate.of(2000, 1, 1);
+		LocalDate ate = LocalDate.of(2009, 12, 31);
+		int noPeriodo = 0;
+		int[] porDecada = new int[5];
+		for(Artigo artigo : artigos) {
+			LocalDate data = artigo.getDataPublicacao();
+			if(data != null && !data.isBefore(de) && !data.isAfter(ate)) {
+				noPeriodo++;
+			}
+			if(data != null && data.getYear() >= 1970 && data.getYear() < 2020) {
+				porDecada[(data.getYear() - 1970) / 10]++;
+			}
+		}
+		System.out.println("Artigos de 2000 a 2009: " + colunas.conta(de, ate) + ", igual aos objetos: " + (colunas.conta(de, ate) == noPeriodo));
+
+		// faixas de 10 anos so sao iguais as decadas quando comecam no mesmo dia, entao o histograma
+		// e conferido faixa por faixa com a contagem do periodo
+		boolean histogramaCerto = true;
+		int[] faixas = colunas.histograma((int) LocalDate.of(1970, 1, 1).toEpochDay(), 3653, 5);
+		for(int i = 0; i < faixas.length; i++) {
+			histogramaCerto = histogramaCerto && faixas[i] == colunas.conta(3653 * i, 3653 * (i + 1) - 1);
+		}
+		System.out.println("Histograma de 5 faixas de 3653 dias: " + Arrays.toString(faixas) + ", igual as contagens: " + histogramaCerto
+				+ " (decadas nos objetos: " + Arrays.toString(porDecada) + ")");
+
+		// os mais frequentes, conferidos com a ordem dos objetos
+		List<Map.Entry<String, Integer>> autores = colunas.autoresMaisFrequentes(5);
+		List<Map.Entry<String, Integer>> autoresObjetos = new ArrayList<>(porAutorObjetos.entrySet());
+		autoresObjetos.sort((Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) -> a.getValue().equals(b.getValue())
+				? a.getKey().compareTo(b.getKey()) : b.getValue() - a.getValue());
+		System.out.println("Autores com mais artigos: " + autores + ", iguais aos objetos: " + autores.equals(autoresObjetos.subList(0, 5)));
+		System.out.println("Palavras com mais artigos: " + colunas.palavrasMaisFrequentes(5));
+
+		// um artigo lido das colunas e igual ao do banco
+		int posicao = colunas.getQtdArtigos() / 2;
+		Artigo original = null;
+		for(Artigo artigo : artigos) {
+			if(artigo.getTitulo().equals(colunas.getTitulo(posicao))) {
+				original = artigo;
+			}
+		}
+		System.out.println("Artigo lido das colunas igual ao do banco: " + (original != null && original.getAutores().equals(colunas.getAutores(posicao))
+				&& original.getPalavrasChave().equals(colunas.getPalavras(posicao))
+				&& (original.getDataPublicacao() == null ? colunas.getData(posicao) == null : original.getDataPublicacao().equals(colunas.getData(posicao)))));
+
+		banco.close();
+	}
+
+	private interface Nome {
+		String get(int id);
+	}
+
+	/**
+	 * Compara as contagens das colunas com as contagens dos objetos.
+	 */
+	private static boolean iguais(int[] contagens, Map<String, Integer> objetos, Nome nome) {
+		if(contagens.length != objetos.size()) {
+			return false;
+		}
+
+		for(int id = 0; id < contagens.length; id++) {
+			if(!objetos.get(nome.get(id)).equals(contagens[id])) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
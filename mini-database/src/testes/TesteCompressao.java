@@ -0,0 +1,69 @@
+package testes;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import banco.MiniBD;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.CompressorBlocos;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.GuardadorObjeto;
+import modelo.auxiliar.MontadorBDPadrao;
+
+public class TesteCompressao {
+
+	public static void main(String[] args) throws Exception {
+		// objeto com varios blocos, salvo com cada nivel
+		ArrayList<String> lista = new ArrayList<>();
+		for(int i = 0; i < 200000; i++) {
+			lista.add("www.link-" + i + ".com");
+		}
+
+		GuardadorObjeto<ArrayList<String>> guardador = new GuardadorObjeto<>("teste-compressao");
+		for(int nivel : new int[] {CompressorBlocos.SEM_COMPRESSAO, CompressorBlocos.NIVEL_MINIMO, 6, CompressorBlocos.NIVEL_MAXIMO}) {
+			guardador.setNivelCompressao(nivel);
+
+			long inicio = System.nanoTime();
+			guardador.salvaObjeto(lista);
+			long salvo = System.nanoTime() - inicio;
+			boolean igual = guardador.carregaObjeto().equals(lista);
+			long lido = System.nanoTime() - inicio - salvo;
+
+			System.out.println("Nivel " + nivel + ": " + new File("teste-compressao.bin").length() / 1024 + "KiB, salvo em "
+					+ salvo / 1000000 + "ms, lido em " + lido / 1000000 + "ms (" + igual + ")");
+		}
+
+		try {
+			guardador.setNivelCompressao(10);
+			System.out.println("Nivel invalido aceito");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Nivel invalido recusado");
+		}
+
+		// banco salvo sem e com compressao
+		MiniBD<PalavraChave, String> banco = new MontadorBDPadrao("banco-comprimido", new GeradorArtigos(9), 50000, 2).getBanco();
+		ArrayList<PalavraChave> palavras = new ArrayList<>(banco.getTabela());
+		banco.close();
+		long semCompressao = tamanhoArquivos("banco-comprimido");
+
+		banco.setNivelCompressao(6);
+		banco.close();
+		System.out.println("Arquivos do banco: " + semCompressao / 1024 + "KiB sem compressao, "
+				+ tamanhoArquivos("banco-comprimido") / 1024 + "KiB com compressao");
+
+		long inicio = System.nanoTime();
+		MiniBD<PalavraChave, String> aberto = MiniBD.carregaBanco("banco-comprimido", "banco-comprimido-indices",
+				"banco-comprimido-posicoes-vazias", (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		boolean igual = true;
+		for(PalavraChave pc : palavras) {
+			igual = igual && aberto.busca(pc.getPalavra()).getArtigos().equals(pc.getArtigos());
+		}
+		System.out.println("Banco comprimido lido em " + (System.nanoTime() - inicio) / 1000000 + "ms: " + igual);
+	}
+
+	private static long tamanhoArquivos(String nomeBanco) {
+		return new File(nomeBanco + ".bin").length() + new File(nomeBanco + "-indices.bin").length()
+				+ new File(nomeBanco + "-posicoes-vazias.bin").length();
+	}
+}
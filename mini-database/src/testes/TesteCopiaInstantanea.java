@@ -0,0 +1,107 @@
+package testes;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import banco.MiniBD;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.MontadorBDPadrao;
+import modelo.btree.BTree;
+
+public class TesteCopiaInstantanea {
+
+	public static void main(String[] args) throws Exception {
+		// copias da arvore durante insercoes e remocoes aleatorias
+		Random rng = new Random(1);
+		BTree<Integer> arvore = new BTree<>(5);
+		TreeMap<Integer, Integer> esperado = new TreeMap<>();
+		ArrayList<BTree<Integer>> copias = new ArrayList<>();
+		ArrayList<TreeMap<Integer, Integer>> esperadoCopias = new ArrayList<>();
+
+		for(int i = 0; i < 20000; i++) {
+			int chave = rng.nextInt(2000);
+
+			if(rng.nextBoolean() && !esperado.containsKey(chave)) {
+				arvore.insere(chave, i);
+				esperado.put(chave, i);
+			} else {
+				arvore.remove(chave);
+				esperado.remove(chave);
+			}
+
+			if(i % 1000 == 0) {
+				copias.add(arvore.copiaInstantanea());
+				esperadoCopias.add(new TreeMap<>(esperado));
+			}
+		}
+
+		boolean iguais = mesmoConteudo(arvore, esperado);
+		for(int i = 0; i < copias.size(); i++) {
+			iguais = iguais && mesmoConteudo(copias.get(i), esperadoCopias.get(i));
+		}
+		System.out.println("Copias da arvore nao mudam: " + iguais);
+
+		// banco alterado enquanto a copia e salva
+		MiniBD<PalavraChave, String> banco = new MontadorBDPadrao("banco-copia", new GeradorArtigos(3), 50000, 2).getBanco();
+		ArrayList<String> palavras = new ArrayList<>();
+		for(PalavraChave pc : banco.getTabela()) {
+			palavras.add(pc.getPalavra());
+		}
+
+		long inicio = System.nanoTime();
+		CompletableFuture<Void> copia = banco.salvaCopiaInstantanea();
+		System.out.println("Copia criada em " + (System.nanoTime() - inicio) / 1000 + "us");
+
+		boolean alteradoDuranteCopia = false;
+		for(int i = 0; i < palavras.size(); i += 2) {
+			alteradoDuranteCopia = alteradoDuranteCopia || !copia.isDone();
+			banco.remove(palavras.get(i));
+		}
+		banco.adiciona(new PalavraChave("PalavraNova"));
+		System.out.println("Alteracoes feitas antes da copia ser salva: " + alteradoDuranteCopia);
+
+		copia.join();
+		System.out.println("Copia salva em " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		// os arquivos sao copiados sem o diario, que ja tem as alteracoes feitas depois da copia
+		for(File arquivo : new File(".").listFiles((dir, nome) -> nome.startsWith("banco-copia") && !nome.contains("-diario-"))) {
+			Files.copy(arquivo.toPath(), Paths.get(arquivo.getName().replace("banco-copia", "banco-copia-salva")),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		MiniBD<PalavraChave, String> salvo = MiniBD.carregaBanco("banco-copia-salva", "banco-copia-salva-indices",
+				"banco-copia-salva-posicoes-vazias", (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		boolean completo = salvo.busca("PalavraNova") == null;
+		for(String palavra : palavras) {
+			completo = completo && salvo.contem(palavra);
+		}
+		System.out.println("Arquivos com o banco do momento da copia: " + completo);
+
+		banco.close();
+		salvo = MiniBD.carregaBanco("banco-copia", "banco-copia-indices", "banco-copia-posicoes-vazias",
+				(PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave());
+		System.out.println("Arquivos com o banco alterado: " + (salvo.busca("PalavraNova") != null
+				&& !salvo.contem(palavras.get(0)) && salvo.contem(palavras.get(1))));
+	}
+
+	private static boolean mesmoConteudo(BTree<Integer> arvore, TreeMap<Integer, Integer> esperado) {
+		TreeMap<Integer, Integer> conteudo = new TreeMap<>();
+		arvore.percorre((chave, indice) -> conteudo.put(chave, indice));
+
+		for(Map.Entry<Integer, Integer> par : esperado.entrySet()) {
+			if(arvore.busca(par.getKey()) != par.getValue()) {
+				return false;
+			}
+		}
+
+		return conteudo.equals(esperado);
+	}
+}
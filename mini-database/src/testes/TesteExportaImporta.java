@@ -0,0 +1,79 @@
+package testes;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import banco.ExportadorBanco;
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.ExportadorArtigos;
+import modelo.auxiliar.FormatoArtigo;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ImportadorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteExportaImporta {
+
+	public static void main(String[] args) {
+		GeradorArtigos ga = new GeradorArtigos();
+		ArrayList<Artigo> artigos = ga.gera(1000, 5, 5);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(artigos);
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(),
+				new CodecPalavraChave(), "banco-exportado");
+
+		try {
+			for(FormatoArtigo formato : FormatoArtigo.values()) {
+				Path arquivo = Paths.get(formato == FormatoArtigo.CSV ? "artigos.csv" : "artigos.jsonl");
+				new ExportadorArtigos(banco).exporta(arquivo, formato);
+
+				MiniBD<PalavraChave, String> copia = new MiniBD<>((PalavraChave pc) -> pc.getPalavra(),
+						new CodecPalavraChave(), "banco-importado");
+				ImportadorArtigos importador = new ImportadorArtigos(copia);
+
+				System.out.println(formato + ": " + importador.importa(arquivo) + " artigos importados de " + artigos.size()
+						+ ", " + importador.getQtdInvalidas() + " linhas invalidas");
+				System.out.println("Mesmas palavras: " + (copia.getTabela().size() == palavras.size()));
+
+				// importar o mesmo arquivo de novo nao adiciona nenhum artigo
+				System.out.println("Reimportados: " + importador.importa(arquivo) + ", mesmos artigos: "
+						+ new HashSet<>(copia.busca(palavras.get(0).getPalavra()).getArtigos()).equals(new HashSet<>(palavras.get(0).getArtigos())));
+			}
+
+			Path binario = Paths.get("banco-exportado.mbdx");
+			System.out.println("Registros exportados: " + new ExportadorBanco<>(banco).exportaBinario(binario));
+
+			MiniBD<PalavraChave, String> restaurado = new MiniBD<>((PalavraChave pc) -> pc.getPalavra(),
+					new CodecPalavraChave(), "banco-restaurado");
+			System.out.println("Registros restaurados: " + ExportadorBanco.restaura(binario, restaurado));
+
+			String palavra = palavras.get(0).getPalavra();
+			System.out.println(palavra + ": " + restaurado.busca(palavra).getArtigos().equals(banco.busca(palavra).getArtigos()));
+
+			// um tamanho de registro corrompido e recusado antes de alocar o registro
+			for(int tamanho : new int[] {-5, Integer.MAX_VALUE}) {
+				try(RandomAccessFile arquivo = new RandomAccessFile(binario.toFile(), "rw")) {
+					arquivo.seek(4);
+					arquivo.writeInt(tamanho);
+				}
+
+				try {
+					ExportadorBanco.restaura(binario, new MiniBD<>((PalavraChave pc) -> pc.getPalavra(),
+							new CodecPalavraChave(), "banco-restaurado-corrompido"));
+					System.out.println("Tamanho " + tamanho + " aceito");
+				} catch (StreamCorruptedException e) {
+					System.out.println("Tamanho " + tamanho + " recusado: " + e.getMessage());
+				}
+			}
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+}
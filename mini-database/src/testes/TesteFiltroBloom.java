@@ -0,0 +1,56 @@
+package testes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import banco.MiniBD;
+
+public class TesteFiltroBloom {
+
+	public static void main(String[] args) {
+		MiniBD<String, String> banquinhoDeDados = new MiniBD<String, String>((String s) -> s, "banquinho-bloom");
+		banquinhoDeDados.habilitaFiltroBloom(0.01);
+
+		for(int i = 0; i < 5000; i++) {
+			banquinhoDeDados.adiciona("Palavra" + i);
+		}
+
+		System.out.println("Buscando Palavra42: " + banquinhoDeDados.busca("Palavra42"));
+		System.out.println("Buscando Palavra4999: " + banquinhoDeDados.busca("Palavra4999"));
+		System.out.println("Buscando Palavra5000: " + banquinhoDeDados.busca("Palavra5000"));
+		System.out.println("Removendo Palavra42: " + banquinhoDeDados.remove("Palavra42"));
+		System.out.println("Buscando Palavra42: " + banquinhoDeDados.busca("Palavra42"));
+
+		try {
+			banquinhoDeDados.close();
+
+			banquinhoDeDados = MiniBD.carregaBanco("banquinho-bloom", "banquinho-bloom-indices",
+					"banquinho-bloom-posicoes-vazias", (String s) -> s);
+
+			System.out.println("Filtro carregado: " + banquinhoDeDados.temFiltroBloom());
+			System.out.println("Buscando Palavra43: " + banquinhoDeDados.busca("Palavra43"));
+			System.out.println("Buscando Palavra42: " + banquinhoDeDados.busca("Palavra42"));
+
+			// um filtro de uma copia anterior, com a mesma quantidade de registros, nao e usado
+			Path filtro = Paths.get("banquinho-bloom-indices-bloom.bin");
+			Path filtroAntigo = Paths.get("banquinho-bloom-indices-bloom-antigo.bin");
+			Files.copy(filtro, filtroAntigo, StandardCopyOption.REPLACE_EXISTING);
+			banquinhoDeDados.remove("Palavra43");
+			banquinhoDeDados.adiciona("PalavraNova");
+			banquinhoDeDados.close();
+			Files.move(filtroAntigo, filtro, StandardCopyOption.REPLACE_EXISTING);
+
+			banquinhoDeDados = MiniBD.carregaBanco("banquinho-bloom", "banquinho-bloom-indices",
+					"banquinho-bloom-posicoes-vazias", (String s) -> s);
+			System.out.println("Filtro antigo trocado: " + banquinhoDeDados.temFiltroBloom() + ", buscando PalavraNova: "
+					+ banquinhoDeDados.busca("PalavraNova"));
+
+			banquinhoDeDados.close();
+		} catch (ClassNotFoundException | IOException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+}
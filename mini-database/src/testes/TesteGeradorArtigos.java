@@ -0,0 +1,41 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import modelo.artigo.Artigo;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteGeradorArtigos {
+
+	public static void main(String[] args) {
+		long inicio = System.nanoTime();
+		ArrayList<Artigo> sequencial = new GeradorArtigos(42).gera(100000, 5, 5);
+		System.out.println("Sequencial: " + sequencial.size() + " artigos em " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		inicio = System.nanoTime();
+		ArrayList<Artigo> paralelo = new GeradorArtigos(42).geraParalelo(100000, 5, 5);
+		System.out.println("Paralelo: " + paralelo.size() + " artigos em " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		boolean iguais = sequencial.size() == paralelo.size();
+		for(int i = 0; iguais && i < sequencial.size(); i++) {
+			iguais = sequencial.get(i).toString().equals(paralelo.get(i).toString());
+		}
+		System.out.println("Mesma semente, mesmos artigos: " + iguais);
+
+		GeradorArtigos ga = new GeradorArtigos(42);
+		System.out.println("Chamadas seguidas nao repetem: " + !ga.gera(10, 5, 5).get(0).equals(ga.gera(10, 5, 5).get(0)));
+
+		GeradorArtigos zipf = new GeradorArtigos(7);
+		zipf.setDistribuicaoPalavras(50000, 1.0);
+		List<PalavraChave> palavras = ProcessadorPalavrasChave.processa(zipf.geraParalelo(20000, 5, 5));
+
+		int maior = 0;
+		for(PalavraChave pc : palavras) {
+			maior = Math.max(maior, pc.getArtigos().size());
+		}
+		System.out.println("Zipf: " + palavras.size() + " palavras, a mais comum em " + maior + " artigos");
+	}
+}
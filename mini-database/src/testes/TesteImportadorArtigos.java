@@ -0,0 +1,88 @@
+package testes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.FormatoArtigo;
+import modelo.auxiliar.ImportadorArtigos;
+
+public class TesteImportadorArtigos {
+
+	public static void main(String[] args) throws IOException {
+		// arquivo escrito a mao, com linhas invalidas, separadores dentro dos campos e quebras de linha
+		// dentro de campos entre aspas
+		Path arquivo = Paths.get("artigos-importador.csv");
+		Files.write(arquivo, ("titulo,autores,palavrasChave,dataPublicacao,link\n"
+				+ "Normal,Ana|Bia,normal,2020-01-02,http://a\n"
+				+ "so,dois campos\n"
+				+ "Data ruim,Ana,data,2020-13-40,\n"
+				+ "\"Titulo, com \"\"virgula\"\"\",Autor\\|Um|Autor\\\\Dois,barra\\|dentro|outra,,\n"
+				+ "\"Titulo com\nquebra\",Ana,\"palavra com\r\nquebra\",2021-05-06,\r\n"
+				+ "\n"
+				+ "Ultimo,Ana,normal,,\n"
+				// aspas que nunca sao fechadas: so a linha delas e invalida
+				+ "\"Aspas que nunca fecham,Ana,aspas,,\n"
+				+ "Depois das aspas,Ana,depois,,\n").getBytes(StandardCharsets.UTF_8));
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>((PalavraChave pc) -> pc.getPalavra(),
+				new CodecPalavraChave(), "banco-importador");
+		ImportadorArtigos importador = new ImportadorArtigos(banco, 2, 2);
+
+		System.out.println("Importados: " + importador.importa(arquivo) + ", invalidos: " + importador.getQtdInvalidas());
+		System.out.println("Normal: " + temArtigo(banco, "normal", "Normal") + " " + temArtigo(banco, "normal", "Ultimo"));
+		System.out.println("Linha depois das aspas nao fechadas: " + temArtigo(banco, "depois", "Depois das aspas"));
+
+		Artigo separadores = banco.busca("barra|dentro").getArtigos().get(0);
+		System.out.println("Separadores dentro dos campos: " + separadores.getTitulo().equals("Titulo, com \"virgula\"")
+				+ " " + separadores.getAutores().equals(Arrays.asList("Autor|Um", "Autor\\Dois")));
+
+		PalavraChave quebra = banco.busca("palavra com\r\nquebra");
+		System.out.println("Quebras de linha dentro dos campos: " + (quebra != null
+				&& quebra.getArtigos().get(0).getTitulo().equals("Titulo com\nquebra")
+				&& LocalDate.of(2021, 5, 6).equals(quebra.getArtigos().get(0).getDataPublicacao())));
+
+		// um artigo formatado com esses caracteres e lido de volta igual
+		Artigo artigo = new Artigo("Ida e\r\nvolta, \"com\" tudo", Arrays.asList("A|B", "C\\|D", "E\\"),
+				Arrays.asList("ida\nvolta", "x|y"), LocalDate.of(2022, 1, 1), null);
+		boolean igual = true;
+
+		for(FormatoArtigo formato : FormatoArtigo.values()) {
+			Path volta = Paths.get(formato == FormatoArtigo.CSV ? "artigos-volta.csv" : "artigos-volta.jsonl");
+			Files.write(volta, (formato.formata(artigo) + "\n").getBytes(StandardCharsets.UTF_8));
+
+			MiniBD<PalavraChave, String> copia = new MiniBD<>((PalavraChave pc) -> pc.getPalavra(),
+					new CodecPalavraChave(), "banco-importador-volta");
+			new ImportadorArtigos(copia).importa(volta);
+
+			PalavraChave pc = copia.busca("x|y");
+			Artigo lido = pc == null ? null : pc.getArtigos().get(0);
+			igual = igual && lido != null && lido.getTitulo().equals(artigo.getTitulo())
+					&& lido.getAutores().equals(artigo.getAutores())
+					&& lido.getPalavrasChave().equals(artigo.getPalavrasChave())
+					&& copia.busca("ida\nvolta") != null;
+		}
+
+		System.out.println("Ida e volta em todos os formatos: " + igual);
+	}
+
+	private static boolean temArtigo(MiniBD<PalavraChave, String> banco, String palavra, String titulo) {
+		PalavraChave pc = banco.busca(palavra);
+
+		if(pc == null) {
+			return false;
+		}
+
+		List<Artigo> artigos = pc.getArtigos();
+		return artigos.stream().anyMatch(a -> a.getTitulo().equals(titulo));
+	}
+}
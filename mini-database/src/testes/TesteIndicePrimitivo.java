@@ -0,0 +1,97 @@
+package testes;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import banco.CodecSerializacaoJava;
+import banco.MiniBD;
+import banco.TipoIndice;
+import modelo.indice.IndicePrimitivo;
+
+public class TesteIndicePrimitivo {
+
+	public static void main(String[] args) throws Exception {
+		// operacoes aleatorias com chaves Long, comparadas com um HashMap
+		Random rng = new Random(3);
+		HashMap<Long, Integer> esperado = new HashMap<>();
+		IndicePrimitivo<Long> indice = IndicePrimitivo.longo();
+		boolean iguais = true;
+
+		for(int i = 0; i < 300000; i++) {
+			long chave = rng.nextInt(10000) * 0x100000001L - 5000;
+
+			switch(rng.nextInt(3)) {
+			case 0:
+				indice.insere(chave, i);
+				esperado.putIfAbsent(chave, i);
+				break;
+			case 1:
+				indice.remove(chave);
+				esperado.remove(chave);
+				break;
+			default:
+				iguais = iguais && indice.busca(chave) == esperado.getOrDefault(chave, -1);
+			}
+		}
+
+		HashMap<Long, Integer> pares = new HashMap<>();
+		indice.percorre(pares::put);
+		System.out.println("Mesmo resultado que o HashMap: " + iguais + ", mesmos pares: " + pares.equals(esperado));
+
+		// o arquivo salvo e carregado de volta, e recusado depois de corrompido
+		Path arquivo = Paths.get("indice-primitivo.bin");
+		indice.salva(arquivo);
+		IndicePrimitivo<?> carregado = IndicePrimitivo.carrega(arquivo);
+		HashMap<Object, Integer> paresCarregados = new HashMap<>();
+		carregado.percorre(paresCarregados::put);
+		System.out.println("Indice carregado igual: " + paresCarregados.equals(esperado));
+
+		try(RandomAccessFile raf = new RandomAccessFile(arquivo.toFile(), "rw")) {
+			raf.seek(raf.length() - 3);
+			raf.write(raf.read() ^ 0x10);
+		}
+		try {
+			IndicePrimitivo.carrega(arquivo);
+			System.out.println("Indice corrompido aceito");
+		} catch (IOException e) {
+			System.out.println("Indice corrompido recusado: " + e.getMessage());
+		}
+
+		// banco com IDs inteiros, com a arvore B e com o indice primitivo
+		ArrayList<String> registros = new ArrayList<>();
+		for(int i = 0; i < 100000; i++) {
+			registros.add(i * 3 + ":registro");
+		}
+
+		for(TipoIndice tipo : new TipoIndice[] {TipoIndice.ARVORE_B, TipoIndice.INTEIRO}) {
+			String nome = "banco-ids-" + tipo.name().toLowerCase();
+			MiniBD<String, Integer> banco = new MiniBD<>(registros, (String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+					new CodecSerializacaoJava<String>(), tipo, nome);
+			banco.remove(3);
+			banco.close();
+
+			long inicio = System.nanoTime();
+			MiniBD<String, Integer> aberto = MiniBD.carregaBanco(nome, nome + "-indices", nome + "-posicoes-vazias",
+					(String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))));
+			long carga = System.nanoTime() - inicio;
+
+			inicio = System.nanoTime();
+			int encontrados = 0;
+			for(int rodada = 0; rodada < 10; rodada++) {
+				for(int i = 0; i < 300000; i++) {
+					if(aberto.contem(i)) {
+						encontrados++;
+					}
+				}
+			}
+
+			System.out.println(tipo + ": carregado em " + carga / 1000000 + "ms, " + encontrados / 10 + " ids encontrados em "
+					+ (System.nanoTime() - inicio) / 1000000 + "ms");
+		}
+	}
+}
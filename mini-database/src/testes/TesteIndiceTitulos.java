@@ -0,0 +1,96 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import modelo.artigo.Artigo;
+import modelo.busca.IndiceTitulos;
+import modelo.busca.Tokenizador;
+
+public class TesteIndiceTitulos {
+
+	public static void main(String[] args) throws Exception {
+		// titulos com palavras de um vocabulario pequeno, para que as palavras se repitam
+		Random rng = new Random(12);
+		String[] vocabulario = new String[2000];
+		for(int i = 0; i < vocabulario.length; i++) {
+			vocabulario[i] = "palavra" + i;
+		}
+		vocabulario[0] = "An\u00e1lise";
+		vocabulario[1] = "Dados";
+
+		ArrayList<Artigo> artigos = new ArrayList<>();
+		for(int i = 0; i < 200000; i++) {
+			StringBuilder titulo = new StringBuilder();
+			for(int j = 0; j < 4 + rng.nextInt(6); j++) {
+				// as palavras do comeco do vocabulario aparecem mais
+				titulo.append(vocabulario[(int) (vocabulario.length * Math.pow(rng.nextDouble(), 3))]).append(j % 3 == 0 ? ", " : " ");
+			}
+			titulo.append(i);
+			artigos.add(new Artigo(titulo.toString(), null, List.of("pc"), null, null));
+		}
+
+		long inicio = System.nanoTime();
+		IndiceTitulos indice = new IndiceTitulos(artigos, "indice-titulos");
+		System.out.println("Indice com " + artigos.size() + " titulos e " + indice.getQtdTermos() + " termos montado em "
+				+ (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		// as buscas sao comparadas com uma varredura dos titulos
+		String[] consultas = {"analise dados", "ANALISE", "palavra10 palavra3", "palavra1999", "dados analise palavra5", "inexistente"};
+		boolean iguais = true;
+		long tempoIndice = 0;
+		long tempoVarredura = 0;
+
+		for(String consulta : consultas) {
+			inicio = System.nanoTime();
+			List<Artigo> palavras = indice.buscaPalavras(consulta);
+			List<Artigo> frase = indice.buscaFrase(consulta);
+			tempoIndice += System.nanoTime() - inicio;
+
+			inicio = System.nanoTime();
+			iguais = iguais && palavras.equals(varredura(artigos, consulta, false)) && frase.equals(varredura(artigos, consulta, true));
+			tempoVarredura += System.nanoTime() - inicio;
+		}
+		System.out.println("Mesmo resultado que a varredura: " + iguais + " (indice " + tempoIndice / 1000000
+				+ "ms, varredura " + tempoVarredura / 1000000 + "ms)");
+		System.out.println("Frase \"analise dados\": " + indice.buscaFrase("analise dados").size() + " de "
+				+ indice.buscaPalavras("analise dados").size() + " artigos com as duas palavras");
+
+		// alteracoes depois da construcao, e o indice salvo e carregado de novo
+		Artigo novo = new Artigo("\u00cdndices invertidos para t\u00edtulos", null, List.of("pc"), null, null);
+		boolean adicionado = indice.adiciona(novo) && !indice.adiciona(novo);
+		boolean removido = indice.remove(artigos.get(0)) && !indice.contem(artigos.get(0));
+		indice.close();
+
+		indice = IndiceTitulos.carrega("indice-titulos");
+		System.out.println("Alteracoes mantidas depois de carregar: " + (adicionado && removido
+				&& indice.buscaFrase("indices invertidos").equals(List.of(novo)) && !indice.contem(artigos.get(0))
+				&& indice.contem(artigos.get(1))));
+
+		// o indice fecha sem salvar o proximo documento: os numeros reservados evitam repeticoes
+		Artigo depois = new Artigo("Titulo depois de carregar", null, List.of("pc"), null, null);
+		indice.adiciona(depois);
+		indice = IndiceTitulos.carrega("indice-titulos");
+		Artigo outro = new Artigo("Outro titulo depois de carregar", null, List.of("pc"), null, null);
+		indice.adiciona(outro);
+		System.out.println("Numeros nao repetidos depois de parar: " + indice.buscaPalavras("depois carregar").equals(List.of(depois, outro)));
+		indice.close();
+	}
+
+	private static List<Artigo> varredura(List<Artigo> artigos, String consulta, boolean emSequencia) {
+		List<String> termos = Tokenizador.tokeniza(consulta);
+		ArrayList<Artigo> encontrados = new ArrayList<>();
+
+		for(Artigo a : artigos) {
+			List<String> doTitulo = Tokenizador.tokeniza(a.getTitulo());
+
+			if(emSequencia ? Collections.indexOfSubList(doTitulo, termos) >= 0 : doTitulo.containsAll(termos)) {
+				encontrados.add(a);
+			}
+		}
+
+		return encontrados;
+	}
+}
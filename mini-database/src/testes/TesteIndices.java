@@ -0,0 +1,118 @@
+package testes;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import banco.CodecSerializacaoJava;
+import banco.ExportadorBanco;
+import banco.MiniBD;
+import banco.TipoIndice;
+import modelo.btree.BTree;
+import modelo.indice.Indice;
+import modelo.indice.IndiceHash;
+import modelo.indice.IndiceSkipList;
+
+public class TesteIndices {
+
+	public static void main(String[] args) throws Exception {
+		// operacoes aleatorias em cada indice, comparadas com um TreeMap
+		List<Indice<Integer>> indices = List.of(new BTree<>(20), new IndiceHash<>(), new IndiceSkipList<>());
+
+		for(Indice<Integer> indice : indices) {
+			Random rng = new Random(7);
+			TreeMap<Integer, Integer> esperado = new TreeMap<>();
+			Indice<Integer> copia = null;
+			TreeMap<Integer, Integer> esperadoCopia = null;
+			boolean iguais = true;
+
+			for(int i = 0; i < 200000; i++) {
+				int chave = rng.nextInt(5000);
+
+				switch(rng.nextInt(3)) {
+				case 0:
+					indice.insere(chave, i);
+					esperado.putIfAbsent(chave, i);
+					break;
+				case 1:
+					indice.remove(chave);
+					esperado.remove(chave);
+					break;
+				default:
+					iguais = iguais && indice.busca(chave) == esperado.getOrDefault(chave, -1);
+				}
+
+				if(i == 100000) {
+					copia = indice.copiaInstantanea();
+					esperadoCopia = new TreeMap<>(esperado);
+				}
+			}
+
+			System.out.println(indice.getClass().getSimpleName() + ": mesmo resultado que o TreeMap: " + iguais
+					+ ", mesmos pares: " + mesmosPares(indice, esperado) + ", copia intacta: " + mesmosPares(copia, esperadoCopia));
+		}
+
+		// o mesmo banco com cada tipo de indice
+		ArrayList<String> registros = new ArrayList<>();
+		for(int i = 0; i < 20000; i++) {
+			registros.add(((i * 7919) % 20000) + ":registro");
+		}
+
+		for(TipoIndice tipo : new TipoIndice[] {TipoIndice.ARVORE_B, TipoIndice.HASH, TipoIndice.SKIP_LIST, TipoIndice.INTEIRO}) {
+			String nome = "banco-indice-" + tipo.name().toLowerCase();
+			MiniBD<String, Integer> banco = new MiniBD<>(registros, (String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+					new CodecSerializacaoJava<String>(), tipo, nome);
+
+			for(int i = 0; i < 20000; i += 3) {
+				banco.remove(i);
+			}
+			banco.close();
+
+			long inicio = System.nanoTime();
+			MiniBD<String, Integer> aberto = MiniBD.carregaBanco(nome, nome + "-indices", nome + "-posicoes-vazias",
+					(String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))));
+			boolean correto = true;
+			for(int rodada = 0; rodada < 10; rodada++) {
+				for(int i = 0; i < 20000; i++) {
+					correto = correto && (aberto.busca(i) == null) == (i % 3 == 0);
+				}
+			}
+			long tempo = System.nanoTime() - inicio;
+
+			// a exportacao continua em ordem de chave, mesmo com o indice sem ordem
+			new ExportadorBanco<>(aberto).exportaTexto(Paths.get(nome + ".txt"), (String s) -> s);
+			List<String> linhas = Files.readAllLines(Paths.get(nome + ".txt"));
+			boolean ordenado = true;
+			for(int i = 1; i < linhas.size(); i++) {
+				ordenado = ordenado && chave(linhas.get(i - 1)) < chave(linhas.get(i));
+			}
+
+			System.out.println(tipo + ": buscas corretas: " + correto + " (" + tempo / 1000000 + "ms), exportacao ordenada: "
+					+ ordenado + " (" + linhas.size() + " registros)");
+		}
+	}
+
+	private static int chave(String registro) {
+		return Integer.parseInt(registro.substring(0, registro.indexOf(':')));
+	}
+
+	private static boolean mesmosPares(Indice<Integer> indice, TreeMap<Integer, Integer> esperado) {
+		TreeMap<Integer, Integer> pares = new TreeMap<>();
+		ArrayList<Integer> ordem = new ArrayList<>();
+
+		indice.percorre((chave, posicao) -> {
+			pares.put(chave, posicao);
+			ordem.add(chave);
+		});
+
+		boolean emOrdem = true;
+		for(int i = 1; i < ordem.size(); i++) {
+			emOrdem = emOrdem && ordem.get(i - 1) < ordem.get(i);
+		}
+
+		return pares.equals(esperado) && ordem.size() == esperado.size() && (emOrdem || !indice.ehOrdenado());
+	}
+}
@@ -0,0 +1,36 @@
+package testes;
+
+import java.util.ArrayList;
+
+import banco.MiniBD;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.MontadorBDPadrao;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+
+public class TesteMontadorBDPadrao {
+
+	public static void main(String[] args) {
+		final int threads = Runtime.getRuntime().availableProcessors();
+
+		long inicio = System.nanoTime();
+		MiniBD<PalavraChave, String> banco = new MontadorBDPadrao("banco-montado", new GeradorArtigos(42), 100000, threads).getBanco();
+		System.out.println("Montagem paralela (" + threads + " threads): " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		inicio = System.nanoTime();
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(new GeradorArtigos(42).gera(100000, 5, 5));
+		MiniBD<PalavraChave, String> sequencial = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), "banco-sequencial");
+		System.out.println("Montagem sequencial: " + (System.nanoTime() - inicio) / 1000000 + "ms");
+
+		boolean iguais = banco.getTabela().size() == palavras.size();
+		for(int i = 0; iguais && i < palavras.size(); i++) {
+			PalavraChave pc = palavras.get(i);
+			iguais = banco.busca(pc.getPalavra()).getArtigos().equals(pc.getArtigos())
+					&& sequencial.busca(pc.getPalavra()).getArtigos().equals(pc.getArtigos());
+		}
+		System.out.println("Mesmo conteudo: " + iguais);
+
+		MiniBD<PalavraChave, String> umaThread = new MontadorBDPadrao("banco-uma-thread", new GeradorArtigos(42), 10000, 1).getBanco();
+		System.out.println("Uma thread: " + umaThread.getTabela().size() + " palavras");
+	}
+}
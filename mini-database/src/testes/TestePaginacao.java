@@ -0,0 +1,100 @@
+package testes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PaginaArtigos;
+import modelo.artigo.PalavraChave;
+
+public class TestePaginacao {
+
+	public static void main(String[] args) throws Exception {
+		ArrayList<Artigo> artigos = new ArrayList<>();
+		for(int i = 0; i < 100000; i++) {
+			artigos.add(new Artigo("Artigo " + i, List.of("Autor " + i % 97, "Autor " + i % 89), List.of("comum", "extra " + i % 13),
+					LocalDate.ofEpochDay(i % 20000), "https://exemplo.com/" + i));
+		}
+
+		ArrayList<PalavraChave> palavras = new ArrayList<>();
+		palavras.add(new PalavraChave("comum", artigos));
+		palavras.add(new PalavraChave("extra 0", artigos.subList(0, 1)));
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-paginacao");
+
+		// percorre todas as paginas guardando os tokens
+		ArrayList<Artigo> lidos = new ArrayList<>();
+		ArrayList<String> tokens = new ArrayList<>();
+		PaginaArtigos pagina = PaginaArtigos.busca(banco, "comum", 100);
+		lidos.addAll(pagina.getArtigos());
+
+		while(pagina.temProxima()) {
+			tokens.add(pagina.getToken());
+			pagina = PaginaArtigos.continua(banco, pagina.getToken(), 100);
+			lidos.addAll(pagina.getArtigos());
+		}
+
+		System.out.println("Paginas com todos os artigos em ordem: " + lidos.equals(artigos) + " (" + (tokens.size() + 1) + " paginas)");
+
+		// a primeira pagina, uma do fim e a palavra inteira
+		long inicio = System.nanoTime();
+		for(int i = 0; i < 100; i++) {
+			PaginaArtigos.busca(banco, "comum", 100);
+		}
+		long tempoPrimeira = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		for(int i = 0; i < 100; i++) {
+			PaginaArtigos.continua(banco, tokens.get(tokens.size() - 1), 100);
+		}
+		long tempoUltima = System.nanoTime() - inicio;
+
+		banco.setOrcamentoCache(0);
+		inicio = System.nanoTime();
+		for(int i = 0; i < 10; i++) {
+			banco.busca("comum");
+		}
+		long tempoInteira = (System.nanoTime() - inicio) * 10;
+
+		System.out.println("100 buscas: primeira pagina " + tempoPrimeira / 1000000 + "ms, ultima pagina " + tempoUltima / 1000000
+				+ "ms, palavra inteira " + tempoInteira / 1000000 + "ms");
+
+		// remove um artigo antes da pagina: a proxima pagina continua depois do ultimo artigo lido
+		String token = tokens.get(500);
+		ArrayList<Artigo> restantes = new ArrayList<>(artigos);
+		restantes.remove(10);
+		banco.atualiza(new PalavraChave("comum", restantes));
+		pagina = PaginaArtigos.continua(banco, token, 100);
+		System.out.println("Continua depois do ultimo artigo lido: " + pagina.getArtigos().get(0).equals(artigos.get(50100))
+				+ ", posicao " + pagina.getInicio());
+
+		// remove o ultimo artigo lido: a proxima pagina continua da mesma posicao
+		restantes = new ArrayList<>(artigos);
+		restantes.remove(artigos.get(50099));
+		banco.atualiza(new PalavraChave("comum", restantes));
+		pagina = PaginaArtigos.continua(banco, token, 100);
+		System.out.println("Continua sem o ultimo artigo lido: " + pagina.getArtigos().get(0).equals(artigos.get(50100)));
+
+		System.out.println("Palavra que nao existe: " + PaginaArtigos.busca(banco, "nenhuma", 100));
+		System.out.println("Pagina unica sem token: " + !PaginaArtigos.busca(banco, "extra 0", 100).temProxima());
+
+		try {
+			PaginaArtigos.continua(banco, "token-falso", 100);
+			System.out.println("Token invalido aceito");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Token invalido recusado");
+		}
+
+		try {
+			PaginaArtigos.busca(banco, "comum", 0);
+			System.out.println("Pagina vazia aceita");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Pagina vazia recusada");
+		}
+
+		banco.close();
+	}
+}
@@ -0,0 +1,189 @@
+package testes;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import banco.MiniBD;
+import banco.PublicadorReplicacao;
+import banco.ReplicaLeitura;
+import banco.Transacao;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+import principal.ServidorConsultas;
+
+public class TesteReplicacao {
+
+	public static void main(String[] args) throws Exception {
+		GeradorArtigos gerador = new GeradorArtigos(48);
+		gerador.setDistribuicaoPalavras(5000, 1.0);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(gerador.gera(20000, 6, 3));
+		palavras.sort(Comparator.comparingInt((PalavraChave pc) -> -pc.getArtigos().size()));
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-replicacao");
+		PublicadorReplicacao<PalavraChave, String> publicador = new PublicadorReplicacao<>(banco, 0);
+
+		// uma replica em outro processo, atendendo as buscas pelo protocolo do servidor
+		Process processo = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+				System.getProperty("java.class.path"), ServidorConsultas.class.getName(), "--replica", String.valueOf(publicador.getPorta()))
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+		try {
+			BufferedReader saidaProcesso = new BufferedReader(new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8));
+			String linha = saidaProcesso.readLine();
+			int portaReplica = Integer.parseInt(linha.replaceAll(".*na porta (\\d+) com os comandos.*", "$1"));
+			Cliente cliente = new Cliente(portaReplica);
+			System.out.println("Replica em outro processo: " + cliente.pede("ESTADO").subList(0, 3));
+
+			// uma replica no mesmo processo, para conferir o conteudo inteiro
+			long inicio = System.nanoTime();
+			ReplicaLeitura<PalavraChave, String> replica = new ReplicaLeitura<>(publicador.getPorta(), (PalavraChave pc) -> pc.getPalavra(),
+					new CodecPalavraChave(), "banco-replicacao-replica");
+			long tempoCopia = System.nanoTime() - inicio;
+			System.out.println("Copia inicial com " + replica.getQtdRegistros() + " registros em " + tempoCopia / 1000000 + "ms, igual ao primario: "
+					+ iguais(banco, replica));
+			System.out.println("Replicas conectadas: " + publicador.getQtdReplicas());
+
+			// muitas transacoes, adicionando artigos em palavras existentes e novas, e algumas
+			// alteracoes fora de transacoes
+			inicio = System.nanoTime();
+			int qtdTransacoes = 500;
+			for(int i = 0; i < qtdTransacoes; i++) {
+				Artigo artigo = new Artigo("Artigo replicado " + i, List.of("Autor " + i),
+						List.of(palavras.get(i % 50).getPalavra(), "palavra replicada " + i % 100), null, null);
+
+				try(Transacao<PalavraChave, String> transacao = banco.iniciaTransacao()) {
+					for(String palavra : artigo.getPalavrasChave()) {
+						PalavraChave pc = transacao.busca(palavra);
+						if(pc == null) {
+							pc = new PalavraChave(palavra);
+							pc.addArtigo(artigo);
+							transacao.adiciona(pc);
+						} else {
+							pc.addArtigo(artigo);
+							transacao.atualiza(pc);
+						}
+					}
+					transacao.confirma();
+				}
+
+				if(i % 100 == 0) {
+					banco.remove(palavras.get(palavras.size() - 1 - i / 100).getPalavra());
+				}
+			}
+			long tempoEscrita = System.nanoTime() - inicio;
+
+			long versao = banco.getVersao();
+			boolean alcancou = replica.aguardaVersao(versao, 30000);
+			long tempoAlcance = System.nanoTime() - inicio;
+			System.out.println(qtdTransacoes + " transacoes em " + tempoEscrita / 1000000 + "ms, replica alcancou a versao " + versao + ": " + alcancou
+					+ " (" + tempoAlcance / 1000000 + "ms), atraso maximo " + replica.getAtrasoMaximoMicros() / 1000 + "ms");
+			System.out.println("Replica igual ao primario depois das alteracoes: " + iguais(banco, replica));
+
+			// atraso de cada alteracao isolada, do commit ate ficar visivel na replica
+			int qtdMedidas = 200;
+			long[] atrasos = new long[qtdMedidas];
+			for(int i = 0; i < qtdMedidas; i++) {
+				long antes = System.nanoTime();
+				banco.adiciona(new PalavraChave("palavra medida " + i));
+				replica.aguardaVersao(banco.getVersao(), 10000);
+				atrasos[i] = (System.nanoTime() - antes) / 1000;
+			}
+			Arrays.sort(atrasos);
+			System.out.println("Atraso de uma alteracao: mediana " + atrasos[qtdMedidas / 2] + "us, p99 " + atrasos[qtdMedidas * 99 / 100]
+					+ "us, visivel na replica: " + replica.contem("palavra medida " + (qtdMedidas - 1)));
+
+			// a replica do outro processo tambem alcanca o primario e responde as mesmas buscas
+			List<String> estado = cliente.pede("ESTADO");
+			long limite = System.currentTimeMillis() + 30000;
+			while(Long.parseLong(estado.get(3)) < banco.getVersao() && System.currentTimeMillis() < limite) {
+				Thread.sleep(10);
+				estado = cliente.pede("ESTADO");
+			}
+			System.out.println("Outro processo alcancou o primario: " + (Long.parseLong(estado.get(3)) == banco.getVersao())
+					+ ", mesmos registros: " + (Integer.parseInt(estado.get(2)) == banco.getQtdRegistros()));
+
+			boolean mesmasBuscas = true;
+			for(int i = 0; i < 50; i++) {
+				String palavra = i % 2 == 0 ? palavras.get(i).getPalavra() : "palavra replicada " + i;
+				mesmasBuscas = mesmasBuscas && cliente.pede("BUSCA", palavra, "1000").get(1).equals(String.valueOf(banco.busca(palavra).getArtigos().size()));
+			}
+			System.out.println("Buscas do outro processo iguais ao primario: " + mesmasBuscas + ", removida: "
+					+ cliente.pede("CONTEM", palavras.get(palavras.size() - 1).getPalavra()));
+			System.out.println("Alteracao na replica: " + cliente.pede("ADICIONA", "Artigo", "", "", "0", "palavra").get(0));
+			cliente.pede("SAIR");
+
+			// sem o primario, a replica continua respondendo a ultima versao
+			publicador.close();
+			limite = System.currentTimeMillis() + 10000;
+			while(replica.estaConectada() && System.currentTimeMillis() < limite) {
+				Thread.sleep(10);
+			}
+			System.out.println("Replica desconectada: " + !replica.estaConectada() + ", ainda responde: "
+					+ replica.contem("palavra replicada 10") + " " + (replica.getQtdRegistros() == banco.getQtdRegistros()));
+			replica.close();
+		} finally {
+			processo.destroy();
+			processo.waitFor();
+		}
+
+		banco.close();
+	}
+
+	/**
+	 * Compara todos os registros do primario com os da replica.
+	 */
+	private static boolean iguais(MiniBD<PalavraChave, String> banco, ReplicaLeitura<PalavraChave, String> replica) {
+		if(banco.getQtdRegistros() != replica.getQtdRegistros()) {
+			return false;
+		}
+
+		boolean[] res = {true};
+		banco.abreVisao().percorre((chave, pc) -> {
+			PalavraChave daReplica = replica.busca(chave);
+			res[0] = res[0] && daReplica != null && daReplica.getArtigos().equals(pc.getArtigos());
+		});
+		return res[0];
+	}
+
+	/**
+	 * Cliente do protocolo de linhas do servidor.
+	 */
+	private static class Cliente {
+		private final Socket conexao;
+		private final BufferedReader leitor;
+		private final PrintStream escritor;
+
+		private Cliente(int porta) throws Exception {
+			this.conexao = new Socket(InetAddress.getLoopbackAddress(), porta);
+			this.leitor = new BufferedReader(new InputStreamReader(this.conexao.getInputStream(), StandardCharsets.UTF_8));
+			this.escritor = new PrintStream(this.conexao.getOutputStream(), false, StandardCharsets.UTF_8);
+		}
+
+		private List<String> pede(String... pedido) throws Exception {
+			for(int i = 0; i < pedido.length; i++) {
+				this.escritor.print((i == 0 ? "" : "\t") + ServidorConsultas.escapa(pedido[i]));
+			}
+			this.escritor.print('\n');
+			this.escritor.flush();
+
+			List<String> resposta = ServidorConsultas.separa(this.leitor.readLine());
+			if(pedido[0].equals("SAIR")) {
+				this.conexao.close();
+			}
+			return resposta;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package testes;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import banco.MiniBD;
+import modelo.artigo.Artigo;
+import modelo.artigo.CodecPalavraChave;
+import modelo.artigo.PalavraChave;
+import modelo.auxiliar.GeradorArtigos;
+import modelo.auxiliar.ProcessadorPalavrasChave;
+import principal.ServidorConsultas;
+
+public class TesteServidor {
+
+	public static void main(String[] args) throws Exception {
+		GeradorArtigos gerador = new GeradorArtigos(46);
+		gerador.setDistribuicaoPalavras(5000, 1.0);
+		ArrayList<PalavraChave> palavras = ProcessadorPalavrasChave.processa(gerador.gera(20000, 6, 3));
+		palavras.sort(Comparator.comparingInt((PalavraChave pc) -> -pc.getArtigos().size()));
+		String comum = palavras.get(0).getPalavra();
+
+		MiniBD<PalavraChave, String> banco = new MiniBD<>(palavras, (PalavraChave pc) -> pc.getPalavra(), new CodecPalavraChave(),
+				"banco-servidor");
+		ServidorConsultas servidor = new ServidorConsultas(banco, 0);
+
+		// um cliente percorrendo todas as paginas da palavra mais comum
+		Cliente cliente = new Cliente(servidor.getPorta());
+		ArrayList<String> titulos = new ArrayList<>();
+		List<String> resposta = cliente.pede("BUSCA", comum, "100");
+		while(true) {
+			titulos.addAll(resposta.subList(4, resposta.size()));
+			if(resposta.get(3).equals("-")) {
+				break;
+			}
+			resposta = cliente.pede("CONTINUA", resposta.get(3), "100");
+		}
+
+		ArrayList<String> esperados = new ArrayList<>();
+		for(Artigo a : banco.busca(comum).getArtigos()) {
+			esperados.add(a.getTitulo());
+		}
+		System.out.println("Paginas com todos os artigos da palavra mais comum: " + titulos.equals(esperados));
+
+		System.out.println("CONTEM: " + cliente.pede("CONTEM", comum) + " " + cliente.pede("CONTEM", "nao existe"));
+		System.out.println("PARECIDAS: " + cliente.pede("PARECIDAS", comum.substring(1), "1").contains(comum));
+
+		// titulo com tabulacao e quebra de linha, que precisam de escape
+		String titulo = "Artigo\tdo servidor\ncom escapes";
+		System.out.println("ADICIONA: " + cliente.pede("ADICIONA", titulo, "2020-01-02", "", "1", "Autor", comum, "palavra do servidor"));
+		System.out.println("ADICIONA repetido: " + cliente.pede("ADICIONA", titulo, "", "", "0", "palavra do servidor"));
+		System.out.println("ADICIONA com palavra repetida: " + cliente.pede("ADICIONA", "Artigo com palavra repetida", "", "", "0",
+				"palavra repetida", "palavra repetida") + ", PARECIDAS depois: " + cliente.pede("PARECIDAS", "palavra repetid", "1"));
+		System.out.println("BUSCA depois de adicionar: " + cliente.pede("BUSCA", "palavra do servidor", "10").get(4).equals(titulo));
+		System.out.println("REMOVE: " + cliente.pede("REMOVE", titulo, "palavra do servidor") + ", CONTEM depois: "
+				+ cliente.pede("CONTEM", "palavra do servidor"));
+		System.out.println("Comando invalido: " + cliente.pede("APAGA", "tudo").get(0));
+		System.out.println("Pagina grande demais: " + cliente.pede("BUSCA", comum, "1000000").get(0));
+		cliente.pede("SAIR");
+
+		// muitos clientes conectados ao mesmo tempo, cada um mandando os pedidos de uma vez so
+		int qtdClientes = 1000;
+		int qtdPedidos = 20;
+		ArrayList<Cliente> clientes = new ArrayList<>();
+		for(int i = 0; i < qtdClientes; i++) {
+			clientes.add(new Cliente(servidor.getPorta()));
+		}
+		while(servidor.getQtdConexoes() < qtdClientes) {
+			Thread.sleep(10);
+		}
+		System.out.println("Clientes conectados ao mesmo tempo: " + servidor.getQtdConexoes());
+
+		ExecutorService executor = Executors.newFixedThreadPool(64);
+		ArrayList<Future<Boolean>> resultados = new ArrayList<>();
+		long inicio = System.nanoTime();
+
+		for(int i = 0; i < qtdClientes; i++) {
+			final Cliente c = clientes.get(i);
+			final int id = i;
+
+			resultados.add(executor.submit(() -> {
+				ArrayList<String[]> pedidos = new ArrayList<>();
+				ArrayList<Integer> totais = new ArrayList<>();
+				for(int j = 0; j < qtdPedidos; j++) {
+					PalavraChave pc = palavras.get((id * qtdPedidos + j) % palavras.size());
+					pedidos.add(j % 2 == 0 ? new String[] {"CONTEM", pc.getPalavra()} : new String[] {"BUSCA", pc.getPalavra(), "5"});
+					totais.add(pc.getArtigos().size());
+				}
+
+				// alguns clientes tambem adicionam artigos na mesma palavra
+				if(id % 20 == 0) {
+					pedidos.add(new String[] {"ADICIONA", "Artigo concorrente " + id, "", "", "0", "palavra concorrente"});
+				}
+
+				c.envia(pedidos);
+
+				boolean certo = true;
+				for(int j = 0; j < pedidos.size(); j++) {
+					List<String> r = c.recebe();
+					certo = certo && r.get(0).equals("OK") && (!pedidos.get(j)[0].equals("BUSCA") || Integer.parseInt(r.get(1)) == totais.get(j));
+				}
+
+				c.pede("SAIR");
+				return certo;
+			}));
+		}
+
+		boolean todosCertos = true;
+		for(Future<Boolean> resultado : resultados) {
+			todosCertos = todosCertos && resultado.get();
+		}
+		long tempo = System.nanoTime() - inicio;
+		executor.shutdown();
+
+		System.out.println("Respostas certas para todos os clientes: " + todosCertos);
+		System.out.println(qtdClientes * qtdPedidos + " pedidos em " + tempo / 1000000 + "ms");
+
+		cliente = new Cliente(servidor.getPorta());
+		System.out.println("Artigos adicionados ao mesmo tempo: " + cliente.pede("BUSCA", "palavra concorrente", "100").get(1));
+		cliente.pede("SAIR");
+
+		servidor.close();
+		banco.close();
+	}
+
+	/**
+	 * Cliente do protocolo de linhas do servidor.
+	 */
+	private static class Cliente {
+		private final Socket conexao;
+		private final BufferedReader leitor;
+		private final OutputStream saida;
+
+		private Cliente(int porta) throws Exception {
+			this.conexao = new Socket(InetAddress.getLoopbackAddress(), porta);
+			this.leitor = new BufferedReader(new InputStreamReader(this.conexao.getInputStream(), StandardCharsets.UTF_8));
+			this.saida = this.conexao.getOutputStream();
+		}
+
+		private void envia(List<String[]> pedidos) throws Exception {
+			StringBuilder linhas = new StringBuilder();
+			for(String[] pedido : pedidos) {
+				for(int i = 0; i < pedido.length; i++) {
+					linhas.append(i == 0 ? "" : "\t").append(ServidorConsultas.escapa(pedido[i]));
+				}
+				linhas.append('\n');
+			}
+
+			PrintStream escritor = new PrintStream(this.saida, false, StandardCharsets.UTF_8);
+			escritor.print(linhas);
+			escritor.flush();
+		}
+
+		private List<String> recebe() throws Exception {
+			return ServidorConsultas.separa(this.leitor.readLine());
+		}
+
+		private List<String> pede(String... pedido) throws Exception {
+			ArrayList<String[]> pedidos = new ArrayList<>();
+			pedidos.add(pedido);
+			this.envia(pedidos);
+
+			List<String> resposta = this.recebe();
+			if(pedido[0].equals("SAIR")) {
+				this.conexao.close();
+			}
+			return resposta;
+		}
+	}
+}
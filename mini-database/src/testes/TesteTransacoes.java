@@ -0,0 +1,185 @@
+package testes;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import banco.CodecSerializacaoJava;
+import banco.MiniBD;
+import banco.Transacao;
+
+public class TesteTransacoes {
+
+	public static void main(String[] args) throws Exception {
+		MiniBD<String, Integer> banco = novoBanco();
+		for(int i = 0; i < 100; i++) {
+			banco.adiciona(i + ":original");
+		}
+		banco.close();
+
+		// alteracoes de uma transacao so aparecem no banco depois da confirmacao
+		Transacao<String, Integer> transacao = banco.iniciaTransacao();
+		transacao.atualiza("1:alterado");
+		transacao.remove(2);
+		transacao.adiciona("200:novo");
+		System.out.println("Le as proprias alteracoes: " + ("1:alterado".equals(transacao.busca(1)) && !transacao.contem(2)
+				&& transacao.contem(200)));
+		System.out.println("Banco intacto antes da confirmacao: " + ("1:original".equals(banco.busca(1)) && banco.contem(2)
+				&& !banco.contem(200)));
+		transacao.confirma();
+		System.out.println("Banco alterado depois da confirmacao: " + ("1:alterado".equals(banco.busca(1)) && !banco.contem(2)
+				&& banco.contem(200)));
+
+		// uma transacao desfeita nao muda nada
+		try(Transacao<String, Integer> desfeita = banco.iniciaTransacao()) {
+			desfeita.remove(3);
+			desfeita.adiciona("300:novo");
+		}
+		System.out.println("Transacao desfeita sem efeito: " + (banco.contem(3) && !banco.contem(300)));
+
+		try {
+			transacao.adiciona("400:novo");
+			System.out.println("Transacao confirmada aceitou outra operacao");
+		} catch (IllegalStateException e) {
+			System.out.println("Transacao confirmada recusou outra operacao");
+		}
+
+		// o programa para sem fechar o banco: so o diario tem as transacoes confirmadas depois da
+		// ultima copia salva
+		transacao = banco.iniciaTransacao();
+		transacao.remove(4);
+		transacao.atualiza("5:alterado");
+		transacao.confirma();
+		MiniBD<String, Integer> reaberto = carregaBanco();
+		System.out.println("Diario reaplicado: " + ("1:alterado".equals(reaberto.busca(1)) && !reaberto.contem(2)
+				&& reaberto.contem(200) && !reaberto.contem(4) && "5:alterado".equals(reaberto.busca(5))
+				&& reaberto.abreVisao().getQtdRegistros() == 99));
+
+		// uma transacao escrita pela metade no fim do diario e ignorada
+		File[] diarios = new File(".").listFiles((dir, nome) -> nome.startsWith("banco-transacoes-diario-"));
+		try(FileOutputStream saida = new FileOutputStream(diarios[diarios.length - 1], true)) {
+			saida.write(new byte[] {0, 0, 1, 0, 0, 0, 0, 1, 0});
+		}
+		reaberto = carregaBanco();
+		System.out.println("Fim rasgado do diario ignorado: " + ("5:alterado".equals(reaberto.busca(5))
+				&& reaberto.abreVisao().getQtdRegistros() == 99));
+
+		// depois que a copia do banco e salva, o diario pode ser apagado
+		banco.close();
+		diarios = new File(".").listFiles((dir, nome) -> nome.startsWith("banco-transacoes-diario-"));
+		reaberto = carregaBanco();
+		System.out.println("Diarios apagados depois de fechar: " + (diarios.length == 0 && "5:alterado".equals(reaberto.busca(5))
+				&& reaberto.abreVisao().getQtdRegistros() == 99));
+
+		// o programa para depois da copia ser salva, mas antes do diario dela ser apagado: as
+		// transacoes que ja estao na copia nao sao reaplicadas por cima de alteracoes posteriores
+		transacao = banco.iniciaTransacao();
+		transacao.atualiza("6:transacao");
+		transacao.confirma();
+		banco.atualiza("6:depois");
+		banco.remove(7);
+		File pastaDiarios = new File("diarios-transacoes");
+		pastaDiarios.mkdir();
+		for(File diario : new File(".").listFiles((dir, nome) -> nome.startsWith("banco-transacoes-diario-"))) {
+			Files.copy(diario.toPath(), pastaDiarios.toPath().resolve(diario.getName()), StandardCopyOption.REPLACE_EXISTING);
+		}
+		banco.close();
+		for(File diario : pastaDiarios.listFiles()) {
+			Files.move(diario.toPath(), Paths.get(diario.getName()), StandardCopyOption.REPLACE_EXISTING);
+		}
+		pastaDiarios.delete();
+		reaberto = carregaBanco();
+		System.out.println("Diario ja salvo nao reaplicado: " + ("6:depois".equals(reaberto.busca(6)) && !reaberto.contem(7)
+				&& reaberto.abreVisao().getQtdRegistros() == 98));
+
+		// alteracoes fora de transacoes tambem vao para o diario, e chegam ao disco junto com a
+		// proxima transacao
+		reaberto.remove(8);
+		reaberto.adiciona("500:novo");
+		transacao = reaberto.iniciaTransacao();
+		transacao.atualiza("9:alterado");
+		transacao.confirma();
+		reaberto = carregaBanco();
+		System.out.println("Alteracoes sem transacao reaplicadas: " + (!reaberto.contem(8) && "500:novo".equals(reaberto.busca(500))
+				&& "9:alterado".equals(reaberto.busca(9)) && reaberto.abreVisao().getQtdRegistros() == 98));
+		reaberto.close();
+
+		// o programa para depois do manifesto ser trocado, mas antes dos arquivos serem renomeados:
+		// os arquivos pendentes da copia confirmada valem, e os de uma copia seguinte sao ignorados
+		long geracao = geracaoManifesto();
+		Files.move(Paths.get("banco-transacoes.bin"), Paths.get("banco-transacoes-g" + geracao + ".bin"));
+		Files.write(Paths.get("banco-transacoes.bin"), new byte[] {1, 2, 3});
+		Files.write(Paths.get("banco-transacoes-indices-g" + (geracao + 1) + ".bin"), new byte[] {1, 2, 3});
+		reaberto = carregaBanco();
+		System.out.println("Copia confirmada carregada por inteiro: " + ("6:depois".equals(reaberto.busca(6)) && !reaberto.contem(8)
+				&& reaberto.abreVisao().getQtdRegistros() == 98 && !new File("banco-transacoes-g" + geracao + ".bin").exists()
+				&& !new File("banco-transacoes-indices-g" + (geracao + 1) + ".bin").exists()));
+
+		// o programa para com uma transacao rasgada no fim do ultimo arquivo do diario: ela e cortada
+		// ao carregar, e as transacoes seguintes vao para outro arquivo depois dele
+		transacao = reaberto.iniciaTransacao();
+		transacao.atualiza("10:primeiro");
+		transacao.confirma();
+		diarios = diariosEmOrdem();
+		try(FileOutputStream saida = new FileOutputStream(diarios[diarios.length - 1], true)) {
+			saida.write(new byte[] {0, 0, 1, 0, 0, 0, 0, 1, 0});
+		}
+		MiniBD<String, Integer> segundo = carregaBanco();
+		transacao = segundo.iniciaTransacao();
+		transacao.atualiza("11:segundo");
+		transacao.confirma();
+		segundo = carregaBanco();
+		diarios = diariosEmOrdem();
+		System.out.println("Fim rasgado cortado antes do proximo arquivo: " + (diarios.length == 2
+				&& "10:primeiro".equals(segundo.busca(10)) && "11:segundo".equals(segundo.busca(11))));
+
+		// um registro corrompido em um arquivo que nao e o ultimo nao e pulado: o carregamento falha
+		try(RandomAccessFile arquivo = new RandomAccessFile(diarios[0], "rw")) {
+			arquivo.seek(arquivo.length() - 6);
+			arquivo.write(arquivo.read() ^ 0xFF);
+		}
+		try {
+			carregaBanco();
+			System.out.println("Diario corrompido no meio carregado");
+		} catch (StreamCorruptedException e) {
+			System.out.println("Diario corrompido no meio recusado: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Arquivos do diario do banco, em ordem de numero.
+	 */
+	private static File[] diariosEmOrdem() {
+		File[] diarios = new File(".").listFiles((dir, nome) -> nome.startsWith("banco-transacoes-diario-"));
+		Arrays.sort(diarios, Comparator.comparingLong((File f) -> Long.parseLong(f.getName().replaceAll("\\D", ""))));
+		return diarios;
+	}
+
+	/**
+	 * Le a geracao da copia confirmada no manifesto do banco (depois do numero magico e da versao).
+	 */
+	private static long geracaoManifesto() throws Exception {
+		try(DataInputStream entrada = new DataInputStream(new FileInputStream("banco-transacoes-manifesto.bin"))) {
+			entrada.skipBytes(8);
+			return entrada.readLong();
+		}
+	}
+
+	private static MiniBD<String, Integer> novoBanco() {
+		return new MiniBD<>((String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))), new CodecSerializacaoJava<String>(),
+				"banco-transacoes");
+	}
+
+	private static MiniBD<String, Integer> carregaBanco() throws Exception {
+		return MiniBD.carregaBanco("banco-transacoes", "banco-transacoes-indices", "banco-transacoes-posicoes-vazias",
+				(String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))), new CodecSerializacaoJava<String>());
+	}
+}
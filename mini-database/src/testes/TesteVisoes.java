@@ -0,0 +1,146 @@
+package testes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import banco.CodecSerializacaoJava;
+import banco.MiniBD;
+import banco.VisaoBanco;
+
+public class TesteVisoes {
+
+	public static void main(String[] args) throws Exception {
+		ArrayList<String> iniciais = new ArrayList<>();
+		for(int i = 0; i < 20000; i++) {
+			iniciais.add(registro(i, 0));
+		}
+
+		MiniBD<String, Integer> banco = new MiniBD<>(iniciais, (String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))),
+				new CodecSerializacaoJava<String>(), "banco-visoes");
+
+		// uma visao aberta antes das alteracoes nao muda depois delas
+		VisaoBanco<String, Integer> antes = banco.abreVisao();
+		HashMap<Integer, String> conteudoAntes = conteudo(antes);
+
+		// uma thread altera o banco enquanto outras abrem visoes e percorrem elas
+		AtomicBoolean fim = new AtomicBoolean(false);
+		Thread escritor = new Thread(() -> {
+			Random rng = new Random(1);
+			for(int i = 1; i <= 60000; i++) {
+				int chave = rng.nextInt(30000);
+				switch(rng.nextInt(3)) {
+				case 0:
+					banco.adiciona(registro(chave, i));
+					break;
+				case 1:
+					banco.remove(chave);
+					break;
+				default:
+					banco.atualiza(registro(chave, i));
+				}
+			}
+			fim.set(true);
+		});
+
+		boolean[] consistentes = {true, true, true};
+		int[] qtdVisoes = new int[3];
+		Thread[] leitores = new Thread[3];
+		for(int t = 0; t < leitores.length; t++) {
+			final int id = t;
+			leitores[t] = new Thread(() -> {
+				while(!fim.get()) {
+					VisaoBanco<String, Integer> visao = banco.abreVisao();
+					HashMap<Integer, String> primeira = conteudo(visao);
+
+					// cada registro esta inteiro, e a visao nao muda enquanto o banco e alterado
+					for(String registro : primeira.values()) {
+						consistentes[id] = consistentes[id] && registroValido(registro);
+					}
+					consistentes[id] = consistentes[id] && primeira.size() == visao.getQtdRegistros()
+							&& primeira.equals(conteudo(visao));
+					qtdVisoes[id]++;
+				}
+			});
+		}
+
+		escritor.start();
+		for(Thread leitor : leitores) {
+			leitor.start();
+		}
+		escritor.join();
+		for(Thread leitor : leitores) {
+			leitor.join();
+		}
+
+		System.out.println("Visoes consistentes: " + (consistentes[0] && consistentes[1] && consistentes[2])
+				+ " (" + (qtdVisoes[0] + qtdVisoes[1] + qtdVisoes[2]) + " visoes)");
+		System.out.println("Visao antiga intacta: " + conteudoAntes.equals(conteudo(antes)) + " (" + antes.getQtdRegistros()
+				+ " registros, banco com " + banco.abreVisao().getQtdRegistros() + ")");
+
+		// a visao atual tem o mesmo conteudo do banco
+		VisaoBanco<String, Integer> depois = banco.abreVisao();
+		boolean iguais = true;
+		for(int chave = 0; chave < 30000; chave++) {
+			String registro = banco.busca(chave);
+			iguais = iguais && (registro == null ? depois.busca(chave) == null : registro.equals(depois.busca(chave)));
+		}
+		System.out.println("Visao nova igual ao banco: " + iguais);
+		banco.close();
+
+		// uma visao do banco recem-carregado nao le a tabela inteira, e continua lendo os blocos do
+		// arquivo da abertura mesmo depois que o banco altera esses blocos e salva um arquivo novo
+		MiniBD<String, Integer> carregado = carregaBanco();
+		long inicio = System.nanoTime();
+		VisaoBanco<String, Integer> preguicosa = carregado.abreVisao();
+		long abertura = System.nanoTime() - inicio;
+		HashMap<Integer, String> esperado = new HashMap<>();
+		for(int chave = 0; chave < 30000; chave++) {
+			String registro = carregado.busca(chave);
+			if(registro != null) {
+				esperado.put(chave, registro);
+			}
+		}
+		carregado.close();
+		carregado = carregaBanco();
+		VisaoBanco<String, Integer> fixada = carregado.abreVisao();
+		for(int chave = 0; chave < 30000; chave += 7) {
+			carregado.remove(chave);
+			carregado.adiciona(registro(chave, -1));
+		}
+		carregado.close();
+		System.out.println("Visao do arquivo substituido intacta: " + (esperado.equals(conteudo(fixada))
+				&& esperado.equals(conteudo(preguicosa))) + " (visao aberta em " + abertura / 1000 + " us)");
+		carregado = carregaBanco();
+		System.out.println("Banco salvo com as alteracoes: " + registro(7, -1).equals(carregado.busca(7)));
+		carregado.close();
+	}
+
+	private static MiniBD<String, Integer> carregaBanco() throws Exception {
+		return MiniBD.carregaBanco("banco-visoes", "banco-visoes-indices", "banco-visoes-posicoes-vazias",
+				(String s) -> Integer.parseInt(s.substring(0, s.indexOf(':'))), new CodecSerializacaoJava<String>());
+	}
+
+	private static String registro(int chave, int versao) {
+		return chave + ":" + versao + ":" + (chave ^ versao);
+	}
+
+	private static boolean registroValido(String registro) {
+		String[] partes = registro.split(":");
+		return (Integer.parseInt(partes[0]) ^ Integer.parseInt(partes[1])) == Integer.parseInt(partes[2]);
+	}
+
+	private static HashMap<Integer, String> conteudo(VisaoBanco<String, Integer> visao) {
+		HashMap<Integer, String> conteudo = new HashMap<>();
+		int[] anterior = {-1};
+		visao.percorre((chave, registro) -> {
+			if(chave <= anterior[0]) {
+				throw new IllegalStateException("A visao nao esta em ordem!!");
+			}
+			anterior[0] = chave;
+			conteudo.put(chave, registro);
+		});
+		return conteudo;
+	}
+}